@@ -0,0 +1,50 @@
+package tcc.br;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa os benchmarks JMH com o GCProfiler (taxa de alocação por operação) ligado.
+ * <p>Aceita as opções de linha de comando do JMH (ex.: "ModelBuild" para filtrar,
+ * "-p instance=N/lavras05.dat"). A pasta das instâncias vem de -Dtcc.datasets
+ * (padrão ../datasets) e é repassada, junto com java.library.path, aos forks.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Dtcc.datasets=" + datasetsDir());
+
+        String libraryPath = System.getProperty("java.library.path");
+        if (libraryPath != null) {
+            builder.jvmArgsAppend("-Djava.library.path=" + libraryPath);
+        }
+        new Runner(builder.build()).run();
+    }
+
+    static String datasetsDir() {
+        return new File(System.getProperty("tcc.datasets", "../datasets")).getAbsolutePath();
+    }
+
+    /**
+     * Caminho absoluto de uma instância relativa à pasta datasets (ex.: "TP/lavras01-TP.dat").
+     */
+    static String dataset(String instance) {
+        return new File(datasetsDir(), instance).getPath();
+    }
+
+    /**
+     * Tipo de entrada pela pasta: instâncias em TP/ são NEARPTP.
+     */
+    static String inputType(String instance) {
+        return instance.startsWith("TP/") ? "NEARPTP" : "NEARP";
+    }
+}
@@ -0,0 +1,96 @@
+package tcc.br;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ilog.concert.IloException;
+
+/**
+ * Cada fase de CplexModel.build: variáveis, função objetivo e cada grupo de restrições.
+ * <p>Um CplexModel novo é criado por invocação, já com as fases anteriores à medida
+ * (as restrições usam as variáveis). O backend "cplex" requer a biblioteca nativa do CPLEX;
+ * "recording" mede apenas a construção, sem o solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBuildBenchmark {
+    @Param({ "N/lavras01.dat", "TP/lavras01-TP.dat" })
+    public String instance;
+
+    @Param({ "variables", "objective", "assignment", "vehicleFlow", "timeFlow", "flowLowerBound", "turns", "symmetry" })
+    public String phase;
+
+    @Param({ "cplex", "recording" })
+    public String backend;
+
+    private String inputType;
+    private CplexData data;
+    private CplexModel model;
+
+    @Setup(Level.Trial)
+    public void loadInstance() throws IOException {
+        this.inputType = BenchmarkRunner.inputType(instance);
+        this.data = Tcc.loadInstance(BenchmarkRunner.dataset(instance), inputType);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareModel() throws IloException {
+        model = backend.equals("recording")
+                ? new CplexModel(data, inputType, new RecordingBackend())
+                : new CplexModel(data, inputType);
+        model.setQuiet(true);
+        if (phase.equals("variables")) return;
+        model.buildDecisionVariables();
+        if (phase.equals("objective")) return;
+        model.buildObjectiveFunction();
+    }
+
+    @TearDown(Level.Invocation)
+    public void endModel() {
+        model.end();
+    }
+
+    @Benchmark
+    public int build() throws IloException {
+        switch (phase) {
+            case "variables":
+                model.buildDecisionVariables();
+                return 0;
+            case "objective":
+                model.buildObjectiveFunction();
+                return 0;
+            case "assignment":
+                return model.buildAssignmentConstraints();
+            case "vehicleFlow":
+                return model.buildVehicleFlowConstraints();
+            case "timeFlow":
+                return model.buildTimeFlowConstraints();
+            case "flowLowerBound":
+                return model.buildFlowLowerBoundConstraints();
+            case "turns":
+                return model.buildTurnConstraints();
+            case "symmetry":
+                return model.buildSymmetryBreakConstraints();
+            default:
+                throw new IllegalArgumentException("Fase desconhecida: " + phase);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package tcc.br;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Leitura das instâncias (Tcc.readInput) e pré-processamento (TccPreProcessing).
+ * Não depende do CPLEX.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+    @Param({ "N/lavras01.dat", "N/lavras12.dat", "TP/lavras01-TP.dat", "TP/lavras12-TP.dat" })
+    public String instance;
+
+    private String path;
+    private String inputType;
+    private Tcc parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.path = BenchmarkRunner.dataset(instance);
+        this.inputType = BenchmarkRunner.inputType(instance);
+        this.parsed = new Tcc();
+        this.parsed.readInput(path, inputType);
+    }
+
+    @Benchmark
+    public Tcc readInput() throws IOException {
+        Tcc tcc = new Tcc();
+        tcc.readInput(path, inputType);
+        return tcc;
+    }
+
+    @Benchmark
+    public CplexData preProcess() {
+        return parsed.preProcess();
+    }
+}
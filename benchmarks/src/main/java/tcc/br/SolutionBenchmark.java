@@ -0,0 +1,85 @@
+package tcc.br;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ilog.concert.IloException;
+
+/**
+ * Extração da solução (valores em bloco e VehiclePlan), montagem das rotas e escrita
+ * da saída. O modelo é resolvido uma vez, com limite de tempo curto, antes da medição.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolutionBenchmark {
+    @Param({ "N/lavras01.dat", "TP/lavras01-TP.dat" })
+    public String instance;
+
+    @Param({ "30" })
+    public int solveSeconds;
+
+    private Tcc tcc;
+    private CplexModel model;
+    private Solution solution;
+    private File output;
+
+    @Setup(Level.Trial)
+    public void solve() throws IOException, IloException {
+        String inputType = BenchmarkRunner.inputType(instance);
+        this.tcc = new Tcc();
+        tcc.readInput(BenchmarkRunner.dataset(instance), inputType);
+
+        this.model = new CplexModel(tcc.preProcess(), inputType);
+        model.setQuiet(true);
+        model.build();
+        model.configure(StopWatch.createStarted());
+        if (!model.resolve(solveSeconds)) {
+            throw new IllegalStateException("Sem solução em " + solveSeconds + "s para " + instance);
+        }
+        this.solution = model.buildSolution(0);
+        this.output = File.createTempFile("tcc-bench", ".txt");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        model.end();
+        output.delete();
+    }
+
+    @Benchmark
+    public List<VehiclePlan> extractPlans() throws IloException {
+        return model.extractVehiclePlans();
+    }
+
+    @Benchmark
+    public Solution buildSolution() throws IloException {
+        return model.buildSolution(0);
+    }
+
+    @Benchmark
+    public void writeOutput() {
+        tcc.writeOutput(solution, output.getPath());
+    }
+}
@@ -1,22 +1,79 @@
 package tcc.br;
 
 /**
- * Representa um arco direcionado.
+ * Representa um arco direcionado de A (visão sobre o InstanceStore): um arco original
+ * ou um dos sentidos de uma aresta.
  */
 public class Arc {
-    int fromNode;
-    int toNode;
-    int traversalCost;      // t_ij^d: tempo de deadheading
-    int demand;
-    int serviceCost;        // t_ij^s: tempo de serviço
-    boolean isRequired;
-    
-    public Arc(int fromNode, int toNode, int traversalCost, int demand, int serviceCost, boolean isRequired) {
-        this.fromNode = fromNode;
-        this.toNode = toNode;
-        this.traversalCost = traversalCost;
-        this.demand = isRequired ? 1 : 0;       // força a demanda a ser unitária
-        this.serviceCost = serviceCost;
-        this.isRequired = isRequired;
+    private final InstanceStore store;
+    private final int index;
+
+    Arc(InstanceStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * Posição do arco em A (no InstanceStore).
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * ID do arco no arquivo da instância; -1 nos sentidos de aresta.
+     */
+    public int id() {
+        return store.arcId[index];
+    }
+
+    /**
+     * Aresta de origem, ou null se for um arco original.
+     */
+    public Edge edge() {
+        int e = store.arcEdge[index];
+        return e == InstanceStore.NONE ? null : store.edge(e);
+    }
+
+    public int fromNode() {
+        return store.arcFrom[index];
+    }
+
+    public int toNode() {
+        return store.arcTo[index];
+    }
+
+    /**
+     * t_ij^d: tempo de deadheading.
+     */
+    public int traversalCost() {
+        return store.arcTraversal[index];
+    }
+
+    public int demand() {
+        return store.arcDemand[index];
+    }
+
+    /**
+     * t_ij^s: tempo de serviço.
+     */
+    public int serviceCost() {
+        return store.arcService[index];
+    }
+
+    public boolean isRequired() {
+        return store.arcRequired.get(index);
+    }
+
+    public void setDemand(int demand) {
+        store.arcDemand[index] = demand;
+    }
+
+    public void setServiceCost(int serviceCost) {
+        store.arcService[index] = serviceCost;
+    }
+
+    public void setRequired(boolean required) {
+        store.arcRequired.set(index, required);
     }
 }
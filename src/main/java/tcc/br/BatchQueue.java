@@ -0,0 +1,580 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Fila de trabalhos em diretório para varreduras em lote (instâncias x combinações de
+ * opções), com qualquer número de workers em uma ou mais máquinas que compartilhem o
+ * sistema de arquivos.
+ * <p>Cada trabalho é um arquivo .job (Properties) que passa por pending/, running/,
+ * done/ e failed/. A posse é tomada com um rename atômico de pending/ para running/,
+ * com um nome exclusivo da tentativa (id@worker-instante.job): só um worker consegue
+ * mover o arquivo, e um worker considerado morto não confunde a tentativa seguinte do
+ * mesmo trabalho com a sua. Enquanto executa, o worker renova a data de
+ * modificação do arquivo (heartbeat); um trabalho em running/ sem heartbeat há mais que
+ * o prazo (lease) pertence a um worker que caiu e é devolvido à fila por quem o
+ * encontrar.
+ * <p>Cada trabalho roda em uma JVM filha (mesmo classpath e java.library.path), para
+ * que uma queda do CPLEX ou falta de memória não derrube o worker. Queda, código de
+ * saída diferente de zero ou estouro do tempo limite devolvem o trabalho à fila até
+ * --max-attempts tentativas; depois ele vai para failed/ e a varredura continua.
+ */
+public class BatchQueue {
+    private static final String PENDING = "pending";
+    private static final String RUNNING = "running";
+    private static final String DONE = "done";
+    private static final String FAILED = "failed";
+    private static final String LOGS = "logs";
+
+    private final Path root;
+
+    // Parâmetros dos workers
+    private long jobTimeoutMillis = 3605_000L;     // mesmo limite do run_tcc.py
+    private long heartbeatMillis = 10_000L;
+    private long leaseMillis = 60_000L;
+    private long pollMillis = 5_000L;
+    private int maxAttempts = 2;
+    private List<String> jvmArgs = new ArrayList<>();
+
+    public BatchQueue(String root) throws IOException {
+        this.root = Paths.get(root);
+        for (String dir : new String[] { PENDING, RUNNING, DONE, FAILED, LOGS }) {
+            Files.createDirectories(this.root.resolve(dir));
+        }
+    }
+
+    // ------------------------------------------------------------------ coordenador
+
+    /**
+     * Cria um trabalho por (instância, variante); cada variante é uma lista de opções
+     * repassadas ao Tcc. Retorna o número de trabalhos criados.
+     */
+    public int submit(String inputType, String outputDir, List<String> instances, List<List<String>> variants)
+            throws IOException {
+        Files.createDirectories(Paths.get(outputDir));
+        int sequence = countJobs();
+        int created = 0;
+        for (String instance : instances) {
+            String base = new File(instance).getName().replaceFirst("\\.dat$", "");
+            for (int v = 0; v < variants.size(); v++) {
+                String name = variants.size() > 1 ? base + "_v" + (v + 1) : base;
+                String id = String.format("%05d-%s", sequence++, name);
+
+                Properties job = new Properties();
+                job.setProperty("id", id);
+                job.setProperty("inputType", inputType);
+                job.setProperty("input", new File(instance).getAbsolutePath());
+                job.setProperty("output", Paths.get(outputDir, name + ".txt").toAbsolutePath().toString());
+                job.setProperty("options", String.join("\t", variants.get(v)));
+                job.setProperty("attempts", "0");
+
+                // Escrito com outro nome e renomeado: nenhum worker vê um .job incompleto
+                Path temp = root.resolve(PENDING).resolve(id + ".job.tmp");
+                store(job, temp);
+                Files.move(temp, root.resolve(PENDING).resolve(id + ".job"), StandardCopyOption.ATOMIC_MOVE);
+                created++;
+            }
+        }
+        return created;
+    }
+
+    private int countJobs() throws IOException {
+        int count = 0;
+        for (String dir : new String[] { PENDING, RUNNING, DONE, FAILED }) {
+            count += jobs(dir).size();
+        }
+        return count;
+    }
+
+    // ------------------------------------------------------------------ worker
+
+    /**
+     * Executa trabalhos até a fila esvaziar (exitWhenIdle) ou indefinidamente; 'slots'
+     * trabalhos simultâneos neste processo.
+     */
+    public void work(String workerId, int slots, boolean exitWhenIdle) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < slots; s++) {
+            String slotId = slots > 1 ? workerId + "-" + (s + 1) : workerId;
+            Thread thread = new Thread(() -> workLoop(slotId, exitWhenIdle), "batch-" + slotId);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void workLoop(String workerId, boolean exitWhenIdle) {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "heartbeat-" + workerId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                try {
+                    requeueExpired(workerId);
+                    Path claimed = claim(workerId);
+                    if (claimed != null) {
+                        run(claimed, workerId, heartbeat);
+                        continue;
+                    }
+                    if (exitWhenIdle && jobs(RUNNING).isEmpty() && files(RUNNING, ".finish").isEmpty()
+                        && files(PENDING, ".requeue").isEmpty()) {
+                        System.out.println("[" + workerId + "] Fila vazia; encerrando.");
+                        return;
+                    }
+                    Thread.sleep(pollMillis);
+                } catch (IOException e) {
+                    // Falhas transitórias do sistema de arquivos compartilhado não encerram o worker
+                    System.err.println("[" + workerId + "] Erro de E/S na fila: " + e.getMessage());
+                    Thread.sleep(pollMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    /**
+     * Toma posse do primeiro trabalho pendente (ordem dos IDs); null se não houver. O nome em
+     * running/ identifica a tentativa: só quem a tomou renova, grava ou move esse arquivo.
+     */
+    private Path claim(String workerId) throws IOException {
+        for (Path pending : jobs(PENDING)) {
+            String id = pending.getFileName().toString().replaceFirst("\\.job$", "");
+            String token = workerId.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + System.currentTimeMillis();
+            Path target = root.resolve(RUNNING).resolve(id + "@" + token + ".job");
+            try {
+                Files.move(pending, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue;                               // outro worker foi mais rápido
+            } catch (AtomicMoveNotSupportedException e) {
+                throw new IOException("O sistema de arquivos da fila não suporta rename atômico: " + root, e);
+            }
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return target;
+        }
+        return null;
+    }
+
+    /**
+     * Devolve à fila (ou a failed/) os trabalhos em running/ sem heartbeat dentro do prazo
+     * e retoma as devoluções (.requeue) e conclusões (.finish) abandonadas por um worker
+     * que caiu no meio delas.
+     */
+    private void requeueExpired(String workerId) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Path running : files(RUNNING, ".job")) {
+            long age = age(running, now);
+            if (age <= leaseMillis) continue;
+
+            // Rename atômico para um nome que nenhum worker reivindica: só um devolve o trabalho
+            Path staged = root.resolve(PENDING).resolve(running.getFileName() + "." + workerId + ".requeue");
+            if (!takeOver(running, staged)) continue;
+            Properties job = load(staged);
+            System.out.println("[" + workerId + "] Trabalho " + job.getProperty("id") + " sem heartbeat há "
+                               + (age / 1000) + " s (worker " + job.getProperty("worker", "?") + "); devolvido à fila.");
+            finishAttempt(job, staged, "sem heartbeat (worker caiu)", workerId);
+        }
+
+        for (Path stale : files(PENDING, ".requeue")) {
+            if (age(stale, now) <= leaseMillis) continue;
+            Path staged = stale.resolveSibling(attemptName(stale) + "." + workerId + ".requeue");
+            if (!takeOver(stale, staged)) continue;
+            Properties job = load(staged);
+            System.out.println("[" + workerId + "] Devolução de " + job.getProperty("id") + " interrompida; retomada.");
+            finishAttempt(job, staged, "sem heartbeat (worker caiu)", workerId);
+        }
+
+        for (Path stale : files(RUNNING, ".finish")) {
+            if (age(stale, now) <= leaseMillis) continue;
+            Path staged = stale.resolveSibling(attemptName(stale) + "." + workerId + ".finish");
+            if (!takeOver(stale, staged)) continue;
+            Properties job = load(staged);
+            String status = job.getProperty("status");
+            String name = job.getProperty("id") + ".job";
+            System.out.println("[" + workerId + "] Conclusão de " + job.getProperty("id") + " interrompida; retomada.");
+            if ("failed".equals(status)) {
+                Files.move(staged, root.resolve(FAILED).resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            } else if (status != null) {
+                // Resultado já gravado pelo worker (solved, infeasible ou no-solution)
+                Files.move(staged, root.resolve(DONE).resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                finishAttempt(job, staged, "worker caiu ao concluir a tentativa", workerId);
+            }
+        }
+    }
+
+    /**
+     * Idade da última modificação; -1 se o arquivo já foi movido por outro worker.
+     */
+    private static long age(Path path, long now) throws IOException {
+        try {
+            return now - Files.getLastModifiedTime(path).toMillis();
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Toma posse de um arquivo abandonado: renova a data de modificação, para que o novo
+     * nome não pareça abandonado, e o renomeia atomicamente. False se outro worker chegou antes.
+     */
+    private static boolean takeOver(Path stale, Path staged) throws IOException {
+        try {
+            Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis()));
+            Files.move(stale, staged, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Nome da tentativa (id@worker-instante.job) de um arquivo .requeue ou .finish.
+     */
+    private static String attemptName(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.lastIndexOf(".job.") + ".job".length());
+    }
+
+    /**
+     * Executa o trabalho em uma JVM filha, renovando o heartbeat até o fim.
+     */
+    private void run(Path claimed, String workerId, ScheduledExecutorService heartbeat) throws IOException, InterruptedException {
+        Properties job = load(claimed);
+        String id = job.getProperty("id");
+        int attempt = Integer.parseInt(job.getProperty("attempts", "0")) + 1;
+        job.setProperty("worker", workerId);
+        job.setProperty("host", hostName());
+        job.setProperty("startedAt", String.valueOf(System.currentTimeMillis()));
+        store(job, claimed);
+
+        // Saída de uma tentativa anterior não pode ser tomada como resultado desta
+        Files.deleteIfExists(Paths.get(job.getProperty("output")));
+
+        Path log = root.resolve(LOGS).resolve(id + ".log");
+        List<String> command = childCommand(job);
+        System.out.println("[" + workerId + "] Executando " + id + " (tentativa " + attempt + "/" + maxAttempts + ")...");
+
+        var beat = heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                Files.setLastModifiedTime(claimed, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                // Arquivo devolvido por outro worker (pausa longa) ou falha transitória; o fim da execução decide
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        long start = System.currentTimeMillis();
+        String failure = null;
+        int exitCode = -1;
+        try {
+            Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+                .start();
+            if (!process.waitFor(jobTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly().waitFor();
+                failure = "tempo limite de " + (jobTimeoutMillis / 1000) + " s";
+            } else {
+                exitCode = process.exitValue();
+                if (exitCode != 0 && exitCode != InstanceAnalyzer.EXIT_INFEASIBLE) {
+                    failure = "código de saída " + exitCode;
+                }
+            }
+        } catch (IOException e) {
+            failure = "falha ao iniciar a JVM: " + e.getMessage();
+        } finally {
+            beat.cancel(false);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Retira a tentativa de running/ antes de gravá-la; se o arquivo sumiu, outro worker a
+        // considerou morta durante a execução e a tentativa seguinte prevalece
+        Path finishing = claimed.resolveSibling(claimed.getFileName() + ".finish");
+        try {
+            Files.move(claimed, finishing, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            System.out.println("[" + workerId + "] Trabalho " + id + " foi devolvido à fila durante a execução; resultado descartado.");
+            return;
+        }
+
+        job.setProperty("elapsedMillis", String.valueOf(elapsed));
+        job.setProperty("exitCode", String.valueOf(exitCode));
+        if (failure == null) {
+            job.setProperty("attempts", String.valueOf(attempt));
+            // Instância inviável pela análise prévia: resultado definitivo, sem novas tentativas
+            job.setProperty("status", exitCode == InstanceAnalyzer.EXIT_INFEASIBLE ? "infeasible"
+                                      : Files.exists(Paths.get(job.getProperty("output"))) ? "solved" : "no-solution");
+            store(job, finishing);
+            Files.move(finishing, root.resolve(DONE).resolve(id + ".job"), StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("[" + workerId + "] " + id + " concluído em " + (elapsed / 1000) + " s ("
+                               + job.getProperty("status") + ").");
+        } else {
+            System.out.println("[" + workerId + "] " + id + " falhou: " + failure + ".");
+            finishAttempt(job, finishing, failure, workerId);
+        }
+    }
+
+    /**
+     * Conta a tentativa e move o trabalho para pending/ ou, esgotadas as tentativas, failed/.
+     */
+    private void finishAttempt(Properties job, Path current, String reason, String workerId) throws IOException {
+        int attempts = Integer.parseInt(job.getProperty("attempts", "0")) + 1;
+        job.setProperty("attempts", String.valueOf(attempts));
+        job.setProperty("lastError", reason);
+        job.remove("status");
+        String name = job.getProperty("id") + ".job";
+        if (attempts >= maxAttempts) {
+            job.setProperty("status", "failed");
+            store(job, current);
+            Files.move(current, root.resolve(FAILED).resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("[" + workerId + "] " + job.getProperty("id") + " desistido após " + attempts + " tentativa(s).");
+        } else {
+            store(job, current);
+            Files.move(current, root.resolve(PENDING).resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * java [jvmArgs] -Djava.library.path=... -cp <classpath> tcc.br.Tcc <tipo> <entrada> <saída> [opções]
+     */
+    private List<String> childCommand(Properties job) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        String libraryPath = System.getProperty("java.library.path");
+        if (libraryPath != null && !libraryPath.isEmpty()) {
+            command.add("-Djava.library.path=" + libraryPath);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Tcc.class.getName());
+        command.add(job.getProperty("inputType"));
+        command.add(job.getProperty("input"));
+        command.add(job.getProperty("output"));
+        String options = job.getProperty("options", "");
+        if (!options.isEmpty()) {
+            command.addAll(Arrays.asList(options.split("\t")));
+        }
+        return command;
+    }
+
+    // ------------------------------------------------------------------ situação
+
+    /**
+     * Contagem por estado e uma linha por trabalho concluído ou com falha.
+     */
+    public void printStatus() throws IOException {
+        System.out.printf("Fila %s: %d pendente(s), %d em execução, %d concluído(s), %d com falha%n", root,
+                          jobs(PENDING).size(), jobs(RUNNING).size(), jobs(DONE).size(), jobs(FAILED).size());
+        long now = System.currentTimeMillis();
+        for (Path running : jobs(RUNNING)) {
+            Properties job = load(running);
+            long age = now - Files.getLastModifiedTime(running).toMillis();
+            System.out.printf("  em execução  %-32s %s@%s, heartbeat há %d s%n", job.getProperty("id"),
+                              job.getProperty("worker", "?"), job.getProperty("host", "?"), age / 1000);
+        }
+        for (String dir : new String[] { DONE, FAILED }) {
+            for (Path path : jobs(dir)) {
+                Properties job = load(path);
+                String detail = DONE.equals(dir)
+                        ? job.getProperty("status") + " em " + Long.parseLong(job.getProperty("elapsedMillis", "0")) / 1000 + " s"
+                        : job.getProperty("lastError");
+                System.out.printf("  %-12s %-32s %s (%s tentativa(s))%n", dir, job.getProperty("id"), detail,
+                                  job.getProperty("attempts"));
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ arquivos
+
+    private List<Path> jobs(String dir) throws IOException {
+        return files(dir, ".job");
+    }
+
+    private List<Path> files(String dir, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(root.resolve(dir))) {
+            return files.filter(p -> p.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private static Properties load(Path path) throws IOException {
+        Properties job = new Properties();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path.toFile()))) {
+            job.load(reader);
+        }
+        return job;
+    }
+
+    private static void store(Properties job, Path path) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path.toFile()))) {
+            job.store(writer, null);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "desconhecido";
+        }
+    }
+
+    /**
+     * Identificador padrão do worker: host e PID.
+     */
+    private static String defaultWorkerId() {
+        return hostName() + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    /**
+     * Variantes de opções: uma por linha não vazia do arquivo (opções separadas por
+     * espaços, '#' inicia comentário); sem arquivo, uma única variante com 'common'.
+     */
+    private static List<List<String>> readVariants(String path, List<String> common) throws IOException {
+        List<List<String>> variants = new ArrayList<>();
+        if (path == null) {
+            variants.add(common);
+            return variants;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) line = line.substring(0, comment);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                List<String> variant = new ArrayList<>(common);
+                variant.addAll(Arrays.asList(line.split("\\s+")));
+                variants.add(variant);
+            }
+        }
+        if (variants.isEmpty()) {
+            throw new IOException("Nenhuma variante em " + path);
+        }
+        return variants;
+    }
+
+    /**
+     * batch submit|worker|status <fila> ...
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: java -jar target/tcc-1.0.jar batch submit <fila> <inputType> <pasta-saída> <instância|pasta>... [opções]");
+            System.out.println("       java -jar target/tcc-1.0.jar batch worker <fila> [opções do worker]");
+            System.out.println("       java -jar target/tcc-1.0.jar batch status <fila>");
+            System.out.println("\tsubmit: --variants=<arquivo> (uma combinação de opções por linha); demais opções vão para todos os trabalhos");
+            System.out.println("\tworker: --slots=<n> (padrão 1) --job-timeout=<s> (padrão 3605) --max-attempts=<n> (padrão 2)");
+            System.out.println("\t  --heartbeat=<s> (padrão 10) --lease=<s> (padrão 60) --poll=<s> (padrão 5)");
+            System.out.println("\t  --jvm-args=\"<args>\" (ex.: -Xmx16g) --worker-id=<id> --exit-when-idle");
+            return;
+        }
+
+        String command = args[0];
+        BatchQueue queue = new BatchQueue(args[1]);
+
+        switch (command) {
+            case "submit": {
+                int firstOption = 2;
+                while (firstOption < args.length && !args[firstOption].startsWith("--")) {
+                    firstOption++;
+                }
+                if (firstOption < 5) {
+                    throw new IllegalArgumentException("submit requer <inputType> <pasta-saída> e ao menos uma instância.");
+                }
+                String inputType = args[2];
+                String outputDir = args[3];
+
+                List<String> instances = new ArrayList<>();
+                for (int i = 4; i < firstOption; i++) {
+                    File file = new File(args[i]);
+                    if (file.isDirectory()) {
+                        File[] children = file.listFiles((dir, name) -> name.endsWith(".dat"));
+                        Arrays.sort(children);
+                        for (File child : children) {
+                            instances.add(child.getPath());
+                        }
+                    } else {
+                        instances.add(file.getPath());
+                    }
+                }
+
+                String variantsFile = null;
+                List<String> common = new ArrayList<>();
+                for (int i = firstOption; i < args.length; i++) {
+                    if (args[i].startsWith("--variants=")) {
+                        variantsFile = args[i].substring("--variants=".length());
+                    } else {
+                        common.add(args[i]);
+                    }
+                }
+
+                int created = queue.submit(inputType, outputDir, instances, readVariants(variantsFile, common));
+                System.out.println(created + " trabalho(s) adicionados à fila " + args[1] + ".");
+                break;
+            }
+            case "worker": {
+                Map<String, String> options = Tcc.parseOptions(args, 2);
+                if (options.containsKey("job-timeout")) {
+                    queue.jobTimeoutMillis = (long) (Double.parseDouble(options.get("job-timeout")) * 1000);
+                }
+                if (options.containsKey("heartbeat")) {
+                    queue.heartbeatMillis = (long) (Double.parseDouble(options.get("heartbeat")) * 1000);
+                }
+                if (options.containsKey("lease")) {
+                    queue.leaseMillis = (long) (Double.parseDouble(options.get("lease")) * 1000);
+                }
+                if (options.containsKey("poll")) {
+                    queue.pollMillis = (long) (Double.parseDouble(options.get("poll")) * 1000);
+                }
+                if (options.containsKey("max-attempts")) {
+                    queue.maxAttempts = Integer.parseInt(options.get("max-attempts"));
+                }
+                if (options.containsKey("jvm-args")) {
+                    queue.jvmArgs = Arrays.asList(options.get("jvm-args").trim().split("\\s+"));
+                }
+                if (queue.leaseMillis <= 2 * queue.heartbeatMillis) {
+                    throw new IllegalArgumentException("--lease deve ser maior que duas vezes o --heartbeat.");
+                }
+                String workerId = options.getOrDefault("worker-id", defaultWorkerId());
+                int slots = Integer.parseInt(options.getOrDefault("slots", "1"));
+                queue.work(workerId, slots, options.containsKey("exit-when-idle"));
+                queue.printStatus();
+                break;
+            }
+            case "status":
+                queue.printStatus();
+                break;
+            default:
+                throw new IllegalArgumentException("Comando de lote desconhecido: " + command);
+        }
+    }
+}
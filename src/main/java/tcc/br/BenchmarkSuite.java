@@ -0,0 +1,390 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import ilog.concert.IloException;
+
+/**
+ * Suíte de benchmarks: resolve um conjunto de instâncias com o mesmo orçamento de tempo
+ * e grava uma linha de CSV por instância (tempos de construção e resolução, tempo até a
+ * melhor solução, objetivo, limitante, gap em relação ao ótimo do cabeçalho, pico de
+ * heap e tamanho do modelo).
+ * <p>Com um CSV de referência (--baseline), cada instância é comparada à execução
+ * anterior e as regressões são listadas; a saída do processo é 1 se houver alguma.
+ * Regressões de tempo só são consideradas acima de uma folga absoluta, para não
+ * acusar ruído em instâncias rápidas. O pico de heap não inclui a memória nativa do CPLEX.
+ */
+public class BenchmarkSuite {
+    private static final long MB = 1024L * 1024L;
+
+    private static final String HEADER = "instance,type,status,load_ms,build_ms,solve_ms,time_to_best_ms,"
+                                       + "objective,bound,optimum,gap_opt,mip_gap,peak_heap_mb,variables,rows,nodes";
+
+    /**
+     * Uma linha do CSV; campos numéricos ausentes valem -1 (inteiros) ou NaN.
+     */
+    static final class Result {
+        String instance;
+        String type;
+        String status = "";
+        long loadMillis = -1;
+        long buildMillis = -1;
+        long solveMillis = -1;
+        long timeToBestMillis = -1;
+        long objective = -1;
+        double bound = Double.NaN;
+        long optimum = -1;
+        long peakHeapMb = -1;
+        int variables = -1;
+        int rows = -1;
+        long nodes = -1;
+
+        boolean hasSolution() {
+            return objective >= 0;
+        }
+
+        boolean isOptimal() {
+            return "Optimal".equals(status);
+        }
+
+        /**
+         * Gap (%) do objetivo em relação ao ótimo conhecido.
+         */
+        double gapToOptimum() {
+            if (!hasSolution() || optimum <= 0) return Double.NaN;
+            return 100.0 * (objective - optimum) / optimum;
+        }
+
+        double mipGap() {
+            if (!hasSolution() || Double.isNaN(bound)) return Double.NaN;
+            return 100.0 * (objective - bound) / Math.max(1e-10, Math.abs(objective));
+        }
+
+        String toCsv() {
+            return String.join(",", instance, type, status, num(loadMillis), num(buildMillis), num(solveMillis),
+                               num(timeToBestMillis), num(objective), num(bound), num(optimum),
+                               num(gapToOptimum()), num(mipGap()), num(peakHeapMb), num(variables), num(rows),
+                               num(nodes));
+        }
+
+        static Result fromCsv(Map<String, Integer> columns, String[] fields) {
+            Result r = new Result();
+            r.instance = fields[columns.get("instance")];
+            r.type = fields[columns.get("type")];
+            r.status = fields[columns.get("status")];
+            r.loadMillis = parseLong(fields, columns.get("load_ms"));
+            r.buildMillis = parseLong(fields, columns.get("build_ms"));
+            r.solveMillis = parseLong(fields, columns.get("solve_ms"));
+            r.timeToBestMillis = parseLong(fields, columns.get("time_to_best_ms"));
+            r.objective = parseLong(fields, columns.get("objective"));
+            r.bound = parseDouble(fields, columns.get("bound"));
+            r.optimum = parseLong(fields, columns.get("optimum"));
+            r.peakHeapMb = parseLong(fields, columns.get("peak_heap_mb"));
+            r.variables = (int) parseLong(fields, columns.get("variables"));
+            r.rows = (int) parseLong(fields, columns.get("rows"));
+            r.nodes = parseLong(fields, columns.get("nodes"));
+            return r;
+        }
+    }
+
+    private final String inputType;
+    private final Map<String, String> options;
+
+    private double timeTolerance = 0.25;            // relativa
+    private long timeSlackMillis = 1000;            // absoluta
+    private double gapTolerance = 0.5;              // pontos percentuais
+
+    public BenchmarkSuite(String inputType, Map<String, String> options) {
+        this.inputType = inputType;
+        this.options = options;
+    }
+
+    /**
+     * Carrega, constrói e resolve uma instância, medindo cada fase.
+     */
+    public Result run(String instancePath) throws IOException {
+        Result result = new Result();
+        result.instance = new File(instancePath).getName();
+        result.type = inputType;
+
+        resetHeapPeaks();
+        StopWatch loadWatch = StopWatch.createStarted();
+        Tcc tcc = new Tcc();
+        CplexData data;
+        try {
+            tcc.readInput(instancePath, inputType);
+            data = tcc.preProcess();
+        } catch (IOException | RuntimeException e) {
+            // Instância ilegível ou malformada: registrada como erro, a suíte continua
+            result.status = "Erro";
+            System.err.println("  Erro ao ler " + result.instance + ": " + e);
+            return result;
+        }
+        result.loadMillis = loadWatch.getTime(TimeUnit.MILLISECONDS);
+        result.optimum = tcc.getOptimalValue();
+
+        ResourceProfile resources = ResourceProfile.automatic(data, "NEARPTP".equalsIgnoreCase(inputType));
+        if (options.containsKey("resources")) {
+            resources.loadFile(options.get("resources"));
+        }
+        resources.loadOptions(options);
+
+        CplexModel model = new CplexModel(data, inputType);
+        model.setQuiet(true);
+        model.setResourceProfile(resources);
+        if (options.containsKey("formulation")) {
+            model.setFormulation(options.get("formulation"));
+        }
+        if (options.containsKey("symmetry")) {
+            model.setSymmetry(options.get("symmetry"));
+        }
+        if (options.containsKey("params")) {
+            model.setParameterProfile(ParameterProfile.fromFile(options.get("params")));
+        }
+
+        try {
+            long start = System.nanoTime();
+            model.build();
+            result.buildMillis = (System.nanoTime() - start) / 1_000_000;
+            result.variables = model.getNumColumns();
+            result.rows = model.getNumRows();
+
+            StopWatch solveWatch = StopWatch.createStarted();
+            boolean solved = model.solveMeasured(solveWatch);
+            result.solveMillis = solveWatch.getTime(TimeUnit.MILLISECONDS);
+            result.status = model.getStatus();
+            result.nodes = model.getNodeCount();
+            if (solved) {
+                result.objective = Math.round(model.getObjValue());
+                result.bound = model.getBestObjValue();
+                result.timeToBestMillis = model.getTimeToBestMillis();
+            }
+        } catch (IloException e) {
+            result.status = "Erro";
+            System.err.println("  Erro de CPLEX em " + result.instance + ": " + e.getMessage());
+        } finally {
+            model.end();
+        }
+
+        result.peakHeapMb = peakHeapMb();
+        return result;
+    }
+
+    /**
+     * Regressões de 'current' em relação a 'baseline' (lista vazia se não houver).
+     */
+    public List<String> compare(Result current, Result baseline) {
+        List<String> regressions = new ArrayList<>();
+
+        // Qualidade
+        if (baseline.hasSolution() && !current.hasSolution()) {
+            regressions.add("sem solução (referência: " + baseline.objective + ")");
+        } else if (baseline.hasSolution()) {
+            double worse = 100.0 * (current.objective - baseline.objective) / Math.max(1, baseline.objective);
+            if (worse > gapTolerance) {
+                regressions.add(String.format(Locale.ROOT, "objetivo %d pior que a referência %d (+%.2f%%)",
+                                              current.objective, baseline.objective, worse));
+            }
+        }
+        if (baseline.isOptimal() && current.hasSolution() && !current.isOptimal()) {
+            regressions.add("ótimo provado na referência, agora " + current.status);
+        }
+        if (current.hasSolution() && current.optimum > 0 && current.objective < current.optimum) {
+            regressions.add("objetivo " + current.objective + " abaixo do ótimo conhecido " + current.optimum);
+        }
+
+        // Tempo (a resolução só é comparável quando ambas provaram o ótimo)
+        checkTime(regressions, "construção", current.buildMillis, baseline.buildMillis);
+        if (baseline.isOptimal() && current.isOptimal()) {
+            checkTime(regressions, "resolução", current.solveMillis, baseline.solveMillis);
+        }
+        return regressions;
+    }
+
+    private void checkTime(List<String> regressions, String phase, long current, long baseline) {
+        if (current < 0 || baseline < 0) return;
+        if (current > baseline * (1 + timeTolerance) && current - baseline > timeSlackMillis) {
+            regressions.add(String.format(Locale.ROOT, "%s %d ms, referência %d ms (+%.0f%%)",
+                                          phase, current, baseline, 100.0 * (current - baseline) / Math.max(1, baseline)));
+        }
+    }
+
+    public void setTimeTolerance(double timeTolerance) {
+        this.timeTolerance = timeTolerance;
+    }
+
+    public void setTimeSlackMillis(long timeSlackMillis) {
+        this.timeSlackMillis = timeSlackMillis;
+    }
+
+    public void setGapTolerance(double gapTolerance) {
+        this.gapTolerance = gapTolerance;
+    }
+
+    private static void resetHeapPeaks() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeapMb() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / MB;
+    }
+
+    /**
+     * Lê um CSV gravado pela suíte, indexado pelo nome da instância.
+     */
+    static Map<String, Result> readCsv(String path) throws IOException {
+        Map<String, Result> results = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String header = reader.readLine();
+            if (header == null) return results;
+
+            Map<String, Integer> columns = new HashMap<>();
+            String[] names = header.split(",");
+            for (int i = 0; i < names.length; i++) {
+                columns.put(names[i].trim(), i);
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Result result = Result.fromCsv(columns, line.split(",", -1));
+                results.put(result.instance, result);
+            }
+        }
+        return results;
+    }
+
+    private static String num(long value) {
+        return value < 0 ? "" : String.valueOf(value);
+    }
+
+    private static String num(double value) {
+        return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private static long parseLong(String[] fields, Integer column) {
+        if (column == null || column >= fields.length || fields[column].isEmpty()) return -1;
+        return Math.round(Double.parseDouble(fields[column]));
+    }
+
+    private static double parseDouble(String[] fields, Integer column) {
+        if (column == null || column >= fields.length || fields[column].isEmpty()) return Double.NaN;
+        return Double.parseDouble(fields[column]);
+    }
+
+    /**
+     * suite <inputType> <saida.csv> <instância|pasta>... [opções]
+     */
+    public static void main(String[] args) throws IOException {
+        int firstOption = 0;
+        while (firstOption < args.length && !args[firstOption].startsWith("--")) {
+            firstOption++;
+        }
+        if (firstOption < 3) {
+            System.out.println("Usage: java -jar target/tcc-1.0.jar suite <inputType> <saida.csv> <instância|pasta>... [opções]");
+            System.out.println("\t--time-limit=<s>: orçamento por instância (padrão 60); demais opções de recursos e --params");
+            System.out.println("\t--baseline=<csv>: resultados de referência; regressões fazem a saída ser 1");
+            System.out.println("\t--time-tolerance=<rel> (padrão 0.25) --time-slack=<ms> (padrão 1000)");
+            System.out.println("\t--gap-tolerance=<pontos %> (padrão 0.5): piora tolerada do objetivo");
+            return;
+        }
+
+        String inputType = args[0];
+        String outputFile = args[1];
+        Map<String, String> options = Tcc.parseOptions(args, firstOption);
+        options.putIfAbsent("time-limit", "60");
+
+        List<String> instances = new ArrayList<>();
+        for (int i = 2; i < firstOption; i++) {
+            File file = new File(args[i]);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles((dir, name) -> name.endsWith(".dat"));
+                if (children == null) {
+                    throw new IOException("Não foi possível listar a pasta " + file);
+                }
+                Arrays.sort(children);
+                for (File child : children) {
+                    instances.add(child.getPath());
+                }
+            } else {
+                instances.add(file.getPath());
+            }
+        }
+
+        BenchmarkSuite suite = new BenchmarkSuite(inputType, options);
+        if (options.containsKey("time-tolerance")) {
+            suite.setTimeTolerance(Double.parseDouble(options.get("time-tolerance")));
+        }
+        if (options.containsKey("time-slack")) {
+            suite.setTimeSlackMillis(Long.parseLong(options.get("time-slack")));
+        }
+        if (options.containsKey("gap-tolerance")) {
+            suite.setGapTolerance(Double.parseDouble(options.get("gap-tolerance")));
+        }
+        Map<String, Result> baseline = options.containsKey("baseline") ? readCsv(options.get("baseline")) : new HashMap<>();
+
+        int regressed = 0;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+            writer.write(HEADER);
+            writer.newLine();
+
+            for (String instance : instances) {
+                System.out.println("Executando " + instance + "...");
+                Result result = suite.run(instance);
+                writer.write(result.toCsv());
+                writer.newLine();
+                writer.flush();             // resultados parciais sobrevivem a uma interrupção
+
+                System.out.printf(Locale.ROOT, "  %s: objetivo %s, ótimo %s, gap %s%%, construção %d ms, resolução %d ms%n",
+                                  result.status, num(result.objective), num(result.optimum),
+                                  num(result.gapToOptimum()), result.buildMillis, result.solveMillis);
+
+                Result reference = baseline.get(result.instance);
+                if (reference == null) continue;
+                List<String> regressions = suite.compare(result, reference);
+                if (!regressions.isEmpty()) {
+                    regressed++;
+                    for (String regression : regressions) {
+                        System.out.println("  REGRESSÃO: " + regression);
+                    }
+                }
+            }
+        }
+
+        System.out.println("\nResultados em " + outputFile);
+        if (!baseline.isEmpty()) {
+            System.out.println(regressed + "/" + instances.size() + " instâncias com regressão em relação a " + options.get("baseline") + ".");
+            if (regressed > 0) {
+                System.exit(1);
+            }
+        }
+    }
+}
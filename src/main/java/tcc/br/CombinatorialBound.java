@@ -0,0 +1,271 @@
+package tcc.br;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Limitantes inferiores combinatórios, sem LP, sobre o grafo pré-processado.
+ * <p>Todos somam o tempo de serviço total (cada serviço é feito uma vez) a um limitante
+ * do deadheading; conversões são ignoradas (custos não negativos), então valem também
+ * para o NEARP-TP. Limitantes de deadheading:
+ * <p>- Paridade (T-join): cada rota é uma caminhada fechada, então todo nó tem grau
+ *   par no multigrafo de travessias. Os nós de grau ímpar nos serviços (arcos e arestas,
+ *   sem orientação) precisam de deadheading que os emparelhe; o emparelhamento perfeito
+ *   mínimo é limitado por metade da soma das distâncias de cada nó ímpar ao nó ímpar mais
+ *   próximo, obtidas com um único Dijkstra multi-origem (diagrama de Voronoi).
+ * <p>- Ida e volta ao depósito: toda rota usada sai do depósito até o início do primeiro
+ *   serviço e volta do fim do último; com o número mínimo de veículos m tal que
+ *   serviço + m * (ida + volta) <= m * T_max, o deadheading é pelo menos m * (ida + volta).
+ * <p>O grafo é indexado em vetores primitivos (CSR) e cada limitante custa O(m log n).
+ */
+public class CombinatorialBound {
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final int n;
+    private final int depot;
+    private final int tMax;
+
+    // Arcos em CSR, nos dois sentidos: saída (out*) e entrada (in*)
+    private final int[] outStart, outTo, outCost;
+    private final int[] inStart, inFrom, inCost;
+
+    // Serviços: origem, destino, tempo de serviço e se é aresta (sem orientação fixa)
+    private final int[] serviceTail, serviceHead, serviceCost;
+    private final boolean[] serviceIsEdge;
+
+    private long serviceTotal;
+    private long parityDeadhead;
+    private long depotDeadhead;
+    private int minVehicles;
+    private long elapsedNanos;
+
+    public CombinatorialBound(CplexData data) {
+        this.depot = data.getRealDepotNodeId();
+        this.tMax = data.getCapacity();
+
+        int maxNode = depot;
+        for (Integer nodeId : data.getNodes().keySet()) {
+            maxNode = Math.max(maxNode, nodeId);
+        }
+        for (Arc arc : data.getArcs().values()) {
+            maxNode = Math.max(maxNode, Math.max(arc.fromNode(), arc.toNode()));
+        }
+        this.n = maxNode + 1;
+
+        int m = data.getArcs().size();
+        this.outStart = new int[n + 1];
+        this.inStart = new int[n + 1];
+        for (Arc arc : data.getArcs().values()) {
+            outStart[arc.fromNode() + 1]++;
+            inStart[arc.toNode() + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+            inStart[i + 1] += inStart[i];
+        }
+        this.outTo = new int[m];
+        this.outCost = new int[m];
+        this.inFrom = new int[m];
+        this.inCost = new int[m];
+        int[] outFill = Arrays.copyOf(outStart, n);
+        int[] inFill = Arrays.copyOf(inStart, n);
+        for (Arc arc : data.getArcs().values()) {
+            int o = outFill[arc.fromNode()]++;
+            outTo[o] = arc.toNode();
+            outCost[o] = arc.traversalCost();
+            int i = inFill[arc.toNode()]++;
+            inFrom[i] = arc.fromNode();
+            inCost[i] = arc.traversalCost();
+        }
+
+        int s = data.getReqNodes().size() + data.getReqArcsOg().size() + data.getReqEdges().size();
+        this.serviceTail = new int[s];
+        this.serviceHead = new int[s];
+        this.serviceCost = new int[s];
+        this.serviceIsEdge = new boolean[s];
+        int k = 0;
+        for (java.util.Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {
+            serviceTail[k] = entry.getKey();
+            serviceHead[k] = entry.getKey();
+            serviceCost[k++] = entry.getValue().serviceCost();
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            serviceTail[k] = arc.fromNode();
+            serviceHead[k] = arc.toNode();
+            serviceCost[k++] = data.getReqArcs().get(arc.fromNode() + "-" + arc.toNode()).serviceCost();
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            serviceTail[k] = edge.fromNode();
+            serviceHead[k] = edge.toNode();
+            serviceIsEdge[k] = true;
+            serviceCost[k++] = Math.min(data.getReqArcs().get(edge.fromNode() + "-" + edge.toNode()).serviceCost(),
+                                        data.getReqArcs().get(edge.toNode() + "-" + edge.fromNode()).serviceCost());
+        }
+    }
+
+    /**
+     * Calcula os limitantes e retorna o melhor.
+     */
+    public long compute() {
+        long start = System.nanoTime();
+
+        serviceTotal = 0;
+        for (int cost : serviceCost) {
+            serviceTotal += cost;
+        }
+        parityDeadhead = parityBound();
+        depotDeadhead = depotRoundTripBound();
+
+        elapsedNanos = System.nanoTime() - start;
+        return getBound();
+    }
+
+    /**
+     * Metade da soma, sobre os nós de grau ímpar, da distância ao nó ímpar mais próximo
+     * (custos de deadheading sem orientação: min(t_ij, t_ji) por ligação).
+     */
+    private long parityBound() {
+        int[] degree = new int[n];
+        for (int s = 0; s < serviceTail.length; s++) {
+            if (serviceTail[s] != serviceHead[s]) {
+                degree[serviceTail[s]]++;
+                degree[serviceHead[s]]++;
+            }
+        }
+
+        // Dijkstra multi-origem a partir de todos os nós ímpares, registrando a origem
+        long[] dist = new long[n];
+        int[] label = new int[n];
+        Arrays.fill(dist, INF);
+        Arrays.fill(label, -1);
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        int odd = 0;
+        for (int v = 0; v < n; v++) {
+            if ((degree[v] & 1) == 1) {
+                dist[v] = 0;
+                label[v] = v;
+                queue.add(new long[] { 0, v });
+                odd++;
+            }
+        }
+        if (odd == 0) return 0;
+
+        while (!queue.isEmpty()) {
+            long[] top = queue.poll();
+            int u = (int) top[1];
+            if (top[0] > dist[u]) continue;
+            for (int a = outStart[u]; a < outStart[u + 1]; a++) {
+                relax(u, outTo[a], outCost[a], dist, label, queue);
+            }
+            for (int a = inStart[u]; a < inStart[u + 1]; a++) {
+                relax(u, inFrom[a], inCost[a], dist, label, queue);
+            }
+        }
+
+        // Nó ímpar mais próximo de cada origem: ligações entre regiões de Voronoi distintas
+        long[] nearest = new long[n];
+        Arrays.fill(nearest, INF);
+        for (int u = 0; u < n; u++) {
+            if (label[u] < 0) continue;
+            for (int a = outStart[u]; a < outStart[u + 1]; a++) {
+                int v = outTo[a];
+                if (label[v] < 0 || label[v] == label[u]) continue;
+                long through = dist[u] + outCost[a] + dist[v];
+                nearest[label[u]] = Math.min(nearest[label[u]], through);
+                nearest[label[v]] = Math.min(nearest[label[v]], through);
+            }
+        }
+
+        long sum = 0;
+        for (int v = 0; v < n; v++) {
+            if ((degree[v] & 1) == 1 && nearest[v] < INF) {
+                sum += nearest[v];
+            }
+        }
+        return (sum + 1) / 2;
+    }
+
+    private static void relax(int u, int v, int cost, long[] dist, int[] label, PriorityQueue<long[]> queue) {
+        long candidate = dist[u] + cost;
+        if (candidate < dist[v]) {
+            dist[v] = candidate;
+            label[v] = label[u];
+            queue.add(new long[] { candidate, v });
+        }
+    }
+
+    /**
+     * Número mínimo de veículos vezes a menor ida do depósito a um serviço mais a menor
+     * volta de um serviço ao depósito.
+     */
+    private long depotRoundTripBound() {
+        if (serviceTail.length == 0) {
+            minVehicles = 0;
+            return 0;
+        }
+        long[] fromDepot = dijkstra(depot, true);
+        long[] toDepot = dijkstra(depot, false);
+
+        long out = INF, back = INF;
+        for (int s = 0; s < serviceTail.length; s++) {
+            out = Math.min(out, fromDepot[serviceTail[s]]);
+            back = Math.min(back, toDepot[serviceHead[s]]);
+            if (serviceIsEdge[s]) {
+                out = Math.min(out, fromDepot[serviceHead[s]]);
+                back = Math.min(back, toDepot[serviceTail[s]]);
+            }
+        }
+        long roundTrip = (out >= INF || back >= INF) ? 0 : out + back;
+
+        long perVehicle = tMax - roundTrip;
+        minVehicles = perVehicle > 0 ? (int) Math.max(1, (serviceTotal + perVehicle - 1) / perVehicle) : 1;
+        return minVehicles * roundTrip;
+    }
+
+    /**
+     * Dijkstra a partir de 'source' no grafo (forward) ou no grafo reverso.
+     */
+    private long[] dijkstra(int source, boolean forward) {
+        long[] dist = new long[n];
+        Arrays.fill(dist, INF);
+        dist[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[] { 0, source });
+
+        int[] start = forward ? outStart : inStart;
+        int[] target = forward ? outTo : inFrom;
+        int[] cost = forward ? outCost : inCost;
+        while (!queue.isEmpty()) {
+            long[] top = queue.poll();
+            int u = (int) top[1];
+            if (top[0] > dist[u]) continue;
+            for (int a = start[u]; a < start[u + 1]; a++) {
+                long candidate = dist[u] + cost[a];
+                if (candidate < dist[target[a]]) {
+                    dist[target[a]] = candidate;
+                    queue.add(new long[] { candidate, target[a] });
+                }
+            }
+        }
+        return dist;
+    }
+
+    public long getBound() {
+        return serviceTotal + Math.max(parityDeadhead, depotDeadhead);
+    }
+
+    /**
+     * Gap relativo (%) de uma solução em relação ao limitante.
+     */
+    public double gap(long objective) {
+        return 100.0 * (objective - getBound()) / Math.max(1, objective);
+    }
+
+    public void print() {
+        System.out.println("Limitantes combinatórios (" + String.format("%.1f", elapsedNanos / 1e6) + " ms):");
+        System.out.println("  Serviço total: " + serviceTotal);
+        System.out.println("  Deadheading por paridade: " + parityDeadhead);
+        System.out.println("  Deadheading de ida e volta ao depósito: " + depotDeadhead + " (mínimo de " + minVehicles + " veículo(s))");
+        System.out.println("  Limitante inferior: " + getBound());
+    }
+}
@@ -0,0 +1,126 @@
+package tcc.br;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ilog.concert.IloException;
+import ilog.concert.IloLinearNumExpr;
+import ilog.concert.IloNumVar;
+import ilog.concert.IloNumVarType;
+import ilog.concert.IloObjective;
+import ilog.concert.IloRange;
+import ilog.cplex.IloCplex;
+
+/**
+ * Materializa o modelo diretamente em um IloCplex, à medida que as colunas e linhas chegam.
+ * Os objetos do Concert ficam acessíveis pelo índice, para a resolução e as alterações
+ * incrementais feitas depois da construção. Erros do CPLEX viram IllegalStateException.
+ */
+public class CplexBackend implements ModelBackend {
+    private final IloCplex cplex;
+    private final List<IloNumVar> columns = new ArrayList<>();
+    private final List<IloRange> rows = new ArrayList<>();
+    private IloObjective objective;
+    private long nonZeros;
+
+    public CplexBackend(IloCplex cplex) {
+        this.cplex = cplex;
+    }
+
+    @Override
+    public int addColumn(String name, double lb, double ub, ColumnType type) {
+        try {
+            IloNumVar var;
+            switch (type) {
+                case BINARY:
+                    var = lb == 0 && ub == 1 ? cplex.boolVar(name) : cplex.numVar(lb, ub, IloNumVarType.Bool, name);
+                    break;
+                case INTEGER:
+                    var = cplex.numVar(lb, ub, IloNumVarType.Int, name);
+                    break;
+                default:
+                    var = cplex.numVar(lb, ub, IloNumVarType.Float, name);
+            }
+            columns.add(var);
+            return columns.size() - 1;
+        } catch (IloException e) {
+            throw new IllegalStateException("Erro do CPLEX ao criar a coluna " + name, e);
+        }
+    }
+
+    @Override
+    public void setColumnBounds(int column, double lb, double ub) {
+        try {
+            IloNumVar var = columns.get(column);
+            var.setLB(lb);
+            var.setUB(ub);
+        } catch (IloException e) {
+            throw new IllegalStateException("Erro do CPLEX ao alterar os limites de " + columns.get(column), e);
+        }
+    }
+
+    @Override
+    public int addRow(String name, double lb, LinearExpr expr, double ub) {
+        try {
+            rows.add(cplex.addRange(lb, expr(expr), ub, name));
+            nonZeros += expr.size();
+            return rows.size() - 1;
+        } catch (IloException e) {
+            throw new IllegalStateException("Erro do CPLEX ao criar a restrição " + name, e);
+        }
+    }
+
+    @Override
+    public void setObjective(LinearExpr expr) {
+        try {
+            objective = cplex.addMinimize(expr(expr));
+        } catch (IloException e) {
+            throw new IllegalStateException("Erro do CPLEX ao criar a função objetivo", e);
+        }
+    }
+
+    /**
+     * Converte uma expressão sobre índices em uma expressão do Concert (termos repetidos somados).
+     */
+    public IloLinearNumExpr expr(LinearExpr expr) throws IloException {
+        expr.compact();
+        IloNumVar[] vars = new IloNumVar[expr.size()];
+        double[] coefs = new double[expr.size()];
+        for (int t = 0; t < vars.length; t++) {
+            vars[t] = columns.get(expr.column(t));
+            coefs[t] = expr.coef(t);
+        }
+        return vars.length == 0 ? cplex.linearNumExpr() : cplex.scalProd(coefs, vars);
+    }
+
+    public IloNumVar column(int index) {
+        return columns.get(index);
+    }
+
+    public IloRange row(int index) {
+        return rows.get(index);
+    }
+
+    public IloObjective getObjective() {
+        return objective;
+    }
+
+    public IloCplex getCplex() {
+        return cplex;
+    }
+
+    @Override
+    public int getNumColumns() {
+        return columns.size();
+    }
+
+    @Override
+    public int getNumRows() {
+        return rows.size();
+    }
+
+    @Override
+    public long getNonZeros() {
+        return nonZeros;
+    }
+}
@@ -1,7 +1,9 @@
 package tcc.br;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Encapsula todas as estruturas de dados pré-processadas, prontas para serem consumidas pelo modelo CPLEX.
@@ -18,7 +20,7 @@ import java.util.Map;
  */
 public class CplexData {
     private final int numVehicles;              // K
-    private final int capacity;                 // Tmax
+    private int capacity;                       // Tmax (alterável no modo serviço)
     private final int realDepotNodeId;
 
     private final Map<Integer, Node> nodes;     // V'
@@ -33,6 +35,8 @@ public class CplexData {
     private final Map<Integer, List<Arc>> outgoingArcsFrom;     // Arcos que SAEM do nó i
     private final Map<Integer, List<Arc>> incomingArcsTo;       // Arcos que CHEGAM no nó i
 
+    private InstanceStore store;                // Armazenamento colunar de que os mapas são visões
+
     public CplexData(int numVehicles, int capacity, int realDepotNodeId,
                      Map<Integer, Arc> reqArcsOg, Map<Integer, Edge> reqEdges, Map<Integer, Node> reqNodes,
                      Map<Integer, Node> nodes, Map<String, Arc> arcs, Map<String, Arc> reqArcs,
@@ -60,6 +64,10 @@ public class CplexData {
         return capacity;
     }
 
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
     public int getRealDepotNodeId() {
         return realDepotNodeId;
     }
@@ -99,4 +107,51 @@ public class CplexData {
     public Map<Integer, Arc> getReqArcsOg() {
         return reqArcsOg;
     }
+
+    public InstanceStore getStore() {
+        return store;
+    }
+
+    public void setStore(InstanceStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Cria uma cópia restrita a um subconjunto de serviços, compartilhando o grafo (V', A, Turns).
+     * Serviços fora do subconjunto continuam em A, mas apenas como arcos de deadheading.
+     * @param numVehicles Número de veículos do subproblema.
+     * @param reqNodeIds IDs de R_V mantidos.
+     * @param reqArcOgIds IDs de A'_R mantidos.
+     * @param reqEdgeIds IDs de E_R mantidos.
+     */
+    public CplexData restrictTo(int numVehicles, Set<Integer> reqNodeIds, Set<Integer> reqArcOgIds, Set<Integer> reqEdgeIds) {
+        Map<Integer, Node> subReqNodes = new HashMap<>();
+        for (Integer id : reqNodeIds) {
+            subReqNodes.put(id, reqNodes.get(id));
+        }
+
+        Map<String, Arc> subReqArcs = new HashMap<>();
+        Map<Integer, Arc> subReqArcsOg = new HashMap<>();
+        for (Integer id : reqArcOgIds) {
+            Arc arc = reqArcsOg.get(id);
+            subReqArcsOg.put(id, arc);
+            String key = arc.fromNode() + "-" + arc.toNode();
+            subReqArcs.put(key, reqArcs.get(key));
+        }
+
+        Map<Integer, Edge> subReqEdges = new HashMap<>();
+        for (Integer id : reqEdgeIds) {
+            Edge edge = reqEdges.get(id);
+            subReqEdges.put(id, edge);
+            String key1 = edge.fromNode() + "-" + edge.toNode();
+            String key2 = edge.toNode() + "-" + edge.fromNode();
+            subReqArcs.put(key1, reqArcs.get(key1));
+            subReqArcs.put(key2, reqArcs.get(key2));
+        }
+
+        CplexData restricted = new CplexData(numVehicles, capacity, realDepotNodeId, subReqArcsOg, subReqEdges, subReqNodes,
+                                             nodes, arcs, subReqArcs, outgoingArcsFrom, incomingArcsTo, turns);
+        restricted.setStore(store);
+        return restricted;
+    }
 }
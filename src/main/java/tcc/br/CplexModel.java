@@ -1,17 +1,26 @@
 package tcc.br;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.time.StopWatch;
 
 import ilog.concert.IloException;
 import ilog.concert.IloLinearNumExpr;
-import ilog.concert.IloLinearNumExprIterator;
 import ilog.concert.IloNumExpr;
 import ilog.concert.IloNumVar;
+import ilog.concert.IloNumVarType;
+import ilog.concert.IloObjective;
+import ilog.concert.IloRange;
 
 import ilog.cplex.IloCplex;
 import ilog.cplex.IloCplex.MIPInfoCallback;
@@ -21,8 +30,26 @@ import ilog.cplex.IloCplex.MIPInfoCallback;
  * Lida com as formulações NEARP e NEARP-TP.
  */
 public class CplexModel {
-    // --- Tempo de Execução ---
-    private final long MAX_RUNTIME = 3_600_000;    // milliseconds; 1 hour
+    /**
+     * Valor e instante da melhor incumbente (imutável, trocado por CAS).
+     */
+    private static final class BestIncumbent {
+        static final BestIncumbent NONE = new BestIncumbent(Double.MAX_VALUE, 0);
+
+        final double objValue;
+        final long foundAtMillis;
+
+        BestIncumbent(double objValue, long foundAtMillis) {
+            this.objValue = objValue;
+            this.foundAtMillis = foundAtMillis;
+        }
+    }
+
+    // --- Recursos (tempo, threads, memória) ---
+    private ResourceProfile resources = new ResourceProfile();
+
+    // --- Parâmetros de busca (ex.: arquivo .prm gerado pelo ajuste) ---
+    private ParameterProfile parameters;
 
     // --- Dados e Controle ---
     private final CplexData data;
@@ -30,8 +57,20 @@ public class CplexModel {
     private final int K;                            // Número de veículos
     
     // --- Solver ---
+    // Destino da construção; com CplexBackend, cplex é o IloCplex dele (null nos demais)
+    private final ModelBackend backend;
     private IloCplex cplex;
 
+    // Índices das colunas no backend, usados apenas durante a construção
+    private Map<String, Integer> xCol;
+    private Map<String, Integer> zCol;
+    private Map<String, Integer> yCol;
+    private Map<String, Integer> fCol;
+    private Map<String, Integer> wCol;
+    private Map<String, Integer> gCol;
+    private Map<Integer, LinearExpr> zkTerms;
+    private Map<String, Integer> rowIndex;
+
     // --- Variáveis de Decisão ---
     // x_ij^k (Binária): Veículo k serve o arco (i,j) em R_A
     private Map<String, IloNumVar> x;
@@ -48,38 +87,115 @@ public class CplexModel {
     // w_ijl^k (Inteira): Veículo k faz a conversão (i,j,l) em Turns
     private Map<String, IloNumVar> w;
 
+    // g_ijl^k (Contínua): Fluxo de tempo na conversão (i,j,l) para o veículo k (grafo de linhas)
+    private Map<String, IloNumVar> g;
+
+    // --- Formulação do grafo de linhas (NEARP-TP) ---
+    // Os nós são os arcos de A e as ligações são as conversões: w é o único fluxo de
+    // veículos, y_ij^k = sum_i w_ij^k - x_ij^k deixa de ser variável e f passa a g.
+    private boolean lineGraph;
+    private Map<String, List<Turn>> turnsInto;          // chave "j-l": conversões (i,j,l)
+    private Map<String, List<Turn>> turnsFrom;          // chave "i-j": conversões (i,j,l)
+    private Map<Integer, List<Turn>> turnsAt;           // chave j: conversões (i,j,l)
+
+    // --- Simetria entre veículos idênticos ---
+    // "cost" (Z_k <= Z_{k+1}), "assignment" (ordem dos serviços), "orbital" (callback) ou "none"
+    private String symmetry = "cost";
+    private OrbitalFixing orbitalFixing;
+
     // Expressão Z_k para cada veículo k
     private Map<Integer, IloLinearNumExpr> z_k_expressions;
 
-    private double bestObjectiveFound;
-    private long timeToBestSolutionMillis;
+    // Função objetivo e restrições por nome (estas apenas com trackRows, para alterações incrementais)
+    private IloObjective objectiveFunction;
+    private Map<String, IloRange> rows;
+    private boolean trackRows;
+
+    // Melhor incumbente vista pelo callback; atualizada por CAS, pois o callback pode rodar em várias threads
+    private final AtomicReference<BestIncumbent> bestIncumbent = new AtomicReference<>(BestIncumbent.NONE);
+    private volatile SolveTelemetry telemetry;
+
+    // Checkpoint da incumbente e partida a partir de um checkpoint anterior (--checkpoint, --resume)
+    private volatile SolveCheckpoint checkpoint;
+    private IloNumVar[] checkpointVars;
+    private Map<String, Double> resumeStart;
+
+    // Partida parcial vinda do cache de resultados e planos da solução final (para guardá-la no cache)
+    private List<VehiclePlan> warmStartPlans;
+    private boolean retainPlans;
+    private List<VehiclePlan> finalPlans;
+    private String finalStatus;
+
+    // Estado e limitante provados fora deste IloCplex (vencedor da corrida), até a próxima resolução
+    private String externalStatus;
+    private double externalBound = Double.NaN;
 
     private Map<String, Integer> serviceId;
 
+    private boolean built;
+    private boolean quiet;
+
+    // --- Pool de soluções (k melhores planos distintos após a resolução principal) ---
+    private int poolSize;
+    private double poolRelGap;
+    private int poolIntensity;
+    private double poolTimeLimit;
+    private List<Solution> poolSolutions = new ArrayList<>();
+
     /**
      * Construtor do CplexModel.
      * @param data O pacote de dados pré-processados.
      * @param inputType O tipo de problema ("NEARP" ou "NEARPTP")
      */
     public CplexModel(CplexData data, String inputType) {
+        this(data, inputType, newCplexBackend());
+    }
+
+    /**
+     * Construtor com o destino da construção escolhido. Resolução, callbacks e alterações
+     * incrementais exigem um CplexBackend; com os demais o modelo serve apenas para build().
+     * @param backend Onde as colunas e linhas são criadas.
+     */
+    public CplexModel(CplexData data, String inputType, ModelBackend backend) {
         this.data = data;
         this.isTurnPenaltiesModel = inputType.equalsIgnoreCase("NEARPTP");
         this.K = data.getNumVehicles();
-
-        try {
-            this.cplex = new IloCplex();
-        } catch (IloException e) {
-            System.err.println("Erro ao instanciar o IloCplex");
-            e.printStackTrace();
+        this.backend = backend;
+        if (backend instanceof CplexBackend) {
+            this.cplex = ((CplexBackend) backend).getCplex();
         }
 
         // Inicializa os mapas
+        this.xCol = new HashMap<>();
+        this.zCol = new HashMap<>();
+        this.yCol = new HashMap<>();
+        this.fCol = new HashMap<>();
+        this.wCol = new HashMap<>();
+        this.gCol = new HashMap<>();
+        this.zkTerms = new HashMap<>();
+        this.rowIndex = new HashMap<>();
         this.x = new HashMap<>();
         this.z = new HashMap<>();
         this.y = new HashMap<>();
         this.f = new HashMap<>();
         this.w = new HashMap<>();
+        this.g = new HashMap<>();
         this.z_k_expressions = new HashMap<>();
+        this.rows = new HashMap<>();
+    }
+
+    private static ModelBackend newCplexBackend() {
+        try {
+            return new CplexBackend(new IloCplex());
+        } catch (IloException e) {
+            System.err.println("Erro ao instanciar o IloCplex");
+            e.printStackTrace();
+            return new CplexBackend(null);
+        }
+    }
+
+    public ModelBackend getBackend() {
+        return backend;
     }
 
     /**
@@ -87,48 +203,12 @@ public class CplexModel {
      * @param stopWatch O cronômetro global da aplicação.
      */
     public Solution solve(StopWatch stopWatch) {
-        System.out.println("Construindo o modelo CPLEX...");
         try {
-            // 1. Criar Variáveis de Decisão
-            buildDecisionVariables();
-
-            // 2. Criar Função Objetivo
-            buildObjectiveFunction();
-
-            // 3. Criar Restrições
-            buildConstraints();
-
-            System.out.println("\nModelo CPLEX construído com sucesso.");
-            
-            // Parâmetros do CPLEX
-            cplex.setParam(IloCplex.Param.TimeLimit, getRemainingTime(stopWatch));
-            //cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.01);
-            cplex.setParam(IloCplex.Param.MIP.Strategy.File, 3);
-
-            String lpFilename = "debug_model.lp";
-            cplex.exportModel(lpFilename);
-            System.out.println(">>> DEBUG: Modelo exportado para " + lpFilename);
-
-            attachMIPInfoCallback(stopWatch);
-
-            boolean solved = cplex.solve();
-            Solution sol = null;
-
-            if (solved) {
-                IloCplex.Status status = cplex.getStatus();
-                System.out.println("Solução encontrada! Estado: " + status);
-
-                saveDecisionVariables("solution_variables.txt");
-
-                long totalTime = stopWatch.getTime(TimeUnit.MILLISECONDS);
-                sol = buildSolution(totalTime);
-            } else {
-                IloCplex.Status status = cplex.getStatus();
-                System.err.println("Solução não encontrada!!! Estado: " + status);
-            }
+            build();
+            configure(stopWatch);
 
-            cplex.end();
-            return sol;
+            boolean solved = timedSolve("solve");
+            return finish(solved, stopWatch);
 
         } catch (IloException e) {
             System.err.println("Um erro de CPLEX ocorreu ao construir o modelo:");
@@ -142,320 +222,921 @@ public class CplexModel {
     }
 
     /**
-     * Cria todas as variáveis de decisão da formulação.
+     * Constrói variáveis, função objetivo e restrições. Chamadas repetidas não têm efeito.
      */
-    private void buildDecisionVariables() throws IloException {
-        System.out.println("  \nCriando variáveis...");
+    public void build() throws IloException {
+        if (this.built) return;
 
-        // Variáveis x_ij^k (Binária) - Para arcos em R_A
-        System.out.println("    ... x (serviço de arco)");
-        for (int k = 0; k < K; k++) {
-            for (Arc arc : data.getReqArcs().values()) {        // Iterar sobre R_A
-                String key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                String name = "x(" + k + "," + arc.fromNode + "," + arc.toNode + ")";
-                IloNumVar var = cplex.boolVar(name);
-                x.put(key, var);
-            }
-        }
+        log("Construindo o modelo CPLEX...");
 
-        System.out.println("    Total de variáveis x: " + x.size());
+        // 1. Criar Variáveis de Decisão
+        buildDecisionVariables();
 
-        // Variáveis z_i^k (Binária) - Para nós em R_V
-        System.out.println("    ... z (serviço de nó)");
-        for (int k = 0; k < K; k++) {
-            for (Integer nodeId : data.getReqNodes().keySet()) {        // Iterar sobre R_V
-                String key = k + "-" + nodeId;
-                String name = "z(" + k + "," + nodeId + ")";
-                IloNumVar var = cplex.boolVar(name);
-                z.put(key, var);
-            }
-        }
+        // 2. Criar Função Objetivo
+        buildObjectiveFunction();
 
-        System.out.println("    Total de variáveis z: " + z.size());
+        // 3. Criar Restrições
+        buildConstraints();
 
-        // Variáveis y_ij^k (Inteira) - Para arcos em A
-        System.out.println("    ... y (deadheading)");
-        for (int k = 0; k < K; k++) {
-            for (Arc arc : data.getArcs().values()) {       // Iterar sobre A
-                String key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                String name = "y(" + k + "," + arc.fromNode + "," + arc.toNode + ")";
-                IloNumVar var = cplex.intVar(0, Integer.MAX_VALUE, name);
-                y.put(key, var);
-            }
+        if (backend instanceof CplexBackend) {
+            bindConcertObjects((CplexBackend) backend);
         }
+        this.built = true;
+        log("\nModelo CPLEX construído com sucesso.");
+    }
 
-        System.out.println("    Total de variáveis y: " + y.size());
-
-        // Variáveis f_ij^k (Contínua) - Para arcos em A
-        System.out.println("    ... f (fluxo de tempo)");
-        for (int k = 0; k < K; k++) {
-            for (Arc arc : data.getArcs().values()) {       // Iterar sobre A
-                String key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                String name = "f(" + k + "," + arc.fromNode + "," + arc.toNode + ")";
-                IloNumVar var = cplex.numVar(0, Double.MAX_VALUE, name);
-                f.put(key, var);
-            }
+    /**
+     * Define os parâmetros da resolução principal, exporta o modelo e anexa o callback.
+     */
+    public void configure(StopWatch stopWatch) throws IloException {
+        // Parâmetros do CPLEX
+        if (parameters != null) {
+            parameters.apply(cplex);
         }
+        resources.apply(cplex);
+        cplex.setParam(IloCplex.Param.TimeLimit, getRemainingTime(stopWatch));
+        //cplex.setParam(IloCplex.Param.MIP.Tolerances.MIPGap, 0.01);
 
-        System.out.println("    Total de variáveis f: " + f.size());
+        String lpFilename = "debug_model.lp";
+        exportModel(lpFilename);
+        log(">>> DEBUG: Modelo exportado para " + lpFilename);
 
-        // Variáveis w_ijl^k (Inteira) - Apenas para NEARP-TP
-        if (isTurnPenaltiesModel) {
-            System.out.println("    ... w (fluxo de conversão)");
-            for (int k = 0; k < K; k++) {
-                for (Turn turn : data.getTurns().values()) {        // Iterar sobre Turns
-                    String key = k + "-" + turn.i + "-" + turn.j + "-" + turn.l;
-                    String name = "w(" + k + "," + turn.i + "," + turn.j + "," + turn.l + ")";
-                    IloNumVar var = cplex.intVar(0, Integer.MAX_VALUE, name);
-                    w.put(key, var);
-                }
-            }
-            System.out.println("    Total de variáveis w: " + w.size());
-        }
+        attachMIPInfoCallback(stopWatch);
 
-        System.out.println("  Variáveis criadas.");
+        if (warmStartPlans != null) {
+            addWarmStart(warmStartPlans);
+            warmStartPlans = null;
+        }
+        if (resumeStart != null) {
+            addCheckpointStart(resumeStart);
+            resumeStart = null;
+        }
     }
 
-    private void buildObjectiveFunction() throws IloException {
-        System.out.println("  \nConstruindo Função Objetivo...");
-        IloLinearNumExpr objective = cplex.linearNumExpr();
+    /**
+     * Monta a Solution após a resolução principal e libera o IloCplex.
+     * @param solved Retorno de cplex.solve().
+     */
+    public Solution finish(boolean solved, StopWatch stopWatch) throws IloException {
+        Solution sol = null;
 
-        for (int k = 0; k < K; k++) {
-            IloLinearNumExpr zkExpr = cplex.linearNumExpr();
+        if (solved) {
+            IloCplex.Status status = cplex.getStatus();
+            log("Solução encontrada! Estado: " + status);
 
-            // Custo de serviço em arcos (t_ij^s * x_ij^k)
-            for (Arc arc : data.getReqArcs().values()) {        // (i,j) in R_A
-                String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                zkExpr.addTerm(arc.serviceCost, x.get(x_key));
-            }
+            saveDecisionVariables("solution_variables.txt");
 
-            // Custo de serviço em nós (t_i^s * z_i^k)
-            for (Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {      // i in R_V
-                int nodeId = entry.getKey();
-                Node node = entry.getValue();
-                String z_key = k + "-" + nodeId;
-                zkExpr.addTerm(node.serviceCost, z.get(z_key));
-            }
+            long totalTime = stopWatch.getTime(TimeUnit.MILLISECONDS);
+            sol = buildSolution(totalTime);
 
-            // Custo de deadheading (t_ij^d * y_ij^k)
-            for (Arc arc : data.getArcs().values()) {       // (i,j) in A
-                String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                zkExpr.addTerm(arc.traversalCost, y.get(y_key));
+            if (poolSize > 0) {
+                populateDistinct(stopWatch);
             }
-
-            // Custo de conversão (c_ijl * w_ijl^k) - Apenas para NEARP-TP
-            if (isTurnPenaltiesModel) {
-                for (Turn turn : data.getTurns().values()) {        // (i,j,l) in Turns
-                    String w_key = k + "-" + turn.i + "-" + turn.j + "-" + turn.l;
-                    zkExpr.addTerm(turn.cost, w.get(w_key));
-                }
+            if (retainPlans) {
+                finalPlans = extractVehiclePlans();
             }
+        } else {
+            IloCplex.Status status = cplex.getStatus();
+            System.err.println("Solução não encontrada!!! Estado: " + status);
+        }
+        finalStatus = externalStatus != null ? externalStatus : String.valueOf(cplex.getStatus());
+        if (orbitalFixing != null) {
+            log("Fixação orbital: " + orbitalFixing.getFixingCount() + " variáveis fixadas em "
+                + orbitalFixing.getBranchCount() + " ramificações");
+        }
 
-            this.z_k_expressions.put(k, zkExpr);
-            objective.add(zkExpr);
+        cplex.end();
+        return sol;
+    }
+
+    /**
+     * Resolve novamente o modelo já configurado com um novo limite de tempo.
+     * @param timeLimit Limite de tempo em segundos.
+     */
+    public boolean resolve(double timeLimit) throws IloException {
+        cplex.setParam(IloCplex.Param.TimeLimit, Math.max(timeLimit, 0));
+        return timedSolve("solve");
+    }
+
+    /**
+     * cplex.solve() dentro de uma fase medida, com o tamanho do modelo resolvido.
+     */
+    private boolean timedSolve(String phaseName) throws IloException {
+        externalStatus = null;
+        externalBound = Double.NaN;
+        try (Instrumentation.Phase phase = Instrumentation.phase(phaseName)) {
+            if (phase.isActive()) {
+                phase.rows(cplex.getNrows());
+                phase.columns(cplex.getNcols());
+                phase.nonZeros(cplex.getNNZs());
+            }
+            return cplex.solve();
         }
+    }
 
-        int count = 0;
-        for (IloLinearNumExprIterator it = objective.linearIterator(); it.hasNext(); it.next()) {
-            count++;
+    /**
+     * Resolve o modelo como sub-MIP: sem exportação, sem callback e sem log do CPLEX.
+     * @param timeLimit Limite de tempo em segundos.
+     * @param threads Número de threads do CPLEX.
+     */
+    public boolean solveSubProblem(double timeLimit, int threads) throws IloException {
+        build();
+        cplex.setOut(null);
+        cplex.setWarning(null);
+        if (parameters != null) {
+            parameters.apply(cplex);
         }
-        System.out.println("    Número de termos: " + count);
+        resources.apply(cplex, threads);
+        cplex.setParam(IloCplex.Param.TimeLimit, Math.max(timeLimit, 0));
+        return timedSolve("solve.sub");
+    }
 
-        cplex.addMinimize(objective);
-        System.out.println("  Função Objetivo construída.");
+    /**
+     * Resolução para medição (suíte de benchmarks): como configure + solve, mas sem
+     * exportar o modelo, sem log do CPLEX e sem gravar arquivos. O tempo até a melhor
+     * solução é medido no cronômetro recebido.
+     */
+    public boolean solveMeasured(StopWatch stopWatch) throws IloException {
+        build();
+        cplex.setOut(null);
+        cplex.setWarning(null);
+        if (parameters != null) {
+            parameters.apply(cplex);
+        }
+        resources.apply(cplex);
+        cplex.setParam(IloCplex.Param.TimeLimit, getRemainingTime(stopWatch));
+        attachMIPInfoCallback(stopWatch);
+        return timedSolve("solve");
     }
-    
+
     /**
-     * Método principal para construir todas as restrições.
+     * Instante (ms no cronômetro da resolução) em que a melhor incumbente foi encontrada.
      */
-    private void buildConstraints() throws IloException {
-        System.out.println("  \nConstruindo Restrições...");
+    public long getTimeToBestMillis() {
+        return bestIncumbent.get().foundAtMillis;
+    }
 
-        // Restrições de Atribuição de Tarefas
-        int r1 = buildAssignmentConstraints();
+    public int getNumColumns() throws IloException {
+        return cplex.getNcols();
+    }
 
-        // Restrições de Fluxo de Veículos
-        int r2 = buildVehicleFlowConstraints();
+    public long getNodeCount() throws IloException {
+        return cplex.getNnodes64();
+    }
 
-        // Restrições de Fluxo de Tempo
-        int r3 = buildTimeFlowConstraints();
+    public int getNumRows() throws IloException {
+        return cplex.getNrows();
+    }
 
-        // Restrições de Limitentes Inferiores para os Fluxos
-        int r4 = buildFlowLowerBoundConstraints();
-        
-        int r5 = 0;
-        // Restrições de Conversão
-        if (isTurnPenaltiesModel) {
-            r5 = buildTurnConstraints();
+    public double getObjValue() throws IloException {
+        return cplex.getObjValue();
+    }
+
+    public boolean isOptimal() throws IloException {
+        if (externalStatus != null) {
+            return externalStatus.equals(String.valueOf(IloCplex.Status.Optimal));
         }
+        return cplex.getStatus() == IloCplex.Status.Optimal;
+    }
 
-        // Restrições de Quebra de Simetria
-        int r6 = buildSymmetryBreakConstraints();
+    public int getNumVehicles() {
+        return K;
+    }
+
+    public ResourceProfile getResourceProfile() {
+        return resources;
+    }
 
-        System.out.println("  Restrições construídas.");
-        System.out.println("  Quantidade de restrições: " + (r1 + r2 + r3 + r4 + r5 + r6));
+    public void setResourceProfile(ResourceProfile resources) {
+        this.resources = resources;
     }
 
     /**
-     * Constrói as restrições de Atribuição.
+     * Escolhe a formulação do NEARP-TP: "node" (w ligado a x e y por (14)/(15)) ou
+     * "linegraph" (fluxo de veículos e de tempo sobre as conversões). Sem efeito no
+     * NEARP; deve ser chamado antes de build().
      */
-    private int buildAssignmentConstraints() throws IloException {
-        // (1) sum_k x_ij^k = 1, for all (i,j) in A'_R
-        System.out.print("    ... (1) Atribuição de Arcos");
-        int cont1 = 0;
-        for (Arc arc : data.getReqArcsOg().values()) {
-            IloLinearNumExpr sumX = cplex.linearNumExpr();
-            for (int k = 0; k < K; k++) {
-                String key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                sumX.addTerm(1.0, x.get(key));
-            }
-            cplex.addEq(sumX, 1.0, "Assign_Arc_" + arc.fromNode + "_" + arc.toNode);
-            cont1++;
+    public void setFormulation(String formulation) {
+        if (formulation.equalsIgnoreCase("linegraph")) {
+            this.lineGraph = isTurnPenaltiesModel;
+        } else if (formulation.equalsIgnoreCase("node")) {
+            this.lineGraph = false;
+        } else {
+            throw new IllegalArgumentException("Formulação desconhecida: " + formulation);
         }
-        System.out.println("\t\t\tQtd: " + cont1);
+    }
 
-        // (2) sum_k (x_ij^k + x_ji^k) = 1, for all (i,j) in E_R
-        System.out.print("    ... (2) Atribuição de Arestas");
-        int cont2 = 0;
-        for (Edge edge : data.getReqEdges().values()) {
-            IloLinearNumExpr sumX_Edge = cplex.linearNumExpr();
-            for (int k = 0; k < K; k++) {
-                // Arco (i,j)
-                String key1 = k + "-" + edge.fromNode + "-" + edge.toNode;
-                // Arco (j,i)
-                String key2 = k + "-" + edge.toNode + "-" + edge.fromNode;
-                
-                sumX_Edge.addTerm(1.0, x.get(key1));
-                sumX_Edge.addTerm(1.0, x.get(key2));
-            }
-            cplex.addEq(sumX_Edge, 1.0, "Assign_Edge_" + edge.fromNode + "_" + edge.toNode);
-            cont2++;
-        }
-        System.out.println("\t\tQtd: " + cont2);
+    public String getFormulation() {
+        return lineGraph ? "linegraph" : "node";
+    }
 
-        // (3) sum_k z_i^k = 1, for all i in R_V
-        System.out.print("    ... (3) Atribuição de Nós");
-        int cont3 = 0;
-        for (Integer nodeId : data.getReqNodes().keySet()) {
-            IloLinearNumExpr sumZ = cplex.linearNumExpr();
-            for (int k = 0; k < K; k++) {
-                String key = k + "-" + nodeId;
-                sumZ.addTerm(1.0, z.get(key));
-            }
-            cplex.addEq(sumZ, 1.0, "Assign_Node_" + nodeId);
-            cont3++;
+    /**
+     * Escolhe o tratamento de simetria entre veículos: "cost" (Z_k <= Z_{k+1}, padrão),
+     * "assignment" (fixação pela ordem dos serviços), "orbital" (fixação orbital nas
+     * ramificações) ou "none". As técnicas são alternativas: combinadas, cada uma escolheria
+     * o seu representante e poderiam cortar todas as soluções ótimas. Deve ser chamado antes
+     * de build().
+     */
+    public void setSymmetry(String symmetry) {
+        switch (symmetry.toLowerCase()) {
+            case "cost":
+            case "assignment":
+            case "orbital":
+            case "none":
+                this.symmetry = symmetry.toLowerCase();
+                break;
+            default:
+                throw new IllegalArgumentException("Tratamento de simetria desconhecido: " + symmetry);
         }
-        System.out.println("\t\t\tQtd: " + cont3);
+    }
 
-        return (cont1 + cont2 + cont3);
+    public String getSymmetry() {
+        return symmetry;
+    }
+
+    public ParameterProfile getParameterProfile() {
+        return parameters;
+    }
+
+    public void setParameterProfile(ParameterProfile parameters) {
+        this.parameters = parameters;
+    }
+
+    @SuppressWarnings("try")
+    public void exportModel(String filename) throws IloException {
+        try (Instrumentation.Phase phase = Instrumentation.phase("export")) {
+            cplex.exportModel(filename);
+        }
     }
 
     /**
-     * Constrói as restrições de Fluxo de Veículos.
+     * Todas as variáveis de decisão em ordem fixa (x, z, y, f, w, g).
      */
-    private int buildVehicleFlowConstraints() throws IloException {
-        // (4) (Sum IN) - (Sum OUT) = 0, for all i in V', k in K
-        System.out.print("    ... (4) Conservação de Fluxo");
-        int cont4 = 0;
-        for (int k = 0; k < K; k++) {
-            for (Integer nodeId : data.getNodes().keySet()) {
-                if (nodeId.equals(data.getRealDepotNodeId())) {
-                    continue;
-                }
-
-                IloLinearNumExpr flowBalance = cplex.linearNumExpr();
+    public IloNumVar[] getAllVariables() {
+        List<IloNumVar> vars = new ArrayList<>(x.size() + z.size() + y.size() + f.size() + w.size() + g.size());
+        vars.addAll(x.values());
+        vars.addAll(z.values());
+        vars.addAll(y.values());
+        vars.addAll(f.values());
+        vars.addAll(w.values());
+        vars.addAll(g.values());
+        return vars.toArray(new IloNumVar[0]);
+    }
 
-                // --- FLUXO DE ENTRADA ---
-                List<Arc> incoming = data.getIncomingArcsTo().get(nodeId);
-                if (incoming != null) {
-                    for (Arc arc : incoming) {
-                        // + y_ji^k
-                        String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        flowBalance.addTerm(1.0, y.get(y_key));
+    /**
+     * Carrega uma solução já conhecida (ex.: vinda de outra instância do IloCplex)
+     * e encerra a resolução assim que ela for aceita como incumbente. O limite de
+     * soluções vale apenas para esta resolução; o estado e o limitante de quem
+     * encontrou a solução passam a ser os reportados (isOptimal, getBestObjValue, finish).
+     * @param timeToBestMillis Momento em que a solução foi encontrada originalmente.
+     * @param timeLimit Tempo restante, em segundos.
+     * @param status Estado do CPLEX que encontrou a solução.
+     * @param bound Limitante provado por ele.
+     */
+    public boolean solveFromStart(IloNumVar[] vars, double[] values, long timeToBestMillis,
+                                  double timeLimit, String status, double bound) throws IloException {
+        cplex.addMIPStart(vars, values, IloCplex.MIPStartEffort.CheckFeas, "external");
+        long solutionLimit = cplex.getParam(IloCplex.Param.MIP.Limits.Solutions);
+        cplex.setParam(IloCplex.Param.MIP.Limits.Solutions, 1L);
+        cplex.setParam(IloCplex.Param.TimeLimit, Math.max(timeLimit, 0));
+        boolean solved;
+        try {
+            solved = timedSolve("solve.start");
+        } finally {
+            cplex.setParam(IloCplex.Param.MIP.Limits.Solutions, solutionLimit);
+        }
+        this.bestIncumbent.set(new BestIncumbent(Double.MAX_VALUE, timeToBestMillis));
+        this.externalStatus = status;
+        this.externalBound = bound;
+        return solved;
+    }
 
-                        // + x_ji^k (se (j,i) in R_A)
-                        String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        if (x.containsKey(x_key)) {
-                            flowBalance.addTerm(1.0, x.get(x_key));
-                        }
-                    }
-                }
+    /**
+     * Libera o IloCplex sem montar solução (sub-MIPs descartados).
+     */
+    public void end() {
+        if (cplex != null) {
+            cplex.end();
+        }
+    }
 
-                // --- FLUXO de SAÍDA ---
-                List<Arc> outgoing = data.getOutgoingArcsFrom().get(nodeId);
-                if (outgoing != null) {
-                    for (Arc arc : outgoing) {
-                        // - y_ij^k
-                        String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        flowBalance.addTerm(-1.0, y.get(y_key));
+    /**
+     * Extrai a solução corrente como um VehiclePlan por veículo, na ordem de k.
+     */
+    public List<VehiclePlan> extractVehiclePlans() throws IloException {
+        return extractVehiclePlans(-1);
+    }
 
-                        // - x_ij^k (se (i,j) in R_A)
-                        String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        if (x.containsKey(x_key)) {
-                            flowBalance.addTerm(-1.0, x.get(x_key));
-                        }
-                    }
-                }
+    /**
+     * Extrai a solução de índice 'soln' do pool (-1 para a incumbente).
+     */
+    private List<VehiclePlan> extractVehiclePlans(int soln) throws IloException {
+        List<VehiclePlan> plans = new ArrayList<>();
+        for (int k = 0; k < K; k++) {
+            plans.add(new VehiclePlan());
+        }
 
-                // (Sum IN) - (Sum OUT) = 0
-                cplex.addEq(flowBalance, 0.0, "Flow_Cons_" + k + "_" + nodeId);
-                cont4++;
+        // Uma chamada getValues por família; as chaves são "k-..." e o restante é a chave do plano
+        for (Map.Entry<String, Double> entry : valueMap(x, soln).entrySet()) {
+            if (entry.getValue() > 0.5) {
+                plans.get(vehicleOf(entry.getKey())).x.put(planKey(entry.getKey()), 1.0);
             }
         }
-        System.out.println("\t\tQtd: " + cont4);
-        
-        // (5) sum_j y_0j^k + sum_j x_0j^k <= 1, for all k in K
-        System.out.print("    ... (5) Saída do Depósito");
-        int cont5 = 0;
+        for (Map.Entry<String, Double> entry : valueMap(z, soln).entrySet()) {
+            if (entry.getValue() > 0.5) {
+                plans.get(vehicleOf(entry.getKey())).z.put(Integer.parseInt(planKey(entry.getKey())), 1.0);
+            }
+        }
+        for (Map.Entry<String, Double> entry : valueMap(y, soln).entrySet()) {
+            long yVal = Math.round(entry.getValue());
+            if (yVal > 0) {
+                plans.get(vehicleOf(entry.getKey())).y.put(planKey(entry.getKey()), (double) yVal);
+            }
+        }
+        for (Map.Entry<String, Double> entry : valueMap(f, soln).entrySet()) {
+            if (entry.getValue() > 1e-6) {
+                plans.get(vehicleOf(entry.getKey())).f.put(planKey(entry.getKey()), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Double> entry : valueMap(w, soln).entrySet()) {
+            long wVal = Math.round(entry.getValue());
+            if (wVal > 0) {
+                plans.get(vehicleOf(entry.getKey())).w.put(planKey(entry.getKey()), (double) wVal);
+            }
+        }
+        if (lineGraph) {
+            addLineGraphFlows(plans, soln);
+        }
+
         for (int k = 0; k < K; k++) {
-            IloLinearNumExpr depotDeparture = cplex.linearNumExpr();
-            
-            // Obtém todos os arcos que saem do depósito 0
-            List<Arc> outgoingFromDepot = data.getOutgoingArcsFrom().get(data.getRealDepotNodeId());
-            
-            if (outgoingFromDepot != null) {
-                for (Arc arc : outgoingFromDepot) {
-                    // + y_0j^k
-                    String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                    depotDeparture.addTerm(1.0, y.get(y_key));
+            plans.get(k).cost = (int) Math.round(value(z_k_expressions.get(k), soln));
+        }
+        return plans;
+    }
 
-                    // + x_0j^k (se (0,j) in R_A)
-                    String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                    if (x.containsKey(x_key)) {
-                        depotDeparture.addTerm(1.0, x.get(x_key));
-                    }
-                }
+    /**
+     * Completa os planos do grafo de linhas com y e f por arco: y_jl = sum_i w_ijl - x_jl
+     * e f_jl = sum_i g_ijl, como na formulação por nós.
+     */
+    private void addLineGraphFlows(List<VehiclePlan> plans, int soln) throws IloException {
+        for (Map.Entry<String, Double> entry : valueMap(g, soln).entrySet()) {
+            if (entry.getValue() > 1e-6) {
+                String turnKey = planKey(entry.getKey());
+                String arcKey = planKey(turnKey);
+                plans.get(vehicleOf(entry.getKey())).f.merge(arcKey, entry.getValue(), Double::sum);
+            }
+        }
+        for (VehiclePlan plan : plans) {
+            for (Map.Entry<String, Double> entry : plan.w.entrySet()) {
+                plan.y.merge(planKey(entry.getKey()), entry.getValue(), Double::sum);
+            }
+            for (String arcKey : plan.x.keySet()) {
+                plan.y.computeIfPresent(arcKey, (key, entries) -> entries > 1.5 ? entries - 1 : null);
             }
-            
-            cplex.addLe(depotDeparture, 1.0, "Depot_Leave_" + k);
-            cont5++;
         }
-        System.out.println("\t\t\tQtd: " + cont5);
-
-        return (cont4 + cont5);
     }
 
     /**
-     * Constrói as restrições de Fluxo de Tempo.
+     * Valores de uma família de variáveis com uma única chamada getValues.
      */
-    private int buildTimeFlowConstraints() throws IloException {
-        System.out.print("    ... (6) Conservação de Fluxo de Tempo");
-        int cont6 = 0;
-        for (int k = 0; k < K; k++) {
-            for (Integer nodeId : data.getNodes().keySet()) {
+    private Map<String, Double> valueMap(Map<String, IloNumVar> family, int soln) throws IloException {
+        Map<String, Double> result = new LinkedHashMap<>();
+        if (family.isEmpty()) return result;
+
+        String[] keys = new String[family.size()];
+        IloNumVar[] vars = new IloNumVar[family.size()];
+        int i = 0;
+        for (Map.Entry<String, IloNumVar> entry : family.entrySet()) {
+            keys[i] = entry.getKey();
+            vars[i] = entry.getValue();
+            i++;
+        }
+
+        double[] values = soln < 0 ? cplex.getValues(vars) : cplex.getValues(vars, soln);
+        for (i = 0; i < keys.length; i++) {
+            result.put(keys[i], values[i]);
+        }
+        return result;
+    }
+
+    private static int vehicleOf(String key) {
+        return Integer.parseInt(key.substring(0, key.indexOf('-')));
+    }
+
+    private static String planKey(String key) {
+        return key.substring(key.indexOf('-') + 1);
+    }
+
+    private double value(IloNumExpr expr, int soln) throws IloException {
+        return soln < 0 ? cplex.getValue(expr) : cplex.getValue(expr, soln);
+    }
+
+    /**
+     * Ordena os planos como a quebra de simetria exige: pelo menor índice de serviço
+     * (veículos vazios por último) com "assignment", senão por custo ((S) Z_k <= Z_{k+1}).
+     */
+    private List<VehiclePlan> orderPlans(List<VehiclePlan> plans) {
+        List<VehiclePlan> ordered = new ArrayList<>(plans);
+        if (symmetry.equals("assignment")) {
+            prepareServiceId();
+            Map<VehiclePlan, Integer> first = new HashMap<>();
+            for (VehiclePlan plan : ordered) {
+                int min = Integer.MAX_VALUE;
+                for (String arcKey : plan.x.keySet()) {
+                    min = Math.min(min, serviceId.getOrDefault(arcKey, Integer.MAX_VALUE));
+                }
+                for (Integer nodeId : plan.z.keySet()) {
+                    min = Math.min(min, serviceId.getOrDefault(nodeId + "-" + nodeId, Integer.MAX_VALUE));
+                }
+                first.put(plan, min);
+            }
+            ordered.sort(Comparator.comparingInt(first::get));
+        } else {
+            ordered.sort(Comparator.comparingInt(VehiclePlan::getCost));
+        }
+        return ordered;
+    }
+
+    /**
+     * Adiciona um MIP start completo a partir de planos por veículo.
+     * Os planos são completados com veículos vazios quando houver menos planos que K
+     * e ordenados conforme a quebra de simetria (ver orderPlans).
+     */
+    public void addMIPStart(List<VehiclePlan> plans, String name) throws IloException {
+        List<VehiclePlan> padded = new ArrayList<>(plans);
+        while (padded.size() < K) {
+            padded.add(new VehiclePlan());
+        }
+        List<VehiclePlan> ordered = orderPlans(padded);
+
+        List<IloNumVar> vars = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        for (int k = 0; k < K; k++) {
+            VehiclePlan plan = ordered.get(k);
+
+            for (Arc arc : data.getReqArcs().values()) {
+                String arcKey = arc.fromNode() + "-" + arc.toNode();
+                vars.add(x.get(k + "-" + arcKey));
+                values.add(plan.x.getOrDefault(arcKey, 0.0));
+            }
+            for (Integer nodeId : data.getReqNodes().keySet()) {
+                vars.add(z.get(k + "-" + nodeId));
+                values.add(plan.z.getOrDefault(nodeId, 0.0));
+            }
+            if (!lineGraph) {
+                for (Arc arc : data.getArcs().values()) {
+                    String arcKey = arc.fromNode() + "-" + arc.toNode();
+                    vars.add(y.get(k + "-" + arcKey));
+                    values.add(plan.y.getOrDefault(arcKey, 0.0));
+                    vars.add(f.get(k + "-" + arcKey));
+                    values.add(plan.f.getOrDefault(arcKey, 0.0));
+                }
+            }
+            if (isTurnPenaltiesModel) {
+                for (Turn turn : data.getTurns().values()) {
+                    String turnKey = turn.i() + "-" + turn.j() + "-" + turn.l();
+                    vars.add(w.get(k + "-" + turnKey));
+                    values.add(plan.w.getOrDefault(turnKey, 0.0));
+                }
+            }
+        }
+
+        double[] startValues = new double[values.size()];
+        for (int i = 0; i < startValues.length; i++) {
+            startValues[i] = values.get(i);
+        }
+        // No grafo de linhas o plano não traz g por conversão: o CPLEX fixa x, z e w e resolve g
+        IloCplex.MIPStartEffort effort = lineGraph ? IloCplex.MIPStartEffort.SolveFixed : IloCplex.MIPStartEffort.CheckFeas;
+        cplex.addMIPStart(vars.toArray(new IloNumVar[0]), startValues, effort, name);
+    }
+
+    /**
+     * Cria todas as variáveis de decisão da formulação.
+     */
+    void buildDecisionVariables() throws IloException {
+        log("  \nCriando variáveis...");
+
+        // Variáveis x_ij^k (Binária) - Para arcos em R_A
+        log("    ... x (serviço de arco)");
+        try (Instrumentation.Phase phase = Instrumentation.phase("build.var.x")) {
+            for (int k = 0; k < K; k++) {
+                for (Arc arc : data.getReqArcs().values()) {        // Iterar sobre R_A
+                    String key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    String name = "x(" + k + "," + arc.fromNode() + "," + arc.toNode() + ")";
+                    int var = backend.addColumn(name, 0, 1, ModelBackend.ColumnType.BINARY);
+                    xCol.put(key, var);
+                }
+            }
+            phase.columns(xCol.size());
+        }
+        log("    Total de variáveis x: " + xCol.size());
+
+        // Variáveis z_i^k (Binária) - Para nós em R_V
+        log("    ... z (serviço de nó)");
+        try (Instrumentation.Phase phase = Instrumentation.phase("build.var.z")) {
+            for (int k = 0; k < K; k++) {
+                for (Integer nodeId : data.getReqNodes().keySet()) {        // Iterar sobre R_V
+                    String key = k + "-" + nodeId;
+                    String name = "z(" + k + "," + nodeId + ")";
+                    int var = backend.addColumn(name, 0, 1, ModelBackend.ColumnType.BINARY);
+                    zCol.put(key, var);
+                }
+            }
+            phase.columns(zCol.size());
+        }
+        log("    Total de variáveis z: " + zCol.size());
+
+        if (lineGraph) {
+            buildLineGraphVariables();
+            log("  Variáveis criadas.");
+            return;
+        }
+
+        // Variáveis y_ij^k (Inteira) - Para arcos em A
+        log("    ... y (deadheading)");
+        try (Instrumentation.Phase phase = Instrumentation.phase("build.var.y")) {
+            for (int k = 0; k < K; k++) {
+                for (Arc arc : data.getArcs().values()) {       // Iterar sobre A
+                    String key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    String name = "y(" + k + "," + arc.fromNode() + "," + arc.toNode() + ")";
+                    int var = backend.addColumn(name, 0, Integer.MAX_VALUE, ModelBackend.ColumnType.INTEGER);
+                    yCol.put(key, var);
+                }
+            }
+            phase.columns(yCol.size());
+        }
+        log("    Total de variáveis y: " + yCol.size());
+
+        // Variáveis f_ij^k (Contínua) - Para arcos em A
+        log("    ... f (fluxo de tempo)");
+        try (Instrumentation.Phase phase = Instrumentation.phase("build.var.f")) {
+            for (int k = 0; k < K; k++) {
+                for (Arc arc : data.getArcs().values()) {       // Iterar sobre A
+                    String key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    String name = "f(" + k + "," + arc.fromNode() + "," + arc.toNode() + ")";
+                    int var = backend.addColumn(name, 0, Double.MAX_VALUE, ModelBackend.ColumnType.CONTINUOUS);
+                    fCol.put(key, var);
+                }
+            }
+            phase.columns(fCol.size());
+        }
+        log("    Total de variáveis f: " + fCol.size());
+
+        // Variáveis w_ijl^k (Inteira) - Apenas para NEARP-TP
+        if (isTurnPenaltiesModel) {
+            log("    ... w (fluxo de conversão)");
+            try (Instrumentation.Phase phase = Instrumentation.phase("build.var.w")) {
+                for (int k = 0; k < K; k++) {
+                    for (Turn turn : data.getTurns().values()) {        // Iterar sobre Turns
+                        String key = k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+                        String name = "w(" + k + "," + turn.i() + "," + turn.j() + "," + turn.l() + ")";
+                        int var = backend.addColumn(name, 0, Integer.MAX_VALUE, ModelBackend.ColumnType.INTEGER);
+                        wCol.put(key, var);
+                    }
+                }
+                phase.columns(wCol.size());
+            }
+            log("    Total de variáveis w: " + wCol.size());
+        }
+
+        log("  Variáveis criadas.");
+    }
+
+    /**
+     * Variáveis do grafo de linhas: w_ijl^k (Inteira) e g_ijl^k (Contínua) por conversão.
+     * Não há y nem f; as conversões são indexadas pelo arco de chegada e pelo nó.
+     */
+    private void buildLineGraphVariables() throws IloException {
+        turnsInto = new HashMap<>();
+        turnsFrom = new HashMap<>();
+        turnsAt = new HashMap<>();
+        for (Turn turn : data.getTurns().values()) {
+            turnsInto.computeIfAbsent(turn.j() + "-" + turn.l(), key -> new ArrayList<>()).add(turn);
+            turnsFrom.computeIfAbsent(turn.i() + "-" + turn.j(), key -> new ArrayList<>()).add(turn);
+            turnsAt.computeIfAbsent(turn.j(), key -> new ArrayList<>()).add(turn);
+        }
+
+        log("    ... w (fluxo de veículos nas conversões)");
+        try (Instrumentation.Phase phase = Instrumentation.phase("build.var.w")) {
+            for (int k = 0; k < K; k++) {
+                for (Turn turn : data.getTurns().values()) {
+                    String key = k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+                    String name = "w(" + k + "," + turn.i() + "," + turn.j() + "," + turn.l() + ")";
+                    wCol.put(key, backend.addColumn(name, 0, Integer.MAX_VALUE, ModelBackend.ColumnType.INTEGER));
+                }
+            }
+            phase.columns(wCol.size());
+        }
+        log("    Total de variáveis w: " + wCol.size());
+
+        log("    ... g (fluxo de tempo nas conversões)");
+        try (Instrumentation.Phase phase = Instrumentation.phase("build.var.g")) {
+            for (int k = 0; k < K; k++) {
+                for (Turn turn : data.getTurns().values()) {
+                    String key = k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+                    String name = "g(" + k + "," + turn.i() + "," + turn.j() + "," + turn.l() + ")";
+                    gCol.put(key, backend.addColumn(name, 0, Double.MAX_VALUE, ModelBackend.ColumnType.CONTINUOUS));
+                }
+            }
+            phase.columns(gCol.size());
+        }
+        log("    Total de variáveis g: " + gCol.size());
+    }
+
+    /**
+     * Conversões (i,j,l) que entram no arco (j,l).
+     */
+    private List<Turn> turnsInto(Arc arc) {
+        return turnsInto.getOrDefault(arc.fromNode() + "-" + arc.toNode(), Collections.emptyList());
+    }
+
+    private static String turnKey(int k, Turn turn) {
+        return k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+    }
+
+    /**
+     * Soma coef * (t^s x_ij^k + t^d y_ij^k) com y_ij^k = sum_i w_ij^k - x_ij^k (grafo de linhas).
+     */
+    private void addArcTime(LinearExpr expr, double coef, int k, Arc arc) throws IloException {
+        for (Turn turn : turnsInto(arc)) {
+            expr.addTerm(coef * arc.traversalCost(), wCol.get(turnKey(k, turn)));
+        }
+        Integer xVar = xCol.get(k + "-" + arc.fromNode() + "-" + arc.toNode());
+        if (xVar != null) {
+            expr.addTerm(coef * (arc.serviceCost() - arc.traversalCost()), xVar);
+        }
+    }
+
+    void buildObjectiveFunction() throws IloException {
+        log("  \nConstruindo Função Objetivo...");
+        LinearExpr objective = new LinearExpr();
+
+        for (int k = 0; k < K; k++) {
+            LinearExpr zkExpr = new LinearExpr();
+
+            if (lineGraph) {
+                // Custo de serviço e de deadheading dos arcos, com y escrito sobre as conversões
+                for (Arc arc : data.getArcs().values()) {       // (i,j) in A
+                    addArcTime(zkExpr, 1.0, k, arc);
+                }
+            } else {
+                // Custo de serviço em arcos (t_ij^s * x_ij^k)
+                for (Arc arc : data.getReqArcs().values()) {        // (i,j) in R_A
+                    String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    zkExpr.addTerm(arc.serviceCost(), xCol.get(x_key));
+                }
+
+                // Custo de deadheading (t_ij^d * y_ij^k)
+                for (Arc arc : data.getArcs().values()) {       // (i,j) in A
+                    String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    zkExpr.addTerm(arc.traversalCost(), yCol.get(y_key));
+                }
+            }
+
+            // Custo de serviço em nós (t_i^s * z_i^k)
+            for (Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {      // i in R_V
+                int nodeId = entry.getKey();
+                Node node = entry.getValue();
+                String z_key = k + "-" + nodeId;
+                zkExpr.addTerm(node.serviceCost(), zCol.get(z_key));
+            }
+
+            // Custo de conversão (c_ijl * w_ijl^k) - Apenas para NEARP-TP
+            if (isTurnPenaltiesModel) {
+                for (Turn turn : data.getTurns().values()) {        // (i,j,l) in Turns
+                    String w_key = k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+                    zkExpr.addTerm(turn.cost(), wCol.get(w_key));
+                }
+            }
+
+            this.zkTerms.put(k, zkExpr);
+            objective.add(zkExpr);
+        }
+
+        int count = objective.size();
+        log("    Número de termos: " + count);
+
+        try (Instrumentation.Phase phase = Instrumentation.phase("build.objective")) {
+            backend.setObjective(objective);
+            phase.nonZeros(count);
+        }
+        log("  Função Objetivo construída.");
+    }
+    
+    /**
+     * Método principal para construir todas as restrições.
+     */
+    void buildConstraints() throws IloException {
+        log("  \nConstruindo Restrições...");
+
+        // Restrições de Atribuição de Tarefas
+        int r1 = measureRows("build.rows.assignment", this::buildAssignmentConstraints);
+
+        // Restrições de Fluxo de Veículos
+        int r2 = measureRows("build.rows.vehicle_flow", lineGraph ? this::buildLineGraphFlowConstraints : this::buildVehicleFlowConstraints);
+
+        // Restrições de Fluxo de Tempo
+        int r3 = measureRows("build.rows.time_flow", lineGraph ? this::buildLineGraphTimeConstraints : this::buildTimeFlowConstraints);
+
+        // Restrições de Limitentes Inferiores para os Fluxos
+        int r4 = measureRows("build.rows.flow_lb", lineGraph ? this::buildLineGraphLowerBoundConstraints : this::buildFlowLowerBoundConstraints);
+        
+        int r5 = 0;
+        // Restrições de Conversão (no grafo de linhas as conversões já são o fluxo)
+        if (isTurnPenaltiesModel && !lineGraph) {
+            r5 = measureRows("build.rows.turn", this::buildTurnConstraints);
+        }
+
+        // Restrições de Quebra de Simetria
+        int r6 = measureRows("build.rows.symmetry", this::buildSymmetryBreakConstraints);
+
+        log("  Restrições construídas.");
+        log("  Quantidade de restrições: " + (r1 + r2 + r3 + r4 + r5 + r6));
+    }
+
+    /**
+     * Uma família de restrições: constrói e retorna o número de linhas.
+     */
+    private interface RowFamily {
+        int build() throws IloException;
+    }
+
+    /**
+     * Constrói uma família dentro de uma fase medida; os não nulos só são contados com a
+     * instrumentação ativa.
+     */
+    private int measureRows(String phaseName, RowFamily family) throws IloException {
+        try (Instrumentation.Phase phase = Instrumentation.phase(phaseName)) {
+            long nonZeros = phase.isActive() ? backend.getNonZeros() : 0;
+            int rows = family.build();
+            phase.rows(rows);
+            if (phase.isActive()) {
+                phase.nonZeros(backend.getNonZeros() - nonZeros);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Constrói as restrições de Atribuição.
+     */
+    int buildAssignmentConstraints() throws IloException {
+        // (1) sum_k x_ij^k = 1, for all (i,j) in A'_R
+        logInline("    ... (1) Atribuição de Arcos");
+        int cont1 = 0;
+        for (Arc arc : data.getReqArcsOg().values()) {
+            LinearExpr sumX = new LinearExpr();
+            for (int k = 0; k < K; k++) {
+                String key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                sumX.addTerm(1.0, xCol.get(key));
+            }
+            addEq(sumX, 1.0, "Assign_Arc_" + arc.fromNode() + "_" + arc.toNode());
+            cont1++;
+        }
+        log("\t\t\tQtd: " + cont1);
+
+        // (2) sum_k (x_ij^k + x_ji^k) = 1, for all (i,j) in E_R
+        logInline("    ... (2) Atribuição de Arestas");
+        int cont2 = 0;
+        for (Edge edge : data.getReqEdges().values()) {
+            LinearExpr sumX_Edge = new LinearExpr();
+            for (int k = 0; k < K; k++) {
+                // Arco (i,j)
+                String key1 = k + "-" + edge.fromNode() + "-" + edge.toNode();
+                // Arco (j,i)
+                String key2 = k + "-" + edge.toNode() + "-" + edge.fromNode();
+                
+                sumX_Edge.addTerm(1.0, xCol.get(key1));
+                sumX_Edge.addTerm(1.0, xCol.get(key2));
+            }
+            addEq(sumX_Edge, 1.0, "Assign_Edge_" + edge.fromNode() + "_" + edge.toNode());
+            cont2++;
+        }
+        log("\t\tQtd: " + cont2);
+
+        // (3) sum_k z_i^k = 1, for all i in R_V
+        logInline("    ... (3) Atribuição de Nós");
+        int cont3 = 0;
+        for (Integer nodeId : data.getReqNodes().keySet()) {
+            LinearExpr sumZ = new LinearExpr();
+            for (int k = 0; k < K; k++) {
+                String key = k + "-" + nodeId;
+                sumZ.addTerm(1.0, zCol.get(key));
+            }
+            addEq(sumZ, 1.0, "Assign_Node_" + nodeId);
+            cont3++;
+        }
+        log("\t\t\tQtd: " + cont3);
+
+        return (cont1 + cont2 + cont3);
+    }
+
+    /**
+     * Constrói as restrições de Fluxo de Veículos.
+     */
+    int buildVehicleFlowConstraints() throws IloException {
+        // (4) (Sum IN) - (Sum OUT) = 0, for all i in V', k in K
+        logInline("    ... (4) Conservação de Fluxo");
+        int cont4 = 0;
+        for (int k = 0; k < K; k++) {
+            for (Integer nodeId : data.getNodes().keySet()) {
+                if (nodeId.equals(data.getRealDepotNodeId())) {
+                    continue;
+                }
+
+                LinearExpr flowBalance = new LinearExpr();
+
+                // --- FLUXO DE ENTRADA ---
+                List<Arc> incoming = data.getIncomingArcsTo().get(nodeId);
+                if (incoming != null) {
+                    for (Arc arc : incoming) {
+                        // + y_ji^k
+                        String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        flowBalance.addTerm(1.0, yCol.get(y_key));
+
+                        // + x_ji^k (se (j,i) in R_A)
+                        String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        if (xCol.containsKey(x_key)) {
+                            flowBalance.addTerm(1.0, xCol.get(x_key));
+                        }
+                    }
+                }
+
+                // --- FLUXO de SAÍDA ---
+                List<Arc> outgoing = data.getOutgoingArcsFrom().get(nodeId);
+                if (outgoing != null) {
+                    for (Arc arc : outgoing) {
+                        // - y_ij^k
+                        String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        flowBalance.addTerm(-1.0, yCol.get(y_key));
+
+                        // - x_ij^k (se (i,j) in R_A)
+                        String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        if (xCol.containsKey(x_key)) {
+                            flowBalance.addTerm(-1.0, xCol.get(x_key));
+                        }
+                    }
+                }
+
+                // (Sum IN) - (Sum OUT) = 0
+                addEq(flowBalance, 0.0, "Flow_Cons_" + k + "_" + nodeId);
+                cont4++;
+            }
+        }
+        log("\t\tQtd: " + cont4);
+        
+        // (5) sum_j y_0j^k + sum_j x_0j^k <= 1, for all k in K
+        logInline("    ... (5) Saída do Depósito");
+        int cont5 = 0;
+        for (int k = 0; k < K; k++) {
+            LinearExpr depotDeparture = new LinearExpr();
+            
+            // Obtém todos os arcos que saem do depósito 0
+            List<Arc> outgoingFromDepot = data.getOutgoingArcsFrom().get(data.getRealDepotNodeId());
+            
+            if (outgoingFromDepot != null) {
+                for (Arc arc : outgoingFromDepot) {
+                    // + y_0j^k
+                    String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    depotDeparture.addTerm(1.0, yCol.get(y_key));
+
+                    // + x_0j^k (se (0,j) in R_A)
+                    String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    if (xCol.containsKey(x_key)) {
+                        depotDeparture.addTerm(1.0, xCol.get(x_key));
+                    }
+                }
+            }
+            
+            addLe(depotDeparture, 1.0, "Depot_Leave_" + k);
+            cont5++;
+        }
+        log("\t\t\tQtd: " + cont5);
+
+        return (cont4 + cont5);
+    }
+
+    /**
+     * Constrói as restrições de Fluxo de Tempo.
+     */
+    int buildTimeFlowConstraints() throws IloException {
+        logInline("    ... (6) Conservação de Fluxo de Tempo");
+        int cont6 = 0;
+        for (int k = 0; k < K; k++) {
+            for (Integer nodeId : data.getNodes().keySet()) {
                 if (nodeId.equals(data.getRealDepotNodeId())) {
                     continue;
                 }
                 
                 // (6) (Sum f_in) - (Sum f_out) - (RHS) = 0
-                IloLinearNumExpr timeFlowBalance = cplex.linearNumExpr();
+                LinearExpr timeFlowBalance = new LinearExpr();
 
                 // --- (Sum f_in) ---
                 List<Arc> incoming = data.getIncomingArcsTo().get(nodeId);
                 if (incoming != null) {
                     for (Arc arc : incoming) {
-                        String f_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        timeFlowBalance.addTerm(1.0, f.get(f_key));
+                        String f_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        timeFlowBalance.addTerm(1.0, fCol.get(f_key));
                     }
                 }
                 
@@ -463,8 +1144,8 @@ public class CplexModel {
                 List<Arc> outgoing = data.getOutgoingArcsFrom().get(nodeId);
                 if (outgoing != null) {
                     for (Arc arc : outgoing) {
-                        String f_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        timeFlowBalance.addTerm(-1.0, f.get(f_key));
+                        String f_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        timeFlowBalance.addTerm(-1.0, fCol.get(f_key));
                     }
                 }
 
@@ -473,321 +1154,787 @@ public class CplexModel {
                 if (incoming != null) {
                     for (Arc arc : incoming) {
                         // Custo de Serviço (x)
-                        String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        if (x.containsKey(x_key)) {     // Se arc in R_A
-                            timeFlowBalance.addTerm(-1.0 * arc.serviceCost, x.get(x_key));
+                        String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        if (xCol.containsKey(x_key)) {     // Se arc in R_A
+                            timeFlowBalance.addTerm(-1.0 * arc.serviceCost(), xCol.get(x_key));
                         }
                         
                         // Custo de Deadheading (y)
-                        String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                        timeFlowBalance.addTerm(-1.0 * arc.traversalCost, y.get(y_key));
+                        String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                        timeFlowBalance.addTerm(-1.0 * arc.traversalCost(), yCol.get(y_key));
                     }
                 }
 
                 // - (t_i^s * z_i^k)
                 String z_key = k + "-" + nodeId;
-                if (z.containsKey(z_key)) {     // Se node in R_V
-                    timeFlowBalance.addTerm(-1.0 * data.getReqNodes().get(nodeId).serviceCost, z.get(z_key));
+                if (zCol.containsKey(z_key)) {     // Se node in R_V
+                    timeFlowBalance.addTerm(-1.0 * data.getReqNodes().get(nodeId).serviceCost(), zCol.get(z_key));
                 }
 
                 // - (sum c_ijl * w_ijl^k) --- Apenas para NEARP-TP
                 if (isTurnPenaltiesModel) {
                     // Itera por Turns e pega apenas as conversões (i,j,l) onde j = nodeId
                     for (Turn turn : data.getTurns().values()) {
-                        if (turn.j == nodeId) {
-                            String w_key = k + "-" + turn.i + "-" + turn.j + "-" + turn.l;
-                            timeFlowBalance.addTerm(-1.0 * turn.cost, w.get(w_key));
+                        if (turn.j() == nodeId) {
+                            String w_key = k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+                            timeFlowBalance.addTerm(-1.0 * turn.cost(), wCol.get(w_key));
                         }
                     }
                 }
                 
                 // Adiciona a restrição (LHS - RHS) = 0
-                cplex.addEq(timeFlowBalance, 0.0, "TimeFlow_" + k + "_" + nodeId);
+                addEq(timeFlowBalance, 0.0, "TimeFlow_" + k + "_" + nodeId);
                 cont6++;
             }
         }
-        System.out.println("\tQtd: " + cont6);
+        log("\tQtd: " + cont6);
 
-        System.out.print("    ... (7, 8) Fluxo de Tempo do Depósito");
+        logInline("    ... (7, 8) Fluxo de Tempo do Depósito");
         int cont7 = 0;
         int cont8 = 0;
         for (int k = 0; k < K; k++) {
             // (7) sum f_0j^k = Z_k
-            IloLinearNumExpr f_out_depot = cplex.linearNumExpr();
+            LinearExpr f_out_depot = new LinearExpr();
             List<Arc> outgoingFromDepot = data.getOutgoingArcsFrom().get(data.getRealDepotNodeId());
             if (outgoingFromDepot != null) {
                 for (Arc arc : outgoingFromDepot) {
-                    String f_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                    f_out_depot.addTerm(1.0, f.get(f_key));
+                    String f_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    f_out_depot.addTerm(1.0, fCol.get(f_key));
                 }
             }
-            cplex.addEq(f_out_depot, z_k_expressions.get(k), "Depot_Time_Start_" + k);
+            addEq(diff(f_out_depot, zkTerms.get(k)), 0.0, "Depot_Time_Start_" + k);
             cont7++;
             
             // (8) sum f_i0^k = sum (t^s x_i0^k + t^d y_i0^k)
-            IloLinearNumExpr f_in_depot = cplex.linearNumExpr();        // LHS
-            IloLinearNumExpr cost_in_depot = cplex.linearNumExpr();     // RHS
+            LinearExpr f_in_depot = new LinearExpr();        // LHS
+            LinearExpr cost_in_depot = new LinearExpr();     // RHS
             
             List<Arc> incomingToDepot = data.getIncomingArcsTo().get(data.getRealDepotNodeId());
             if (incomingToDepot != null) {
                 for (Arc arc : incomingToDepot) {
                     // LHS
-                    String f_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                    f_in_depot.addTerm(1.0, f.get(f_key));
+                    String f_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    f_in_depot.addTerm(1.0, fCol.get(f_key));
                     
                     // RHS
                     // Custo de Deadheading (y)
-                    String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                    cost_in_depot.addTerm(arc.traversalCost, y.get(y_key));
+                    String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    cost_in_depot.addTerm(arc.traversalCost(), yCol.get(y_key));
 
                     // Custo de Serviço (x)
-                    String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                    if (x.containsKey(x_key)) {     // Se arc in R_A
-                        cost_in_depot.addTerm(arc.serviceCost, x.get(x_key));
+                    String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    if (xCol.containsKey(x_key)) {     // Se arc in R_A
+                        cost_in_depot.addTerm(arc.serviceCost(), xCol.get(x_key));
                     }
                 }
             }
-            cplex.addEq(f_in_depot, cost_in_depot, "Depot_Time_End_" + k);
+            addEq(diff(f_in_depot, cost_in_depot), 0.0, "Depot_Time_End_" + k);
             cont8++;
         }
-        System.out.println("\tQtd: " + (cont7 + cont8));
+        log("\tQtd: " + (cont7 + cont8));
 
         // (9) f_ij^k <= T_max * (x_ij^k + y_ij^k)
-        System.out.print("    ... (9) Limite de Tempo (T_max)");
+        logInline("    ... (9) Limite de Tempo (T_max)");
         int cont9 = 0;
         double T_max = data.getCapacity();
 
         for (int k = 0; k < K; k++) {
             for (Arc arc : data.getArcs().values()) {
-                String f_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                IloNumVar f_var = f.get(f_key);
+                String f_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                int f_var = fCol.get(f_key);
 
                 // RHS: T_max * (x_ij^k + y_ij^k)
-                IloLinearNumExpr rhs_expr = cplex.linearNumExpr();
+                LinearExpr rhs_expr = new LinearExpr();
                 
                 // Termo y_ij^k
-                String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                rhs_expr.addTerm(T_max, y.get(y_key));
+                String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                rhs_expr.addTerm(T_max, yCol.get(y_key));
 
                 // Termo x_ij^k (se existir)
-                String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                if (x.containsKey(x_key)) {
-                    rhs_expr.addTerm(T_max, x.get(x_key));
+                String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                if (xCol.containsKey(x_key)) {
+                    rhs_expr.addTerm(T_max, xCol.get(x_key));
                 }
 
-                cplex.addLe(f_var, rhs_expr, "Time_Link_" + k + "_" + arc.fromNode + "_" + arc.toNode);
+                addLe(new LinearExpr().addTerm(1.0, f_var).add(rhs_expr, -1.0), 0.0, "Time_Link_" + k + "_" + arc.fromNode() + "_" + arc.toNode());
                 cont9++;
             }
         }
 
-        System.out.println("\t\tQtd: " + cont9);
+        log("\t\tQtd: " + cont9);
         return (cont6 + cont7 + cont8 + cont9);
     }
 
     /**
      * Constrói as restrições de Limite Inferior de Fluxo de Tempo.
      */
-    private int buildFlowLowerBoundConstraints() throws IloException {
-        System.out.print("    ... (17, 18) Limites Inferiores de Fluxo de Tempo");
+    int buildFlowLowerBoundConstraints() throws IloException {
+        logInline("    ... (17, 18) Limites Inferiores de Fluxo de Tempo");
         int cont17 = 0;
         int cont18 = 0;
 
         for (int k = 0; k < K; k++) {
             for (Arc arc : data.getArcs().values()) {
-                String f_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                IloNumVar f_var = f.get(f_key);
+                String f_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                int f_var = fCol.get(f_key);
 
-                String x_key = k + "-" + arc.fromNode + "-" + arc.toNode;
+                String x_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
 
-                if (x.containsKey(x_key)) {
+                if (xCol.containsKey(x_key)) {
                     // --- Restrição (18) ---
                     // f_ij^k >= t_ij^s * x_ij^k
-                    IloNumVar x_var = x.get(x_key);
+                    int x_var = xCol.get(x_key);
                     
-                    // RHS: t_ij^s * x_ij^k
-                    IloNumExpr rhs18 = cplex.prod(x_var, arc.serviceCost);
+                    // f_ij^k - t_ij^s * x_ij^k >= 0
+                    LinearExpr lb18 = new LinearExpr(2).addTerm(1.0, f_var).addTerm(-arc.serviceCost(), x_var);
                     
-                    cplex.addGe(f_var, rhs18, "Flow_LB_Serv_" + k + "_" + arc.fromNode + "_" + arc.toNode);
+                    addGe(lb18, 0.0, "Flow_LB_Serv_" + k + "_" + arc.fromNode() + "_" + arc.toNode());
                     cont18++;
 
                 } else {
                     // --- Restrição (17) ---
                     // f_ij^k >= t_ij^d * y_ij^k
-                    String y_key = k + "-" + arc.fromNode + "-" + arc.toNode;
-                    IloNumVar y_var = y.get(y_key);
+                    String y_key = k + "-" + arc.fromNode() + "-" + arc.toNode();
+                    int y_var = yCol.get(y_key);
                     
-                    // RHS: t_ij^d * y_ij^k
-                    IloNumExpr rhs17 = cplex.prod(y_var, arc.traversalCost);
+                    // f_ij^k - t_ij^d * y_ij^k >= 0
+                    LinearExpr lb17 = new LinearExpr(2).addTerm(1.0, f_var).addTerm(-arc.traversalCost(), y_var);
                     
-                    cplex.addGe(f_var, rhs17, "Flow_LB_Dead_" + k + "_" + arc.fromNode + "_" + arc.toNode);
+                    addGe(lb17, 0.0, "Flow_LB_Dead_" + k + "_" + arc.fromNode() + "_" + arc.toNode());
                     cont17++;
                 }
             }
         }
-        System.out.println("\tQtd: " + (cont17 + cont18) + " (S:" + cont18 + ", D:" + cont17 + ")");
+        log("\tQtd: " + (cont17 + cont18) + " (S:" + cont18 + ", D:" + cont17 + ")");
         return (cont17 + cont18);
     }
 
     /**
      * Constrói as restrições de Ligação de Conversão.
      */
-    private int buildTurnConstraints() throws IloException {
-        System.out.print("    ... (14, 15) Ligação de Fluxo de Conversão");
+    int buildTurnConstraints() throws IloException {
+        logInline("    ... (14, 15) Ligação de Fluxo de Conversão");
         int cont14 = 0, cont15 = 0;
         for (int k = 0; k < K; k++) {
             for (Arc arc : data.getArcs().values()) {
-                int i = arc.fromNode;
-                int j = arc.toNode;
+                int i = arc.fromNode();
+                int j = arc.toNode();
 
                 // --- Restrição (14) ---
                 // LHS: sum(l) w_ijl^k
-                IloLinearNumExpr lhs14 = cplex.linearNumExpr();
+                LinearExpr lhs14 = new LinearExpr();
                 
                 // (Iteração ineficiente O(T). Para otimizar, pré-processe T_urns
                 // em TccPreProcessing para ter um Map<String, List<Turn>> (chave "i-j"))
                 if (isTurnPenaltiesModel) {
                     for (Turn turn : data.getTurns().values()) {
-                        if (turn.i == i && turn.j == j) {
-                            String w_key = k + "-" + turn.i + "-" + turn.j + "-" + turn.l;
-                            lhs14.addTerm(1.0, w.get(w_key));
+                        if (turn.i() == i && turn.j() == j) {
+                            String w_key = k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+                            lhs14.addTerm(1.0, wCol.get(w_key));
                         }
                     }
                 }
                 
                 // RHS: x_ij^k + y_ij^k
-                IloLinearNumExpr rhs14 = cplex.linearNumExpr();
+                LinearExpr rhs14 = new LinearExpr();
                 String y_key14 = k + "-" + i + "-" + j;
-                rhs14.addTerm(1.0, y.get(y_key14));
+                rhs14.addTerm(1.0, yCol.get(y_key14));
                 
                 String x_key14 = k + "-" + i + "-" + j;
-                if (x.containsKey(x_key14)) {
-                    rhs14.addTerm(1.0, x.get(x_key14));
+                if (xCol.containsKey(x_key14)) {
+                    rhs14.addTerm(1.0, xCol.get(x_key14));
                 }
                 
-                cplex.addEq(lhs14, rhs14, "Turn_Link_Out_" + k + "_" + i + "_" + j);
+                addEq(diff(lhs14, rhs14), 0.0, "Turn_Link_Out_" + k + "_" + i + "_" + j);
                 cont14++;
 
                 // --- Restrição (15) ---
                 // (arc = (j,l))
-                int j_node = arc.fromNode; // (j)
-                int l_node = arc.toNode; // (l)
+                int j_node = arc.fromNode(); // (j)
+                int l_node = arc.toNode(); // (l)
 
                 // LHS: sum(i) w_ijl^k
-                IloLinearNumExpr lhs15 = cplex.linearNumExpr();
+                LinearExpr lhs15 = new LinearExpr();
                 
                 // (Iteração ineficiente O(T). Para otimizar, pré-processe T_urns
                 // em TccPreProcessing para ter um Map<String, List<Turn>> (chave "j-l"))
                 if (isTurnPenaltiesModel) {
                     for (Turn turn : data.getTurns().values()) {
-                        if (turn.j == j_node && turn.l == l_node) {
-                            String w_key = k + "-" + turn.i + "-" + turn.j + "-" + turn.l;
-                            lhs15.addTerm(1.0, w.get(w_key));
+                        if (turn.j() == j_node && turn.l() == l_node) {
+                            String w_key = k + "-" + turn.i() + "-" + turn.j() + "-" + turn.l();
+                            lhs15.addTerm(1.0, wCol.get(w_key));
                         }
                     }
                 }
 
                 // RHS: x_jl^k + y_jl^k
-                IloLinearNumExpr rhs15 = cplex.linearNumExpr();
+                LinearExpr rhs15 = new LinearExpr();
                 String y_key15 = k + "-" + j_node + "-" + l_node;
-                rhs15.addTerm(1.0, y.get(y_key15));
+                rhs15.addTerm(1.0, yCol.get(y_key15));
                 
                 String x_key15 = k + "-" + j_node + "-" + l_node;
-                if (x.containsKey(x_key15)) {
-                    rhs15.addTerm(1.0, x.get(x_key15));
+                if (xCol.containsKey(x_key15)) {
+                    rhs15.addTerm(1.0, xCol.get(x_key15));
                 }
                 
-                cplex.addEq(lhs15, rhs15, "Turn_Link_In_" + k + "_" + j_node + "_" + l_node);
+                addEq(diff(lhs15, rhs15), 0.0, "Turn_Link_In_" + k + "_" + j_node + "_" + l_node);
                 cont15++;
             }
         }
-        System.out.println("\tQtd: " + (cont14 + cont15));
+        log("\tQtd: " + (cont14 + cont15));
         return (cont14 + cont15);
     }
 
     /**
-     * Constrói as restrições de Quebra de Simetria.
+     * Constrói as restrições de Fluxo de Veículos do grafo de linhas.
+     */
+    int buildLineGraphFlowConstraints() throws IloException {
+        // (4') sum_i w_ijl^k - sum_m w_jlm^k = 0, for all (j,l) in A, k in K
+        // (4'') sum_i w_ijl^k - x_jl^k >= 0 (y_jl^k >= 0), for all (j,l) in R_A, k in K
+        logInline("    ... (4') Conservação de Fluxo nos Arcos");
+        int cont4 = 0;
+        for (int k = 0; k < K; k++) {
+            for (Arc arc : data.getArcs().values()) {
+                String arcKey = arc.fromNode() + "-" + arc.toNode();
+                List<Turn> incoming = turnsInto(arc);
+                List<Turn> outgoing = turnsFrom.getOrDefault(arcKey, Collections.emptyList());
+
+                LinearExpr entries = new LinearExpr();
+                for (Turn turn : incoming) {
+                    entries.addTerm(1.0, wCol.get(turnKey(k, turn)));
+                }
+
+                if (!incoming.isEmpty() || !outgoing.isEmpty()) {
+                    LinearExpr flowBalance = new LinearExpr();
+                    flowBalance.add(entries);
+                    for (Turn turn : outgoing) {
+                        flowBalance.addTerm(-1.0, wCol.get(turnKey(k, turn)));
+                    }
+                    addEq(flowBalance, 0.0, "Line_Flow_" + k + "_" + arc.fromNode() + "_" + arc.toNode());
+                    cont4++;
+                }
+
+                Integer xVar = xCol.get(k + "-" + arcKey);
+                if (xVar != null) {
+                    entries.addTerm(-1.0, xVar);
+                    addGe(entries, 0.0, "Line_Serve_" + k + "_" + arc.fromNode() + "_" + arc.toNode());
+                    cont4++;
+                }
+            }
+        }
+        log("\tQtd: " + cont4);
+
+        // (5') sum_{(i,0,l)} w_i0l^k <= 1, for all k in K
+        logInline("    ... (5') Saída do Depósito");
+        int cont5 = 0;
+        List<Turn> atDepot = turnsAt.getOrDefault(data.getRealDepotNodeId(), Collections.emptyList());
+        for (int k = 0; k < K; k++) {
+            LinearExpr depotDeparture = new LinearExpr();
+            for (Turn turn : atDepot) {
+                depotDeparture.addTerm(1.0, wCol.get(turnKey(k, turn)));
+            }
+            addLe(depotDeparture, 1.0, "Depot_Leave_" + k);
+            cont5++;
+        }
+        log("\t\t\tQtd: " + cont5);
+
+        return (cont4 + cont5);
+    }
+
+    /**
+     * Constrói as restrições de Fluxo de Tempo do grafo de linhas: g_ijl^k é o tempo
+     * restante ao entrar no arco (j,l) pela conversão (i,j,l).
+     */
+    int buildLineGraphTimeConstraints() throws IloException {
+        int depot = data.getRealDepotNodeId();
+
+        // (6') sum_{(i,j)} sum_h g_hij^k - sum_{(i,j,l)} g_ijl^k
+        //      = sum_{(i,j)} (t^s x_ij^k + t^d y_ij^k) + t_j^s z_j^k + sum_{(i,j,l)} c_ijl w_ijl^k
+        logInline("    ... (6') Conservação de Fluxo de Tempo");
+        int cont6 = 0;
+        for (int k = 0; k < K; k++) {
+            for (Integer nodeId : data.getNodes().keySet()) {
+                if (nodeId.equals(depot)) {
+                    continue;
+                }
+
+                LinearExpr timeFlowBalance = new LinearExpr();
+                List<Arc> incoming = data.getIncomingArcsTo().get(nodeId);
+                if (incoming != null) {
+                    for (Arc arc : incoming) {
+                        for (Turn turn : turnsInto(arc)) {
+                            timeFlowBalance.addTerm(1.0, gCol.get(turnKey(k, turn)));
+                        }
+                        addArcTime(timeFlowBalance, -1.0, k, arc);
+                    }
+                }
+
+                for (Turn turn : turnsAt.getOrDefault(nodeId, Collections.emptyList())) {
+                    timeFlowBalance.addTerm(-1.0, gCol.get(turnKey(k, turn)));
+                    timeFlowBalance.addTerm(-1.0 * turn.cost(), wCol.get(turnKey(k, turn)));
+                }
+
+                String z_key = k + "-" + nodeId;
+                if (zCol.containsKey(z_key)) {     // Se node in R_V
+                    timeFlowBalance.addTerm(-1.0 * data.getReqNodes().get(nodeId).serviceCost(), zCol.get(z_key));
+                }
+
+                addEq(timeFlowBalance, 0.0, "TimeFlow_" + k + "_" + nodeId);
+                cont6++;
+            }
+        }
+        log("\tQtd: " + cont6);
+
+        logInline("    ... (7', 8') Fluxo de Tempo do Depósito");
+        int cont7 = 0;
+        int cont8 = 0;
+        List<Turn> atDepot = turnsAt.getOrDefault(depot, Collections.emptyList());
+        List<Arc> incomingToDepot = data.getIncomingArcsTo().get(depot);
+        for (int k = 0; k < K; k++) {
+            // (7') sum_{(i,0,l)} g_i0l^k = Z_k
+            LinearExpr g_out_depot = new LinearExpr();
+            for (Turn turn : atDepot) {
+                g_out_depot.addTerm(1.0, gCol.get(turnKey(k, turn)));
+            }
+            addEq(diff(g_out_depot, zkTerms.get(k)), 0.0, "Depot_Time_Start_" + k);
+            cont7++;
+
+            // (8') sum_{(i,0)} sum_h g_hi0^k = sum_{(i,0)} (t^s x_i0^k + t^d y_i0^k)
+            LinearExpr g_in_depot = new LinearExpr();
+            if (incomingToDepot != null) {
+                for (Arc arc : incomingToDepot) {
+                    for (Turn turn : turnsInto(arc)) {
+                        g_in_depot.addTerm(1.0, gCol.get(turnKey(k, turn)));
+                    }
+                    addArcTime(g_in_depot, -1.0, k, arc);
+                }
+            }
+            addEq(g_in_depot, 0.0, "Depot_Time_End_" + k);
+            cont8++;
+        }
+        log("\tQtd: " + (cont7 + cont8));
+
+        // (9') g_ijl^k <= T_max * w_ijl^k
+        logInline("    ... (9') Limite de Tempo (T_max)");
+        int cont9 = 0;
+        double T_max = data.getCapacity();
+        for (int k = 0; k < K; k++) {
+            for (Turn turn : data.getTurns().values()) {
+                String key = turnKey(k, turn);
+                LinearExpr link = new LinearExpr();
+                link.addTerm(1.0, gCol.get(key));
+                link.addTerm(-T_max, wCol.get(key));
+                addLe(link, 0.0, "Time_Link_" + k + "_" + turn.i() + "_" + turn.j() + "_" + turn.l());
+                cont9++;
+            }
+        }
+        log("\t\tQtd: " + cont9);
+        return (cont6 + cont7 + cont8 + cont9);
+    }
+
+    /**
+     * Constrói o Limite Inferior de Fluxo de Tempo do grafo de linhas: quem entra em (j,l)
+     * ainda gasta ao menos o menor tempo do arco (travessia ou serviço).
+     */
+    int buildLineGraphLowerBoundConstraints() throws IloException {
+        // (17') g_ijl^k >= min(t_jl^d, t_jl^s) * w_ijl^k
+        logInline("    ... (17') Limites Inferiores de Fluxo de Tempo");
+        int cont17 = 0;
+        for (int k = 0; k < K; k++) {
+            for (Turn turn : data.getTurns().values()) {
+                Arc arc = data.getArcs().get(turn.j() + "-" + turn.l());
+                if (arc == null) continue;
+                int minTime = arc.isRequired() ? Math.min(arc.traversalCost(), arc.serviceCost()) : arc.traversalCost();
+
+                String key = turnKey(k, turn);
+                LinearExpr bound = new LinearExpr();
+                bound.addTerm(1.0, gCol.get(key));
+                bound.addTerm(-minTime, wCol.get(key));
+                addGe(bound, 0.0, "Flow_LB_" + k + "_" + turn.i() + "_" + turn.j() + "_" + turn.l());
+                cont17++;
+            }
+        }
+        log("\tQtd: " + cont17);
+        return cont17;
+    }
+
+    /**
+     * Constrói as restrições de Quebra de Simetria conforme a técnica escolhida.
      * @throws IloException
      */
-    private int buildSymmetryBreakConstraints() throws IloException {
-        System.out.print("    ... (S) Quebra de Simetria (Custo)");
+    int buildSymmetryBreakConstraints() throws IloException {
+        switch (symmetry) {
+            case "cost":
+                return buildCostOrderConstraints();
+            case "assignment":
+                return buildServiceOrderConstraints();
+            default:
+                log("    ... (S) Quebra de Simetria: " + symmetry + " (sem restrições)");
+                return 0;
+        }
+    }
+
+    /**
+     * (S) Z_k <= Z_{k+1}: os veículos ordenados por custo.
+     */
+    int buildCostOrderConstraints() throws IloException {
+        logInline("    ... (S) Quebra de Simetria (Custo)");
         int contSym = 0;
         
         for (int k = 0; k < K - 1; k++) {
             // Z_k
-            IloLinearNumExpr Z_k_expr = z_k_expressions.get(k);
+            LinearExpr Z_k_expr = zkTerms.get(k);
             // Z_{k+1}
-            IloLinearNumExpr Z_k_plus_1_expr = z_k_expressions.get(k + 1);
+            LinearExpr Z_k_plus_1_expr = zkTerms.get(k + 1);
             
             // Cria a expressão de diferença Z_k - Z_{k+1}
-            IloNumExpr symmetryConstraint = cplex.diff(Z_k_expr, Z_k_plus_1_expr);
+            LinearExpr symmetryConstraint = diff(Z_k_expr, Z_k_plus_1_expr);
             
             // Adiciona a restrição (Z_k - Z_{k+1}) <= 0
-            cplex.addLe(symmetryConstraint, 0.0, "Symmetry_Break_" + k);
+            addLe(symmetryConstraint, 0.0, "Symmetry_Break_" + k);
             contSym++;
         }
-        System.out.println("\tQtd: " + contSym);
+        log("\tQtd: " + contSym);
+        return contSym;
+    }
+
+    /**
+     * (S') Atribuição pela ordem dos serviços (índices de prepareServiceId, a partir de 0):
+     * o serviço i só vai para os veículos 0..i, e o veículo k só recebe o serviço i se o
+     * veículo k-1 tem algum serviço de índice menor,
+     *     v_i^k <= sum_{j<i} v_j^{k-1},
+     * com v_i^k = x_ij^k, x_ij^k + x_ji^k (arestas) ou z_i^k. Resta um representante por
+     * permutação dos veículos: os veículos ordenados pelo primeiro serviço, vazios no fim.
+     * O número de não nulos cresce com K * |serviços|^2 / 2.
+     */
+    int buildServiceOrderConstraints() throws IloException {
+        logInline("    ... (S') Quebra de Simetria (Ordem dos Serviços)");
+        List<int[][]> services = serviceColumns();
+
+        int fixed = 0;
+        int contSym = 0;
+        List<List<Integer>> earlier = new ArrayList<>();         // v_j^k com j < i, por k
+        for (int k = 0; k < K; k++) {
+            earlier.add(new ArrayList<>());
+        }
+        for (int i = 0; i < services.size(); i++) {
+            int[][] columns = services.get(i);
+            for (int k = 1; k < K; k++) {
+                if (k > i) {
+                    for (int var : columns[k]) {
+                        backend.setColumnBounds(var, 0, 0);
+                        fixed++;
+                    }
+                    continue;
+                }
+                LinearExpr order = new LinearExpr();
+                for (int var : columns[k]) {
+                    order.addTerm(1.0, var);
+                }
+                for (int var : earlier.get(k - 1)) {
+                    order.addTerm(-1.0, var);
+                }
+                addLe(order, 0.0, "Symmetry_Assign_" + k + "_" + i);
+                contSym++;
+            }
+            for (int k = 0; k < K; k++) {
+                for (int var : columns[k]) {
+                    earlier.get(k).add(var);
+                }
+            }
+        }
+        log("\tQtd: " + contSym + " (" + fixed + " variáveis fixadas em 0)");
         return contSym;
     }
 
     /**
-     * Anexa um callback ao CPLEX para capturar o tempo da melhor solução.
+     * Variáveis de serviço por índice de serviço (a ordem de prepareServiceId) e veículo:
+     * [k] traz z_i^k, x_ij^k ou, para arestas, x_ij^k e x_ji^k.
+     */
+    private List<int[][]> serviceColumns() {
+        List<int[][]> services = new ArrayList<>();
+        for (Integer nodeId : data.getReqNodes().keySet()) {
+            int[][] columns = new int[K][];
+            for (int k = 0; k < K; k++) {
+                columns[k] = new int[] { zCol.get(k + "-" + nodeId) };
+            }
+            services.add(columns);
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            int[][] columns = new int[K][];
+            for (int k = 0; k < K; k++) {
+                columns[k] = new int[] { xCol.get(k + "-" + arc.fromNode() + "-" + arc.toNode()) };
+            }
+            services.add(columns);
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            int[][] columns = new int[K][];
+            for (int k = 0; k < K; k++) {
+                columns[k] = new int[] { xCol.get(k + "-" + edge.fromNode() + "-" + edge.toNode()),
+                                               xCol.get(k + "-" + edge.toNode() + "-" + edge.fromNode()) };
+            }
+            services.add(columns);
+        }
+        return services;
+    }
+
+    /**
+     * Anexa a fixação orbital (técnica "orbital"). As reduções do presolve ficam restritas às
+     * primais e a simetria do próprio CPLEX é desligada, pois ambas podem escolher um
+     * representante diferente do que a fixação orbital pressupõe.
+     */
+    private void attachOrbitalFixing() throws IloException {
+        Map<String, Integer> orbitOf = new LinkedHashMap<>();
+        List<IloNumVar[]> orbits = new ArrayList<>();
+        Map<IloNumVar, Integer> others = new HashMap<>();
+        for (Map<String, IloNumVar> family : List.of(x, z)) {
+            for (Map.Entry<String, IloNumVar> entry : family.entrySet()) {
+                String key = (family == x ? "x" : "z") + planKey(entry.getKey());
+                int orbit = orbitOf.computeIfAbsent(key, o -> {
+                    orbits.add(new IloNumVar[K]);
+                    return orbits.size() - 1;
+                });
+                orbits.get(orbit)[vehicleOf(entry.getKey())] = entry.getValue();
+            }
+        }
+        for (Map<String, IloNumVar> family : List.of(y, f, w, g)) {
+            for (Map.Entry<String, IloNumVar> entry : family.entrySet()) {
+                others.put(entry.getValue(), vehicleOf(entry.getKey()));
+            }
+        }
+
+        cplex.setParam(IloCplex.Param.Preprocessing.Symmetry, 0);
+        cplex.setParam(IloCplex.Param.Preprocessing.Reduce, 1);
+        orbitalFixing = new OrbitalFixing(orbits.toArray(new IloNumVar[0][]), others, K);
+        cplex.use(orbitalFixing);
+    }
+
+    /**
+     * Anexa um callback ao CPLEX para capturar o tempo da melhor solução e, com a simetria
+     * "orbital", o callback de fixação orbital.
+     */
+    void attachMIPInfoCallback(StopWatch stopWatch) throws IloException {
+        this.bestIncumbent.set(BestIncumbent.NONE);
+
+        if (checkpoint != null && checkpointVars == null) {
+            checkpointVars = getAllVariables();
+            String[] names = new String[checkpointVars.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = checkpointVars[i].getName();
+            }
+            checkpoint.setVariableNames(names);
+        }
+
+        cplex.use(new MIPInfoCallback() {
+            @Override
+            protected void main() throws IloException {
+                long now = stopWatch.getTime(TimeUnit.MILLISECONDS);
+                boolean improved = false;
+                double incumbent = Double.NaN;
+
+                if (hasIncumbent()) {
+                    incumbent = getIncumbentObjValue();
+                    BestIncumbent current = bestIncumbent.get();
+                    while (incumbent < current.objValue - 1e-6) {
+                        if (bestIncumbent.compareAndSet(current, new BestIncumbent(incumbent, now))) {
+                            improved = true;
+                            break;
+                        }
+                        current = bestIncumbent.get();
+                    }
+                }
+
+                if (telemetry != null) {
+                    telemetry.offer(now, incumbent, getBestObjValue(),
+                                    Double.isNaN(incumbent) ? Double.NaN : getMIPRelativeGap(),
+                                    getNnodes64(), getNremainingNodes64(), improved);
+                }
+
+                SolveCheckpoint current = checkpoint;
+                if (current != null && current.isDue(now, improved)) {
+                    double[] values = improved ? getIncumbentValues(checkpointVars) : null;
+                    current.offer(now, incumbent, getBestObjValue(), values);
+                }
+            }
+        });
+
+        if (symmetry.equals("orbital")) {
+            attachOrbitalFixing();
+        }
+    }
+
+    /**
+     * Partida parcial (planos de uma solução parecida) aplicada na próxima configuração.
+     */
+    public void setWarmStartPlans(List<VehiclePlan> plans) {
+        this.warmStartPlans = plans;
+    }
+
+    /**
+     * Guarda os planos da solução em finish(), antes de liberar o IloCplex.
+     */
+    public void setRetainPlans(boolean retainPlans) {
+        this.retainPlans = retainPlans;
+    }
+
+    /**
+     * Planos da solução final (com setRetainPlans), ou null.
+     */
+    public List<VehiclePlan> getFinalPlans() {
+        return finalPlans;
+    }
+
+    /**
+     * Estado do CPLEX registrado em finish().
+     */
+    public String getFinalStatus() {
+        return finalStatus;
+    }
+
+    /**
+     * Grava checkpoints da incumbente durante as próximas resoluções (null desativa).
+     */
+    public void setCheckpoint(SolveCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Incumbente de um checkpoint (valores não nulos por nome) usada como MIP start na
+     * próxima configuração; as variáveis ausentes valem zero.
      */
-    private void attachMIPInfoCallback(StopWatch stopWatch) throws IloException {
-        this.bestObjectiveFound = Double.MAX_VALUE;
-        this.timeToBestSolutionMillis = 0;
+    public void setResumeStart(Map<String, Double> values) {
+        this.resumeStart = values;
+    }
 
-        cplex.use(new MIPInfoCallback() {
-            @Override
-            protected void main() throws IloException {
-                if (hasIncumbent()) {
-                    double currentObj = getIncumbentObjValue();
-                    if (currentObj < bestObjectiveFound - 1e-6) {
-                        bestObjectiveFound = currentObj;
-                        timeToBestSolutionMillis = stopWatch.getTime(TimeUnit.MILLISECONDS);
-                    }
-                }
+    private void addCheckpointStart(Map<String, Double> values) throws IloException {
+        IloNumVar[] vars = getAllVariables();
+        double[] startValues = new double[vars.length];
+        int matched = 0;
+        for (int i = 0; i < vars.length; i++) {
+            Double value = values.get(vars[i].getName());
+            if (value != null) {
+                startValues[i] = value;
+                matched++;
             }
-        });
+        }
+        if (matched < values.size()) {
+            log("Checkpoint: " + (values.size() - matched) + " variáveis do MIP start não existem no modelo atual.");
+        }
+        cplex.addMIPStart(vars, startValues, IloCplex.MIPStartEffort.Repair, "checkpoint");
+        log("Checkpoint: MIP start com " + matched + " valores não nulos carregado.");
+    }
+
+    /**
+     * Registra a série temporal do progresso nas próximas resoluções (null desativa).
+     */
+    public void setTelemetry(SolveTelemetry telemetry) {
+        this.telemetry = telemetry;
     }
 
     /**
      * Constrói o objeto Solution a partir dos resultados do CPLEX.
-     * Ainda não implementado. Não montava a rota corretamente :(
      */
+    @SuppressWarnings("try")
     public Solution buildSolution(long totalExecutionTimeMillis) throws IloException {
+        try (Instrumentation.Phase phase = Instrumentation.phase("extract")) {
+            return buildSolution(totalExecutionTimeMillis, -1);
+        }
+    }
+
+    /**
+     * Constrói a Solution a partir da solução de índice 'soln' do pool (-1 para a incumbente).
+     */
+    private Solution buildSolution(long totalExecutionTimeMillis, int soln) throws IloException {
         Solution solution = new Solution();
 
-        solution.setObjectiveValue((int) Math.round(cplex.getObjValue()));
+        solution.setObjectiveValue((int) Math.round(soln < 0 ? cplex.getObjValue() : cplex.getObjValue(soln)));
         solution.setTotalExecutionTimeMillis(totalExecutionTimeMillis);
-        solution.setTimeToBestSolutionMillis(this.timeToBestSolutionMillis);
+        solution.setTimeToBestSolutionMillis(bestIncumbent.get().foundAtMillis);
 
         prepareServiceId();
+        RouteBuilder builder = new RouteBuilder(data, serviceId);
 
-        // Construindo as rotas
+        // Construindo as rotas (veículos sem travessias não são usados)
         int vehiclesUsed = 0;
-        for (int k = 0; k < K; k++) {
-            int realDepot = data.getRealDepotNodeId();
+        for (VehiclePlan plan : extractVehiclePlans(soln)) {
+            if (plan.isEmpty()) continue;
 
             vehiclesUsed++;
-
-            Route route = new Route();
-            int routeDemand = -1;
-
-            route.addSegment(new RouteSegment("D", 0, realDepot, realDepot));
-            // TODO
-            route.addSegment(new RouteSegment("D", 0, realDepot, realDepot));
-
-            int zCost = (int) Math.round(cplex.getValue(z_k_expressions.get(k)));
-            route.setRouteCost(zCost);
-
-            route.setTotalDemand(routeDemand);
-            solution.addRoute(route);
+            solution.addRoute(builder.build(plan));
         }
 
         solution.setNumVehiclesUsed(vehiclesUsed);
         return solution;
     }
 
+    /**
+     * Preenche o pool de soluções com populate, sobre a árvore da resolução principal,
+     * e guarda as poolSize melhores soluções distintas. Soluções que diferem apenas
+     * por uma permutação dos veículos (idênticos) são descartadas.
+     */
+    private void populateDistinct(StopWatch stopWatch) throws IloException {
+        int capacity = Math.max(4 * poolSize, 20);
+        cplex.setParam(IloCplex.Param.MIP.Pool.Capacity, capacity);
+        cplex.setParam(IloCplex.Param.MIP.Pool.Replace, 2);     // substitui mantendo diversidade
+        cplex.setParam(IloCplex.Param.MIP.Pool.RelGap, poolRelGap);
+        cplex.setParam(IloCplex.Param.MIP.Pool.Intensity, poolIntensity);
+        cplex.setParam(IloCplex.Param.MIP.Limits.Populate, capacity);
+        cplex.setParam(IloCplex.Param.TimeLimit, poolTimeLimit);
+
+        log("\nPopulate: até " + capacity + " soluções, gap relativo " + poolRelGap + ", intensidade " + poolIntensity);
+        cplex.populate();
+
+        int n = cplex.getSolnPoolNsolns();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            order.add(i);
+        }
+        double[] objs = new double[n];
+        for (int i = 0; i < n; i++) {
+            objs[i] = cplex.getObjValue(i);
+        }
+        order.sort(Comparator.comparingDouble(i -> objs[i]));
+
+        Set<String> seen = new HashSet<>();
+        long totalTime = stopWatch.getTime(TimeUnit.MILLISECONDS);
+        for (int i : order) {
+            if (poolSolutions.size() >= poolSize) break;
+
+            // Multiconjunto das rotas não vazias: invariante a permutações de k
+            List<String> routes = new ArrayList<>();
+            for (VehiclePlan plan : extractVehiclePlans(i)) {
+                if (!plan.isEmpty()) {
+                    routes.add(plan.signature());
+                }
+            }
+            Collections.sort(routes);
+            if (seen.add(String.join("|", routes))) {
+                poolSolutions.add(buildSolution(totalTime, i));
+            }
+        }
+        log("Pool: " + n + " soluções, " + seen.size() + " distintas, " + poolSolutions.size() + " mantidas");
+    }
+
+    /**
+     * Ativa o pool de soluções após a resolução principal.
+     * @param size Número de planos distintos desejados.
+     * @param relGap Gap relativo máximo em relação à incumbente.
+     * @param intensity Intensidade do pool (0 a 4).
+     * @param timeLimit Limite de tempo do populate em segundos.
+     */
+    public void setSolutionPool(int size, double relGap, int intensity, double timeLimit) {
+        this.poolSize = size;
+        this.poolRelGap = relGap;
+        this.poolIntensity = intensity;
+        this.poolTimeLimit = timeLimit;
+    }
+
+    /**
+     * Planos distintos do pool, do melhor para o pior (o primeiro é a incumbente).
+     */
+    public List<Solution> getPoolSolutions() {
+        return poolSolutions;
+    }
 
     /**
      * Prepara um mapa para ID de serviço.
@@ -806,15 +1953,15 @@ public class CplexModel {
         // A'_R
         for (Map.Entry<Integer, Arc> entry : data.getReqArcsOg().entrySet()) {
             Arc arc = entry.getValue();
-            this.serviceId.put(arc.fromNode + "-" + arc.toNode, ++id);
+            this.serviceId.put(arc.fromNode() + "-" + arc.toNode(), ++id);
         }
         
         // E_R
         for (Map.Entry<Integer, Edge> entry : data.getReqEdges().entrySet()) {
             Edge edge = entry.getValue();
             id++;
-            this.serviceId.put(edge.fromNode + "-" + edge.toNode, id);
-            this.serviceId.put(edge.toNode + "-" + edge.fromNode, id);
+            this.serviceId.put(edge.fromNode() + "-" + edge.toNode(), id);
+            this.serviceId.put(edge.toNode() + "-" + edge.fromNode(), id);
         }
     }
 
@@ -822,7 +1969,7 @@ public class CplexModel {
      * Get the remaining time in seconds
      */
     protected long getRemainingTime(StopWatch stopWatch) {
-        return Math.max(TimeUnit.SECONDS.convert(MAX_RUNTIME - stopWatch.getTime(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS), 0);
+        return Math.max(TimeUnit.SECONDS.convert(resources.getTimeLimitMillis() - stopWatch.getTime(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS), 0);
     }
 
     /**
@@ -832,43 +1979,46 @@ public class CplexModel {
         try (java.io.PrintWriter writer = new java.io.PrintWriter(filename, "UTF-8")) {
             writer.println("# Valores Válidos das Variáveis de Decisão - Modelo CPLEX\n");
 
+            Map<String, Double> xValues = valueMap(x, -1);
+            Map<String, Double> yValues = valueMap(y, -1);
+
             writer.println("### Variáveis x_ij^k (Serviço de arco)");
-            for (Map.Entry<String, IloNumVar> entry : x.entrySet()) {
-                double val = cplex.getValue(entry.getValue());
+            for (Map.Entry<String, Double> entry : xValues.entrySet()) {
+                double val = entry.getValue();
                 String[] kij = entry.getKey().split("-");
                 String arcKey = kij[1] + "-" + kij[2];
                 if (Math.abs(val) > 0.5) {
-                    writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getReqArcs().get(arcKey).serviceCost);
+                    writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getReqArcs().get(arcKey).serviceCost());
                 }
             }
 
             writer.println("\n### Variáveis z_i^k (Serviço de nó)");
-            for (Map.Entry<String, IloNumVar> entry : z.entrySet()) {
-                double val = cplex.getValue(entry.getValue());
+            for (Map.Entry<String, Double> entry : valueMap(z, -1).entrySet()) {
+                double val = entry.getValue();
                 String[] ki = entry.getKey().split("-");
                 int nodeId = Integer.parseInt(ki[1]);
                 if (Math.abs(val) > 0.5) {
-                    writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getReqNodes().get(nodeId).serviceCost);
+                    writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getReqNodes().get(nodeId).serviceCost());
                 }
             }
 
             writer.println("\n### Variáveis y_ij^k (Deadheading)");
-            for (Map.Entry<String, IloNumVar> entry : y.entrySet()) {
-                double val = cplex.getValue(entry.getValue());
+            for (Map.Entry<String, Double> entry : yValues.entrySet()) {
+                double val = entry.getValue();
                 String[] kij = entry.getKey().split("-");
                 String arcKey = kij[1] + "-" + kij[2];
                 if (Math.abs(val) > 0.5) {
-                    writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getArcs().get(arcKey).traversalCost);
+                    writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getArcs().get(arcKey).traversalCost());
                 }
             }
 
             writer.println("\n### Variáveis f_ij^k (Fluxo de tempo)");
-            for (Map.Entry<String, IloNumVar> entry : f.entrySet()) {
+            for (Map.Entry<String, Double> entry : valueMap(f, -1).entrySet()) {
                 String key = entry.getKey();
-                double val = cplex.getValue(entry.getValue());
-                int y_val = (int) Math.round(cplex.getValue(y.get(key)));
+                double val = entry.getValue();
+                int y_val = (int) Math.round(yValues.get(key));
 
-                if (x.containsKey(key) && cplex.getValue(x.get(key)) > 0.5) {
+                if (xValues.getOrDefault(key, 0.0) > 0.5) {
                     writer.printf("%s = %.6f - x%n", entry.getKey(), val);
                 }
 
@@ -879,21 +2029,566 @@ public class CplexModel {
 
             if (isTurnPenaltiesModel) {
                 writer.println("\n### Variáveis w_ijl^k (Conversões)");
-                for (Map.Entry<String, IloNumVar> entry : w.entrySet()) {
-                    double val = cplex.getValue(entry.getValue());
+                for (Map.Entry<String, Double> entry : valueMap(w, -1).entrySet()) {
+                    double val = entry.getValue();
                     String[] kijl = entry.getKey().split("-");
                     String turnKey = kijl[1] + "-" + kijl[2] + "-" + kijl[3];
                     if (Math.abs(val) > 0.5) {
-                        writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getTurns().get(turnKey).cost);
+                        writer.printf("%s = %.6f - %d%n", entry.getKey(), val, this.data.getTurns().get(turnKey).cost());
+                    }
+                }
+            }
+
+            if (lineGraph) {
+                writer.println("\n### Variáveis g_ijl^k (Fluxo de tempo nas conversões)");
+                for (Map.Entry<String, Double> entry : valueMap(g, -1).entrySet()) {
+                    if (entry.getValue() > 1e-6) {
+                        writer.printf("%s = %.6f%n", entry.getKey(), entry.getValue());
                     }
                 }
             }
 
             writer.flush();
-            System.out.println(">>> Variáveis salvas em " + filename);
+            log(">>> Variáveis salvas em " + filename);
         } catch (Exception e) {
             System.err.println("Erro ao salvar variáveis de decisão:");
             e.printStackTrace();
         }
     }
+
+    /**
+     * Liga as colunas, as expressões Z_k, a função objetivo e as linhas registradas aos objetos
+     * do Concert criados pelo CplexBackend; a resolução e as alterações incrementais usam
+     * apenas estes. Os índices da construção são descartados.
+     */
+    private void bindConcertObjects(CplexBackend cb) throws IloException {
+        bindColumns(cb, xCol, x);
+        bindColumns(cb, zCol, z);
+        bindColumns(cb, yCol, y);
+        bindColumns(cb, fCol, f);
+        bindColumns(cb, wCol, w);
+        bindColumns(cb, gCol, g);
+        for (Map.Entry<Integer, LinearExpr> entry : zkTerms.entrySet()) {
+            z_k_expressions.put(entry.getKey(), cb.expr(entry.getValue()));
+        }
+        for (Map.Entry<String, Integer> entry : rowIndex.entrySet()) {
+            rows.put(entry.getKey(), cb.row(entry.getValue()));
+        }
+        objectiveFunction = cb.getObjective();
+
+        xCol = zCol = yCol = fCol = wCol = gCol = rowIndex = null;
+        zkTerms = null;
+    }
+
+    private static void bindColumns(CplexBackend cb, Map<String, Integer> columns, Map<String, IloNumVar> family) {
+        for (Map.Entry<String, Integer> entry : columns.entrySet()) {
+            family.put(entry.getKey(), cb.column(entry.getValue()));
+        }
+    }
+
+    /**
+     * expr = rhs no backend, registrada por nome quando trackRows está ativo.
+     */
+    private int addEq(LinearExpr expr, double rhs, String name) {
+        return addRow(name, rhs, expr, rhs);
+    }
+
+    /**
+     * expr <= rhs no backend.
+     */
+    private int addLe(LinearExpr expr, double rhs, String name) {
+        return addRow(name, -Double.MAX_VALUE, expr, rhs);
+    }
+
+    /**
+     * expr >= rhs no backend.
+     */
+    private int addGe(LinearExpr expr, double rhs, String name) {
+        return addRow(name, rhs, expr, Double.MAX_VALUE);
+    }
+
+    private int addRow(String name, double lb, LinearExpr expr, double ub) {
+        int row = backend.addRow(name, lb, expr, ub);
+        if (trackRows) {
+            rowIndex.put(name, row);
+        }
+        return row;
+    }
+
+    /**
+     * a - b em uma nova expressão.
+     */
+    private static LinearExpr diff(LinearExpr a, LinearExpr b) {
+        return new LinearExpr(a.size() + b.size()).add(a).add(b, -1.0);
+    }
+
+    /**
+     * Registra a restrição por nome quando trackRows está ativo.
+     */
+    private IloRange track(IloRange range) {
+        if (trackRows) {
+            rows.put(range.getName(), range);
+        }
+        return range;
+    }
+
+    // --- Limitantes inferiores (modo bound) ---
+
+    /**
+     * Resolve a relaxação linear (x, z, y e w contínuas) e retorna o seu valor.
+     * @param timeLimit Limite de tempo em segundos.
+     */
+    public double solveLpRelaxation(double timeLimit) throws IloException {
+        build();
+        List<IloNumVar> integers = new ArrayList<>();
+        integers.addAll(x.values());
+        integers.addAll(z.values());
+        integers.addAll(y.values());
+        integers.addAll(w.values());
+        cplex.add(cplex.conversion(integers.toArray(new IloNumVar[0]), IloNumVarType.Float));
+
+        if (parameters != null) {
+            parameters.apply(cplex);
+        }
+        resources.apply(cplex);
+        cplex.setParam(IloCplex.Param.TimeLimit, Math.max(timeLimit, 0));
+        if (!timedSolve("solve.lp")) {
+            throw new IloException("Relaxação linear sem solução. Estado: " + cplex.getStatus());
+        }
+        return cplex.getObjValue();
+    }
+
+    /**
+     * Duais das restrições de atribuição (1)-(3), pelo nome da restrição. Requer trackRows.
+     */
+    public Map<String, Double> getAssignmentDuals() throws IloException {
+        List<IloRange> assignment = new ArrayList<>();
+        for (Map.Entry<String, IloRange> entry : rows.entrySet()) {
+            if (entry.getKey().startsWith("Assign_")) {
+                assignment.add(entry.getValue());
+            }
+        }
+        double[] duals = cplex.getDuals(assignment.toArray(new IloRange[0]));
+
+        Map<String, Double> result = new HashMap<>();
+        for (int i = 0; i < duals.length; i++) {
+            result.put(assignment.get(i).getName(), duals[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Relaxação lagrangiana de (1)-(3): as restrições passam a [0, 1], o que, por veículo,
+     * apenas impede servir a mesma aresta nos dois sentidos. Requer trackRows.
+     */
+    public void relaxAssignmentRows() throws IloException {
+        for (Map.Entry<String, IloRange> entry : rows.entrySet()) {
+            if (entry.getKey().startsWith("Assign_")) {
+                entry.getValue().setBounds(0.0, 1.0);
+            }
+        }
+    }
+
+    /**
+     * Custos de serviço na função objetivo reduzidos pelos multiplicadores das restrições
+     * de atribuição (chave: nome da restrição). As restrições de tempo não mudam.
+     */
+    public void setAssignmentPrices(Map<String, Double> prices) throws IloException {
+        for (int k = 0; k < K; k++) {
+            for (Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {
+                double price = prices.getOrDefault("Assign_Node_" + entry.getKey(), 0.0);
+                cplex.setLinearCoef(objectiveFunction, entry.getValue().serviceCost() - price, z.get(k + "-" + entry.getKey()));
+            }
+            for (Arc arc : data.getReqArcsOg().values()) {
+                double price = prices.getOrDefault("Assign_Arc_" + arc.fromNode() + "_" + arc.toNode(), 0.0);
+                cplex.setLinearCoef(objectiveFunction, arc.serviceCost() - price, x.get(k + "-" + arc.fromNode() + "-" + arc.toNode()));
+            }
+            for (Edge edge : data.getReqEdges().values()) {
+                double price = prices.getOrDefault("Assign_Edge_" + edge.fromNode() + "_" + edge.toNode(), 0.0);
+                for (String arcKey : new String[] { edge.fromNode() + "-" + edge.toNode(), edge.toNode() + "-" + edge.fromNode() }) {
+                    cplex.setLinearCoef(objectiveFunction, data.getReqArcs().get(arcKey).serviceCost() - price, x.get(k + "-" + arcKey));
+                }
+            }
+        }
+    }
+
+    public double getBestObjValue() throws IloException {
+        if (!Double.isNaN(externalBound)) {
+            return Math.max(externalBound, cplex.getBestObjValue());
+        }
+        return cplex.getBestObjValue();
+    }
+
+    // --- Alterações incrementais (modo serviço) ---
+
+    /**
+     * Mantém as restrições acessíveis por nome para alterações incrementais.
+     * Deve ser chamado antes de build().
+     */
+    public void setTrackRows(boolean trackRows) {
+        this.trackRows = trackRows;
+    }
+
+    private IloRange row(String name) throws IloException {
+        IloRange range = rows.get(name);
+        if (range == null) {
+            throw new IloException("Restrição inexistente: " + name);
+        }
+        return range;
+    }
+
+    /**
+     * Remove o serviço do nó i: (3) passa a ser sum_k z_i^k = 0 e o nó sai de R_V, de modo
+     * que extração das rotas, validação e numeração dos serviços deixam de contá-lo. O custo
+     * de serviço é mantido para uma restauração por addNodeService.
+     */
+    public void removeNodeService(int nodeId) throws IloException {
+        row("Assign_Node_" + nodeId).setBounds(0.0, 0.0);
+        Node node = data.getReqNodes().remove(nodeId);
+        if (node != null) {
+            node.setRequired(false);
+            node.setDemand(0);
+        }
+        this.serviceId = null;
+    }
+
+    /**
+     * Adiciona (ou restaura) o serviço do nó i com tempo de serviço t_i^s.
+     * Nós ainda sem variáveis z recebem novas colunas e uma nova restrição (3).
+     */
+    public void addNodeService(int nodeId, int serviceCost) throws IloException {
+        Node node = data.getNodes().get(nodeId);
+        if (node == null) {
+            throw new IloException("Nó inexistente: " + nodeId);
+        }
+
+        if (!rows.containsKey("Assign_Node_" + nodeId)) {
+            IloLinearNumExpr sumZ = cplex.linearNumExpr();
+            for (int k = 0; k < K; k++) {
+                IloNumVar var = cplex.boolVar("z(" + k + "," + nodeId + ")");
+                z.put(k + "-" + nodeId, var);
+                sumZ.addTerm(1.0, var);
+            }
+            track(cplex.addEq(sumZ, 1.0, "Assign_Node_" + nodeId));
+            node.setServiceCost(0);
+        }
+        row("Assign_Node_" + nodeId).setBounds(1.0, 1.0);
+
+        for (int k = 0; k < K; k++) {
+            IloNumVar var = z.get(k + "-" + nodeId);
+            setServiceCostCoef(k, var, node.serviceCost(), serviceCost);
+            if (nodeId != data.getRealDepotNodeId()) {
+                cplex.setLinearCoef(row("TimeFlow_" + k + "_" + nodeId), -serviceCost, var);
+            }
+        }
+
+        node.setRequired(true);
+        node.setDemand(1);
+        node.setServiceCost(serviceCost);
+        data.getReqNodes().put(nodeId, node);
+        this.serviceId = null;
+    }
+
+    /**
+     * Remove o serviço do arco (i,j) de A'_R ou da aresta {i,j} de E_R; o trecho continua
+     * disponível para deadheading. O serviço sai também de R_A (e de A'_R ou E_R); as
+     * colunas x ficam no modelo, fixadas em zero pela restrição de atribuição.
+     */
+    public void removeArcService(int i, int j, boolean isEdge) throws IloException {
+        row(assignmentRowName(i, j, isEdge)).setBounds(0.0, 0.0);
+        if (isEdge) {
+            data.getReqEdges().values().removeIf(edge -> sameEnds(edge.fromNode(), edge.toNode(), i, j));
+        } else {
+            data.getReqArcsOg().values().removeIf(arc -> arc.fromNode() == i && arc.toNode() == j);
+        }
+        for (String arcKey : isEdge ? new String[] { i + "-" + j, j + "-" + i } : new String[] { i + "-" + j }) {
+            Arc arc = data.getReqArcs().remove(arcKey);
+            if (arc != null) {
+                arc.setRequired(false);
+                arc.setDemand(0);
+            }
+        }
+        if (isEdge) {
+            Arc arc = data.getArcs().get(i + "-" + j);
+            if (arc != null && arc.edge() != null) {
+                arc.edge().setRequired(false);
+                arc.edge().setDemand(0);
+            }
+        }
+        this.serviceId = null;
+    }
+
+    private static boolean sameEnds(int a, int b, int i, int j) {
+        return (a == i && b == j) || (a == j && b == i);
+    }
+
+    /**
+     * Adiciona (ou restaura) o serviço do arco (i,j) ou da aresta {i,j}, com tempo de serviço t^s.
+     * Arcos ainda sem variáveis x recebem novas colunas nas restrições (4)-(9), (14), (15)
+     * e (18), e uma nova restrição de atribuição (1) ou (2).
+     */
+    public void addArcService(int i, int j, boolean isEdge, int serviceCost) throws IloException {
+        if (lineGraph) {
+            throw new IloException("Serviço de arco não pode ser adicionado na formulação do grafo de linhas");
+        }
+        List<Arc> serviceArcs = new ArrayList<>();
+        serviceArcs.add(data.getArcs().get(i + "-" + j));
+        if (isEdge) {
+            serviceArcs.add(data.getArcs().get(j + "-" + i));
+        }
+        for (Arc arc : serviceArcs) {
+            if (arc == null) {
+                throw new IloException("Arco inexistente em A: " + i + "-" + j);
+            }
+        }
+        if (isEdge && serviceArcs.get(0).edge() == null) {
+            throw new IloException("Os arcos " + i + "-" + j + " e " + j + "-" + i + " não formam uma aresta");
+        }
+
+        String assignName = rows.containsKey(assignmentRowName(i, j, isEdge)) ? assignmentRowName(i, j, isEdge) : null;
+        if (assignName == null) {
+            IloLinearNumExpr sumX = cplex.linearNumExpr();
+            for (Arc arc : serviceArcs) {
+                for (int k = 0; k < K; k++) {
+                    sumX.addTerm(1.0, createServiceColumn(k, arc));
+                }
+                arc.setServiceCost(0);
+            }
+            assignName = isEdge ? "Assign_Edge_" + i + "_" + j : "Assign_Arc_" + i + "_" + j;
+            track(cplex.addEq(sumX, 1.0, assignName));
+        }
+        row(assignName).setBounds(1.0, 1.0);
+
+        // Serviço novo ou removido antes por removeArcService: volta a A'_R ou E_R
+        if (isEdge) {
+            Edge edge = serviceArcs.get(0).edge();
+            edge.setRequired(true);
+            edge.setDemand(1);
+            edge.setServiceCost(serviceCost);
+            if (data.getReqEdges().values().stream().noneMatch(e -> sameEnds(e.fromNode(), e.toNode(), i, j))) {
+                data.getReqEdges().put(nextId(data.getReqEdges()), edge);
+            }
+        } else if (data.getReqArcsOg().values().stream().noneMatch(a -> a.fromNode() == i && a.toNode() == j)) {
+            data.getReqArcsOg().put(nextId(data.getReqArcsOg()), serviceArcs.get(0));
+        }
+
+        for (Arc arc : serviceArcs) {
+            String arcKey = arc.fromNode() + "-" + arc.toNode();
+            for (int k = 0; k < K; k++) {
+                IloNumVar var = x.get(k + "-" + arcKey);
+                setServiceCostCoef(k, var, arc.serviceCost(), serviceCost);
+
+                if (arc.toNode() != data.getRealDepotNodeId()) {
+                    cplex.setLinearCoef(row("TimeFlow_" + k + "_" + arc.toNode()), -serviceCost, var);
+                } else {
+                    cplex.setLinearCoef(row("Depot_Time_End_" + k), -serviceCost, var);
+                }
+
+                String lbName = "Flow_LB_Serv_" + k + "_" + arc.fromNode() + "_" + arc.toNode();
+                if (!rows.containsKey(lbName)) {
+                    // Arco novo em R_A: a restrição (17) do arco passa a ter a forma de (18)
+                    lbName = "Flow_LB_Dead_" + k + "_" + arc.fromNode() + "_" + arc.toNode();
+                    cplex.setLinearCoef(row(lbName), 0.0, y.get(k + "-" + arcKey));
+                }
+                cplex.setLinearCoef(row(lbName), -serviceCost, var);
+            }
+
+            arc.setRequired(true);
+            arc.setDemand(1);
+            arc.setServiceCost(serviceCost);
+            data.getReqArcs().put(arcKey, arc);
+        }
+        this.serviceId = null;
+    }
+
+    /**
+     * Cria x_ij^k para um arco que não estava em R_A, com os coeficientes estruturais
+     * (sem custo de serviço) nas restrições já existentes.
+     */
+    private IloNumVar createServiceColumn(int k, Arc arc) throws IloException {
+        String arcKey = arc.fromNode() + "-" + arc.toNode();
+        IloNumVar var = cplex.boolVar("x(" + k + "," + arc.fromNode() + "," + arc.toNode() + ")");
+        x.put(k + "-" + arcKey, var);
+
+        int depot = data.getRealDepotNodeId();
+        if (arc.fromNode() != depot) {
+            cplex.setLinearCoef(row("Flow_Cons_" + k + "_" + arc.fromNode()), -1.0, var);
+        } else {
+            cplex.setLinearCoef(row("Depot_Leave_" + k), 1.0, var);
+        }
+        if (arc.toNode() != depot) {
+            cplex.setLinearCoef(row("Flow_Cons_" + k + "_" + arc.toNode()), 1.0, var);
+        }
+
+        cplex.setLinearCoef(row("Time_Link_" + k + "_" + arc.fromNode() + "_" + arc.toNode()), -data.getCapacity(), var);
+
+        if (isTurnPenaltiesModel) {
+            cplex.setLinearCoef(row("Turn_Link_Out_" + k + "_" + arc.fromNode() + "_" + arc.toNode()), -1.0, var);
+            cplex.setLinearCoef(row("Turn_Link_In_" + k + "_" + arc.fromNode() + "_" + arc.toNode()), -1.0, var);
+        }
+        return var;
+    }
+
+    /**
+     * Atualiza o custo de serviço de uma variável em Z_k: função objetivo, (7) e, com a
+     * quebra de simetria por custo, (S).
+     */
+    private void setServiceCostCoef(int k, IloNumVar var, int oldCost, int newCost) throws IloException {
+        cplex.setLinearCoef(objectiveFunction, newCost, var);
+        cplex.setLinearCoef(row("Depot_Time_Start_" + k), -newCost, var);
+        if (k < K - 1 && symmetry.equals("cost")) {
+            cplex.setLinearCoef(row("Symmetry_Break_" + k), newCost, var);
+        }
+        if (k > 0 && symmetry.equals("cost")) {
+            cplex.setLinearCoef(row("Symmetry_Break_" + (k - 1)), -newCost, var);
+        }
+        if (newCost != oldCost) {
+            z_k_expressions.get(k).addTerm(newCost - oldCost, var);
+        }
+    }
+
+    private String assignmentRowName(int i, int j, boolean isEdge) {
+        if (!isEdge) {
+            return "Assign_Arc_" + i + "_" + j;
+        }
+        // A restrição (2) usa a orientação lida da instância
+        return rows.containsKey("Assign_Edge_" + i + "_" + j) ? "Assign_Edge_" + i + "_" + j : "Assign_Edge_" + j + "_" + i;
+    }
+
+    private static int nextId(Map<Integer, ?> map) {
+        int max = 0;
+        for (Integer id : map.keySet()) {
+            max = Math.max(max, id);
+        }
+        return max + 1;
+    }
+
+    /**
+     * Fecha (ou reabre) o arco (i,j) para todos os veículos, via limites de y (w no grafo
+     * de linhas) e x.
+     */
+    public void setArcOpen(int i, int j, boolean open) throws IloException {
+        String arcKey = i + "-" + j;
+        if (!data.getArcs().containsKey(arcKey)) {
+            throw new IloException("Arco inexistente em A: " + arcKey);
+        }
+        for (int k = 0; k < K; k++) {
+            if (lineGraph) {
+                // O arco só é usado entrando por uma conversão
+                for (Turn turn : turnsInto.getOrDefault(arcKey, Collections.emptyList())) {
+                    w.get(turnKey(k, turn)).setUB(open ? Integer.MAX_VALUE : 0);
+                }
+            } else {
+                y.get(k + "-" + arcKey).setUB(open ? Integer.MAX_VALUE : 0);
+            }
+            IloNumVar xVar = x.get(k + "-" + arcKey);
+            if (xVar != null) {
+                xVar.setUB(open ? 1 : 0);
+            }
+        }
+    }
+
+    /**
+     * Altera T_max nas restrições (9) (ou (9') no grafo de linhas) e nos dados, de onde o
+     * leem as colunas criadas depois (createServiceColumn), o cache e as análises.
+     */
+    public void setTmax(int tMax) throws IloException {
+        data.setCapacity(tMax);
+        if (lineGraph) {
+            for (int k = 0; k < K; k++) {
+                for (Turn turn : data.getTurns().values()) {
+                    IloRange link = row("Time_Link_" + k + "_" + turn.i() + "_" + turn.j() + "_" + turn.l());
+                    cplex.setLinearCoef(link, -tMax, w.get(turnKey(k, turn)));
+                }
+            }
+            return;
+        }
+        for (int k = 0; k < K; k++) {
+            for (Arc arc : data.getArcs().values()) {
+                String arcKey = arc.fromNode() + "-" + arc.toNode();
+                IloRange link = row("Time_Link_" + k + "_" + arc.fromNode() + "_" + arc.toNode());
+                cplex.setLinearCoef(link, -tMax, y.get(k + "-" + arcKey));
+                IloNumVar xVar = x.get(k + "-" + arcKey);
+                if (xVar != null) {
+                    cplex.setLinearCoef(link, -tMax, xVar);
+                }
+            }
+        }
+    }
+
+    /**
+     * Substitui os MIP starts por uma partida a quente com apenas as variáveis inteiras
+     * dos planos (x, z, y, w); o CPLEX repara o que deixou de ser viável após as alterações.
+     */
+    public void addWarmStart(List<VehiclePlan> plans) throws IloException {
+        if (cplex.getNMIPStarts() > 0) {
+            cplex.deleteMIPStarts(0, cplex.getNMIPStarts());
+        }
+
+        List<VehiclePlan> ordered = orderPlans(plans);
+
+        List<IloNumVar> vars = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        for (int k = 0; k < Math.min(K, ordered.size()); k++) {
+            VehiclePlan plan = ordered.get(k);
+            for (Map.Entry<String, Double> entry : plan.x.entrySet()) {
+                IloNumVar var = x.get(k + "-" + entry.getKey());
+                if (var != null) {
+                    vars.add(var);
+                    values.add(entry.getValue());
+                }
+            }
+            // Planos de outra instância (cache) podem citar serviços, arcos ou conversões que não existem aqui
+            for (Map.Entry<Integer, Double> entry : plan.z.entrySet()) {
+                IloNumVar var = z.get(k + "-" + entry.getKey());
+                if (var != null) {
+                    vars.add(var);
+                    values.add(entry.getValue());
+                }
+            }
+            for (Map.Entry<String, Double> entry : plan.y.entrySet()) {
+                IloNumVar var = y.get(k + "-" + entry.getKey());
+                if (var != null) {
+                    vars.add(var);
+                    values.add(entry.getValue());
+                }
+            }
+            for (Map.Entry<String, Double> entry : plan.w.entrySet()) {
+                IloNumVar var = w.get(k + "-" + entry.getKey());
+                if (var != null) {
+                    vars.add(var);
+                    values.add(entry.getValue());
+                }
+            }
+        }
+
+        double[] startValues = new double[values.size()];
+        for (int i = 0; i < startValues.length; i++) {
+            startValues[i] = values.get(i);
+        }
+        cplex.addMIPStart(vars.toArray(new IloNumVar[0]), startValues, IloCplex.MIPStartEffort.Repair, "warm");
+    }
+
+    public void setSolverOutput(java.io.OutputStream out) {
+        cplex.setOut(out);
+    }
+
+    public String getStatus() throws IloException {
+        return String.valueOf(cplex.getStatus());
+    }
+
+    /**
+     * Desativa os logs de construção (usado por sub-MIPs resolvidos em paralelo).
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    private void log(String message) {
+        if (!quiet) System.out.println(message);
+    }
+
+    private void logInline(String message) {
+        if (!quiet) System.out.print(message);
+    }
 }
@@ -1,22 +1,77 @@
 package tcc.br;
 
 /**
- * Representa uma aresta não direcionada da instância.
+ * Representa uma aresta não direcionada da instância (visão sobre o InstanceStore).
  */
 public class Edge {
-    int fromNode;
-    int toNode;
-    int traversalCost;      // t_ij^d: tempo de deadheading
-    int demand;
-    int serviceCost;        // t_ij^s: tempo de serviço
-    boolean isRequired;
-
-    public Edge(int fromNode, int toNode, int traversalCost, int demand, int serviceCost, boolean isRequired) {
-        this.fromNode = fromNode;
-        this.toNode = toNode;
-        this.traversalCost = traversalCost;
-        this.demand = isRequired ? 1 : 0;       // força a demanda a ser unitária
-        this.serviceCost = serviceCost;
-        this.isRequired = isRequired;
+    private final InstanceStore store;
+    private final int index;
+
+    Edge(InstanceStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * ID da aresta no arquivo da instância.
+     */
+    public int id() {
+        return store.edgeId[index];
+    }
+
+    public int fromNode() {
+        return store.edgeFrom[index];
+    }
+
+    public int toNode() {
+        return store.edgeTo[index];
+    }
+
+    /**
+     * t_ij^d: tempo de deadheading.
+     */
+    public int traversalCost() {
+        return store.edgeTraversal[index];
+    }
+
+    public int demand() {
+        return store.edgeDemand[index];
+    }
+
+    /**
+     * t_ij^s: tempo de serviço.
+     */
+    public int serviceCost() {
+        return store.edgeService[index];
+    }
+
+    public boolean isRequired() {
+        return store.edgeRequired.get(index);
+    }
+
+    public void setDemand(int demand) {
+        store.edgeDemand[index] = demand;
+    }
+
+    public void setServiceCost(int serviceCost) {
+        store.edgeService[index] = serviceCost;
+    }
+
+    public void setRequired(boolean required) {
+        store.edgeRequired.set(index, required);
+    }
+
+    /**
+     * Sentido (i,j) da aresta em A.
+     */
+    public Arc forward() {
+        return store.arc(store.edgeArc[index]);
+    }
+
+    /**
+     * Sentido (j,i) da aresta em A.
+     */
+    public Arc backward() {
+        return store.arc(store.edgeArc[index] + 1);
     }
 }
@@ -0,0 +1,438 @@
+package tcc.br;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Análise de viabilidade e sanidade da instância pré-processada, antes de construir o modelo.
+ * <p>Cada verificação é uma condição necessária; quando falha, a instância é inviável e a
+ * causa apontada é irredutível no sentido de que basta sozinha para a inviabilidade:
+ * <p>- Alcance: um serviço fora do conjunto de nós (ou, no NEARP-TP, de arcos ligados por
+ *   conversões) alcançáveis a partir do depósito, ou que não volta a ele. O certificado é o
+ *   próprio conjunto alcançável, do qual nenhum arco (conversão) sai.
+ * <p>- Ida e volta: a menor ida do depósito ao serviço, o serviço e a menor volta somam mais
+ *   que T_max. Distâncias sem conversões e com o menor entre travessia e serviço, portanto
+ *   limitantes inferiores também no NEARP-TP.
+ * <p>- Frota: nenhum veículo (#Vehicles = -1 estimado como 0) ou K veículos que, mesmo sem
+ *   deadheading além da menor ida e volta, não comportam o serviço total em K * T_max.
+ * <p>- Cabeçalho: contagens que não batem com o corpo do arquivo (ver Tcc.headerMismatches),
+ *   depósito inexistente e arcos com extremos não definidos.
+ */
+public class InstanceAnalyzer {
+    /** Código de saída de uma instância comprovadamente inviável. */
+    public static final int EXIT_INFEASIBLE = 2;
+
+    private static final long INF = Long.MAX_VALUE / 4;
+    private static final int MAX_LISTED = 10;
+
+    /**
+     * Um problema encontrado: inviabilizante (fatal) ou apenas suspeito.
+     */
+    public static final class Issue {
+        private final boolean fatal;
+        private final String message;
+        private final List<String> cause;
+
+        Issue(boolean fatal, String message, List<String> cause) {
+            this.fatal = fatal;
+            this.message = message;
+            this.cause = cause;
+        }
+
+        public boolean isFatal() {
+            return fatal;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Elementos da instância que, juntos, bastam para a inviabilidade.
+         */
+        public List<String> getCause() {
+            return cause;
+        }
+    }
+
+    private final CplexData data;
+    private final boolean turnPenalties;
+    private final int depot;
+    private final List<Issue> issues = new ArrayList<>();
+    private int headerVehicles = Integer.MIN_VALUE;
+    private boolean checkTotalService = true;
+    private long elapsedNanos;
+
+    public InstanceAnalyzer(CplexData data, boolean turnPenalties) {
+        this.data = data;
+        this.turnPenalties = turnPenalties;
+        this.depot = data.getRealDepotNodeId();
+    }
+
+    /**
+     * Divergências entre o cabeçalho e o corpo, e o #Vehicles original (antes da estimativa).
+     */
+    public void addHeaderIssues(List<String> mismatches, int headerVehicles) {
+        this.headerVehicles = headerVehicles;
+        for (String mismatch : mismatches) {
+            issues.add(new Issue(false, "Cabeçalho: " + mismatch, List.of()));
+        }
+    }
+
+    public void setCheckTotalService(boolean checkTotalService) {
+        this.checkTotalService = checkTotalService;
+    }
+
+    /**
+     * Executa as verificações.
+     * @return true se nenhuma causa de inviabilidade foi encontrada.
+     */
+    @SuppressWarnings("try")
+    public boolean analyze() {
+        long start = System.nanoTime();
+        try (Instrumentation.Phase phase = Instrumentation.phase("preprocess.analyze")) {
+            if (!data.getNodes().containsKey(depot)) {
+                issues.add(new Issue(true, "O depósito " + depot + " não é um nó da instância.",
+                                     List.of("Depot = " + depot, "#Nodes = " + data.getNodes().size())));
+                return false;
+            }
+            checkEndpoints();
+            checkFleet();
+
+            Map<Integer, Long> fromDepot = distances(true);
+            Map<Integer, Long> toDepot = distances(false);
+            Set<String> unreachable = turnPenalties ? checkReachabilityByTurns() : checkReachability(fromDepot, toDepot);
+            checkRoundTrips(fromDepot, toDepot, unreachable);
+            if (checkTotalService) {
+                checkTotalService(fromDepot, toDepot);
+            }
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+        }
+        return !hasFatal();
+    }
+
+    private void checkEndpoints() {
+        List<String> dangling = new ArrayList<>();
+        for (Arc arc : data.getArcs().values()) {
+            if (!data.getNodes().containsKey(arc.fromNode()) || !data.getNodes().containsKey(arc.toNode())) {
+                dangling.add("(" + arc.fromNode() + "," + arc.toNode() + ")");
+            }
+        }
+        if (!dangling.isEmpty()) {
+            issues.add(new Issue(false, dangling.size() + " arco(s) com extremo fora dos nós definidos: " + list(dangling), List.of()));
+        }
+    }
+
+    private void checkFleet() {
+        if (serviceCount() == 0 || data.getNumVehicles() > 0) return;
+        List<String> cause = new ArrayList<>();
+        String message;
+        if (headerVehicles == -1) {
+            long total = serviceTotal();
+            message = "#Vehicles = -1 foi estimado como floor(" + total + " / " + data.getCapacity() + ") = "
+                      + data.getNumVehicles() + " veículo(s); informe #Vehicles no cabeçalho.";
+            cause.add("#Vehicles = -1");
+            cause.add("serviço total = " + total);
+            cause.add("T_max = " + data.getCapacity());
+        } else {
+            message = "Nenhum veículo disponível (#Vehicles = " + data.getNumVehicles() + ") para " + serviceCount() + " serviço(s).";
+            cause.add("#Vehicles = " + data.getNumVehicles());
+        }
+        issues.add(new Issue(true, message, cause));
+    }
+
+    /**
+     * Alcance sobre os nós (NEARP): ida a partir do depósito e volta até ele.
+     */
+    private Set<String> checkReachability(Map<Integer, Long> fromDepot, Map<Integer, Long> toDepot) {
+        List<String> notReached = new ArrayList<>();
+        List<String> noReturn = new ArrayList<>();
+        Set<String> unreachable = new HashSet<>();
+        for (Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {
+            int i = entry.getKey();
+            classify("nó " + i, fromDepot.containsKey(i), toDepot.containsKey(i), notReached, noReturn, unreachable);
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            classify(arcName(arc), fromDepot.containsKey(arc.fromNode()), toDepot.containsKey(arc.toNode()),
+                     notReached, noReturn, unreachable);
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            int i = edge.fromNode(), j = edge.toNode();
+            boolean forward = fromDepot.containsKey(i) && toDepot.containsKey(j);
+            boolean backward = fromDepot.containsKey(j) && toDepot.containsKey(i);
+            classify(edgeName(edge), fromDepot.containsKey(i) || fromDepot.containsKey(j), forward || backward,
+                     notReached, noReturn, unreachable);
+        }
+        addReachabilityIssues(notReached, noReturn, fromDepot.size(), toDepot.size(), "nós", "arco");
+        return unreachable;
+    }
+
+    /**
+     * Alcance sobre os arcos ligados por conversões (NEARP-TP): uma rota só passa de (i,j)
+     * para (j,l) se a conversão (i,j,l) existe. Começa nos arcos que saem do depósito e, no
+     * sentido reverso, nos que chegam a ele.
+     */
+    private Set<String> checkReachabilityByTurns() {
+        Map<String, List<String>> next = new HashMap<>();
+        Map<String, List<String>> previous = new HashMap<>();
+        for (Turn turn : data.getTurns().values()) {
+            String in = turn.i() + "-" + turn.j();
+            String out = turn.j() + "-" + turn.l();
+            if (!data.getArcs().containsKey(in) || !data.getArcs().containsKey(out)) continue;
+            next.computeIfAbsent(in, a -> new ArrayList<>()).add(out);
+            previous.computeIfAbsent(out, a -> new ArrayList<>()).add(in);
+        }
+        Set<String> forward = closure(data.getOutgoingArcsFrom().get(depot), next);
+        Set<String> backward = closure(data.getIncomingArcsTo().get(depot), previous);
+
+        // Nó atendido ao se chegar a ele por um arco utilizável
+        Set<Integer> nodesIn = new HashSet<>();
+        Set<Integer> nodesBack = new HashSet<>();
+        for (Arc arc : data.getArcs().values()) {
+            String key = arc.fromNode() + "-" + arc.toNode();
+            if (forward.contains(key)) nodesIn.add(arc.toNode());
+            if (forward.contains(key) && backward.contains(key)) nodesBack.add(arc.toNode());
+        }
+
+        List<String> notReached = new ArrayList<>();
+        List<String> noReturn = new ArrayList<>();
+        Set<String> unreachable = new HashSet<>();
+        for (int i : data.getReqNodes().keySet()) {
+            boolean reached = i == depot || nodesIn.contains(i);
+            classify("nó " + i, reached, i == depot || nodesBack.contains(i), notReached, noReturn, unreachable);
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            String key = arc.fromNode() + "-" + arc.toNode();
+            classify(arcName(arc), forward.contains(key), backward.contains(key), notReached, noReturn, unreachable);
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            String ij = edge.fromNode() + "-" + edge.toNode();
+            String ji = edge.toNode() + "-" + edge.fromNode();
+            boolean usable = (forward.contains(ij) && backward.contains(ij)) || (forward.contains(ji) && backward.contains(ji));
+            classify(edgeName(edge), usable || forward.contains(ij) || forward.contains(ji), usable,
+                     notReached, noReturn, unreachable);
+        }
+        addReachabilityIssues(notReached, noReturn, forward.size(), backward.size(), "arcos", "conversão");
+        return unreachable;
+    }
+
+    private static Set<String> closure(List<Arc> start, Map<String, List<String>> edges) {
+        Set<String> seen = new HashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        if (start != null) {
+            for (Arc arc : start) {
+                String key = arc.fromNode() + "-" + arc.toNode();
+                if (seen.add(key)) queue.add(key);
+            }
+        }
+        while (!queue.isEmpty()) {
+            for (String key : edges.getOrDefault(queue.poll(), List.of())) {
+                if (seen.add(key)) queue.add(key);
+            }
+        }
+        return seen;
+    }
+
+    private static void classify(String service, boolean reached, boolean returns,
+                                 List<String> notReached, List<String> noReturn, Set<String> unreachable) {
+        if (!reached) {
+            notReached.add(service);
+            unreachable.add(service);
+        } else if (!returns) {
+            noReturn.add(service);
+            unreachable.add(service);
+        }
+    }
+
+    private void addReachabilityIssues(List<String> notReached, List<String> noReturn, int forwardSize, int backwardSize,
+                                       String unit, String link) {
+        if (!notReached.isEmpty()) {
+            issues.add(new Issue(true, notReached.size() + " serviço(s) inalcançáveis a partir do depósito: " + list(notReached),
+                                 List.of("conjunto S de " + forwardSize + " " + unit + " alcançáveis a partir do depósito " + depot,
+                                         "nenhum(a) " + link + " sai de S",
+                                         "serviço fora de S: " + notReached.get(0))));
+        }
+        if (!noReturn.isEmpty()) {
+            issues.add(new Issue(true, noReturn.size() + " serviço(s) sem caminho de volta ao depósito: " + list(noReturn),
+                                 List.of("conjunto T de " + backwardSize + " " + unit + " que alcançam o depósito " + depot,
+                                         "nenhum(a) " + link + " entra em T",
+                                         "serviço fora de T: " + noReturn.get(0))));
+        }
+    }
+
+    /**
+     * Ida do depósito, serviço e volta acima de T_max, serviço a serviço.
+     */
+    private void checkRoundTrips(Map<Integer, Long> fromDepot, Map<Integer, Long> toDepot, Set<String> unreachable) {
+        long tMax = data.getCapacity();
+        List<String> tooLong = new ArrayList<>();
+        List<String> cause = null;
+        long worst = 0;
+
+        List<long[]> trips = new ArrayList<>();       // {ida, serviço, volta}
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {
+            int i = entry.getKey();
+            names.add("nó " + i);
+            trips.add(new long[] { fromDepot.getOrDefault(i, INF), entry.getValue().serviceCost(), toDepot.getOrDefault(i, INF) });
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            names.add(arcName(arc));
+            trips.add(trip(fromDepot, toDepot, data.getReqArcs().get(arc.fromNode() + "-" + arc.toNode())));
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            long[] forward = trip(fromDepot, toDepot, data.getReqArcs().get(edge.fromNode() + "-" + edge.toNode()));
+            long[] backward = trip(fromDepot, toDepot, data.getReqArcs().get(edge.toNode() + "-" + edge.fromNode()));
+            names.add(edgeName(edge));
+            trips.add(sum(forward) <= sum(backward) ? forward : backward);
+        }
+
+        for (int s = 0; s < trips.size(); s++) {
+            long[] trip = trips.get(s);
+            if (unreachable.contains(names.get(s)) || trip[0] >= INF || trip[2] >= INF) continue;
+            long total = sum(trip);
+            if (total <= tMax) continue;
+            tooLong.add(names.get(s) + " (" + total + ")");
+            if (total - tMax > worst) {
+                worst = total - tMax;
+                cause = List.of(names.get(s), "ida mínima do depósito = " + trip[0], "serviço = " + trip[1],
+                                "volta mínima ao depósito = " + trip[2], "T_max = " + tMax);
+            }
+        }
+        if (!tooLong.isEmpty()) {
+            issues.add(new Issue(true, tooLong.size() + " serviço(s) com ida, serviço e volta acima de T_max = " + tMax + ": " + list(tooLong),
+                                 cause));
+        }
+    }
+
+    private static long[] trip(Map<Integer, Long> fromDepot, Map<Integer, Long> toDepot, Arc arc) {
+        return new long[] { fromDepot.getOrDefault(arc.fromNode(), INF), arc.serviceCost(), toDepot.getOrDefault(arc.toNode(), INF) };
+    }
+
+    private static long sum(long[] trip) {
+        return Math.min(INF, trip[0] + trip[1] + trip[2]);
+    }
+
+    /**
+     * Serviço total contra K * (T_max - menor ida - menor volta): cada veículo usado sai do
+     * depósito até algum serviço e volta de algum serviço.
+     */
+    private void checkTotalService(Map<Integer, Long> fromDepot, Map<Integer, Long> toDepot) {
+        int vehicles = data.getNumVehicles();
+        if (vehicles <= 0 || serviceCount() == 0) return;
+
+        long out = INF, back = INF;
+        for (int i : data.getReqNodes().keySet()) {
+            out = Math.min(out, fromDepot.getOrDefault(i, INF));
+            back = Math.min(back, toDepot.getOrDefault(i, INF));
+        }
+        for (Arc arc : data.getReqArcs().values()) {
+            out = Math.min(out, fromDepot.getOrDefault(arc.fromNode(), INF));
+            back = Math.min(back, toDepot.getOrDefault(arc.toNode(), INF));
+        }
+        if (out >= INF || back >= INF) return;
+
+        long total = serviceTotal();
+        long available = (long) vehicles * Math.max(0, data.getCapacity() - out - back);
+        if (total > available) {
+            issues.add(new Issue(true, "Serviço total " + total + " não cabe em " + vehicles + " veículo(s): no máximo "
+                                       + available + " com a menor ida e volta ao depósito.",
+                                 List.of("#Vehicles = " + vehicles, "T_max = " + data.getCapacity(),
+                                         "menor ida = " + out, "menor volta = " + back,
+                                         "serviço total = " + total + " (todos os " + serviceCount() + " serviços)")));
+        }
+    }
+
+    /**
+     * Dijkstra sobre os nós a partir do depósito (forward) ou até ele (reverso), sem
+     * conversões e com o menor entre travessia e serviço em cada arco.
+     */
+    private Map<Integer, Long> distances(boolean forward) {
+        Map<Integer, Long> dist = new HashMap<>();
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        dist.put(depot, 0L);
+        queue.add(new long[] { 0, depot });
+        while (!queue.isEmpty()) {
+            long[] head = queue.poll();
+            int u = (int) head[1];
+            if (head[0] > dist.get(u)) continue;
+            List<Arc> next = forward ? data.getOutgoingArcsFrom().get(u) : data.getIncomingArcsTo().get(u);
+            if (next == null) continue;
+            for (Arc arc : next) {
+                int v = forward ? arc.toNode() : arc.fromNode();
+                long d = head[0] + (arc.isRequired() ? Math.min(arc.traversalCost(), arc.serviceCost()) : arc.traversalCost());
+                if (d < dist.getOrDefault(v, Long.MAX_VALUE)) {
+                    dist.put(v, d);
+                    queue.add(new long[] { d, v });
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Soma dos tempos de serviço (arestas pelo sentido mais barato).
+     */
+    private long serviceTotal() {
+        long total = 0;
+        for (Node node : data.getReqNodes().values()) {
+            total += node.serviceCost();
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            total += data.getReqArcs().get(arc.fromNode() + "-" + arc.toNode()).serviceCost();
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            total += Math.min(data.getReqArcs().get(edge.fromNode() + "-" + edge.toNode()).serviceCost(),
+                              data.getReqArcs().get(edge.toNode() + "-" + edge.fromNode()).serviceCost());
+        }
+        return total;
+    }
+
+    private int serviceCount() {
+        return data.getReqNodes().size() + data.getReqArcsOg().size() + data.getReqEdges().size();
+    }
+
+    private static String arcName(Arc arc) {
+        return "arco (" + arc.fromNode() + "," + arc.toNode() + ")";
+    }
+
+    private static String edgeName(Edge edge) {
+        return "aresta {" + edge.fromNode() + "," + edge.toNode() + "}";
+    }
+
+    private static String list(List<String> items) {
+        if (items.size() <= MAX_LISTED) {
+            return String.join(", ", items);
+        }
+        return String.join(", ", items.subList(0, MAX_LISTED)) + " e mais " + (items.size() - MAX_LISTED);
+    }
+
+    public boolean hasFatal() {
+        for (Issue issue : issues) {
+            if (issue.isFatal()) return true;
+        }
+        return false;
+    }
+
+    public List<Issue> getIssues() {
+        return issues;
+    }
+
+    public void print() {
+        System.out.printf("Análise da instância (%.1f ms): %s%n", elapsedNanos / 1e6,
+                          issues.isEmpty() ? "nenhum problema encontrado." : issues.size() + " problema(s).");
+        for (Issue issue : issues) {
+            System.out.println("  " + (issue.isFatal() ? "INVIÁVEL: " : "AVISO: ") + issue.getMessage());
+            if (!issue.getCause().isEmpty()) {
+                System.out.println("    Causa irredutível: " + String.join("; ", issue.getCause()));
+            }
+        }
+    }
+}
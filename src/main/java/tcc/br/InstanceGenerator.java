@@ -0,0 +1,722 @@
+package tcc.br;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Gerador de instâncias sintéticas NEARP e NEARP-TP no formato lido por Tcc.readInput,
+ * para testes de escala (10 mil a 200 mil nós).
+ * <p>Malhas:
+ * <p>- grid: quarteirões regulares com pequenas perturbações nas posições.
+ * <p>- irregular: pontos uniformes ligados aos k vizinhos mais próximos (buckets espaciais).
+ * <p>Em ambas, uma árvore geradora aleatória garante a conexidade e as demais ligações
+ * são mantidas com probabilidade 1 - drop. As mãos únicas seguem a orientação de uma
+ * busca em profundidade (árvore para baixo, retorno para cima), que é fortemente conexa
+ * em cada componente 2-aresta-conexa; pontes ficam sempre em mão dupla. Assim todo
+ * serviço é alcançável a partir do depósito e volta a ele.
+ * <p>As conversões (NEARP-TP) cobrem todo par arco de chegada / arco de saída de cada
+ * nó, com tipo pelo ângulo: F (seguir), L/R (esquerda/direita, mais caras se fechadas)
+ * e U (retorno). Custos como nas instâncias de Lavras: tempo de serviço 1,5 vez o de
+ * deadheading, 20 nos nós. A mesma semente gera sempre a mesma instância.
+ */
+public class InstanceGenerator {
+    private static final double SPACING = 100.0;        // metros entre cruzamentos
+    private static final double SECONDS_PER_METER = 0.12;
+    private static final int NODE_SERVICE = 20;
+
+    private static final int TURN_FORWARD = 0;
+    private static final int TURN_SIDE = 4;
+    private static final int TURN_SHARP = 8;
+    private static final int TURN_U = 60;
+
+    private final Random random;
+
+    // Parâmetros
+    private int numNodes = 10000;
+    private String layout = "grid";
+    private double oneWay = 0.3;
+    private double drop = 0.1;
+    private double density = 0.1;
+    private double nodeDensity = 0.01;
+    private int neighbors = 3;
+    private int capacity = -1;
+    private int vehicles = -1;
+
+    // Malha gerada
+    private int n;
+    private double[] x, y;
+    private int m;                              // ligações (mão dupla ou única)
+    private int[] from, to;
+    private boolean[] oneWayLink;
+    private boolean[] requiredLink;
+    private boolean[] requiredNode;
+    private int[] traversal;
+    private int depot;
+
+    public InstanceGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Gera a malha, os serviços, o depósito, T_max e a frota.
+     */
+    public void generate() {
+        long[] candidates = "irregular".equals(layout) ? irregularCandidates() : gridCandidates();
+        selectLinks(candidates);
+        orient();
+
+        traversal = new int[m];
+        for (int e = 0; e < m; e++) {
+            double length = Math.hypot(x[from[e]] - x[to[e]], y[from[e]] - y[to[e]]);
+            traversal[e] = Math.max(1, (int) Math.round(length * SECONDS_PER_METER));
+        }
+
+        requiredLink = new boolean[m];
+        for (int e = 0; e < m; e++) {
+            requiredLink[e] = random.nextDouble() < density;
+        }
+        requiredNode = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            requiredNode[v] = random.nextDouble() < nodeDensity;
+        }
+
+        depot = closestTo(centerX(), centerY());
+        sizeFleet();
+    }
+
+    // ------------------------------------------------------------------ malhas
+
+    /**
+     * Grade aproximadamente quadrada com posições perturbadas; candidatas às ligações
+     * horizontais e verticais.
+     */
+    private long[] gridCandidates() {
+        int cols = (int) Math.ceil(Math.sqrt(numNodes));
+        int rows = (numNodes + cols - 1) / cols;
+        n = numNodes;
+        x = new double[n];
+        y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = (v % cols + 0.15 * (random.nextDouble() - 0.5)) * SPACING;
+            y[v] = (v / cols + 0.15 * (random.nextDouble() - 0.5)) * SPACING;
+        }
+
+        long[] candidates = new long[2 * n];
+        int c = 0;
+        for (int v = 0; v < n; v++) {
+            int col = v % cols;
+            if (col + 1 < cols && v + 1 < n) candidates[c++] = pair(v, v + 1);
+            if (v + cols < n) candidates[c++] = pair(v, v + cols);
+        }
+        return Arrays.copyOf(candidates, c);
+    }
+
+    /**
+     * Pontos uniformes ligados aos 'neighbors' vizinhos mais próximos, procurados nos
+     * buckets vizinhos de uma grade espacial com um ponto por célula em média.
+     */
+    private long[] irregularCandidates() {
+        n = numNodes;
+        int cells = (int) Math.ceil(Math.sqrt(n));
+        double side = cells * SPACING;
+        x = new double[n];
+        y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = random.nextDouble() * side;
+            y[v] = random.nextDouble() * side;
+        }
+
+        // Buckets em CSR
+        int[] cellOf = new int[n];
+        int[] start = new int[cells * cells + 1];
+        for (int v = 0; v < n; v++) {
+            int cx = Math.min(cells - 1, (int) (x[v] / SPACING));
+            int cy = Math.min(cells - 1, (int) (y[v] / SPACING));
+            cellOf[v] = cy * cells + cx;
+            start[cellOf[v] + 1]++;
+        }
+        for (int i = 0; i < cells * cells; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(start, cells * cells);
+        for (int v = 0; v < n; v++) {
+            members[fill[cellOf[v]]++] = v;
+        }
+
+        long[] candidates = new long[n * neighbors];
+        int c = 0;
+        int[] best = new int[neighbors];
+        double[] bestDist = new double[neighbors];
+        for (int v = 0; v < n; v++) {
+            Arrays.fill(best, -1);
+            Arrays.fill(bestDist, Double.MAX_VALUE);
+            int cx = cellOf[v] % cells;
+            int cy = cellOf[v] / cells;
+            for (int radius = 1; radius <= cells && best[neighbors - 1] < 0; radius++) {
+                for (int gy = Math.max(0, cy - radius); gy <= Math.min(cells - 1, cy + radius); gy++) {
+                    for (int gx = Math.max(0, cx - radius); gx <= Math.min(cells - 1, cx + radius); gx++) {
+                        if (radius > 1 && Math.abs(gx - cx) < radius && Math.abs(gy - cy) < radius) continue;
+                        int cell = gy * cells + gx;
+                        for (int k = start[cell]; k < start[cell + 1]; k++) {
+                            int u = members[k];
+                            if (u == v) continue;
+                            double d = Math.hypot(x[u] - x[v], y[u] - y[v]);
+                            insertNearest(best, bestDist, u, d);
+                        }
+                    }
+                }
+            }
+            for (int u : best) {
+                if (u >= 0) candidates[c++] = pair(v, u);
+            }
+        }
+        return Arrays.copyOf(candidates, c);
+    }
+
+    private static void insertNearest(int[] best, double[] bestDist, int u, double d) {
+        int k = best.length - 1;
+        if (d >= bestDist[k]) return;
+        while (k > 0 && bestDist[k - 1] > d) {
+            best[k] = best[k - 1];
+            bestDist[k] = bestDist[k - 1];
+            k--;
+        }
+        best[k] = u;
+        bestDist[k] = d;
+    }
+
+    /**
+     * Remove duplicatas, sorteia uma árvore geradora (Kruskal sobre a ordem embaralhada)
+     * e mantém as outras ligações com probabilidade 1 - drop. Componentes que as
+     * candidatas não ligam são unidas pelos seus pontos mais próximos do centro.
+     */
+    private void selectLinks(long[] candidates) {
+        Arrays.sort(candidates);
+        int unique = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (i == 0 || candidates[i] != candidates[i - 1]) {
+                candidates[unique++] = candidates[i];
+            }
+        }
+        for (int i = unique - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = tmp;
+        }
+
+        int[] parent = new int[n];
+        for (int v = 0; v < n; v++) parent[v] = v;
+
+        long[] kept = new long[unique + n];
+        int k = 0;
+        for (int i = 0; i < unique; i++) {
+            int a = (int) (candidates[i] >>> 32);
+            int b = (int) candidates[i];
+            int ra = find(parent, a), rb = find(parent, b);
+            if (ra != rb) {
+                parent[ra] = rb;
+                kept[k++] = candidates[i];
+            } else if (random.nextDouble() >= drop) {
+                kept[k++] = candidates[i];
+            }
+        }
+
+        // Componentes restantes (raro na malha irregular): liga o ponto de cada uma mais
+        // próximo do centro ao da anterior
+        double cx = centerX();
+        double cy = centerY();
+        int[] central = new int[n];
+        Arrays.fill(central, -1);
+        for (int v = 0; v < n; v++) {
+            int r = find(parent, v);
+            if (central[r] < 0 || Math.hypot(x[v] - cx, y[v] - cy) < Math.hypot(x[central[r]] - cx, y[central[r]] - cy)) {
+                central[r] = v;
+            }
+        }
+        int previous = -1;
+        for (int r = 0; r < n; r++) {
+            if (central[r] < 0) continue;
+            if (previous >= 0) {
+                kept[k++] = pair(previous, central[r]);
+            }
+            previous = central[r];
+        }
+
+        m = k;
+        from = new int[m];
+        to = new int[m];
+        for (int e = 0; e < m; e++) {
+            from[e] = (int) (kept[e] >>> 32);
+            to[e] = (int) kept[e];
+        }
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static long pair(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Busca em profundidade iterativa: orienta cada ligação no sentido em que a DFS a
+     * percorre, identifica pontes (low[filho] > disc[pai]) e sorteia as mãos únicas
+     * entre as demais.
+     */
+    private void orient() {
+        int[] start = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            start[from[e] + 1]++;
+            start[to[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) start[v + 1] += start[v];
+        int[] incident = new int[2 * m];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int e = 0; e < m; e++) {
+            incident[fill[from[e]]++] = e;
+            incident[fill[to[e]]++] = e;
+        }
+
+        int[] disc = new int[n];
+        int[] low = new int[n];
+        int[] parentEdge = new int[n];
+        int[] next = Arrays.copyOf(start, n);
+        int[] stack = new int[n];
+        boolean[] oriented = new boolean[m];
+        boolean[] bridge = new boolean[m];
+        Arrays.fill(disc, -1);
+
+        int time = 0;
+        int root = 0;
+        disc[root] = low[root] = time++;
+        parentEdge[root] = -1;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (next[v] < start[v + 1]) {
+                int e = incident[next[v]++];
+                if (e == parentEdge[v]) continue;
+                int u = from[e] == v ? to[e] : from[e];
+                if (!oriented[e]) {
+                    oriented[e] = true;
+                    from[e] = v;                // percorrida de v para u
+                    to[e] = u;
+                }
+                if (disc[u] < 0) {
+                    disc[u] = low[u] = time++;
+                    parentEdge[u] = e;
+                    stack[top++] = u;
+                } else {
+                    low[v] = Math.min(low[v], disc[u]);
+                }
+            } else {
+                top--;
+                if (parentEdge[v] >= 0) {
+                    int p = from[parentEdge[v]];
+                    low[p] = Math.min(low[p], low[v]);
+                    if (low[v] > disc[p]) {
+                        bridge[parentEdge[v]] = true;
+                    }
+                }
+            }
+        }
+
+        oneWayLink = new boolean[m];
+        for (int e = 0; e < m; e++) {
+            oneWayLink[e] = !bridge[e] && random.nextDouble() < oneWay;
+        }
+    }
+
+    private double centerX() {
+        double sum = 0;
+        for (double v : x) sum += v;
+        return sum / n;
+    }
+
+    private double centerY() {
+        double sum = 0;
+        for (double v : y) sum += v;
+        return sum / n;
+    }
+
+    private int closestTo(double cx, double cy) {
+        int best = 0;
+        double bestDist = Double.MAX_VALUE;
+        for (int v = 0; v < n; v++) {
+            double d = Math.hypot(x[v] - cx, y[v] - cy);
+            if (d < bestDist) {
+                bestDist = d;
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    // ------------------------------------------------------------------ T_max e frota
+
+    /**
+     * T_max cobre com folga de 10% a pior ida ao serviço, o serviço e a volta ao
+     * depósito (nunca menos que 5400, o das instâncias de Lavras); a frota é a razão
+     * entre duas vezes o tempo de serviço total e T_max.
+     */
+    private void sizeFleet() {
+        long[] out = dijkstra(true);
+        long[] back = dijkstra(false);
+
+        long worst = 0;
+        long totalService = 0;
+        for (int e = 0; e < m; e++) {
+            if (!requiredLink[e]) continue;
+            int service = serviceCost(traversal[e]);
+            totalService += service;
+            long trip = out[from[e]] + service + back[to[e]];
+            if (!oneWayLink[e]) {
+                trip = Math.min(trip, out[to[e]] + service + back[from[e]]);
+            }
+            worst = Math.max(worst, trip);
+        }
+        for (int v = 0; v < n; v++) {
+            if (!requiredNode[v]) continue;
+            totalService += NODE_SERVICE;
+            worst = Math.max(worst, out[v] + NODE_SERVICE + back[v]);
+        }
+
+        if (capacity < 0) {
+            capacity = (int) Math.max(5400, Math.ceil(1.1 * worst));
+        }
+        if (vehicles < 0) {
+            vehicles = (int) Math.max(1, Math.ceil(2.0 * totalService / capacity));
+        }
+    }
+
+    /**
+     * Distâncias a partir do depósito (forward) ou até ele (reverso) no grafo dirigido.
+     */
+    private long[] dijkstra(boolean forward) {
+        int[] start = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            start[(forward ? from[e] : to[e]) + 1]++;
+            if (!oneWayLink[e]) start[(forward ? to[e] : from[e]) + 1]++;
+        }
+        for (int v = 0; v < n; v++) start[v + 1] += start[v];
+        int[] target = new int[start[n]];
+        int[] cost = new int[start[n]];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int e = 0; e < m; e++) {
+            int a = forward ? from[e] : to[e];
+            int b = forward ? to[e] : from[e];
+            target[fill[a]] = b;
+            cost[fill[a]++] = traversal[e];
+            if (!oneWayLink[e]) {
+                target[fill[b]] = a;
+                cost[fill[b]++] = traversal[e];
+            }
+        }
+
+        long[] dist = new long[n];
+        Arrays.fill(dist, Long.MAX_VALUE / 4);
+        dist[depot] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((p, q) -> Long.compare(p[0], q[0]));
+        queue.add(new long[] { 0, depot });
+        while (!queue.isEmpty()) {
+            long[] head = queue.poll();
+            int u = (int) head[1];
+            if (head[0] > dist[u]) continue;
+            for (int k = start[u]; k < start[u + 1]; k++) {
+                long d = dist[u] + cost[k];
+                if (d < dist[target[k]]) {
+                    dist[target[k]] = d;
+                    queue.add(new long[] { d, target[k] });
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static int serviceCost(int traversal) {
+        return (int) Math.round(1.5 * traversal);
+    }
+
+    // ------------------------------------------------------------------ escrita
+
+    public void write(String path, String inputType, String name) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path), 1 << 16)) {
+            if ("NEARPTP".equalsIgnoreCase(inputType)) {
+                writeNearpTp(writer, name);
+            } else if ("NEARP".equalsIgnoreCase(inputType)) {
+                writeNearp(writer, name);
+            } else {
+                throw new IllegalArgumentException("Tipo de entrada desconhecido: " + inputType);
+            }
+        }
+    }
+
+    /**
+     * Formato NEARP: serviços rotulados N/E/A, demais ligações NrE/NrA; IDs dos nós a
+     * partir de 1.
+     */
+    private void writeNearp(BufferedWriter w, String name) throws IOException {
+        int reqNodes = count(requiredNode);
+        int edges = 0, reqEdges = 0, reqArcs = 0;
+        for (int e = 0; e < m; e++) {
+            if (!oneWayLink[e]) {
+                edges++;
+                if (requiredLink[e]) reqEdges++;
+            } else if (requiredLink[e]) {
+                reqArcs++;
+            }
+        }
+
+        w.write("Name:\t\t" + name + "\n");
+        w.write("#Vehicles:\t" + vehicles + "\n");
+        w.write("Capacity:\t" + capacity + "\n");
+        w.write("Depot Node:\t" + (depot + 1) + "\n");
+        w.write("#Nodes:\t\t" + n + "\n");
+        w.write("#Edges:\t\t" + edges + "\n");
+        w.write("#Arcs:\t\t" + (m - edges) + "\n");
+        w.write("#Required N:\t" + reqNodes + "\n");
+        w.write("#Required E:\t" + reqEdges + "\n");
+        w.write("#Required A:\t" + reqArcs + "\n");
+        w.write("\n");
+
+        w.write("ReN.\tDEMAND\tS. COST\n");
+        for (int v = 0; v < n; v++) {
+            if (requiredNode[v]) {
+                w.write("N" + (v + 1) + "\t1\t" + NODE_SERVICE + "\n");
+            }
+        }
+        w.write("\n");
+
+        w.write("ReE.\tFROM N.\tTO N.\tT. COST\tDEMAND\tS. COST\n");
+        writeLinks(w, false, true, "E");
+        w.write("\n");
+        w.write("EDGE\tFROM N.\tTO N.\tT. COST\n");
+        writeLinks(w, false, false, "NrE");
+        w.write("\n");
+
+        w.write("ReA.\tFROM N.\tTO N.\tT. COST\tDEMAND\tS. COST\n");
+        writeLinks(w, true, true, "A");
+        w.write("\n");
+        w.write("ARC\tFROM N.\tTO N.\tT. COST\n");
+        writeLinks(w, true, false, "NrA");
+    }
+
+    private void writeLinks(BufferedWriter w, boolean arcs, boolean required, String label) throws IOException {
+        int id = 0;
+        for (int e = 0; e < m; e++) {
+            if (oneWayLink[e] != arcs) continue;
+            id++;                                       // numeração única por tipo de ligação
+            if (requiredLink[e] != required) continue;
+            w.write(label + id + "\t" + (from[e] + 1) + "\t" + (to[e] + 1) + "\t" + traversal[e]);
+            if (required) {
+                w.write("\t1\t" + serviceCost(traversal[e]));
+            }
+            w.write("\n");
+        }
+    }
+
+    /**
+     * Formato NEARP-TP: nós com coordenadas, ligações com QTY (tempo de serviço) e
+     * IS-REQUIRED, e todas as conversões entre arcos consecutivos.
+     */
+    private void writeNearpTp(BufferedWriter w, String name) throws IOException {
+        int edges = 0, reqEdges = 0, reqArcs = 0;
+        for (int e = 0; e < m; e++) {
+            if (!oneWayLink[e]) {
+                edges++;
+                if (requiredLink[e]) reqEdges++;
+            } else if (requiredLink[e]) {
+                reqArcs++;
+            }
+        }
+
+        // Arcos dirigidos de A (cada ligação de mão dupla vira dois) em CSR por origem e destino
+        int arcs = 2 * edges + (m - edges);
+        int[] arcFrom = new int[arcs];
+        int[] arcTo = new int[arcs];
+        int a = 0;
+        for (int e = 0; e < m; e++) {
+            arcFrom[a] = from[e];
+            arcTo[a++] = to[e];
+            if (!oneWayLink[e]) {
+                arcFrom[a] = to[e];
+                arcTo[a++] = from[e];
+            }
+        }
+        int[] outStart = new int[n + 1];
+        int[] inStart = new int[n + 1];
+        for (int k = 0; k < arcs; k++) {
+            outStart[arcFrom[k] + 1]++;
+            inStart[arcTo[k] + 1]++;
+        }
+        long turns = 0;
+        for (int v = 0; v < n; v++) {
+            turns += (long) outStart[v + 1] * inStart[v + 1];
+        }
+        for (int v = 0; v < n; v++) {
+            outStart[v + 1] += outStart[v];
+            inStart[v + 1] += inStart[v];
+        }
+        int[] outArcs = new int[arcs];
+        int[] inArcs = new int[arcs];
+        int[] outFill = Arrays.copyOf(outStart, n);
+        int[] inFill = Arrays.copyOf(inStart, n);
+        for (int k = 0; k < arcs; k++) {
+            outArcs[outFill[arcFrom[k]]++] = k;
+            inArcs[inFill[arcTo[k]]++] = k;
+        }
+
+        w.write("Name:\t\t\t" + name + "\n");
+        w.write("#Vehicles:\t\t" + vehicles + "\n");
+        w.write("Capacity:\t\t" + capacity + "\n");
+        w.write("Depot:\t\t\t" + (depot + 1) + "\n");
+        w.write("#Nodes:\t\t\t" + n + "\n");
+        w.write("#Edges:\t\t\t" + edges + "\n");
+        w.write("#Arcs:\t\t\t" + (m - edges) + "\n");
+        w.write("#Required-N:\t" + count(requiredNode) + "\n");
+        w.write("#Required-E:\t" + reqEdges + "\n");
+        w.write("#Required-A:\t" + reqArcs + "\n");
+        w.write("#Nb-Turns:\t\t" + turns + "\n");
+        w.write("\n");
+
+        w.write("----------NODES----------\n");
+        w.write("INDEX\tQTY\tIS-REQUIRED\tX\tY\n");
+        for (int v = 0; v < n; v++) {
+            w.write((v + 1) + "\t" + (requiredNode[v] ? NODE_SERVICE : 0) + "\t" + (requiredNode[v] ? 1 : 0)
+                    + "\t" + Math.round(x[v]) + "\t" + Math.round(y[v]) + "\n");
+        }
+        w.write("\n");
+
+        w.write("----------EDGES----------\n");
+        w.write("INDEX-I\tINDEX-J\tQTY\tIS-REQUIRED\tTR-COST\n");
+        writeTpLinks(w, false);
+        w.write("\n");
+
+        w.write("-----------ARCS----------\n");
+        w.write("INDEX-I\tINDEX-J\tQTY\tIS-REQUIRED\tTR-COST\n");
+        writeTpLinks(w, true);
+        w.write("\n");
+
+        w.write("----------TURNS----------\n");
+        w.write("INDEX-I\tINDEX-J\tINDEX-K\tCOST\tTYPE\n");
+        StringBuilder line = new StringBuilder();
+        for (int j = 0; j < n; j++) {
+            for (int p = inStart[j]; p < inStart[j + 1]; p++) {
+                int i = arcFrom[inArcs[p]];
+                for (int q = outStart[j]; q < outStart[j + 1]; q++) {
+                    int l = arcTo[outArcs[q]];
+                    char type = turnType(i, j, l);
+                    line.setLength(0);
+                    line.append(i + 1).append('\t').append(j + 1).append('\t').append(l + 1).append('\t')
+                        .append(turnCost(i, j, l, type)).append('\t').append(type).append('\n');
+                    w.write(line.toString());
+                }
+            }
+        }
+    }
+
+    private void writeTpLinks(BufferedWriter w, boolean arcs) throws IOException {
+        for (int e = 0; e < m; e++) {
+            if (oneWayLink[e] != arcs) continue;
+            w.write((from[e] + 1) + "\t" + (to[e] + 1) + "\t" + (requiredLink[e] ? serviceCost(traversal[e]) : 0)
+                    + "\t" + (requiredLink[e] ? 1 : 0) + "\t" + traversal[e] + "\n");
+        }
+    }
+
+    /**
+     * Tipo da conversão pelo ângulo entre (i,j) e (j,l): até 30 graus segue em frente.
+     */
+    private char turnType(int i, int j, int l) {
+        if (i == l) return 'U';
+        double ax = x[j] - x[i], ay = y[j] - y[i];
+        double bx = x[l] - x[j], by = y[l] - y[j];
+        double angle = Math.atan2(ax * by - ay * bx, ax * bx + ay * by);
+        if (Math.abs(angle) <= Math.toRadians(30)) return 'F';
+        return angle > 0 ? 'L' : 'R';
+    }
+
+    /**
+     * F 0, L/R 4 (8 acima de 120 graus), U 60.
+     */
+    private int turnCost(int i, int j, int l, char type) {
+        switch (type) {
+            case 'F':
+                return TURN_FORWARD;
+            case 'U':
+                return TURN_U;
+            default:
+                double ax = x[j] - x[i], ay = y[j] - y[i];
+                double bx = x[l] - x[j], by = y[l] - y[j];
+                double angle = Math.abs(Math.atan2(ax * by - ay * bx, ax * bx + ay * by));
+                return angle > Math.toRadians(120) ? TURN_SHARP : TURN_SIDE;
+        }
+    }
+
+    private static int count(boolean[] flags) {
+        int c = 0;
+        for (boolean flag : flags) {
+            if (flag) c++;
+        }
+        return c;
+    }
+
+    public void loadOptions(Map<String, String> options) {
+        if (options.containsKey("nodes")) numNodes = Integer.parseInt(options.get("nodes"));
+        if (options.containsKey("layout")) layout = options.get("layout");
+        if (options.containsKey("oneway")) oneWay = Double.parseDouble(options.get("oneway"));
+        if (options.containsKey("drop")) drop = Double.parseDouble(options.get("drop"));
+        if (options.containsKey("density")) density = Double.parseDouble(options.get("density"));
+        if (options.containsKey("node-density")) nodeDensity = Double.parseDouble(options.get("node-density"));
+        if (options.containsKey("neighbors")) neighbors = Integer.parseInt(options.get("neighbors"));
+        if (options.containsKey("capacity")) capacity = Integer.parseInt(options.get("capacity"));
+        if (options.containsKey("vehicles")) vehicles = Integer.parseInt(options.get("vehicles"));
+        if (!"grid".equals(layout) && !"irregular".equals(layout)) {
+            throw new IllegalArgumentException("Malha desconhecida: " + layout);
+        }
+    }
+
+    /**
+     * generate <inputType> <saida.dat> [opções]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java -jar target/tcc-1.0.jar generate <inputType> <saida.dat> [opções]");
+            System.out.println("\t--nodes=<n> (padrão 10000) --layout=<grid|irregular> (padrão grid) --seed=<n> (padrão 0)");
+            System.out.println("\t--oneway=<p> (padrão 0.3): fração de ligações em mão única");
+            System.out.println("\t--density=<p> (padrão 0.1) --node-density=<p> (padrão 0.01): fração de serviços");
+            System.out.println("\t--drop=<p> (padrão 0.1): ligações removidas além da árvore geradora");
+            System.out.println("\t--neighbors=<k> (padrão 3): vizinhos por ponto na malha irregular");
+            System.out.println("\t--capacity=<T_max> --vehicles=<K>: padrão calculado pela malha");
+            return;
+        }
+
+        String inputType = args[0];
+        Map<String, String> options = Tcc.parseOptions(args, 2);
+        long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+
+        InstanceGenerator generator = new InstanceGenerator(seed);
+        generator.loadOptions(options);
+
+        long start = System.nanoTime();
+        generator.generate();
+        String name = "synthetic-" + generator.layout + "-" + generator.numNodes + "-s" + seed;
+        generator.write(args[1], inputType, name);
+
+        System.out.printf("%s: %d nós, %d ligações (%d em mão única), depósito %d, T_max %d, %d veículo(s) (%.0f ms)%n",
+                          name, generator.n, generator.m, count(generator.oneWayLink), generator.depot + 1,
+                          generator.capacity, generator.vehicles, (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,311 @@
+package tcc.br;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Armazenamento colunar da instância: vetores de int para extremidades, custos e
+ * demandas, BitSet para "requerido" e tipos de conversão codificados em byte.
+ * <p>É a única cópia dos dados, preenchida pela leitura e compartilhada pelo
+ * pré-processamento e pelo modelo. Node, Edge, Arc e Turn são visões (armazenamento +
+ * índice) criadas sob demanda e guardadas para que cada elemento tenha uma só visão;
+ * elas leem e escrevem diretamente nos vetores deste pacote.
+ * <p>Os arcos formam o grafo dirigido A: cada arco original (A') ocupa uma posição e
+ * cada aresta (E) ocupa duas consecutivas, (i,j) e (j,i), criadas junto com ela.
+ */
+public final class InstanceStore {
+    static final int NONE = -1;
+
+    // --- Nós, indexados pelo ID ---
+    int[] nodeDemand;
+    int[] nodeServiceCost;
+    final BitSet nodeRequired = new BitSet();
+    final BitSet nodeDefined = new BitSet();
+    private int nodeCount;                  // maior ID + 1
+
+    // --- Arestas (E) ---
+    int[] edgeId;                   // ID no arquivo
+    int[] edgeArc;                  // sentido (i,j) em A; (j,i) é o seguinte
+    int[] edgeFrom;
+    int[] edgeTo;
+    int[] edgeTraversal;
+    int[] edgeDemand;
+    int[] edgeService;
+    final BitSet edgeRequired = new BitSet();
+    private int edgeCount;
+
+    // --- Arcos de A (originais e sentidos das arestas) ---
+    int[] arcId;                    // ID no arquivo dos arcos originais; NONE nos sentidos de aresta
+    int[] arcEdge;                  // aresta de origem; NONE nos arcos originais
+    int[] arcFrom;
+    int[] arcTo;
+    int[] arcTraversal;
+    int[] arcDemand;
+    int[] arcService;
+    final BitSet arcRequired = new BitSet();
+    private int arcCount;
+
+    // --- Conversões ---
+    int[] turnI;
+    int[] turnJ;
+    int[] turnL;
+    int[] turnCost;
+    byte[] turnType;
+    private int turnCount;
+    final List<String> typeNames = new ArrayList<>(List.of("F", "L", "R", "U", "O"));
+    private final Map<String, Byte> typeCodes = new HashMap<>();
+
+    // --- Visões ---
+    private Node[] nodeViews;
+    private Edge[] edgeViews;
+    private Arc[] arcViews;
+    private Turn[] turnViews;
+
+    /**
+     * Capacidades iniciais (ex.: contagens do cabeçalho); os vetores crescem se preciso.
+     */
+    public InstanceStore(int nodes, int edges, int arcs, int turns) {
+        nodes = Math.max(nodes + 1, 1);
+        edges = Math.max(edges, 1);
+        arcs = Math.max(arcs + 2 * edges, 1);
+        turns = Math.max(turns, 1);
+
+        this.nodeDemand = new int[nodes];
+        this.nodeServiceCost = new int[nodes];
+        this.nodeViews = new Node[nodes];
+
+        this.edgeId = new int[edges];
+        this.edgeArc = new int[edges];
+        this.edgeFrom = new int[edges];
+        this.edgeTo = new int[edges];
+        this.edgeTraversal = new int[edges];
+        this.edgeDemand = new int[edges];
+        this.edgeService = new int[edges];
+        this.edgeViews = new Edge[edges];
+
+        this.arcId = new int[arcs];
+        this.arcEdge = new int[arcs];
+        this.arcFrom = new int[arcs];
+        this.arcTo = new int[arcs];
+        this.arcTraversal = new int[arcs];
+        this.arcDemand = new int[arcs];
+        this.arcService = new int[arcs];
+        this.arcViews = new Arc[arcs];
+
+        this.turnI = new int[turns];
+        this.turnJ = new int[turns];
+        this.turnL = new int[turns];
+        this.turnCost = new int[turns];
+        this.turnType = new byte[turns];
+        this.turnViews = new Turn[turns];
+
+        for (int c = 0; c < typeNames.size(); c++) {
+            typeCodes.put(typeNames.get(c), (byte) c);
+        }
+    }
+
+    // ------------------------------------------------------------------ escrita
+
+    /**
+     * Define o nó 'id'; a demanda é forçada a 1 nos requeridos e 0 nos demais.
+     */
+    public void setNode(int id, int serviceCost, boolean required) {
+        if (id >= nodeDemand.length) {
+            int size = Math.max(id + 1, 2 * nodeDemand.length);
+            nodeDemand = Arrays.copyOf(nodeDemand, size);
+            nodeServiceCost = Arrays.copyOf(nodeServiceCost, size);
+            nodeViews = Arrays.copyOf(nodeViews, size);
+        }
+        nodeCount = Math.max(nodeCount, id + 1);
+        nodeDefined.set(id);
+        nodeDemand[id] = required ? 1 : 0;
+        nodeServiceCost[id] = serviceCost;
+        nodeRequired.set(id, required);
+    }
+
+    /**
+     * Acrescenta uma aresta e os seus dois sentidos em A; retorna o índice da aresta.
+     */
+    public int addEdge(int id, int from, int to, int traversalCost, int serviceCost, boolean required) {
+        if (edgeCount == edgeFrom.length) {
+            int size = 2 * edgeCount;
+            edgeId = Arrays.copyOf(edgeId, size);
+            edgeArc = Arrays.copyOf(edgeArc, size);
+            edgeFrom = Arrays.copyOf(edgeFrom, size);
+            edgeTo = Arrays.copyOf(edgeTo, size);
+            edgeTraversal = Arrays.copyOf(edgeTraversal, size);
+            edgeDemand = Arrays.copyOf(edgeDemand, size);
+            edgeService = Arrays.copyOf(edgeService, size);
+            edgeViews = Arrays.copyOf(edgeViews, size);
+        }
+        int e = edgeCount++;
+        edgeId[e] = id;
+        edgeFrom[e] = from;
+        edgeTo[e] = to;
+        edgeTraversal[e] = traversalCost;
+        edgeDemand[e] = required ? 1 : 0;
+        edgeService[e] = serviceCost;
+        edgeRequired.set(e, required);
+
+        edgeArc[e] = appendArc(NONE, e, from, to, traversalCost, serviceCost, required);
+        appendArc(NONE, e, to, from, traversalCost, serviceCost, required);
+        return e;
+    }
+
+    /**
+     * Acrescenta um arco original (A'); retorna o seu índice em A.
+     */
+    public int addArc(int id, int from, int to, int traversalCost, int serviceCost, boolean required) {
+        return appendArc(id, NONE, from, to, traversalCost, serviceCost, required);
+    }
+
+    private int appendArc(int id, int edge, int from, int to, int traversalCost, int serviceCost, boolean required) {
+        if (arcCount == arcFrom.length) {
+            int size = 2 * arcCount;
+            arcId = Arrays.copyOf(arcId, size);
+            arcEdge = Arrays.copyOf(arcEdge, size);
+            arcFrom = Arrays.copyOf(arcFrom, size);
+            arcTo = Arrays.copyOf(arcTo, size);
+            arcTraversal = Arrays.copyOf(arcTraversal, size);
+            arcDemand = Arrays.copyOf(arcDemand, size);
+            arcService = Arrays.copyOf(arcService, size);
+            arcViews = Arrays.copyOf(arcViews, size);
+        }
+        int a = arcCount++;
+        arcId[a] = id;
+        arcEdge[a] = edge;
+        arcFrom[a] = from;
+        arcTo[a] = to;
+        arcTraversal[a] = traversalCost;
+        arcDemand[a] = required ? 1 : 0;
+        arcService[a] = serviceCost;
+        arcRequired.set(a, required);
+        return a;
+    }
+
+    public int addTurn(int i, int j, int l, int cost, String type) {
+        if (turnCount == turnI.length) {
+            int size = 2 * turnCount;
+            turnI = Arrays.copyOf(turnI, size);
+            turnJ = Arrays.copyOf(turnJ, size);
+            turnL = Arrays.copyOf(turnL, size);
+            turnCost = Arrays.copyOf(turnCost, size);
+            turnType = Arrays.copyOf(turnType, size);
+            turnViews = Arrays.copyOf(turnViews, size);
+        }
+        int t = turnCount++;
+        turnI[t] = i;
+        turnJ[t] = j;
+        turnL[t] = l;
+        turnCost[t] = cost;
+        turnType[t] = typeCode(type);
+        return t;
+    }
+
+    private byte typeCode(String type) {
+        Byte code = typeCodes.get(type);
+        if (code == null) {
+            if (typeNames.size() > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Tipos de conversão demais: " + type);
+            }
+            code = (byte) typeNames.size();
+            typeNames.add(type);
+            typeCodes.put(type, code);
+        }
+        return code;
+    }
+
+    // ------------------------------------------------------------------ tamanhos
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public int arcCount() {
+        return arcCount;
+    }
+
+    public int turnCount() {
+        return turnCount;
+    }
+
+    public int definedNodeCount() {
+        return nodeDefined.cardinality();
+    }
+
+    /**
+     * Arcos de A que não vêm de arestas (A').
+     */
+    public int originalArcCount() {
+        return arcCount - 2 * edgeCount;
+    }
+
+    /**
+     * Quantidade de conversões por tipo, na ordem dos códigos.
+     */
+    public Map<String, Integer> turnTypeCounts() {
+        int[] counts = new int[typeNames.size()];
+        for (int t = 0; t < turnCount; t++) {
+            counts[turnType[t]]++;
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > 0) {
+                result.put(typeNames.get(c), counts[c]);
+            }
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------ visões
+
+    public Node node(int id) {
+        Node view = nodeViews[id];
+        if (view == null) {
+            view = nodeViews[id] = new Node(this, id);
+        }
+        return view;
+    }
+
+    public Edge edge(int e) {
+        Edge view = edgeViews[e];
+        if (view == null) {
+            view = edgeViews[e] = new Edge(this, e);
+        }
+        return view;
+    }
+
+    public Arc arc(int a) {
+        Arc view = arcViews[a];
+        if (view == null) {
+            view = arcViews[a] = new Arc(this, a);
+        }
+        return view;
+    }
+
+    public Turn turn(int t) {
+        Turn view = turnViews[t];
+        if (view == null) {
+            view = turnViews[t] = new Turn(this, t);
+        }
+        return view;
+    }
+
+    /**
+     * Memória aproximada dos vetores (bytes), para comparação com o grafo de objetos.
+     */
+    public long approximateBytes() {
+        return 4L * (2 * nodeDemand.length + 7 * edgeFrom.length + 7 * arcFrom.length + 4 * turnI.length)
+             + turnType.length
+             + (nodeRequired.size() + edgeRequired.size() + arcRequired.size()) / 8;
+    }
+}
@@ -0,0 +1,137 @@
+package tcc.br;
+
+/**
+ * Instrumentação por fase: cada fase medida vira um evento JFR (PhaseEvent) e entra no
+ * registro de métricas (temporizador "phase.&lt;fase&gt;", contadores de linhas, colunas e
+ * não nulos, medidor da variação do heap).
+ * <p>Desativada, phase() devolve uma fase vazia compartilhada e o custo é o de uma
+ * alocação de evento que o JIT elimina; o registro só é usado com enable() (opção
+ * --metrics ou -Dtcc.metrics=true) e os eventos só com uma gravação JFR ativa.
+ */
+public final class Instrumentation {
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+    private static volatile boolean enabled = Boolean.getBoolean("tcc.metrics");
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Uma fase em andamento; fechada pelo try-with-resources.
+     */
+    public static class Phase implements AutoCloseable {
+        private final String name;
+        private final PhaseEvent event;
+        private final long startNanos;
+        private final long startHeap;
+        private long rows;
+        private long columns;
+        private long nonZeros;
+
+        private Phase(String name, PhaseEvent event) {
+            this.name = name;
+            this.event = event;
+            this.startHeap = usedHeap();
+            this.startNanos = System.nanoTime();
+            if (event != null) {
+                event.begin();
+            }
+        }
+
+        /**
+         * Falso na fase vazia: medições caras (ex.: contar não nulos) podem ser puladas.
+         */
+        public boolean isActive() {
+            return true;
+        }
+
+        public void rows(long rows) {
+            this.rows += rows;
+        }
+
+        public void columns(long columns) {
+            this.columns += columns;
+        }
+
+        public void nonZeros(long nonZeros) {
+            this.nonZeros += nonZeros;
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - startNanos;
+            long heapDelta = usedHeap() - startHeap;
+
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.phase = name;
+                    event.rows = rows;
+                    event.columns = columns;
+                    event.nonZeros = nonZeros;
+                    event.heapDelta = heapDelta;
+                    event.commit();
+                }
+            }
+
+            if (enabled) {
+                REGISTRY.record("phase." + name, elapsed);
+                if (rows > 0) REGISTRY.increment("rows." + name, rows);
+                if (columns > 0) REGISTRY.increment("columns." + name, columns);
+                if (nonZeros > 0) REGISTRY.increment("nnz." + name, nonZeros);
+                REGISTRY.gauge("heap_delta_mb." + name, heapDelta / (1024.0 * 1024.0));
+            }
+        }
+    }
+
+    private static final Phase NOOP = new Phase(null, null) {
+        @Override
+        public boolean isActive() {
+            return false;
+        }
+
+        @Override
+        public void rows(long rows) {
+        }
+
+        @Override
+        public void columns(long columns) {
+        }
+
+        @Override
+        public void nonZeros(long nonZeros) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Inicia a medição de uma fase.
+     */
+    public static Phase phase(String name) {
+        PhaseEvent event = new PhaseEvent();
+        boolean recording = event.isEnabled();
+        if (!enabled && !recording) {
+            return NOOP;
+        }
+        return new Phase(name, recording ? event : null);
+    }
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,105 @@
+package tcc.br;
+
+import java.util.Arrays;
+
+/**
+ * Expressão linear esparsa sobre índices de coluna de um ModelBackend: pares
+ * (coluna, coeficiente) em vetores primitivos, na ordem em que foram adicionados.
+ */
+public final class LinearExpr {
+    private int[] columns;
+    private double[] coefs;
+    private int size;
+
+    public LinearExpr() {
+        this(8);
+    }
+
+    public LinearExpr(int capacity) {
+        this.columns = new int[Math.max(1, capacity)];
+        this.coefs = new double[Math.max(1, capacity)];
+    }
+
+    /**
+     * Adiciona coef * coluna.
+     */
+    public LinearExpr addTerm(double coef, int column) {
+        if (size == columns.length) {
+            columns = Arrays.copyOf(columns, size * 2);
+            coefs = Arrays.copyOf(coefs, size * 2);
+        }
+        columns[size] = column;
+        coefs[size] = coef;
+        size++;
+        return this;
+    }
+
+    /**
+     * Adiciona todos os termos de outra expressão.
+     */
+    public LinearExpr add(LinearExpr other) {
+        return add(other, 1.0);
+    }
+
+    /**
+     * Adiciona factor vezes os termos de outra expressão (factor -1 para a diferença).
+     */
+    public LinearExpr add(LinearExpr other, double factor) {
+        for (int t = 0; t < other.size; t++) {
+            addTerm(factor * other.coefs[t], other.columns[t]);
+        }
+        return this;
+    }
+
+    /**
+     * Soma os termos repetidos de uma mesma coluna e descarta os de coeficiente nulo; a
+     * ordem passa a ser a das colunas.
+     */
+    public void compact() {
+        boolean sorted = true;
+        boolean zeros = false;
+        for (int t = 0; t < size; t++) {
+            if (t > 0 && columns[t - 1] >= columns[t]) sorted = false;
+            if (coefs[t] == 0) zeros = true;
+        }
+        if (sorted && !zeros) return;
+
+        // Ordena (coluna, posição) codificados em um long, sem objetos intermediários
+        long[] order = new long[size];
+        for (int t = 0; t < size; t++) {
+            order[t] = ((long) columns[t] << 32) | t;
+        }
+        Arrays.sort(order);
+        int[] newColumns = new int[size];
+        double[] newCoefs = new double[size];
+        int n = 0;
+        for (long key : order) {
+            int column = (int) (key >>> 32);
+            double coef = coefs[(int) key];
+            if (n > 0 && newColumns[n - 1] == column) {
+                newCoefs[n - 1] += coef;
+            } else {
+                if (n > 0 && newCoefs[n - 1] == 0) n--;
+                newColumns[n] = column;
+                newCoefs[n] = coef;
+                n++;
+            }
+        }
+        if (n > 0 && newCoefs[n - 1] == 0) n--;
+        columns = newColumns;
+        coefs = newCoefs;
+        size = n;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int column(int t) {
+        return columns[t];
+    }
+
+    public double coef(int t) {
+        return coefs[t];
+    }
+}
@@ -0,0 +1,410 @@
+package tcc.br;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import ilog.concert.IloException;
+
+/**
+ * Busca em Vizinhança Grande (LNS) baseada em MIP sobre subconjuntos de veículos.
+ * <p>Após obter uma incumbente com o modelo completo, cada iteração fixa as rotas da
+ * maioria dos veículos e reotimiza, como sub-MIP de curta duração, apenas os serviços
+ * de 2 ou 3 veículos vizinhos (rotas que compartilham nós).
+ * <p>As vizinhanças são sorteadas por roleta com pesos adaptativos, reforçados quando
+ * produzem melhorias. Vizinhanças independentes (veículos disjuntos) são resolvidas
+ * em paralelo, cada uma em seu próprio IloCplex.
+ * <p>Ao final, a melhor solução é injetada como MIP start no modelo completo, que é
+ * resolvido com o tempo restante.
+ */
+public class LnsDriver {
+    /**
+     * Tipos de vizinhança: quantidade de veículos e critério de escolha.
+     */
+    enum Neighbourhood {
+        SIMILAR_PAIR(2),        // veículo sorteado + o mais parecido
+        SIMILAR_TRIPLE(3),      // veículo sorteado + os dois mais parecidos
+        RANDOM_PAIR(2),         // dois veículos sorteados
+        COSTLIEST_PAIR(2);      // veículo de maior Z_k + o mais parecido
+
+        final int size;
+
+        Neighbourhood(int size) {
+            this.size = size;
+        }
+    }
+
+    private static final double MIN_WEIGHT = 0.05;
+
+    // --- Parâmetros ---
+    private double initialFraction = 0.2;       // fração do tempo para a incumbente inicial
+    private double polishFraction = 0.1;        // fração reservada para a resolução final
+    private double subTimeLimit = 30;           // segundos por sub-MIP
+    private double reaction = 0.3;              // fator de reação dos pesos adaptativos
+    private int parallelism;                    // sub-MIPs simultâneos
+    private final int totalThreads;
+
+    // --- Dados ---
+    private final CplexData data;
+    private final String inputType;
+    private final CplexModel model;
+    private final Random random;
+
+    // Índices reversos: arco "i-j" -> ID em A'_R ou E_R
+    private final Map<String, Integer> arcOgIdByKey = new HashMap<>();
+    private final Map<String, Integer> edgeIdByKey = new HashMap<>();
+
+    // --- Estado adaptativo ---
+    private final double[] weights;
+    private final int[] attempts;
+    private final int[] improvements;
+
+    // Assinaturas de subproblemas já resolvidos até a otimalidade sem melhoria
+    private final Set<String> exhausted = new HashSet<>();
+
+    /**
+     * Resultado de um sub-MIP.
+     */
+    private static class SubResult {
+        Neighbourhood neighbourhood;
+        int[] vehicles;
+        String signature;
+        int oldCost;
+        int newCost;
+        boolean optimal;
+        List<VehiclePlan> plans;
+    }
+
+    public LnsDriver(CplexData data, String inputType, CplexModel model, long seed) {
+        this.data = data;
+        this.inputType = inputType;
+        this.model = model;
+        this.random = new Random(seed);
+        this.totalThreads = model.getResourceProfile().getThreads();
+        this.parallelism = Math.max(1, Math.min(data.getNumVehicles() / 2, totalThreads));
+
+        int n = Neighbourhood.values().length;
+        this.weights = new double[n];
+        this.attempts = new int[n];
+        this.improvements = new int[n];
+        Arrays.fill(this.weights, 1.0);
+
+        for (Map.Entry<Integer, Arc> entry : data.getReqArcsOg().entrySet()) {
+            Arc arc = entry.getValue();
+            arcOgIdByKey.put(arc.fromNode() + "-" + arc.toNode(), entry.getKey());
+        }
+        for (Map.Entry<Integer, Edge> entry : data.getReqEdges().entrySet()) {
+            Edge edge = entry.getValue();
+            edgeIdByKey.put(edge.fromNode() + "-" + edge.toNode(), entry.getKey());
+            edgeIdByKey.put(edge.toNode() + "-" + edge.fromNode(), entry.getKey());
+        }
+    }
+
+    public void setSubTimeLimit(double subTimeLimit) {
+        this.subTimeLimit = subTimeLimit;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Executa o LNS e retorna a solução final do modelo completo.
+     * @param stopWatch O cronômetro global da aplicação.
+     */
+    public Solution run(StopWatch stopWatch) {
+        ExecutorService pool = null;
+        try {
+            model.build();
+            model.configure(stopWatch);
+
+            int K = model.getNumVehicles();
+            double budget = model.getRemainingTime(stopWatch);
+            double polishReserve = budget * polishFraction;
+
+            System.out.println("\nLNS: buscando incumbente inicial (" + Math.round(budget * initialFraction) + "s)...");
+            boolean solved = model.resolve(budget * initialFraction);
+
+            if (!solved || model.isOptimal() || K < 2) {
+                System.out.println("LNS: sem incumbente, já ótimo ou frota unitária; seguindo com o modelo completo.");
+                if (!model.isOptimal()) {
+                    solved = model.resolve(model.getRemainingTime(stopWatch));
+                }
+                return model.finish(solved, stopWatch);
+            }
+
+            List<VehiclePlan> incumbent = new ArrayList<>(model.extractVehiclePlans());
+            int incumbentCost = totalCost(incumbent);
+            System.out.println("LNS: incumbente inicial = " + incumbentCost);
+
+            pool = Executors.newFixedThreadPool(parallelism);
+            int threadsPerSub = Math.max(1, totalThreads / parallelism);
+            int iteration = 0;
+
+            while (model.getRemainingTime(stopWatch) > polishReserve + 1) {
+                iteration++;
+                double limit = Math.min(subTimeLimit, model.getRemainingTime(stopWatch) - polishReserve);
+
+                List<SubResult> selected = selectNeighbourhoods(incumbent, K);
+                if (selected.isEmpty()) {
+                    System.out.println("LNS: todas as vizinhanças esgotadas.");
+                    break;
+                }
+
+                List<Future<SubResult>> futures = new ArrayList<>();
+                for (SubResult task : selected) {
+                    List<VehiclePlan> current = new ArrayList<>();
+                    for (int v : task.vehicles) {
+                        current.add(incumbent.get(v));
+                    }
+                    futures.add(pool.submit(() -> solveNeighbourhood(task, current, limit, threadsPerSub)));
+                }
+
+                for (int t = 0; t < futures.size(); t++) {
+                    SubResult result;
+                    try {
+                        result = futures.get(t).get();
+                    } catch (ExecutionException e) {
+                        // Falha de um sub-MIP: tentativa sem melhoria; a incumbente segue intacta
+                        int nh = selected.get(t).neighbourhood.ordinal();
+                        System.err.println("LNS it " + iteration + ": sub-MIP " + selected.get(t).neighbourhood
+                                           + " falhou: " + e.getCause());
+                        attempts[nh]++;
+                        weights[nh] = Math.max(MIN_WEIGHT, (1 - reaction) * weights[nh]);
+                        continue;
+                    }
+                    int nh = result.neighbourhood.ordinal();
+                    attempts[nh]++;
+
+                    boolean improved = result.plans != null && result.newCost < result.oldCost;
+                    if (improved) {
+                        improvements[nh]++;
+                        for (int i = 0; i < result.vehicles.length; i++) {
+                            incumbent.set(result.vehicles[i], result.plans.get(i));
+                        }
+                    } else if (result.optimal) {
+                        exhausted.add(result.signature);
+                    }
+                    weights[nh] = Math.max(MIN_WEIGHT, (1 - reaction) * weights[nh] + reaction * (improved ? 1.0 : 0.0));
+                }
+
+                int newCost = totalCost(incumbent);
+                if (newCost < incumbentCost) {
+                    System.out.println("LNS it " + iteration + ": " + incumbentCost + " -> " + newCost);
+                    incumbentCost = newCost;
+                }
+            }
+
+            printStatistics(iteration);
+
+            System.out.println("LNS: resolvendo o modelo completo a partir da incumbente " + incumbentCost + "...");
+            model.addMIPStart(incumbent, "lns");
+            solved = model.resolve(model.getRemainingTime(stopWatch));
+            return model.finish(solved, stopWatch);
+
+        } catch (IloException e) {
+            System.err.println("Um erro de CPLEX ocorreu durante o LNS:");
+            e.printStackTrace();
+        } catch (Exception e) {
+            System.err.println("Um erro inesperado ocorreu durante o LNS:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sorteia até 'parallelism' vizinhanças com veículos disjuntos.
+     */
+    private List<SubResult> selectNeighbourhoods(List<VehiclePlan> incumbent, int K) {
+        List<SubResult> selected = new ArrayList<>();
+        Set<Integer> used = new HashSet<>();
+        List<Set<Integer>> visited = new ArrayList<>();
+        for (VehiclePlan plan : incumbent) {
+            visited.add(plan.visitedNodes());
+        }
+
+        int tries = 0;
+        while (selected.size() < parallelism && tries++ < 4 * parallelism + 8) {
+            Neighbourhood nh = rouletteSelect();
+            int size = Math.max(1, Math.min(nh.size, K - 1));
+            int[] vehicles = buildNeighbourhood(nh, size, incumbent, visited, used);
+            if (vehicles == null) {
+                continue;
+            }
+
+            String signature = signature(incumbent, vehicles);
+            if (exhausted.contains(signature)) {
+                continue;
+            }
+
+            SubResult task = new SubResult();
+            task.neighbourhood = nh;
+            task.vehicles = vehicles;
+            task.signature = signature;
+            selected.add(task);
+            for (int v : vehicles) {
+                used.add(v);
+            }
+        }
+        return selected;
+    }
+
+    private Neighbourhood rouletteSelect() {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double r = random.nextDouble() * total;
+        for (Neighbourhood nh : Neighbourhood.values()) {
+            r -= weights[nh.ordinal()];
+            if (r <= 0) {
+                return nh;
+            }
+        }
+        return Neighbourhood.values()[weights.length - 1];
+    }
+
+    /**
+     * Monta o conjunto de veículos de uma vizinhança, ignorando os já usados na iteração.
+     */
+    private int[] buildNeighbourhood(Neighbourhood nh, int size, List<VehiclePlan> incumbent,
+                                     List<Set<Integer>> visited, Set<Integer> used) {
+        List<Integer> free = new ArrayList<>();
+        for (int v = 0; v < incumbent.size(); v++) {
+            if (!used.contains(v)) {
+                free.add(v);
+            }
+        }
+        if (free.size() < size) {
+            return null;
+        }
+
+        int seed;
+        if (nh == Neighbourhood.COSTLIEST_PAIR) {
+            seed = free.get(0);
+            for (int v : free) {
+                if (incumbent.get(v).cost > incumbent.get(seed).cost) {
+                    seed = v;
+                }
+            }
+        } else {
+            seed = free.get(random.nextInt(free.size()));
+        }
+        free.remove(Integer.valueOf(seed));
+
+        if (nh == Neighbourhood.RANDOM_PAIR) {
+            Collections.shuffle(free, random);
+        } else {
+            Set<Integer> seedNodes = visited.get(seed);
+            free.sort((a, b) -> Double.compare(similarity(seedNodes, visited.get(b)), similarity(seedNodes, visited.get(a))));
+        }
+
+        int[] vehicles = new int[size];
+        vehicles[0] = seed;
+        for (int i = 1; i < size; i++) {
+            vehicles[i] = free.get(i - 1);
+        }
+        return vehicles;
+    }
+
+    /**
+     * Similaridade de Jaccard entre os nós visitados por dois veículos.
+     */
+    private static double similarity(Set<Integer> a, Set<Integer> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0;
+        int common = 0;
+        for (Integer node : a) {
+            if (b.contains(node)) common++;
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    /**
+     * Identifica um subproblema pelos serviços envolvidos e pelo número de veículos.
+     */
+    private static String signature(List<VehiclePlan> incumbent, int[] vehicles) {
+        Set<String> services = new TreeSet<>();
+        for (int v : vehicles) {
+            VehiclePlan plan = incumbent.get(v);
+            for (String key : plan.x.keySet()) services.add("a" + key);
+            for (Integer key : plan.z.keySet()) services.add("n" + key);
+        }
+        return vehicles.length + ":" + services;
+    }
+
+    /**
+     * Resolve o sub-MIP dos veículos escolhidos em um IloCplex próprio.
+     */
+    private SubResult solveNeighbourhood(SubResult task, List<VehiclePlan> current, double timeLimit, int threads)
+            throws IloException {
+        Set<Integer> reqNodeIds = new HashSet<>();
+        Set<Integer> reqArcOgIds = new HashSet<>();
+        Set<Integer> reqEdgeIds = new HashSet<>();
+        for (VehiclePlan plan : current) {
+            reqNodeIds.addAll(plan.z.keySet());
+            for (String arcKey : plan.x.keySet()) {
+                if (arcOgIdByKey.containsKey(arcKey)) {
+                    reqArcOgIds.add(arcOgIdByKey.get(arcKey));
+                } else {
+                    reqEdgeIds.add(edgeIdByKey.get(arcKey));
+                }
+            }
+        }
+
+        task.oldCost = totalCost(current);
+        task.newCost = task.oldCost;
+
+        CplexData subData = data.restrictTo(current.size(), reqNodeIds, reqArcOgIds, reqEdgeIds);
+        CplexModel subModel = new CplexModel(subData, inputType);
+        subModel.setQuiet(true);
+        subModel.setResourceProfile(model.getResourceProfile());
+        subModel.setParameterProfile(model.getParameterProfile());
+        subModel.setFormulation(model.getFormulation());
+        subModel.setSymmetry(model.getSymmetry());
+        try {
+            subModel.build();
+            subModel.addMIPStart(current, "lns-current");
+            if (subModel.solveSubProblem(timeLimit, threads)) {
+                task.optimal = subModel.isOptimal();
+                task.plans = subModel.extractVehiclePlans();
+                task.newCost = totalCost(task.plans);
+            }
+        } finally {
+            subModel.end();
+        }
+        return task;
+    }
+
+    private static int totalCost(List<VehiclePlan> plans) {
+        int cost = 0;
+        for (VehiclePlan plan : plans) {
+            cost += plan.cost;
+        }
+        return cost;
+    }
+
+    private void printStatistics(int iterations) {
+        System.out.println("LNS: " + iterations + " iterações.");
+        for (Neighbourhood nh : Neighbourhood.values()) {
+            int i = nh.ordinal();
+            System.out.printf("  - %s: tentativas=%d, melhorias=%d, peso=%.2f%n", nh, attempts[i], improvements[i], weights[i]);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import ilog.concert.IloException;
+
+/**
+ * Modo de limitante inferior: calcula os limitantes combinatórios (CombinatorialBound),
+ * resolve apenas a relaxação linear do modelo e, opcionalmente, a relaxação lagrangiana
+ * das restrições de atribuição (1)-(3).
+ * <p>Sem (1)-(3), o problema se decompõe por veículo. Como os veículos são idênticos,
+ * os K subproblemas coincidem: resolve-se um subproblema de um veículo por iteração,
+ * com todas as threads, e L(λ) = K * v(λ) + sum_s λ_s, em que v(λ) é o limitante do
+ * subproblema (válido mesmo se ele parar por tempo). Os multiplicadores partem dos
+ * duais da relaxação linear e são atualizados por subgradiente com passo de Polyak.
+ */
+public class LowerBoundSolver {
+    private final CplexData data;
+    private final String inputType;
+    private final ResourceProfile resources;
+    private final ParameterProfile parameters;
+
+    private int iterations = 30;
+    private double subTimeLimit = 10;
+    private double lpTimeLimit = 60;
+
+    public LowerBoundSolver(CplexData data, String inputType, ResourceProfile resources, ParameterProfile parameters) {
+        this.data = data;
+        this.inputType = inputType;
+        this.resources = resources;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Limitante da relaxação linear; preenche 'duals' com os duais de (1)-(3).
+     */
+    public double lpBound(Map<String, Double> duals) throws IloException {
+        CplexModel model = new CplexModel(data, inputType);
+        model.setQuiet(true);
+        model.setTrackRows(true);
+        model.setResourceProfile(resources);
+        model.setParameterProfile(parameters);
+        try {
+            double bound = model.solveLpRelaxation(lpTimeLimit);
+            duals.putAll(model.getAssignmentDuals());
+            return bound;
+        } finally {
+            model.end();
+        }
+    }
+
+    /**
+     * Subgradiente sobre L(λ). 'upper' é um limitante superior conhecido (ou NaN, quando
+     * o alvo do passo passa a ser 5% acima do melhor limitante).
+     */
+    public double lagrangianBound(Map<String, Double> initialPrices, double upper) throws IloException {
+        CplexData single = data.restrictTo(1, data.getReqNodes().keySet(),
+                                           data.getReqArcsOg().keySet(), data.getReqEdges().keySet());
+        CplexModel sub = new CplexModel(single, inputType);
+        sub.setQuiet(true);
+        sub.setTrackRows(true);
+        sub.setResourceProfile(resources);
+        sub.setParameterProfile(parameters);
+
+        int K = data.getNumVehicles();
+        Map<String, Double> prices = new HashMap<>(initialPrices);
+        double best = -Double.MAX_VALUE;
+        double theta = 2.0;
+        int stall = 0;
+
+        try {
+            sub.build();
+            sub.relaxAssignmentRows();
+
+            for (int it = 1; it <= iterations; it++) {
+                sub.setAssignmentPrices(prices);
+                if (!sub.solveSubProblem(subTimeLimit, resources.getThreads())) {
+                    System.out.println("  Subproblema sem solução na iteração " + it + "; encerrando.");
+                    break;
+                }
+
+                double priceSum = 0;
+                for (double price : prices.values()) {
+                    priceSum += price;
+                }
+                double value = K * Math.min(0.0, sub.getBestObjValue()) + priceSum;
+                if (value > best + 1e-6) {
+                    best = value;
+                    stall = 0;
+                } else if (++stall >= 5) {
+                    theta /= 2;
+                    stall = 0;
+                }
+
+                // g_s = 1 - K * (serviço s no plano do veículo)
+                VehiclePlan plan = sub.extractVehiclePlans().get(0);
+                Map<String, Double> subgradient = subgradient(plan, K);
+                double norm = 0;
+                for (double g : subgradient.values()) {
+                    norm += g * g;
+                }
+                System.out.printf("  it %3d: L = %.2f, melhor = %.2f, ||g||^2 = %.0f%n", it, value, best, norm);
+                if (norm < 1e-9) {
+                    break;      // plano do veículo, replicado K vezes, atende tudo: L é ótimo
+                }
+
+                double target = Double.isNaN(upper) ? best + 0.05 * Math.abs(best) + 1 : upper;
+                double step = theta * (target - value) / norm;
+                for (Map.Entry<String, Double> entry : subgradient.entrySet()) {
+                    prices.merge(entry.getKey(), step * entry.getValue(), Double::sum);
+                }
+            }
+        } finally {
+            sub.end();
+        }
+        return best;
+    }
+
+    private Map<String, Double> subgradient(VehiclePlan plan, int K) {
+        Map<String, Double> g = new HashMap<>();
+        for (Integer nodeId : data.getReqNodes().keySet()) {
+            g.put("Assign_Node_" + nodeId, 1.0 - K * (plan.z.containsKey(nodeId) ? 1 : 0));
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            boolean served = plan.x.containsKey(arc.fromNode() + "-" + arc.toNode());
+            g.put("Assign_Arc_" + arc.fromNode() + "_" + arc.toNode(), 1.0 - K * (served ? 1 : 0));
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            boolean served = plan.x.containsKey(edge.fromNode() + "-" + edge.toNode())
+                          || plan.x.containsKey(edge.toNode() + "-" + edge.fromNode());
+            g.put("Assign_Edge_" + edge.fromNode() + "_" + edge.toNode(), 1.0 - K * (served ? 1 : 0));
+        }
+        return g;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public void setSubTimeLimit(double subTimeLimit) {
+        this.subTimeLimit = subTimeLimit;
+    }
+
+    public void setLpTimeLimit(double lpTimeLimit) {
+        this.lpTimeLimit = lpTimeLimit;
+    }
+
+    /**
+     * bound <inputType> <instância> [--bound=lp|lagrangian] [--upper=<valor|solução>] ...
+     */
+    public static void main(String[] args) throws IOException, IloException {
+        if (args.length < 2) {
+            System.out.println("Usage: java -jar target/tcc-1.0.jar bound <inputType> <instância> [opções]");
+            System.out.println("\t--bound=<combinatorial|lp|lagrangian> (padrão lp; os limitantes combinatórios são sempre calculados)");
+            System.out.println("\t--upper=<valor|arquivo de solução>: limitante superior para o gap e o passo");
+            System.out.println("\t--lp-time=<s> (padrão 60) --lagrange-iters=<n> (padrão 30) --lagrange-subtime=<s> (padrão 10)");
+            return;
+        }
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        String inputType = args[0];
+        Map<String, String> options = Tcc.parseOptions(args, 2);
+        CplexData data = Tcc.loadInstance(args[1], inputType);
+
+        ResourceProfile resources = ResourceProfile.automatic(data, "NEARPTP".equalsIgnoreCase(inputType));
+        if (options.containsKey("resources")) {
+            resources.loadFile(options.get("resources"));
+        }
+        resources.loadOptions(options);
+        ParameterProfile parameters = options.containsKey("params") ? ParameterProfile.fromFile(options.get("params")) : null;
+
+        LowerBoundSolver solver = new LowerBoundSolver(data, inputType, resources, parameters);
+        if (options.containsKey("lp-time")) {
+            solver.setLpTimeLimit(Double.parseDouble(options.get("lp-time")));
+        }
+        if (options.containsKey("lagrange-iters")) {
+            solver.setIterations(Integer.parseInt(options.get("lagrange-iters")));
+        }
+        if (options.containsKey("lagrange-subtime")) {
+            solver.setSubTimeLimit(Double.parseDouble(options.get("lagrange-subtime")));
+        }
+        double upper = options.containsKey("upper") ? readUpperBound(options.get("upper")) : Double.NaN;
+
+        CombinatorialBound combinatorial = new CombinatorialBound(data);
+        combinatorial.compute();
+        combinatorial.print();
+
+        String mode = options.getOrDefault("bound", "lp");
+        double bound = combinatorial.getBound();
+
+        Map<String, Double> duals = new HashMap<>();
+        if (!"combinatorial".equals(mode)) {
+            double lp = solver.lpBound(duals);
+            System.out.printf("Limitante da relaxação linear: %.2f (%d ms)%n", lp, stopWatch.getTime(TimeUnit.MILLISECONDS));
+            bound = Math.max(bound, lp);
+        }
+
+        if ("lagrangian".equals(mode)) {
+            System.out.println("Relaxação lagrangiana de (1)-(3):");
+            double lagrangian = solver.lagrangianBound(duals, upper);
+            System.out.printf("Limitante lagrangiano: %.2f (%d ms)%n", lagrangian, stopWatch.getTime(TimeUnit.MILLISECONDS));
+            bound = Math.max(bound, lagrangian);
+        }
+
+        System.out.printf("Limitante inferior: %.2f%n", bound);
+        if (!Double.isNaN(upper)) {
+            System.out.printf("Limitante superior: %.0f, gap: %.2f%%%n", upper, 100.0 * (upper - bound) / Math.max(1e-10, Math.abs(upper)));
+        }
+    }
+
+    /**
+     * Valor numérico ou a primeira linha (função objetivo) de um arquivo de solução.
+     */
+    private static double readUpperBound(String spec) throws IOException {
+        if (!new File(spec).isFile()) {
+            return Double.parseDouble(spec);
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(spec))) {
+            return Double.parseDouble(reader.readLine().trim());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package tcc.br;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registro de métricas do processo: contadores, temporizadores e medidores, por nome.
+ * <p>Seguro para várias threads (callbacks do CPLEX, corrida, LNS). A exportação é CSV
+ * (metric,kind,count,value,max) ou, com extensão ".json", um objeto por métrica.
+ */
+public class MetricsRegistry {
+    /**
+     * Temporizador: número de medições, tempo total e maior medição (ns).
+     */
+    static final class Timer {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+    }
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    public void record(String name, long nanos) {
+        timers.computeIfAbsent(name, key -> new Timer()).record(nanos);
+    }
+
+    /**
+     * Medidor avaliado na exportação.
+     */
+    public void gauge(String name, DoubleSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Medidor de valor fixo (último valor registrado).
+     */
+    public void gauge(String name, double value) {
+        gauges.put(name, () -> value);
+    }
+
+    public long counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public void export(String path) throws IOException {
+        boolean json = path.endsWith(".json");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+            if (json) {
+                writer.write("[");
+            } else {
+                writer.write("metric,kind,count,value,max");
+            }
+            boolean first = true;
+            for (String line : lines(json)) {
+                if (json && !first) writer.write(",");
+                writer.newLine();
+                writer.write(line);
+                first = false;
+            }
+            if (json) {
+                writer.newLine();
+                writer.write("]");
+            }
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Resumo legível: temporizadores em ms, depois contadores e medidores.
+     */
+    public void print() {
+        System.out.println("Métricas:");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            Timer timer = entry.getValue();
+            System.out.printf(Locale.ROOT, "  %-32s %10.1f ms (%d x, máx. %.1f ms)%n", entry.getKey(),
+                              timer.totalNanos.sum() / 1e6, timer.count.sum(), timer.maxNanos.get() / 1e6);
+        }
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            System.out.printf(Locale.ROOT, "  %-32s %10d%n", entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, DoubleSupplier> entry : new TreeMap<>(gauges).entrySet()) {
+            System.out.printf(Locale.ROOT, "  %-32s %10.1f%n", entry.getKey(), entry.getValue().getAsDouble());
+        }
+    }
+
+    private List<String> lines(boolean json) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            Timer timer = entry.getValue();
+            lines.add(line(json, entry.getKey(), "timer_ms", timer.count.sum(),
+                           timer.totalNanos.sum() / 1e6, timer.maxNanos.get() / 1e6));
+        }
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            lines.add(line(json, entry.getKey(), "counter", 1, entry.getValue().sum(), Double.NaN));
+        }
+        for (Map.Entry<String, DoubleSupplier> entry : new TreeMap<>(gauges).entrySet()) {
+            lines.add(line(json, entry.getKey(), "gauge", 1, entry.getValue().getAsDouble(), Double.NaN));
+        }
+        return lines;
+    }
+
+    private static String line(boolean json, String name, String kind, long count, double value, double max) {
+        if (json) {
+            return String.format(Locale.ROOT, "  {\"metric\":\"%s\",\"kind\":\"%s\",\"count\":%d,\"value\":%s,\"max\":%s}",
+                                 name, kind, count, json(value), json(max));
+        }
+        return String.format(Locale.ROOT, "%s,%s,%d,%s,%s", name, kind, count,
+                             Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value),
+                             Double.isNaN(max) ? "" : String.format(Locale.ROOT, "%.3f", max));
+    }
+
+    private static String json(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,47 @@
+package tcc.br;
+
+/**
+ * Destino da construção do modelo: colunas, linhas esparsas, limites e função objetivo,
+ * referenciados por índice (a ordem de criação, a partir de 0).
+ * <p>A fase de construção de CplexModel escreve apenas aqui; CplexBackend materializa o
+ * modelo em um IloCplex e RecordingBackend o guarda em vetores primitivos, sem o CPLEX,
+ * para estatísticas e exportação em MPS/LP. Outros solvers entram como novas implementações.
+ * <p>Infinito é ±Double.MAX_VALUE, como no Concert.
+ */
+public interface ModelBackend {
+    /**
+     * Tipo de uma coluna.
+     */
+    enum ColumnType {
+        CONTINUOUS, INTEGER, BINARY
+    }
+
+    /**
+     * Cria uma coluna e retorna o seu índice.
+     */
+    int addColumn(String name, double lb, double ub, ColumnType type);
+
+    /**
+     * Altera os limites de uma coluna já criada.
+     */
+    void setColumnBounds(int column, double lb, double ub);
+
+    /**
+     * Cria a linha lb <= expr <= ub e retorna o seu índice. Termos repetidos são somados.
+     */
+    int addRow(String name, double lb, LinearExpr expr, double ub);
+
+    /**
+     * Define a função objetivo (minimização).
+     */
+    void setObjective(LinearExpr expr);
+
+    int getNumColumns();
+
+    int getNumRows();
+
+    /**
+     * Não nulos das linhas criadas até agora (sem a função objetivo).
+     */
+    long getNonZeros();
+}
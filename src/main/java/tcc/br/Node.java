@@ -1,22 +1,45 @@
 package tcc.br;
 
 /**
- * Representa um nó da instância.
+ * Representa um nó da instância (visão sobre o InstanceStore).
  */
 public class Node {
-    int demand;
-    int serviceCost;        // t_i^s: tempo de serviço no nó
-    boolean isRequired;
+    private final InstanceStore store;
+    private final int id;
 
-    public Node() {
-        this.demand = 0;
-        this.serviceCost = 0;
-        this.isRequired = false;
+    Node(InstanceStore store, int id) {
+        this.store = store;
+        this.id = id;
     }
 
-    public Node(int demand, int serviceCost, boolean isRequired) {
-        this.demand = isRequired ? 1 : 0;       // força a demanda a ser unitária
-        this.serviceCost = serviceCost;
-        this.isRequired = isRequired;
+    public int id() {
+        return id;
+    }
+
+    public int demand() {
+        return store.nodeDemand[id];
+    }
+
+    /**
+     * t_i^s: tempo de serviço no nó.
+     */
+    public int serviceCost() {
+        return store.nodeServiceCost[id];
+    }
+
+    public boolean isRequired() {
+        return store.nodeRequired.get(id);
+    }
+
+    public void setDemand(int demand) {
+        store.nodeDemand[id] = demand;
+    }
+
+    public void setServiceCost(int serviceCost) {
+        store.nodeServiceCost[id] = serviceCost;
+    }
+
+    public void setRequired(boolean required) {
+        store.nodeRequired.set(id, required);
     }
 }
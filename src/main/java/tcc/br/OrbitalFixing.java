@@ -0,0 +1,170 @@
+package tcc.br;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ilog.concert.IloException;
+import ilog.concert.IloNumVar;
+import ilog.cplex.IloCplex;
+
+/**
+ * Fixação orbital para veículos idênticos, aplicada nas ramificações do CPLEX.
+ * <p>Permutar os índices k leva soluções em soluções de mesmo custo. Cada variável de
+ * serviço (x_ij^k, z_i^k) forma uma órbita com as suas cópias nos K veículos. Em um nó,
+ * um veículo é "livre" se as ramificações até ali só fixaram em 0 variáveis de serviço
+ * dele; permutar veículos livres preserva o subproblema do nó. Se uma ramificação fixou
+ * em 0 a cópia de um serviço em um veículo livre, as soluções com o serviço em outro
+ * veículo livre têm uma equivalente no ramo irmão, e o serviço é fixado em 0 em todos os
+ * veículos livres (Ostrowski, Linderoth, Rossi e Smriglio, 2011).
+ * <p>O histórico de ramificações vai nos dados de cada nó criado pelo callback. Nós sem
+ * histórico (criados pelo CPLEX sem passar por aqui) não recebem fixações.
+ */
+public class OrbitalFixing extends IloCplex.BranchCallback {
+    /**
+     * Decisão de ramificação no caminho até o nó, encadeada até a raiz.
+     * 'orbit' >= 0 indica um serviço fixado em 0; -1 indica uma decisão que distingue o
+     * veículo (serviço em 1 ou limite em outra variável); vehicle -1 vale para todos.
+     */
+    private static final class Decision {
+        final int orbit;
+        final int vehicle;
+        final Decision parent;
+
+        Decision(int orbit, int vehicle, Decision parent) {
+            this.orbit = orbit;
+            this.vehicle = vehicle;
+            this.parent = parent;
+        }
+    }
+
+    private static final Decision ROOT = new Decision(-1, -2, null);
+
+    private final IloNumVar[][] orbits;                 // [órbita][k]
+    private final Map<IloNumVar, int[]> positions;      // variável -> {órbita ou -1, k}
+    private final int numVehicles;
+
+    private final AtomicLong branches = new AtomicLong();
+    private final AtomicLong fixings = new AtomicLong();
+
+    /**
+     * @param orbits Variáveis de serviço binárias, uma linha por órbita e uma coluna por veículo.
+     * @param vehicleOf Demais variáveis do modelo e o veículo de cada uma.
+     */
+    public OrbitalFixing(IloNumVar[][] orbits, Map<IloNumVar, Integer> vehicleOf, int numVehicles) {
+        this.orbits = orbits;
+        this.numVehicles = numVehicles;
+        this.positions = new HashMap<>();
+        for (Map.Entry<IloNumVar, Integer> entry : vehicleOf.entrySet()) {
+            positions.put(entry.getKey(), new int[] { -1, entry.getValue() });
+        }
+        for (int o = 0; o < orbits.length; o++) {
+            for (int k = 0; k < numVehicles; k++) {
+                positions.put(orbits[o][k], new int[] { o, k });
+            }
+        }
+    }
+
+    @Override
+    protected void main() throws IloException {
+        if (getBranchType() != IloCplex.BranchType.BranchOnVariable) return;
+
+        Object data = getNodeData();
+        if (data == null && getNnodes64() > 0) return;
+        Decision parent = data == null ? ROOT : (Decision) data;
+
+        int n = getNbranches();
+        if (n == 0) return;
+        IloNumVar[][] vars = new IloNumVar[n][];
+        double[][] bounds = new double[n][];
+        IloCplex.BranchDirection[][] dirs = new IloCplex.BranchDirection[n][];
+        double[] estimates = getBranches(vars, bounds, dirs);
+
+        for (int b = 0; b < n; b++) {
+            Decision node = parent;
+            for (int i = 0; i < vars[b].length; i++) {
+                node = record(node, vars[b][i], bounds[b][i], dirs[b][i]);
+            }
+            List<IloNumVar> fixed = orbitalFixings(node);
+
+            int size = vars[b].length + fixed.size();
+            IloNumVar[] branchVars = new IloNumVar[size];
+            double[] branchBounds = new double[size];
+            IloCplex.BranchDirection[] branchDirs = new IloCplex.BranchDirection[size];
+            System.arraycopy(vars[b], 0, branchVars, 0, vars[b].length);
+            System.arraycopy(bounds[b], 0, branchBounds, 0, vars[b].length);
+            System.arraycopy(dirs[b], 0, branchDirs, 0, vars[b].length);
+            for (int i = vars[b].length; i < size; i++) {
+                branchVars[i] = fixed.get(i - vars[b].length);
+                branchBounds[i] = 0.0;
+                branchDirs[i] = IloCplex.BranchDirection.Down;
+            }
+            makeBranch(branchVars, branchBounds, branchDirs, estimates[b], node);
+            fixings.addAndGet(fixed.size());
+        }
+        branches.incrementAndGet();
+    }
+
+    private Decision record(Decision node, IloNumVar var, double bound, IloCplex.BranchDirection dir) {
+        int[] position = positions.get(var);
+        if (position == null) {
+            return new Decision(-1, -1, node);
+        }
+        boolean serviceOff = position[0] >= 0 && dir == IloCplex.BranchDirection.Down && bound < 0.5;
+        return new Decision(serviceOff ? position[0] : -1, position[1], node);
+    }
+
+    /**
+     * Cópias dos serviços fixados em 0 em algum veículo livre, nos demais veículos livres
+     * onde ainda não estão em 0.
+     */
+    private List<IloNumVar> orbitalFixings(Decision node) throws IloException {
+        BitSet busy = new BitSet(numVehicles);
+        Map<Integer, BitSet> zeros = new HashMap<>();
+        for (Decision d = node; d != ROOT; d = d.parent) {
+            if (d.vehicle == -1) return new ArrayList<>();
+            if (d.orbit < 0) {
+                busy.set(d.vehicle);
+            } else {
+                zeros.computeIfAbsent(d.orbit, o -> new BitSet(numVehicles)).set(d.vehicle);
+            }
+        }
+
+        List<IloNumVar> candidates = new ArrayList<>();
+        for (Map.Entry<Integer, BitSet> entry : zeros.entrySet()) {
+            BitSet branched = entry.getValue();
+            BitSet free = (BitSet) branched.clone();
+            free.andNot(busy);
+            if (free.isEmpty()) continue;
+
+            IloNumVar[] orbit = orbits[entry.getKey()];
+            for (int k = 0; k < numVehicles; k++) {
+                if (!busy.get(k) && !branched.get(k)) {
+                    candidates.add(orbit[k]);
+                }
+            }
+        }
+        if (candidates.isEmpty()) return candidates;
+
+        // Fixações herdadas de ancestrais já estão no nó
+        double[] ubs = getUBs(candidates.toArray(new IloNumVar[0]));
+        List<IloNumVar> fixed = new ArrayList<>();
+        for (int i = 0; i < ubs.length; i++) {
+            if (ubs[i] > 0.5) {
+                fixed.add(candidates.get(i));
+            }
+        }
+        return fixed;
+    }
+
+    public long getBranchCount() {
+        return branches.get();
+    }
+
+    public long getFixingCount() {
+        return fixings.get();
+    }
+}
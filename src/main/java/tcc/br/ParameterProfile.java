@@ -0,0 +1,115 @@
+package tcc.br;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ilog.concert.IloException;
+
+import ilog.cplex.IloCplex;
+
+/**
+ * Perfil nomeado de parâmetros de busca do CPLEX (ênfase, probing, frequência de
+ * heurísticas, uso de MIP start). Pode ser um dos perfis embutidos ou um arquivo
+ * de parâmetros (.prm) do CPLEX.
+ * <p>Não define limites de recursos (tempo, threads); esses ficam a cargo de quem resolve.
+ */
+public class ParameterProfile {
+    /**
+     * Uma atribuição de parâmetro sobre um IloCplex.
+     */
+    interface Setting {
+        void apply(IloCplex cplex) throws IloException;
+    }
+
+    private final String name;
+    private final String paramFile;         // arquivo .prm opcional, lido antes das atribuições
+    private final List<Setting> settings;
+
+    private ParameterProfile(String name, String paramFile) {
+        this.name = name;
+        this.paramFile = paramFile;
+        this.settings = new ArrayList<>();
+    }
+
+    private ParameterProfile with(Setting setting) {
+        this.settings.add(setting);
+        return this;
+    }
+
+    /**
+     * Perfis embutidos, na ordem em que são usados quando nenhum é informado.
+     */
+    public static Map<String, ParameterProfile> builtIn() {
+        Map<String, ParameterProfile> profiles = new LinkedHashMap<>();
+
+        profiles.put("default", new ParameterProfile("default", null));
+
+        profiles.put("feasibility", new ParameterProfile("feasibility", null)
+            .with(c -> c.setParam(IloCplex.Param.Emphasis.MIP, 1))
+            .with(c -> c.setParam(IloCplex.Param.MIP.Strategy.HeuristicFreq, 10L)));
+
+        profiles.put("optimality", new ParameterProfile("optimality", null)
+            .with(c -> c.setParam(IloCplex.Param.Emphasis.MIP, 2))
+            .with(c -> c.setParam(IloCplex.Param.MIP.Strategy.Probe, 2)));
+
+        profiles.put("bestbound", new ParameterProfile("bestbound", null)
+            .with(c -> c.setParam(IloCplex.Param.Emphasis.MIP, 3))
+            .with(c -> c.setParam(IloCplex.Param.MIP.Strategy.Probe, 3)));
+
+        profiles.put("heuristic", new ParameterProfile("heuristic", null)
+            .with(c -> c.setParam(IloCplex.Param.Emphasis.MIP, 5))
+            .with(c -> c.setParam(IloCplex.Param.MIP.Strategy.RINSHeur, 20L))
+            .with(c -> c.setParam(IloCplex.Param.MIP.Strategy.HeuristicFreq, 5L)));
+
+        // Ignora MIP starts e informações de partida avançada
+        profiles.put("coldstart", new ParameterProfile("coldstart", null)
+            .with(c -> c.setParam(IloCplex.Param.Advance, 0))
+            .with(c -> c.setParam(IloCplex.Param.MIP.Strategy.Probe, -1)));
+
+        return profiles;
+    }
+
+    /**
+     * Perfil a partir de um arquivo de parâmetros do CPLEX; o nome é o do arquivo.
+     */
+    public static ParameterProfile fromFile(String paramFile) {
+        String fileName = new java.io.File(paramFile).getName();
+        int dot = fileName.lastIndexOf('.');
+        return new ParameterProfile(dot > 0 ? fileName.substring(0, dot) : fileName, paramFile);
+    }
+
+    /**
+     * Resolve uma lista separada por vírgulas de nomes embutidos ou arquivos .prm.
+     */
+    public static List<ParameterProfile> parseList(String spec) {
+        Map<String, ParameterProfile> builtIn = builtIn();
+        List<ParameterProfile> profiles = new ArrayList<>();
+        for (String item : spec.split(",")) {
+            item = item.trim();
+            if (item.isEmpty()) continue;
+            if (builtIn.containsKey(item)) {
+                profiles.add(builtIn.get(item));
+            } else if (item.endsWith(".prm")) {
+                profiles.add(fromFile(item));
+            } else {
+                throw new IllegalArgumentException("Perfil de parâmetros desconhecido: " + item);
+            }
+        }
+        return profiles;
+    }
+
+    public void apply(IloCplex cplex) throws IloException {
+        if (paramFile != null) {
+            cplex.readParam(paramFile);
+        }
+        for (Setting setting : settings) {
+            setting.apply(cplex);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+}
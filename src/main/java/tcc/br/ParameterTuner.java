@@ -0,0 +1,319 @@
+package tcc.br;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ilog.concert.IloException;
+
+import ilog.cplex.IloCplex;
+
+/**
+ * Ajuste de parâmetros do CPLEX sobre um conjunto de instâncias, com orçamento total de tempo.
+ * <p>Métodos:
+ * <p>- cplex: tuneParam do próprio CPLEX sobre os modelos exportados.
+ * <p>- random: amostras aleatórias do espaço de busca, todas com o mesmo tempo por execução.
+ * <p>- halving: successive halving; a cada rodada metade das configurações é descartada
+ *   e o tempo por execução dobra.
+ * <p>O resultado é um arquivo .prm, carregável com --params ou --race-profiles.
+ */
+public class ParameterTuner {
+    /**
+     * Uma dimensão do espaço de busca: parâmetro e valores candidatos (o primeiro é o padrão).
+     */
+    private static class Dimension {
+        final String name;
+        final long[] values;
+        final Applier applier;
+
+        Dimension(String name, long[] values, Applier applier) {
+            this.name = name;
+            this.values = values;
+            this.applier = applier;
+        }
+    }
+
+    interface Applier {
+        void apply(IloCplex cplex, long value) throws IloException;
+    }
+
+    private static final List<Dimension> SPACE = List.of(
+        new Dimension("Emphasis.MIP", new long[] {0, 1, 2, 3, 4, 5},
+                      (c, v) -> c.setParam(IloCplex.Param.Emphasis.MIP, (int) v)),
+        new Dimension("MIP.Strategy.Probe", new long[] {0, -1, 1, 2, 3},
+                      (c, v) -> c.setParam(IloCplex.Param.MIP.Strategy.Probe, (int) v)),
+        new Dimension("MIP.Strategy.HeuristicFreq", new long[] {0, -1, 5, 10, 20},
+                      (c, v) -> c.setParam(IloCplex.Param.MIP.Strategy.HeuristicFreq, v)),
+        new Dimension("MIP.Strategy.RINSHeur", new long[] {0, -1, 10, 50},
+                      (c, v) -> c.setParam(IloCplex.Param.MIP.Strategy.RINSHeur, v)),
+        new Dimension("MIP.Strategy.NodeSelect", new long[] {1, 0, 2, 3},
+                      (c, v) -> c.setParam(IloCplex.Param.MIP.Strategy.NodeSelect, (int) v)),
+        new Dimension("MIP.Strategy.VariableSelect", new long[] {0, -1, 1, 2, 3, 4},
+                      (c, v) -> c.setParam(IloCplex.Param.MIP.Strategy.VariableSelect, (int) v)),
+        new Dimension("MIP.Cuts.Gomory", new long[] {0, -1, 1, 2},
+                      (c, v) -> c.setParam(IloCplex.Param.MIP.Cuts.Gomory, (int) v)),
+        new Dimension("MIP.Cuts.MIRCut", new long[] {0, -1, 1, 2},
+                      (c, v) -> c.setParam(IloCplex.Param.MIP.Cuts.MIRCut, (int) v)),
+        new Dimension("Preprocessing.Symmetry", new long[] {-1, 0, 1, 3, 5},
+                      (c, v) -> c.setParam(IloCplex.Param.Preprocessing.Symmetry, (int) v))
+    );
+
+    private final ResourceProfile resources;
+    private final List<String> modelFiles;
+    private final Random random;
+
+    public ParameterTuner(ResourceProfile resources, List<String> modelFiles, long seed) {
+        this.resources = resources;
+        this.modelFiles = modelFiles;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Uso: tune <inputType> <saida.prm> <instância|pasta>... [opções]
+     */
+    public static void main(String[] args) throws IOException, IloException {
+        int firstOption = 0;
+        while (firstOption < args.length && !args[firstOption].startsWith("--")) {
+            firstOption++;
+        }
+        if (firstOption < 3) {
+            System.out.println("Usage: java -jar target/tcc-1.0.jar tune <inputType> <outputParamFile.prm> <instância|pasta>... [opções]");
+            System.out.println("\t--tune-method=<cplex|random|halving> (padrão cplex)");
+            System.out.println("\t--tune-budget=<s>: orçamento total (padrão 3600)");
+            System.out.println("\t--tune-samples=<n>: configurações avaliadas por random/halving (padrão 16)");
+            System.out.println("\t--seed=<n>, opções de recursos (--threads=<n>, ...)");
+            return;
+        }
+
+        String inputType = args[0];
+        String outputFile = args[1];
+        Map<String, String> options = Tcc.parseOptions(args, firstOption);
+
+        List<String> instances = new ArrayList<>();
+        for (int i = 2; i < firstOption; i++) {
+            File file = new File(args[i]);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles((dir, name) -> name.endsWith(".dat"));
+                Arrays.sort(children);
+                for (File child : children) {
+                    instances.add(child.getPath());
+                }
+            } else {
+                instances.add(file.getPath());
+            }
+        }
+
+        ResourceProfile resources = new ResourceProfile();
+        if (options.containsKey("resources")) {
+            resources.loadFile(options.get("resources"));
+        }
+        resources.loadOptions(options);
+
+        // Constrói cada modelo uma vez e exporta para o formato binário do CPLEX
+        List<String> modelFiles = new ArrayList<>();
+        for (String instance : instances) {
+            System.out.println("Exportando modelo de " + instance + "...");
+            CplexModel model = new CplexModel(Tcc.loadInstance(instance, inputType), inputType);
+            model.setQuiet(true);
+            model.build();
+            File modelFile = File.createTempFile("tcc-tune", ".sav");
+            modelFile.deleteOnExit();
+            model.exportModel(modelFile.getAbsolutePath());
+            model.end();
+            modelFiles.add(modelFile.getAbsolutePath());
+        }
+
+        ParameterTuner tuner = new ParameterTuner(resources, modelFiles, Long.parseLong(options.getOrDefault("seed", "0")));
+        double budget = Double.parseDouble(options.getOrDefault("tune-budget", "3600"));
+        int samples = Integer.parseInt(options.getOrDefault("tune-samples", "16"));
+        String method = options.getOrDefault("tune-method", "cplex");
+
+        switch (method) {
+            case "cplex":
+                tuner.tuneWithCplex(budget, outputFile);
+                break;
+            case "random":
+                tuner.writeConfig(tuner.randomSearch(samples, budget), outputFile);
+                break;
+            case "halving":
+                tuner.writeConfig(tuner.successiveHalving(samples, budget), outputFile);
+                break;
+            default:
+                throw new IllegalArgumentException("Método de ajuste desconhecido: " + method);
+        }
+        System.out.println("Parâmetros escritos em " + outputFile);
+    }
+
+    /**
+     * Ajuste nativo do CPLEX; cada execução de teste é limitada a uma fração do orçamento.
+     */
+    public void tuneWithCplex(double budget, String outputFile) throws IloException {
+        IloCplex cplex = new IloCplex();
+        try {
+            resources.apply(cplex);
+            cplex.setParam(IloCplex.Param.Tune.TimeLimit, budget);
+
+            IloCplex.ParameterSet fixed = cplex.getParameterSet();
+            fixed.clear();
+            fixed.setParam(IloCplex.Param.TimeLimit, Math.max(1.0, budget / (8.0 * modelFiles.size())));
+            fixed.setParam(IloCplex.Param.Threads, resources.getThreads());
+
+            System.out.println("\ntuneParam: " + modelFiles.size() + " modelo(s), orçamento " + Math.round(budget) + "s");
+            int status = cplex.tuneParam(modelFiles.toArray(new String[0]), fixed);
+            System.out.println("tuneParam concluído (estado " + status + ")");
+
+            // O .prm guarda só parâmetros de busca: recursos vêm do --resources da máquina alvo
+            ResourceProfile.clear(cplex);
+            cplex.setParam(IloCplex.Param.Tune.TimeLimit, cplex.getDefault(IloCplex.Param.Tune.TimeLimit));
+            cplex.setParam(IloCplex.Param.TimeLimit, cplex.getDefault(IloCplex.Param.TimeLimit));
+            cplex.writeParam(outputFile);
+        } finally {
+            cplex.end();
+        }
+    }
+
+    /**
+     * Busca aleatória: a configuração padrão mais (samples - 1) sorteadas, mesmo tempo para todas.
+     */
+    public int[] randomSearch(int samples, double budget) throws IloException {
+        List<int[]> configs = sampleConfigs(samples);
+        double limit = budget / ((double) configs.size() * modelFiles.size());
+
+        System.out.println("\nBusca aleatória: " + configs.size() + " configurações, " + round(limit) + "s por execução");
+        double[] scores = new double[configs.size()];
+        for (int c = 0; c < configs.size(); c++) {
+            scores[c] = score(configs.get(c), limit);
+            System.out.println("  " + describe(configs.get(c)) + " -> " + round(scores[c]));
+        }
+        return configs.get(argMin(scores));
+    }
+
+    /**
+     * Successive halving: rodadas com orçamento igual; metade sobrevive, tempo por execução dobra.
+     */
+    public int[] successiveHalving(int samples, double budget) throws IloException {
+        List<int[]> survivors = sampleConfigs(samples);
+        int rounds = Math.max(1, (int) Math.ceil(Math.log(survivors.size()) / Math.log(2)));
+        double roundBudget = budget / rounds;
+
+        for (int r = 1; survivors.size() > 1; r++) {
+            double limit = roundBudget / ((double) survivors.size() * modelFiles.size());
+            System.out.println("\nRodada " + r + ": " + survivors.size() + " configurações, " + round(limit) + "s por execução");
+
+            double[] scores = new double[survivors.size()];
+            Integer[] order = new Integer[survivors.size()];
+            for (int c = 0; c < survivors.size(); c++) {
+                scores[c] = score(survivors.get(c), limit);
+                order[c] = c;
+                System.out.println("  " + describe(survivors.get(c)) + " -> " + round(scores[c]));
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(scores[a], scores[b]));
+
+            List<int[]> next = new ArrayList<>();
+            for (int i = 0; i < (survivors.size() + 1) / 2; i++) {
+                next.add(survivors.get(order[i]));
+            }
+            survivors = next;
+        }
+        return survivors.get(0);
+    }
+
+    /**
+     * Pontuação de uma configuração: média geométrica deslocada (1s) sobre as instâncias.
+     * Execuções sem prova de otimalidade valem limit * (1 + gap), sem solução 2 * limit.
+     */
+    private double score(int[] config, double limit) throws IloException {
+        double logSum = 0;
+        for (String modelFile : modelFiles) {
+            logSum += Math.log(evaluate(config, modelFile, limit) + 1.0);
+        }
+        return Math.exp(logSum / modelFiles.size()) - 1.0;
+    }
+
+    private double evaluate(int[] config, String modelFile, double limit) throws IloException {
+        IloCplex cplex = new IloCplex();
+        try {
+            cplex.importModel(modelFile);
+            cplex.setOut(null);
+            cplex.setWarning(null);
+            resources.apply(cplex);
+            applyConfig(cplex, config);
+            cplex.setParam(IloCplex.Param.TimeLimit, limit);
+
+            long start = System.nanoTime();
+            boolean solved = cplex.solve();
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            if (cplex.getStatus() == IloCplex.Status.Optimal) {
+                return elapsed;
+            }
+            return solved ? limit * (1.0 + Math.min(cplex.getMIPRelativeGap(), 1.0)) : 2.0 * limit;
+        } finally {
+            cplex.end();
+        }
+    }
+
+    private List<int[]> sampleConfigs(int samples) {
+        List<int[]> configs = new ArrayList<>();
+        configs.add(new int[SPACE.size()]);         // padrão do CPLEX
+        while (configs.size() < samples) {
+            int[] config = new int[SPACE.size()];
+            for (int d = 0; d < SPACE.size(); d++) {
+                config[d] = random.nextInt(SPACE.get(d).values.length);
+            }
+            configs.add(config);
+        }
+        return configs;
+    }
+
+    private static void applyConfig(IloCplex cplex, int[] config) throws IloException {
+        for (int d = 0; d < SPACE.size(); d++) {
+            if (config[d] != 0) {
+                Dimension dim = SPACE.get(d);
+                dim.applier.apply(cplex, dim.values[config[d]]);
+            }
+        }
+    }
+
+    /**
+     * Escreve a configuração como arquivo .prm (apenas valores diferentes do padrão).
+     */
+    public void writeConfig(int[] config, String outputFile) throws IloException {
+        System.out.println("\nMelhor configuração: " + describe(config));
+        IloCplex cplex = new IloCplex();
+        try {
+            cplex.setDefaults();
+            applyConfig(cplex, config);
+            cplex.writeParam(outputFile);
+        } finally {
+            cplex.end();
+        }
+    }
+
+    private static String describe(int[] config) {
+        StringBuilder sb = new StringBuilder();
+        for (int d = 0; d < SPACE.size(); d++) {
+            if (config[d] != 0) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(SPACE.get(d).name).append('=').append(SPACE.get(d).values[config[d]]);
+            }
+        }
+        return sb.length() == 0 ? "(padrão)" : sb.toString();
+    }
+
+    private static int argMin(double[] values) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] < values[best]) best = i;
+        }
+        return best;
+    }
+
+    private static String round(double value) {
+        return String.format("%.1f", value);
+    }
+}
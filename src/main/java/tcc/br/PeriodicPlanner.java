@@ -0,0 +1,380 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import ilog.concert.IloException;
+
+/**
+ * Planejamento periódico: cada serviço tem uma frequência no horizonte de D dias e é
+ * atendido nos dias de um padrão; cada dia é um NEARP (ou NEARP-TP) com os serviços do
+ * dia sobre o mesmo grafo pré-processado, resolvido em paralelo com os demais.
+ * <p>Frequências: arquivo texto com uma linha por serviço ('#' inicia comentário),
+ * <pre>
+ *   N &lt;nó&gt; &lt;frequência&gt; [&lt;padrão&gt;...]
+ *   A &lt;i&gt; &lt;j&gt; &lt;frequência&gt; [&lt;padrão&gt;...]
+ *   E &lt;i&gt; &lt;j&gt; &lt;frequência&gt; [&lt;padrão&gt;...]
+ * </pre>
+ * onde um padrão é uma cadeia de D dígitos 0/1 com 'frequência' uns (ex.: 1010100).
+ * Serviços ausentes têm frequência 1; sem padrões, valem os espaçamentos uniformes.
+ * <p>Atribuição: heurística gulosa de balanceamento. Os serviços, em ordem decrescente de
+ * frequência e de tempo de serviço, recebem o padrão que menos aumenta a maior carga
+ * diária (tempo de serviço somado), desempatando pela soma dos quadrados das cargas.
+ */
+public class PeriodicPlanner {
+    /**
+     * Um serviço de A'_R, E_R ou R_V com o seu tempo e os padrões admitidos.
+     */
+    private static final class Service {
+        final char type;            // 'N', 'A' ou 'E'
+        final int id;               // nodeId ou ID em A'_R / E_R
+        final int cost;
+        int frequency = 1;
+        List<boolean[]> patterns = new ArrayList<>();
+        boolean[] chosen;
+
+        Service(char type, int id, int cost) {
+            this.type = type;
+            this.id = id;
+            this.cost = cost;
+        }
+    }
+
+    // Menor limite de tempo por dia quando a leitura e a análise já consumiram o orçamento
+    private static final double MIN_DAY_TIME_LIMIT = 1.0;
+
+    private final CplexData data;
+    private final int days;
+    private final List<Service> services = new ArrayList<>();
+    private final long[] loads;
+
+    public PeriodicPlanner(CplexData data, int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("O horizonte precisa de ao menos 1 dia: " + days);
+        }
+        this.data = data;
+        this.days = days;
+        this.loads = new long[days];
+        for (Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {
+            services.add(new Service('N', entry.getKey(), entry.getValue().serviceCost()));
+        }
+        for (Map.Entry<Integer, Arc> entry : data.getReqArcsOg().entrySet()) {
+            services.add(new Service('A', entry.getKey(), entry.getValue().serviceCost()));
+        }
+        for (Map.Entry<Integer, Edge> entry : data.getReqEdges().entrySet()) {
+            services.add(new Service('E', entry.getKey(), entry.getValue().serviceCost()));
+        }
+    }
+
+    /**
+     * Lê as frequências e padrões de um arquivo (formato na documentação da classe).
+     */
+    public void loadFrequencies(String path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) line = line.substring(0, comment);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                String[] tokens = line.split("\\s+");
+                char type = Character.toUpperCase(tokens[0].charAt(0));
+                int next = type == 'N' ? 2 : 3;
+                if (tokens.length <= next) {
+                    throw new IOException("Linha " + lineNumber + " de " + path + " incompleta: " + line);
+                }
+                Service service = type == 'N' ? find(type, Integer.parseInt(tokens[1]), -1)
+                                : find(type, Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]));
+                if (service == null) {
+                    throw new IOException("Linha " + lineNumber + " de " + path + ": serviço inexistente: " + line);
+                }
+
+                service.frequency = Integer.parseInt(tokens[next]);
+                if (service.frequency < 1 || service.frequency > days) {
+                    throw new IOException("Linha " + lineNumber + " de " + path + ": frequência fora de 1.." + days);
+                }
+                for (int t = next + 1; t < tokens.length; t++) {
+                    service.patterns.add(parsePattern(tokens[t], service.frequency, lineNumber));
+                }
+            }
+        }
+    }
+
+    private Service find(char type, int i, int j) {
+        for (Service service : services) {
+            if (service.type != type) continue;
+            switch (type) {
+                case 'N':
+                    if (service.id == i) return service;
+                    break;
+                case 'A': {
+                    Arc arc = data.getReqArcsOg().get(service.id);
+                    if (arc.fromNode() == i && arc.toNode() == j) return service;
+                    break;
+                }
+                default: {
+                    Edge edge = data.getReqEdges().get(service.id);
+                    if ((edge.fromNode() == i && edge.toNode() == j) || (edge.fromNode() == j && edge.toNode() == i)) {
+                        return service;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean[] parsePattern(String token, int frequency, int lineNumber) throws IOException {
+        if (token.length() != days || !token.matches("[01]+")) {
+            throw new IOException("Linha " + lineNumber + ": padrão " + token + " não tem " + days + " dígitos 0/1");
+        }
+        boolean[] pattern = new boolean[days];
+        int ones = 0;
+        for (int d = 0; d < days; d++) {
+            pattern[d] = token.charAt(d) == '1';
+            if (pattern[d]) ones++;
+        }
+        if (ones != frequency) {
+            throw new IOException("Linha " + lineNumber + ": padrão " + token + " não tem " + frequency + " dias");
+        }
+        return pattern;
+    }
+
+    /**
+     * Padrões uniformes da frequência f: f dias espaçados de D/f, para cada dia inicial.
+     */
+    private List<boolean[]> uniformPatterns(int frequency) {
+        Set<String> seen = new HashSet<>();
+        List<boolean[]> patterns = new ArrayList<>();
+        for (int start = 0; start < days; start++) {
+            boolean[] pattern = new boolean[days];
+            for (int i = 0; i < frequency; i++) {
+                pattern[(start + (int) ((long) i * days / frequency)) % days] = true;
+            }
+            StringBuilder key = new StringBuilder();
+            for (boolean day : pattern) {
+                key.append(day ? '1' : '0');
+            }
+            if (seen.add(key.toString())) {
+                patterns.add(pattern);
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Escolhe um padrão por serviço, balanceando a carga diária.
+     */
+    public void assignDays() {
+        List<Service> order = new ArrayList<>(services);
+        order.sort((a, b) -> a.frequency != b.frequency ? Integer.compare(b.frequency, a.frequency)
+                                                         : Integer.compare(b.cost, a.cost));
+        long maxLoad = 0;
+        for (Service service : order) {
+            List<boolean[]> candidates = service.patterns.isEmpty() ? uniformPatterns(service.frequency) : service.patterns;
+
+            boolean[] best = null;
+            long bestMax = Long.MAX_VALUE;
+            long bestSquares = Long.MAX_VALUE;
+            for (boolean[] pattern : candidates) {
+                long newMax = maxLoad;
+                long squares = 0;
+                for (int d = 0; d < days; d++) {
+                    if (!pattern[d]) continue;
+                    long load = loads[d] + service.cost;
+                    newMax = Math.max(newMax, load);
+                    squares += load * load - loads[d] * loads[d];
+                }
+                if (newMax < bestMax || (newMax == bestMax && squares < bestSquares)) {
+                    best = pattern;
+                    bestMax = newMax;
+                    bestSquares = squares;
+                }
+            }
+
+            service.chosen = best;
+            for (int d = 0; d < days; d++) {
+                if (best[d]) loads[d] += service.cost;
+            }
+            maxLoad = bestMax;
+        }
+    }
+
+    /**
+     * Dados do dia d (0..D-1): os serviços do dia sobre o grafo, os arcos e as conversões compartilhados.
+     */
+    public CplexData dayData(int d) {
+        Set<Integer> nodeIds = new LinkedHashSet<>();
+        Set<Integer> arcOgIds = new LinkedHashSet<>();
+        Set<Integer> edgeIds = new LinkedHashSet<>();
+        for (Service service : services) {
+            if (!service.chosen[d]) continue;
+            switch (service.type) {
+                case 'N': nodeIds.add(service.id); break;
+                case 'A': arcOgIds.add(service.id); break;
+                default: edgeIds.add(service.id); break;
+            }
+        }
+        return data.restrictTo(data.getNumVehicles(), nodeIds, arcOgIds, edgeIds);
+    }
+
+    public long getLoad(int d) {
+        return loads[d];
+    }
+
+    /**
+     * Ponto de entrada do comando 'periodic'.
+     * Uso: periodic &lt;inputType&gt; &lt;entrada&gt; &lt;saida&gt; [--days=&lt;D&gt;] [--frequencies=&lt;arquivo&gt;] [--day-parallel=&lt;n&gt;]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.out.println("Uso: periodic <inputType> <entrada> <saida> [--days=<D>] [--frequencies=<arquivo>] [--day-parallel=<n>]");
+            return;
+        }
+        StopWatch stopWatch = StopWatch.createStarted();
+        String inputType = args[0];
+        Map<String, String> options = Tcc.parseOptions(args, 3);
+        int days = Integer.parseInt(options.getOrDefault("days", "7"));
+        if (days < 1) {
+            System.err.println("--days precisa ser ao menos 1 (recebido " + days + ").");
+            return;
+        }
+
+        Tcc tcc = new Tcc();
+        tcc.readInput(args[1], inputType);
+        CplexData data = tcc.preProcess();
+        if (!"off".equals(options.get("analysis")) && !tcc.analyze(data, inputType, false)) {
+            System.out.println("Instância inviável; nenhum dia será resolvido.");
+            System.exit(InstanceAnalyzer.EXIT_INFEASIBLE);
+        }
+        if ("NEARPTP".equalsIgnoreCase(inputType) && !"off".equals(options.get("turn-pruning"))) {
+            new TurnPruning(data).prune();
+        }
+
+        PeriodicPlanner planner = new PeriodicPlanner(data, days);
+        if (options.containsKey("frequencies")) {
+            planner.loadFrequencies(options.get("frequencies"));
+        }
+        planner.assignDays();
+
+        ResourceProfile resources = ResourceProfile.automatic(data, "NEARPTP".equalsIgnoreCase(inputType));
+        if (options.containsKey("resources")) {
+            resources.loadFile(options.get("resources"));
+        }
+        resources.loadOptions(options);
+        ParameterProfile parameters = options.containsKey("params") ? ParameterProfile.fromFile(options.get("params")) : null;
+
+        // Dias resolvidos em rodadas de 'parallel'; o orçamento é dividido entre as rodadas
+        List<Integer> activeDays = new ArrayList<>();
+        List<CplexData> dayData = new ArrayList<>();
+        for (int d = 0; d < days; d++) {
+            CplexData day = planner.dayData(d);
+            dayData.add(day);
+            int count = day.getReqNodes().size() + day.getReqArcsOg().size() + day.getReqEdges().size();
+            System.out.printf("Dia %d: %d serviços, carga %d%n", d + 1, count, planner.getLoad(d));
+            if (count > 0) activeDays.add(d);
+        }
+        int parallel = Math.max(1, Math.min(activeDays.size(),
+                Integer.parseInt(options.getOrDefault("day-parallel", String.valueOf(Math.max(1, resources.getThreads() / 2))))));
+        int threadsPerDay = Math.max(1, resources.getThreads() / parallel);
+        int rounds = Math.max(1, (activeDays.size() + parallel - 1) / parallel);
+        double budget = (resources.getTimeLimitMillis() - stopWatch.getTime(TimeUnit.MILLISECONDS)) / 1000.0 / rounds;
+        if (budget < MIN_DAY_TIME_LIMIT) {
+            System.err.printf("Aviso: orçamento de tempo esgotado antes da resolução (%.1f s por dia); cada dia terá %.0f s.%n",
+                              budget, MIN_DAY_TIME_LIMIT);
+        }
+        double dayTimeLimit = Math.max(budget, MIN_DAY_TIME_LIMIT);
+        System.out.printf("%d dias com serviços, %d em paralelo com %d threads e %.0f s cada%n",
+                          activeDays.size(), parallel, threadsPerDay, dayTimeLimit);
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        List<Future<Solution>> futures = new ArrayList<>();
+        for (int d : activeDays) {
+            CplexData day = dayData.get(d);
+            futures.add(pool.submit(() -> solveDay(day, inputType, options, resources, parameters, dayTimeLimit, threadsPerDay)));
+        }
+
+        Solution merged = new Solution();
+        long objective = 0;
+        int vehicles = 0;
+        long timeToBest = 0;
+        boolean complete = true;
+        try {
+            for (int i = 0; i < activeDays.size(); i++) {
+                int d = activeDays.get(i);
+                Solution solution;
+                try {
+                    solution = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Dia " + (d + 1) + ": erro na resolução: " + e.getCause());
+                    solution = null;
+                }
+                if (solution == null) {
+                    System.out.println("Dia " + (d + 1) + ": sem solução.");
+                    complete = false;
+                    continue;
+                }
+                System.out.printf("Dia %d: custo %d, %d veículos%n", d + 1, solution.getObjectiveValue(), solution.getNumVehiclesUsed());
+                for (Route route : solution.getRoutes()) {
+                    route.setDay(d + 1);
+                    merged.addRoute(route);
+                }
+                objective += solution.getObjectiveValue();
+                vehicles += solution.getNumVehiclesUsed();
+                timeToBest = Math.max(timeToBest, solution.getTimeToBestSolutionMillis());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        merged.setObjectiveValue((int) objective);
+        merged.setNumVehiclesUsed(vehicles);
+        merged.setTotalExecutionTimeMillis(stopWatch.getTime(TimeUnit.MILLISECONDS));
+        merged.setTimeToBestSolutionMillis(timeToBest);
+        tcc.writeOutput(merged, args[2]);
+        System.out.printf("Horizonte de %d dias: custo %d, %d rotas%s. Saída em %s%n", days, objective, vehicles,
+                          complete ? "" : " (dias sem solução omitidos)", args[2]);
+    }
+
+    /**
+     * Resolve um dia em um IloCplex próprio; null se não houver solução.
+     */
+    private static Solution solveDay(CplexData day, String inputType, Map<String, String> options, ResourceProfile resources,
+                                     ParameterProfile parameters, double timeLimit, int threads) throws IloException {
+        StopWatch watch = StopWatch.createStarted();
+        CplexModel model = new CplexModel(day, inputType);
+        model.setQuiet(true);
+        model.setResourceProfile(resources);
+        model.setParameterProfile(parameters);
+        if (options.containsKey("formulation")) {
+            model.setFormulation(options.get("formulation"));
+        }
+        if (options.containsKey("symmetry")) {
+            model.setSymmetry(options.get("symmetry"));
+        }
+        try {
+            if (!model.solveSubProblem(timeLimit, threads)) {
+                return null;
+            }
+            return model.buildSolution(watch.getTime(TimeUnit.MILLISECONDS));
+        } finally {
+            model.end();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package tcc.br;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de uma fase da execução (leitura, pré-processamento, cada família do
+ * modelo, exportação, resolução, extração). Só tem custo com uma gravação ativa, ex.:
+ * java -XX:StartFlightRecording:filename=tcc.jfr -jar target/tcc-1.0.jar ...
+ */
+@Name("tcc.Phase")
+@Label("Fase")
+@Category("TCC")
+@Description("Duração, linhas, colunas, não nulos e variação do heap de uma fase")
+@StackTrace(false)
+class PhaseEvent extends Event {
+    @Label("Fase")
+    String phase;
+
+    @Label("Linhas criadas")
+    long rows;
+
+    @Label("Colunas criadas")
+    long columns;
+
+    @Label("Não nulos criados")
+    long nonZeros;
+
+    @Label("Variação do heap")
+    @DataAmount
+    long heapDelta;
+}
@@ -0,0 +1,308 @@
+package tcc.br;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import ilog.concert.IloException;
+import ilog.concert.IloLPMatrix;
+import ilog.concert.IloNumVar;
+
+import ilog.cplex.IloCplex;
+import ilog.cplex.IloCplex.HeuristicCallback;
+import ilog.cplex.IloCplex.MIPInfoCallback;
+
+/**
+ * Modo de corrida: o modelo é construído uma única vez, exportado e importado em N
+ * instâncias do IloCplex, cada uma com um ParameterProfile diferente, resolvidas em
+ * paralelo com o orçamento de threads dividido entre elas.
+ * <p>A melhor incumbente é compartilhada: cada competidor publica suas melhorias e
+ * injeta, via HeuristicCallback, incumbentes melhores publicadas pelos outros.
+ * O uso desse callback desativa a busca dinâmica do CPLEX nos competidores.
+ * <p>A corrida termina na primeira prova de otimalidade (os demais são abortados)
+ * ou no limite de tempo. A melhor solução é carregada no modelo original para
+ * montar a saída.
+ */
+public class PortfolioRacer {
+    /**
+     * Incumbente compartilhada, com valores na ordem de CplexModel.getAllVariables().
+     */
+    private static class SharedIncumbent {
+        final double objValue;
+        final double[] values;
+        final String source;
+        final long foundAtMillis;
+
+        SharedIncumbent(double objValue, double[] values, String source, long foundAtMillis) {
+            this.objValue = objValue;
+            this.values = values;
+            this.source = source;
+            this.foundAtMillis = foundAtMillis;
+        }
+    }
+
+    /**
+     * Um competidor: IloCplex próprio e seu progresso.
+     */
+    private class Racer {
+        final ParameterProfile profile;
+        final IloCplex cplex;
+        final IloNumVar[] vars;                 // alinhado à ordem do modelo original
+        final IloCplex.Aborter aborter = new IloCplex.Aborter();
+
+        volatile double bestObj = Double.MAX_VALUE;
+        volatile double bestBound = -Double.MAX_VALUE;
+        volatile long nodes;
+        volatile long timeToBestMillis;
+        volatile String status = "-";
+        volatile SharedIncumbent lastInjected;
+
+        Racer(ParameterProfile profile, String modelFile) throws IloException {
+            this.profile = profile;
+            this.cplex = new IloCplex();
+            this.cplex.importModel(modelFile);
+            this.cplex.setOut(null);
+            this.cplex.setWarning(null);
+            this.vars = alignVariables(cplex);
+        }
+    }
+
+    private final CplexModel model;
+    private final List<ParameterProfile> profiles;
+    private final AtomicReference<SharedIncumbent> shared = new AtomicReference<>();
+
+    private final Map<String, Integer> indexByName = new HashMap<>();
+
+    private List<Racer> racers;
+
+    public PortfolioRacer(CplexModel model, List<ParameterProfile> profiles) {
+        this.model = model;
+        this.profiles = profiles;
+    }
+
+    /**
+     * Executa a corrida e retorna a solução montada pelo modelo original.
+     * @param stopWatch O cronômetro global da aplicação.
+     */
+    public Solution run(StopWatch stopWatch) {
+        ExecutorService pool = null;
+        File modelFile = null;
+        try {
+            model.build();
+            model.configure(stopWatch);
+
+            IloNumVar[] vars = model.getAllVariables();
+            for (int i = 0; i < vars.length; i++) {
+                indexByName.put(vars[i].getName(), i);
+            }
+
+            modelFile = File.createTempFile("tcc-race", ".sav");
+            model.exportModel(modelFile.getAbsolutePath());
+
+            ResourceProfile resources = model.getResourceProfile();
+            int threads = Math.max(1, resources.getThreads() / profiles.size());
+            double timeLimit = model.getRemainingTime(stopWatch);
+
+            this.racers = new ArrayList<>();
+            for (int i = 0; i < profiles.size(); i++) {
+                Racer racer = new Racer(profiles.get(i), modelFile.getAbsolutePath());
+                resources.apply(racer.cplex, threads);
+                racer.profile.apply(racer.cplex);
+                racer.cplex.setParam(IloCplex.Param.Threads, threads);
+                racer.cplex.setParam(IloCplex.Param.TimeLimit, timeLimit);
+                racer.cplex.setParam(IloCplex.Param.RandomSeed, 201903 + i);
+                racer.cplex.use(racer.aborter);
+                attachCallbacks(racer, stopWatch);
+                racers.add(racer);
+            }
+
+            System.out.println("\nCorrida: " + racers.size() + " competidores, " + threads + " thread(s) cada, limite " + Math.round(timeLimit) + "s");
+
+            pool = Executors.newFixedThreadPool(racers.size());
+            List<Future<?>> futures = new ArrayList<>();
+            for (Racer racer : racers) {
+                futures.add(pool.submit(() -> race(racer, stopWatch)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            Racer winner = selectWinner();
+            printReport(winner);
+
+            SharedIncumbent best = shared.get();
+            if (best == null) {
+                System.err.println("Corrida: nenhum competidor encontrou solução.");
+                return model.finish(false, stopWatch);
+            }
+
+            double bound = -Double.MAX_VALUE;
+            for (Racer racer : racers) {
+                bound = Math.max(bound, racer.bestBound);       // todos resolvem o mesmo modelo
+            }
+            boolean solved = model.solveFromStart(vars, best.values, best.foundAtMillis,
+                                                  model.getRemainingTime(stopWatch), winner.status, bound);
+            return model.finish(solved, stopWatch);
+
+        } catch (IloException e) {
+            System.err.println("Um erro de CPLEX ocorreu durante a corrida:");
+            e.printStackTrace();
+        } catch (Exception e) {
+            System.err.println("Um erro inesperado ocorreu durante a corrida:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            if (racers != null) {
+                for (Racer racer : racers) {
+                    racer.cplex.end();
+                }
+            }
+            if (modelFile != null) {
+                modelFile.delete();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve um competidor e, se ele provar otimalidade, aborta os demais.
+     */
+    @SuppressWarnings("try")
+    private void race(Racer racer, StopWatch stopWatch) {
+        try (Instrumentation.Phase phase = Instrumentation.phase("solve.race")) {
+            racer.cplex.solve();
+            racer.status = String.valueOf(racer.cplex.getStatus());
+            if (racer.cplex.getStatus() == IloCplex.Status.Optimal) {
+                System.out.println("Corrida: [" + racer.profile.getName() + "] provou otimalidade em "
+                                   + stopWatch.getTime(TimeUnit.MILLISECONDS) + " ms");
+                for (Racer other : racers) {
+                    if (other != racer) {
+                        other.aborter.abort();
+                    }
+                }
+            }
+        } catch (IloException e) {
+            racer.status = "Erro: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Progresso e publicação de incumbentes (MIPInfoCallback) e injeção de
+     * incumbentes de outros competidores (HeuristicCallback).
+     */
+    private void attachCallbacks(Racer racer, StopWatch stopWatch) throws IloException {
+        racer.cplex.use(new MIPInfoCallback() {
+            @Override
+            protected void main() throws IloException {
+                racer.bestBound = getBestObjValue();
+                racer.nodes = getNnodes64();
+                if (hasIncumbent()) {
+                    double obj = getIncumbentObjValue();
+                    if (obj < racer.bestObj - 1e-6) {
+                        racer.bestObj = obj;
+                        racer.timeToBestMillis = stopWatch.getTime(TimeUnit.MILLISECONDS);
+                        publish(racer, obj, getIncumbentValues(racer.vars));
+                    }
+                }
+            }
+        });
+
+        racer.cplex.use(new HeuristicCallback() {
+            @Override
+            protected void main() throws IloException {
+                SharedIncumbent best = shared.get();
+                if (best == null || best == racer.lastInjected || best.source.equals(racer.profile.getName())) {
+                    return;
+                }
+                double own = hasIncumbent() ? getIncumbentObjValue() : Double.MAX_VALUE;
+                racer.lastInjected = best;
+                if (best.objValue < own - 1e-6) {
+                    setSolution(racer.vars, best.values);
+                }
+            }
+        });
+    }
+
+    /**
+     * Publica uma incumbente se ela melhora a compartilhada.
+     */
+    private void publish(Racer racer, double obj, double[] values) {
+        SharedIncumbent candidate = new SharedIncumbent(obj, values, racer.profile.getName(), racer.timeToBestMillis);
+        SharedIncumbent current;
+        do {
+            current = shared.get();
+            if (current != null && current.objValue <= obj + 1e-6) {
+                return;
+            }
+        } while (!shared.compareAndSet(current, candidate));
+
+        System.out.println("Corrida: [" + racer.profile.getName() + "] incumbente " + Math.round(obj)
+                           + " em " + racer.timeToBestMillis + " ms");
+    }
+
+    /**
+     * Alinha as variáveis do modelo importado à ordem do modelo original, pelo nome.
+     */
+    private IloNumVar[] alignVariables(IloCplex cplex) throws IloException {
+        IloNumVar[] aligned = new IloNumVar[indexByName.size()];
+        Iterator<?> it = cplex.LPMatrixIterator();
+        while (it.hasNext()) {
+            IloLPMatrix matrix = (IloLPMatrix) it.next();
+            for (IloNumVar var : matrix.getNumVars()) {
+                Integer index = indexByName.get(var.getName());
+                if (index != null) {
+                    aligned[index] = var;
+                }
+            }
+        }
+        for (int i = 0; i < aligned.length; i++) {
+            if (aligned[i] == null) {
+                throw new IloException("Variável ausente no modelo importado (índice " + i + ")");
+            }
+        }
+        return aligned;
+    }
+
+    /**
+     * Vencedor: quem provou otimalidade; senão a melhor incumbente; empate pelo melhor limitante.
+     */
+    private Racer selectWinner() {
+        Racer winner = null;
+        for (Racer racer : racers) {
+            if ("Optimal".equals(racer.status)) {
+                return racer;
+            }
+            if (winner == null || racer.bestObj < winner.bestObj - 1e-6
+                    || (Math.abs(racer.bestObj - winner.bestObj) <= 1e-6 && racer.bestBound > winner.bestBound)) {
+                winner = racer;
+            }
+        }
+        return winner;
+    }
+
+    private void printReport(Racer winner) {
+        System.out.println("\nCorrida concluída. Perfil escolhido: " + winner.profile.getName());
+        System.out.printf("  %-14s %-12s %12s %12s %8s %10s %12s%n",
+                          "perfil", "estado", "incumbente", "limitante", "gap(%)", "nós", "t_melhor(ms)");
+        for (Racer racer : racers) {
+            boolean hasSol = racer.bestObj < Double.MAX_VALUE;
+            double gap = hasSol ? 100.0 * (racer.bestObj - racer.bestBound) / Math.max(1e-10, Math.abs(racer.bestObj)) : Double.NaN;
+            System.out.printf("  %-14s %-12s %12s %12.1f %8.2f %10d %12d%n",
+                              racer.profile.getName(), racer.status,
+                              hasSol ? String.valueOf(Math.round(racer.bestObj)) : "-",
+                              racer.bestBound, gap, racer.nodes, racer.timeToBestMillis);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package tcc.br;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita uma ação periódica chamada por várias threads (callbacks do CPLEX) a uma vez por
+ * intervalo; a primeira chamada sempre passa. Os instantes são relativos ao início da
+ * resolução, em milissegundos.
+ */
+final class RateLimiter {
+    private final long intervalMillis;
+    private final AtomicLong lastMillis;
+
+    RateLimiter(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        this.lastMillis = new AtomicLong(-intervalMillis);
+    }
+
+    /**
+     * True se o intervalo desde a última vez tiver passado; só uma thread vence a disputa.
+     */
+    boolean tryAcquire(long timeMillis) {
+        long last = lastMillis.get();
+        return timeMillis - last >= intervalMillis && lastMillis.compareAndSet(last, timeMillis);
+    }
+
+    /**
+     * Reinicia a contagem do intervalo (ex.: um evento fora da cadência já foi registrado).
+     */
+    void reset(long timeMillis) {
+        lastMillis.set(timeMillis);
+    }
+}
@@ -0,0 +1,516 @@
+package tcc.br;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import ilog.concert.IloException;
+
+/**
+ * Guarda o modelo em memória, em vetores primitivos (linhas em CSR), sem o CPLEX: a
+ * construção pode ser medida e conferida em máquinas sem a biblioteca nativa.
+ * <p>Calcula estatísticas (colunas por tipo e família, linhas por sentido e família, não
+ * nulos, faixas de coeficientes) e escreve o modelo em MPS livre ou LP, linha a linha
+ * sobre os vetores, sem montar o arquivo em memória. O MPS percorre as colunas pela
+ * transposta das linhas; no LP, linhas com os dois limites finitos e distintos viram um
+ * par nome_lo (>=) e nome_hi (<=).
+ */
+public class RecordingBackend implements ModelBackend {
+    private static final double INFINITY = 1e20;        // |v| >= 1e20 é infinito, como no CPLEX
+
+    // Colunas
+    private final List<String> columnNames = new ArrayList<>();
+    private double[] columnLb = new double[1024];
+    private double[] columnUb = new double[1024];
+    private byte[] columnType = new byte[1024];
+    private double[] cost = new double[1024];
+
+    // Linhas em CSR: termos da linha r em [rowStart[r], rowStart[r+1])
+    private final List<String> rowNames = new ArrayList<>();
+    private double[] rowLb = new double[1024];
+    private double[] rowUb = new double[1024];
+    private int[] rowStart = new int[1025];
+    private int[] termColumn = new int[4096];
+    private double[] termCoef = new double[4096];
+    private int objectiveTerms;
+
+    private String name = "tcc";
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public int addColumn(String name, double lb, double ub, ColumnType type) {
+        int c = columnNames.size();
+        if (c == columnLb.length) {
+            int capacity = c * 2;
+            columnLb = Arrays.copyOf(columnLb, capacity);
+            columnUb = Arrays.copyOf(columnUb, capacity);
+            columnType = Arrays.copyOf(columnType, capacity);
+            cost = Arrays.copyOf(cost, capacity);
+        }
+        columnNames.add(name);
+        columnLb[c] = lb;
+        columnUb[c] = ub;
+        columnType[c] = (byte) type.ordinal();
+        return c;
+    }
+
+    @Override
+    public void setColumnBounds(int column, double lb, double ub) {
+        columnLb[column] = lb;
+        columnUb[column] = ub;
+    }
+
+    @Override
+    public int addRow(String name, double lb, LinearExpr expr, double ub) {
+        expr.compact();
+        int r = rowNames.size();
+        if (r == rowLb.length) {
+            rowLb = Arrays.copyOf(rowLb, r * 2);
+            rowUb = Arrays.copyOf(rowUb, r * 2);
+            rowStart = Arrays.copyOf(rowStart, r * 2 + 1);
+        }
+        int start = rowStart[r];
+        int end = start + expr.size();
+        if (end > termColumn.length) {
+            int capacity = Math.max(end, termColumn.length * 2);
+            termColumn = Arrays.copyOf(termColumn, capacity);
+            termCoef = Arrays.copyOf(termCoef, capacity);
+        }
+        for (int t = 0; t < expr.size(); t++) {
+            termColumn[start + t] = expr.column(t);
+            termCoef[start + t] = expr.coef(t);
+        }
+        rowNames.add(name);
+        rowLb[r] = lb;
+        rowUb[r] = ub;
+        rowStart[r + 1] = end;
+        return r;
+    }
+
+    @Override
+    public void setObjective(LinearExpr expr) {
+        expr.compact();
+        Arrays.fill(cost, 0.0);
+        for (int t = 0; t < expr.size(); t++) {
+            cost[expr.column(t)] = expr.coef(t);
+        }
+        objectiveTerms = expr.size();
+    }
+
+    @Override
+    public int getNumColumns() {
+        return columnNames.size();
+    }
+
+    @Override
+    public int getNumRows() {
+        return rowNames.size();
+    }
+
+    @Override
+    public long getNonZeros() {
+        return rowStart[rowNames.size()];
+    }
+
+    /**
+     * Bytes aproximados dos vetores e nomes guardados.
+     */
+    public long approximateBytes() {
+        long bytes = (long) columnLb.length * (8 + 8 + 1 + 8) + (long) rowLb.length * (8 + 8 + 4)
+                     + (long) termColumn.length * (4 + 8);
+        for (String n : columnNames) {
+            bytes += 40 + n.length();
+        }
+        for (String n : rowNames) {
+            bytes += 40 + n.length();
+        }
+        return bytes;
+    }
+
+    // --- Estatísticas ---
+
+    /**
+     * Família de uma coluna ("x(0,1,2)" -> "x") ou linha ("Flow_Cons_0_5" -> "Flow_Cons").
+     */
+    static String family(String name) {
+        int paren = name.indexOf('(');
+        if (paren > 0) return name.substring(0, paren);
+        for (int i = 0; i + 1 < name.length(); i++) {
+            char next = name.charAt(i + 1);
+            if (name.charAt(i) == '_' && (Character.isDigit(next) || next == '-')) {
+                return name.substring(0, i);
+            }
+        }
+        return name;
+    }
+
+    private static boolean infinite(double v) {
+        return Math.abs(v) >= INFINITY;
+    }
+
+    private char sense(int r) {
+        boolean hasLb = !infinite(rowLb[r]);
+        boolean hasUb = !infinite(rowUb[r]);
+        if (hasLb && hasUb) return rowLb[r] == rowUb[r] ? 'E' : 'R';
+        if (hasUb) return 'L';
+        if (hasLb) return 'G';
+        return 'N';
+    }
+
+    public void printStatistics() {
+        int n = columnNames.size();
+        int m = rowNames.size();
+        long nnz = getNonZeros();
+
+        int[] byType = new int[ColumnType.values().length];
+        int fixed = 0;
+        Map<String, int[]> columnFamilies = new TreeMap<>();
+        for (int c = 0; c < n; c++) {
+            byType[columnType[c]]++;
+            if (columnLb[c] == columnUb[c]) fixed++;
+            columnFamilies.computeIfAbsent(family(columnNames.get(c)), f -> new int[1])[0]++;
+        }
+
+        Map<Character, Integer> bySense = new TreeMap<>();
+        Map<String, long[]> rowFamilies = new TreeMap<>();     // {linhas, não nulos}
+        int longest = 0;
+        double minCoef = Double.MAX_VALUE, maxCoef = 0;
+        for (int r = 0; r < m; r++) {
+            bySense.merge(sense(r), 1, Integer::sum);
+            int length = rowStart[r + 1] - rowStart[r];
+            long[] family = rowFamilies.computeIfAbsent(family(rowNames.get(r)), f -> new long[2]);
+            family[0]++;
+            family[1] += length;
+            longest = Math.max(longest, length);
+            for (int t = rowStart[r]; t < rowStart[r + 1]; t++) {
+                double a = Math.abs(termCoef[t]);
+                if (a == 0) continue;
+                minCoef = Math.min(minCoef, a);
+                maxCoef = Math.max(maxCoef, a);
+            }
+        }
+
+        System.out.printf("Colunas: %d (binárias %d, inteiras %d, contínuas %d; %d fixadas)%n", n,
+                          byType[ColumnType.BINARY.ordinal()], byType[ColumnType.INTEGER.ordinal()],
+                          byType[ColumnType.CONTINUOUS.ordinal()], fixed);
+        for (Map.Entry<String, int[]> entry : columnFamilies.entrySet()) {
+            System.out.printf("  %-20s %10d%n", entry.getKey(), entry.getValue()[0]);
+        }
+        System.out.printf("Linhas: %d %s; não nulos: %d (média %.1f, máximo %d por linha); objetivo: %d termos%n",
+                          m, bySense, nnz, m == 0 ? 0.0 : (double) nnz / m, longest, objectiveTerms);
+        for (Map.Entry<String, long[]> entry : rowFamilies.entrySet()) {
+            System.out.printf("  %-20s %10d linhas %12d não nulos%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+        }
+        if (maxCoef > 0) {
+            System.out.printf("Coeficientes: [%s, %s]%n", number(minCoef), number(maxCoef));
+        }
+        System.out.printf("Memória do modelo gravado: %.1f MB%n", approximateBytes() / (1024.0 * 1024.0));
+    }
+
+    // --- Exportação ---
+
+    /**
+     * Escreve em MPS (.mps) ou LP (.lp), pela extensão do arquivo.
+     */
+    public void write(String path) throws IOException {
+        boolean lp = path.toLowerCase().endsWith(".lp");
+        if (!lp && !path.toLowerCase().endsWith(".mps")) {
+            throw new IllegalArgumentException("Formato de exportação desconhecido: " + path + " (use .mps ou .lp)");
+        }
+        try (Writer out = new BufferedWriter(new FileWriter(path), 1 << 16)) {
+            if (lp) {
+                writeLp(out);
+            } else {
+                writeMps(out);
+            }
+        }
+    }
+
+    /**
+     * MPS livre: colunas agrupadas (transposta das linhas), marcadores de inteiras e
+     * limites explícitos das inteiras, cujo padrão varia entre leitores.
+     */
+    public void writeMps(Writer out) throws IOException {
+        int n = columnNames.size();
+        int m = rowNames.size();
+
+        out.write("NAME " + name + "\nROWS\n N obj\n");
+        for (int r = 0; r < m; r++) {
+            char sense = sense(r);
+            out.write(" " + (sense == 'R' ? 'E' : sense) + " " + rowNames.get(r) + "\n");
+        }
+
+        // Transposta: linhas de cada coluna em [colStart[c], colStart[c+1])
+        int nnz = rowStart[m];
+        int[] colStart = new int[n + 1];
+        for (int t = 0; t < nnz; t++) {
+            colStart[termColumn[t] + 1]++;
+        }
+        for (int c = 0; c < n; c++) {
+            colStart[c + 1] += colStart[c];
+        }
+        int[] fill = Arrays.copyOf(colStart, n);
+        int[] colRow = new int[nnz];
+        double[] colCoef = new double[nnz];
+        for (int r = 0; r < m; r++) {
+            for (int t = rowStart[r]; t < rowStart[r + 1]; t++) {
+                int p = fill[termColumn[t]]++;
+                colRow[p] = r;
+                colCoef[p] = termCoef[t];
+            }
+        }
+
+        out.write("COLUMNS\n");
+        boolean integer = false;
+        int markers = 0;
+        for (int c = 0; c < n; c++) {
+            boolean isInteger = columnType[c] != ColumnType.CONTINUOUS.ordinal();
+            if (isInteger != integer) {
+                out.write(" M" + (markers++) + " 'MARKER' '" + (isInteger ? "INTORG" : "INTEND") + "'\n");
+                integer = isInteger;
+            }
+            String column = columnNames.get(c);
+            if (cost[c] != 0 || colStart[c] == colStart[c + 1]) {
+                out.write(" " + column + " obj " + number(cost[c]) + "\n");
+            }
+            for (int p = colStart[c]; p < colStart[c + 1]; p++) {
+                out.write(" " + column + " " + rowNames.get(colRow[p]) + " " + number(colCoef[p]) + "\n");
+            }
+        }
+        if (integer) {
+            out.write(" M" + markers + " 'MARKER' 'INTEND'\n");
+        }
+
+        out.write("RHS\n");
+        for (int r = 0; r < m; r++) {
+            char sense = sense(r);
+            double rhs = sense == 'L' ? rowUb[r] : sense == 'N' ? 0 : rowLb[r];
+            if (rhs != 0) {
+                out.write(" rhs " + rowNames.get(r) + " " + number(rhs) + "\n");
+            }
+        }
+
+        boolean ranges = false;
+        for (int r = 0; r < m; r++) {
+            if (sense(r) != 'R') continue;
+            if (!ranges) {
+                out.write("RANGES\n");
+                ranges = true;
+            }
+            out.write(" rng " + rowNames.get(r) + " " + number(rowUb[r] - rowLb[r]) + "\n");
+        }
+
+        out.write("BOUNDS\n");
+        for (int c = 0; c < n; c++) {
+            String column = columnNames.get(c);
+            double lb = columnLb[c];
+            double ub = columnUb[c];
+            if (columnType[c] == ColumnType.BINARY.ordinal() && lb == 0 && ub == 1) {
+                out.write(" BV bnd " + column + "\n");
+            } else if (lb == ub) {
+                out.write(" FX bnd " + column + " " + number(lb) + "\n");
+            } else {
+                boolean integerColumn = columnType[c] != ColumnType.CONTINUOUS.ordinal();
+                if (infinite(lb)) {
+                    out.write(" MI bnd " + column + "\n");
+                } else if (lb != 0) {
+                    out.write(" LO bnd " + column + " " + number(lb) + "\n");
+                }
+                if (!infinite(ub)) {
+                    out.write(" UP bnd " + column + " " + number(ub) + "\n");
+                } else if (integerColumn) {
+                    out.write(" PL bnd " + column + "\n");
+                }
+            }
+        }
+        out.write("ENDATA\n");
+    }
+
+    /**
+     * LP do CPLEX: objetivo, restrições, limites não padrão, inteiras e binárias.
+     */
+    public void writeLp(Writer out) throws IOException {
+        int n = columnNames.size();
+        int m = rowNames.size();
+
+        out.write("\\Problem name: " + name + "\n\nMinimize\n obj:");
+        int written = 0;
+        for (int c = 0; c < n; c++) {
+            if (cost[c] == 0) continue;
+            written = term(out, cost[c], columnNames.get(c), written);
+        }
+        if (written == 0) {
+            writeZero(out);
+        }
+
+        out.write("\nSubject To\n");
+        for (int r = 0; r < m; r++) {
+            char sense = sense(r);
+            if (sense == 'N') continue;
+            if (sense == 'R') {
+                writeLpRow(out, r, rowNames.get(r) + "_lo", ">=", rowLb[r]);
+                writeLpRow(out, r, rowNames.get(r) + "_hi", "<=", rowUb[r]);
+            } else {
+                writeLpRow(out, r, rowNames.get(r), sense == 'E' ? "=" : sense == 'L' ? "<=" : ">=",
+                           sense == 'L' ? rowUb[r] : rowLb[r]);
+            }
+        }
+
+        out.write("Bounds\n");
+        for (int c = 0; c < n; c++) {
+            String column = columnNames.get(c);
+            double lb = columnLb[c];
+            double ub = columnUb[c];
+            boolean binary = columnType[c] == ColumnType.BINARY.ordinal() && lb == 0 && ub == 1;
+            if (binary || (lb == 0 && infinite(ub))) continue;
+            if (lb == ub) {
+                out.write(" " + column + " = " + number(lb) + "\n");
+            } else {
+                out.write(" " + (infinite(lb) ? "-inf" : number(lb)) + " <= " + column + " <= "
+                          + (infinite(ub) ? "+inf" : number(ub)) + "\n");
+            }
+        }
+
+        writeLpSection(out, "Generals", c -> columnType[c] == ColumnType.INTEGER.ordinal()
+                                             || (columnType[c] == ColumnType.BINARY.ordinal() && !(columnLb[c] == 0 && columnUb[c] == 1)));
+        writeLpSection(out, "Binaries", c -> columnType[c] == ColumnType.BINARY.ordinal() && columnLb[c] == 0 && columnUb[c] == 1);
+        out.write("End\n");
+    }
+
+    private void writeLpRow(Writer out, int r, String rowName, String sense, double rhs) throws IOException {
+        out.write(" " + rowName + ":");
+        int written = 0;
+        for (int t = rowStart[r]; t < rowStart[r + 1]; t++) {
+            written = term(out, termCoef[t], columnNames.get(termColumn[t]), written);
+        }
+        if (written == 0) {
+            writeZero(out);
+        }
+        out.write(" " + sense + " " + number(rhs) + "\n");
+    }
+
+    /**
+     * Expressão vazia: termo nulo na primeira coluna, ou só a constante se não há colunas.
+     */
+    private void writeZero(Writer out) throws IOException {
+        out.write(columnNames.isEmpty() ? " 0" : " 0 " + columnNames.get(0));
+    }
+
+    private interface ColumnFilter {
+        boolean accept(int column);
+    }
+
+    private void writeLpSection(Writer out, String title, ColumnFilter filter) throws IOException {
+        boolean open = false;
+        int inLine = 0;
+        for (int c = 0; c < columnNames.size(); c++) {
+            if (!filter.accept(c)) continue;
+            if (!open) {
+                out.write(title + "\n");
+                open = true;
+            }
+            out.write(" " + columnNames.get(c));
+            if (++inLine == 10) {
+                out.write("\n");
+                inLine = 0;
+            }
+        }
+        if (inLine > 0) {
+            out.write("\n");
+        }
+    }
+
+    /**
+     * Escreve " + a nome" (ou " - a nome"), quebrando a linha a cada 8 termos (o LP limita o
+     * comprimento das linhas).
+     */
+    private static int term(Writer out, double coef, String column, int written) throws IOException {
+        if (written > 0 && written % 8 == 0) {
+            out.write("\n   ");
+        }
+        out.write(coef < 0 ? " - " : written == 0 ? " " : " + ");
+        double a = Math.abs(coef);
+        if (a != 1) {
+            out.write(number(a) + " ");
+        }
+        out.write(column);
+        return written + 1;
+    }
+
+    private static String number(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) {
+            return Long.toString((long) v);
+        }
+        return Double.toString(v);
+    }
+
+    /**
+     * Ponto de entrada do comando 'model': constrói o modelo sem o CPLEX, imprime as
+     * estatísticas e, com --export, escreve o MPS ou LP.
+     * Uso: model &lt;inputType&gt; &lt;instância&gt; [--export=&lt;arquivo.mps|.lp&gt;] [--formulation=...] [--symmetry=...]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Uso: model <inputType> <instância> [--export=<arquivo.mps|.lp>] [--formulation=node|linegraph] [--symmetry=...] [--turn-pruning=off]");
+            return;
+        }
+        String inputType = args[0];
+        Map<String, String> options = Tcc.parseOptions(args, 2);
+        String export = options.get("export");
+        if (export != null && !export.toLowerCase().endsWith(".mps") && !export.toLowerCase().endsWith(".lp")) {
+            System.err.println("Formato de exportação desconhecido: " + export + " (use .mps ou .lp)");
+            return;
+        }
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        Tcc tcc = new Tcc();
+        tcc.readInput(args[1], inputType);
+        CplexData data = tcc.preProcess();
+        if ("NEARPTP".equalsIgnoreCase(inputType) && !"off".equals(options.get("turn-pruning"))) {
+            new TurnPruning(data).prune();
+        }
+        long loadMillis = stopWatch.getTime(TimeUnit.MILLISECONDS);
+
+        RecordingBackend backend = new RecordingBackend();
+        backend.setName(tcc.getInstanceName());
+        CplexModel model = new CplexModel(data, inputType, backend);
+        model.setQuiet(true);
+        if (options.containsKey("formulation")) {
+            model.setFormulation(options.get("formulation"));
+        }
+        if (options.containsKey("symmetry")) {
+            model.setSymmetry(options.get("symmetry"));
+        }
+        stopWatch.reset();
+        stopWatch.start();
+        try {
+            model.build();
+        } catch (IloException e) {
+            throw new IOException("Erro ao construir o modelo", e);
+        }
+        long buildMillis = stopWatch.getTime(TimeUnit.MILLISECONDS);
+
+        System.out.printf("Modelo de %s (%s, formulação %s, simetria %s): leitura %d ms, construção %d ms%n",
+                          tcc.getInstanceName(), inputType, model.getFormulation(), model.getSymmetry(), loadMillis, buildMillis);
+        backend.printStatistics();
+
+        if (export != null) {
+            stopWatch.reset();
+            stopWatch.start();
+            backend.write(export);
+            System.out.printf("Modelo escrito em %s (%d ms)%n", export, stopWatch.getTime(TimeUnit.MILLISECONDS));
+        }
+    }
+}
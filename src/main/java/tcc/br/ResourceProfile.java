@@ -0,0 +1,241 @@
+package tcc.br;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Map;
+import java.util.Properties;
+
+import ilog.concert.IloException;
+
+import ilog.cplex.IloCplex;
+
+/**
+ * Perfil de recursos da resolução: tempo, threads, memória de trabalho, arquivos de nó,
+ * modo paralelo e comportamento em emergência de memória.
+ * <p>Os valores são resolvidos em camadas: padrões automáticos (tamanho da instância,
+ * núcleos e memória física), depois um arquivo .properties e por fim opções da linha
+ * de comando.
+ * <p>Chaves aceitas (arquivo e CLI, com "--" na CLI): time-limit (s), threads (0 = todos
+ * os núcleos), workmem (MB), nodefile (0..3, MIP.Strategy.File), nodefile-dir,
+ * parallel (deterministic, opportunistic ou auto), memory-emphasis (true/false),
+ * tree-memory (MB; 0 = sem limite).
+ */
+public class ResourceProfile {
+    private static final long MB = 1024L * 1024L;
+
+    // Estimativa grosseira de memória do CPLEX por não nulo da matriz, incluindo presolve e LP (bytes)
+    private static final long NATIVE_BYTES_PER_NNZ = 160;
+
+    private long timeLimitSeconds = 3600;
+    private int threads = 0;
+    private double workMemMb = 2048;
+    private int nodeFileStrategy = 3;           // 3: arquivos de nó em disco, comprimidos
+    private String nodeFileDir = null;
+    private String parallelMode = "auto";
+    private boolean memoryEmphasis = false;
+    private double treeMemoryLimitMb = 0;
+
+    private long estimatedNonZeros;
+
+    /**
+     * Padrões automáticos a partir do tamanho estimado do modelo e da máquina.
+     */
+    public static ResourceProfile automatic(CplexData data, boolean isTurnPenaltiesModel) {
+        ResourceProfile profile = new ResourceProfile();
+
+        long K = data.getNumVehicles();
+        long arcs = data.getArcs().size();
+        long reqArcs = data.getReqArcs().size();
+        long reqNodes = data.getReqNodes().size();
+        long turns = isTurnPenaltiesModel ? data.getTurns().size() : 0;
+
+        // Não nulos por veículo: fluxo (4), tempo (6-9), limites (17, 18) e conversões (14, 15)
+        profile.estimatedNonZeros = K * (10 * arcs + 6 * reqArcs + 3 * reqNodes + 4 * turns) + K * (reqArcs + reqNodes);
+        long modelBytes = profile.estimatedNonZeros * NATIVE_BYTES_PER_NNZ;
+
+        long physical = physicalMemoryBytes();
+        long heap = Runtime.getRuntime().maxMemory();
+        long nativeBudget = physical > 0 ? Math.max(physical - heap - 1024 * MB, 512 * MB) : 4096 * MB;
+
+        // Metade do orçamento nativo, descontado o modelo, para a árvore antes de ir a disco
+        long workMem = (nativeBudget - modelBytes) / 2;
+        profile.workMemMb = Math.max(512, Math.min(workMem / MB, 32768));
+
+        // Modelos que ocupam boa parte da memória nativa: ênfase em memória e limite da árvore
+        if (modelBytes > nativeBudget / 4) {
+            profile.memoryEmphasis = true;
+            profile.treeMemoryLimitMb = Math.max(1024, (nativeBudget - modelBytes) * 8 / 10 / MB);
+        }
+
+        // Instâncias pequenas não compensam muitas threads (sincronização domina)
+        int cores = Runtime.getRuntime().availableProcessors();
+        profile.threads = profile.estimatedNonZeros < 200_000 ? Math.min(cores, 4) : cores;
+
+        return profile;
+    }
+
+    /**
+     * Sobrepõe valores de um arquivo .properties.
+     */
+    public void loadFile(String path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(path)) {
+            properties.load(reader);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            set(key, properties.getProperty(key).trim());
+        }
+    }
+
+    /**
+     * Sobrepõe valores das opções da linha de comando (apenas as chaves conhecidas).
+     */
+    public void loadOptions(Map<String, String> options) {
+        for (Map.Entry<String, String> entry : options.entrySet()) {
+            if (isKey(entry.getKey())) {
+                String value = entry.getValue().isEmpty() ? "true" : entry.getValue();
+                set(entry.getKey(), value);
+            }
+        }
+    }
+
+    private static boolean isKey(String key) {
+        switch (key) {
+            case "time-limit":
+            case "threads":
+            case "workmem":
+            case "nodefile":
+            case "nodefile-dir":
+            case "parallel":
+            case "memory-emphasis":
+            case "tree-memory":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "time-limit":
+                this.timeLimitSeconds = Long.parseLong(value);
+                break;
+            case "threads":
+                this.threads = Integer.parseInt(value);
+                break;
+            case "workmem":
+                this.workMemMb = Double.parseDouble(value);
+                break;
+            case "nodefile":
+                this.nodeFileStrategy = Integer.parseInt(value);
+                break;
+            case "nodefile-dir":
+                this.nodeFileDir = value;
+                break;
+            case "parallel":
+                if (!value.equals("deterministic") && !value.equals("opportunistic") && !value.equals("auto")) {
+                    throw new IllegalArgumentException("Modo paralelo desconhecido: " + value);
+                }
+                this.parallelMode = value;
+                break;
+            case "memory-emphasis":
+                this.memoryEmphasis = Boolean.parseBoolean(value);
+                break;
+            case "tree-memory":
+                this.treeMemoryLimitMb = Double.parseDouble(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Chave de recurso desconhecida: " + key);
+        }
+    }
+
+    /**
+     * Aplica o perfil a um IloCplex com o número de threads resolvido.
+     */
+    public void apply(IloCplex cplex) throws IloException {
+        apply(cplex, getThreads());
+    }
+
+    /**
+     * Aplica o perfil com um número de threads específico (ex.: orçamento dividido).
+     */
+    public void apply(IloCplex cplex, int threadCount) throws IloException {
+        cplex.setParam(IloCplex.Param.Threads, threadCount);
+        cplex.setParam(IloCplex.Param.WorkMem, workMemMb);
+        cplex.setParam(IloCplex.Param.MIP.Strategy.File, nodeFileStrategy);
+        if (nodeFileDir != null) {
+            cplex.setParam(IloCplex.Param.WorkDir, nodeFileDir);
+        }
+        switch (parallelMode) {
+            case "deterministic":
+                cplex.setParam(IloCplex.Param.Parallel, 1);
+                break;
+            case "opportunistic":
+                cplex.setParam(IloCplex.Param.Parallel, -1);
+                break;
+            default:
+                cplex.setParam(IloCplex.Param.Parallel, 0);
+        }
+        cplex.setParam(IloCplex.Param.Emphasis.Memory, memoryEmphasis);
+        if (treeMemoryLimitMb > 0) {
+            cplex.setParam(IloCplex.Param.MIP.Limits.TreeMemory, treeMemoryLimitMb);
+        }
+    }
+
+    /**
+     * Volta aos valores padrão todos os parâmetros que apply() define, para que um arquivo
+     * .prm escrito em seguida traga apenas parâmetros de busca.
+     */
+    public static void clear(IloCplex cplex) throws IloException {
+        cplex.setParam(IloCplex.Param.Threads, cplex.getDefault(IloCplex.Param.Threads));
+        cplex.setParam(IloCplex.Param.WorkMem, cplex.getDefault(IloCplex.Param.WorkMem));
+        cplex.setParam(IloCplex.Param.MIP.Strategy.File, cplex.getDefault(IloCplex.Param.MIP.Strategy.File));
+        cplex.setParam(IloCplex.Param.WorkDir, cplex.getDefault(IloCplex.Param.WorkDir));
+        cplex.setParam(IloCplex.Param.Parallel, cplex.getDefault(IloCplex.Param.Parallel));
+        cplex.setParam(IloCplex.Param.Emphasis.Memory, cplex.getDefault(IloCplex.Param.Emphasis.Memory));
+        cplex.setParam(IloCplex.Param.MIP.Limits.TreeMemory, cplex.getDefault(IloCplex.Param.MIP.Limits.TreeMemory));
+    }
+
+    public void print() {
+        System.out.println("Perfil de recursos:");
+        System.out.println("  Limite de tempo: " + timeLimitSeconds + "s");
+        System.out.println("  Threads: " + getThreads());
+        System.out.println("  WorkMem: " + Math.round(workMemMb) + " MB");
+        System.out.println("  Arquivos de nó: " + nodeFileStrategy + (nodeFileDir != null ? " em " + nodeFileDir : ""));
+        System.out.println("  Modo paralelo: " + parallelMode);
+        System.out.println("  Ênfase em memória: " + memoryEmphasis
+                           + (treeMemoryLimitMb > 0 ? ", limite da árvore " + Math.round(treeMemoryLimitMb) + " MB" : ""));
+        if (estimatedNonZeros > 0) {
+            System.out.println("  Não nulos estimados: " + estimatedNonZeros);
+        }
+    }
+
+    private static long physicalMemoryBytes() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalMemorySize();
+        }
+        return -1;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitSeconds * 1000;
+    }
+
+    /**
+     * Ajusta o limite de tempo (ex.: o que resta do orçamento ao retomar um checkpoint).
+     */
+    public void setTimeLimitMillis(long millis) {
+        this.timeLimitSeconds = Math.max(0, millis / 1000);
+    }
+
+    /**
+     * Número de threads resolvido (0 significa todos os núcleos).
+     */
+    public int getThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
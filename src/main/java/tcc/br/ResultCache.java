@@ -0,0 +1,329 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Cache de resultados endereçado por conteúdo.
+ * <p>A chave é o SHA-256 de uma forma canônica da instância pré-processada (frota,
+ * T_max, depósito, nós, arcos, serviços e conversões, em ordem fixa) e das opções que
+ * influenciam a resolução; arquivos referenciados por opção (--params, --resources)
+ * entram pelo conteúdo. Opções que só observam a execução (telemetria, métricas,
+ * checkpoint, cache) ficam de fora.
+ * <p>Cada entrada tem três arquivos: "&lt;chave&gt;.txt" (a saída, no formato de
+ * writeOutput), "&lt;chave&gt;.plans" (valores inteiros x, z, y, w por veículo) e
+ * "&lt;chave&gt;.properties" (instância, objetivo, estado e conjunto de serviços).
+ * <p>Sem entrada idêntica, a entrada do mesmo tipo e depósito com maior similaridade
+ * de Jaccard entre os conjuntos de serviços serve de partida parcial: os planos são
+ * levados ao novo modelo pelas chaves dos arcos, o que não existe mais é descartado e
+ * o CPLEX repara o restante (ver CplexModel.addWarmStart).
+ */
+public class ResultCache {
+    // Opções que não alteram o resultado
+    private static final Set<String> OBSERVATIONAL = new HashSet<>(Arrays.asList(
+        "telemetry", "telemetry-interval", "metrics", "checkpoint", "resume",
+        "cache", "cache-similarity", "nodefile-dir"));
+
+    // Opções cujo valor é um arquivo: entram pelo conteúdo, não pelo caminho
+    private static final Set<String> FILE_OPTIONS = new HashSet<>(Arrays.asList("params", "resources"));
+
+    /**
+     * Entrada encontrada no cache: idêntica (exact) ou a mais parecida.
+     */
+    public static final class Hit {
+        final String key;
+        final boolean exact;
+        final double similarity;
+        final Properties info;
+        final Path directory;
+
+        Hit(String key, boolean exact, double similarity, Properties info, Path directory) {
+            this.key = key;
+            this.exact = exact;
+            this.similarity = similarity;
+            this.info = info;
+            this.directory = directory;
+        }
+
+        public boolean isExact() {
+            return exact;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public String getInstanceName() {
+            return info.getProperty("instance");
+        }
+
+        public int getObjective() {
+            return Integer.parseInt(info.getProperty("objective"));
+        }
+
+        public String getStatus() {
+            return info.getProperty("status", "");
+        }
+
+        /**
+         * Copia a saída guardada para o caminho pedido.
+         */
+        public void copyOutput(String outputFilePath) throws IOException {
+            Files.copy(directory.resolve(key + ".txt"), Paths.get(outputFilePath), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        public List<VehiclePlan> readPlans() throws IOException {
+            return ResultCache.readPlans(directory.resolve(key + ".plans"));
+        }
+    }
+
+    private final Path directory;
+    private final String inputType;
+    private final String key;
+    private final Set<String> services;
+    private final int depot;
+
+    public ResultCache(String directory, CplexData data, String inputType, Map<String, String> options) throws IOException {
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+        this.inputType = inputType.toUpperCase();
+        this.services = services(data);
+        this.depot = data.getRealDepotNodeId();
+        this.key = sha256(canonicalInstance(data) + "\n#settings\n" + canonicalSettings(options));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    // ------------------------------------------------------------------ consulta
+
+    /**
+     * Entrada idêntica ou, na falta dela, a mais parecida acima de minSimilarity; null se nenhuma.
+     */
+    public Hit lookup(double minSimilarity) throws IOException {
+        Path exact = directory.resolve(key + ".properties");
+        if (Files.exists(exact) && Files.exists(directory.resolve(key + ".txt"))) {
+            return new Hit(key, true, 1.0, read(exact), directory);
+        }
+
+        Hit best = null;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files.filter(p -> p.toString().endsWith(".properties"))::iterator) {
+                Properties info = read(path);
+                if (!inputType.equals(info.getProperty("inputType"))
+                        || depot != Integer.parseInt(info.getProperty("depot", "-1"))) {
+                    continue;
+                }
+                String candidate = path.getFileName().toString().replaceFirst("\\.properties$", "");
+                if (!Files.exists(directory.resolve(candidate + ".plans"))) continue;
+
+                double similarity = jaccard(services, new HashSet<>(Arrays.asList(info.getProperty("services", "").split(" "))));
+                if (similarity >= minSimilarity && (best == null || similarity > best.similarity)) {
+                    best = new Hit(candidate, false, similarity, info, directory);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        int common = 0;
+        for (String s : a) {
+            if (b.contains(s)) common++;
+        }
+        int union = a.size() + b.size() - common;
+        return union == 0 ? 1.0 : (double) common / union;
+    }
+
+    // ------------------------------------------------------------------ gravação
+
+    /**
+     * Guarda a saída já escrita e os planos da solução (podem ser nulos: só acerto exato).
+     */
+    public void store(String instanceName, String outputFilePath, Solution solution, List<VehiclePlan> plans,
+                      String status) throws IOException {
+        Files.copy(Paths.get(outputFilePath), directory.resolve(key + ".txt.tmp"), StandardCopyOption.REPLACE_EXISTING);
+        if (plans != null) {
+            writePlans(directory.resolve(key + ".plans.tmp"), plans);
+        }
+
+        Properties info = new Properties();
+        info.setProperty("instance", instanceName);
+        info.setProperty("inputType", inputType);
+        info.setProperty("depot", String.valueOf(depot));
+        info.setProperty("objective", String.valueOf(solution.getObjectiveValue()));
+        info.setProperty("status", status);
+        info.setProperty("createdAt", String.valueOf(System.currentTimeMillis()));
+        List<String> sorted = new ArrayList<>(services);
+        Collections.sort(sorted);
+        info.setProperty("services", String.join(" ", sorted));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(directory.resolve(key + ".properties.tmp").toFile()))) {
+            info.store(writer, null);
+        }
+
+        // .properties por último: uma entrada só é visível quando completa
+        Files.move(directory.resolve(key + ".txt.tmp"), directory.resolve(key + ".txt"), StandardCopyOption.REPLACE_EXISTING);
+        if (plans != null) {
+            Files.move(directory.resolve(key + ".plans.tmp"), directory.resolve(key + ".plans"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(directory.resolve(key + ".properties.tmp"), directory.resolve(key + ".properties"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Um bloco por veículo: "vehicle &lt;custo&gt;" e linhas "&lt;família&gt; &lt;chave&gt; &lt;valor&gt;".
+     */
+    private static void writePlans(Path path, List<VehiclePlan> plans) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path.toFile()))) {
+            for (VehiclePlan plan : plans) {
+                if (plan.isEmpty()) continue;
+                writer.write("vehicle " + plan.cost);
+                writer.newLine();
+                writeFamily(writer, "x", plan.x);
+                writeFamily(writer, "z", plan.z);
+                writeFamily(writer, "y", plan.y);
+                writeFamily(writer, "w", plan.w);
+            }
+        }
+    }
+
+    private static void writeFamily(BufferedWriter writer, String family, Map<?, Double> values) throws IOException {
+        for (Map.Entry<?, Double> entry : values.entrySet()) {
+            writer.write(family + " " + entry.getKey() + " " + Math.round(entry.getValue()));
+            writer.newLine();
+        }
+    }
+
+    static List<VehiclePlan> readPlans(Path path) throws IOException {
+        List<VehiclePlan> plans = new ArrayList<>();
+        VehiclePlan plan = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(path.toFile()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length < 2) continue;
+                if (fields[0].equals("vehicle")) {
+                    plan = new VehiclePlan();
+                    plan.cost = Integer.parseInt(fields[1]);
+                    plans.add(plan);
+                    continue;
+                }
+                if (plan == null || fields.length < 3) {
+                    throw new IOException("Linha inválida em " + path + ": " + line);
+                }
+                double value = Double.parseDouble(fields[2]);
+                switch (fields[0]) {
+                    case "x": plan.x.put(fields[1], value); break;
+                    case "z": plan.z.put(Integer.parseInt(fields[1]), value); break;
+                    case "y": plan.y.put(fields[1], value); break;
+                    case "w": plan.w.put(fields[1], value); break;
+                    default: throw new IOException("Família desconhecida em " + path + ": " + fields[0]);
+                }
+            }
+        }
+        return plans;
+    }
+
+    // ------------------------------------------------------------------ forma canônica
+
+    /**
+     * Serviços requeridos como "N&lt;i&gt;", "A&lt;i&gt;-&lt;j&gt;" e "E&lt;menor&gt;-&lt;maior&gt;".
+     */
+    static Set<String> services(CplexData data) {
+        Set<String> services = new HashSet<>();
+        for (Integer nodeId : data.getReqNodes().keySet()) {
+            services.add("N" + nodeId);
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            services.add("A" + arc.fromNode() + "-" + arc.toNode());
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            int a = Math.min(edge.fromNode(), edge.toNode());
+            int b = Math.max(edge.fromNode(), edge.toNode());
+            services.add("E" + a + "-" + b);
+        }
+        return services;
+    }
+
+    private String canonicalInstance(CplexData data) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Integer, Node> entry : data.getNodes().entrySet()) {
+            Node node = entry.getValue();
+            lines.add("n " + entry.getKey() + " " + node.demand() + " " + node.serviceCost() + " " + node.isRequired());
+        }
+        for (Arc arc : data.getArcs().values()) {
+            lines.add("a " + arc.fromNode() + " " + arc.toNode() + " " + arc.traversalCost() + " "
+                      + arc.demand() + " " + arc.serviceCost() + " " + arc.isRequired());
+        }
+        for (String service : services) {
+            lines.add("s " + service);
+        }
+        for (Turn turn : data.getTurns().values()) {
+            lines.add("t " + turn.i() + " " + turn.j() + " " + turn.l() + " " + turn.cost());
+        }
+        Collections.sort(lines);
+
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(inputType).append(' ').append(data.getNumVehicles()).append(' ')
+                 .append(data.getCapacity()).append(' ').append(data.getRealDepotNodeId()).append('\n');
+        for (String line : lines) {
+            canonical.append(line).append('\n');
+        }
+        return canonical.toString();
+    }
+
+    private static String canonicalSettings(Map<String, String> options) throws IOException {
+        StringBuilder canonical = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(options).entrySet()) {
+            if (OBSERVATIONAL.contains(entry.getKey())) continue;
+            String value = entry.getValue();
+            if (FILE_OPTIONS.contains(entry.getKey()) && new File(value).isFile()) {
+                value = sha256(new String(Files.readAllBytes(Paths.get(value)), StandardCharsets.UTF_8));
+            }
+            canonical.append(entry.getKey()).append('=').append(value).append('\n');
+        }
+        return canonical.toString();
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static Properties read(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path.toFile()))) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+}
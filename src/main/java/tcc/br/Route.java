@@ -9,6 +9,7 @@ import java.util.List;
 public class Route {
     private int totalDemand;
     private int routeCost;                   // Z_k
+    private int day = 1;                     // dia do horizonte (planejamento periódico)
     private List<RouteSegment> segments;
 
     public Route() {
@@ -38,4 +39,12 @@ public class Route {
     public void setRouteCost(int routeCost) {
         this.routeCost = routeCost;
     }
+
+    public int getDay() {
+        return day;
+    }
+
+    public void setDay(int day) {
+        this.day = day;
+    }
 }
@@ -0,0 +1,411 @@
+package tcc.br;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reconstrói a rota fechada de um veículo a partir dos seus valores (VehiclePlan).
+ * <p>Cada x_ij = 1 e cada unidade de y_ij vira uma travessia do arco (i,j). O circuito
+ * é montado à moda de Hierholzer, mas cada passo é comprometido na hora: um percurso
+ * fechado a partir do depósito e, enquanto sobrarem travessias, subpercursos fechados
+ * emendados no primeiro ponto do circuito que ainda tem saídas.
+ * <p>Sem conversões (NEARP), os percursos andam no multigrafo das travessias. Com w
+ * (NEARP-TP), andam no grafo de linhas: os nós são os arcos e cada unidade de w_ijl é
+ * uma ligação de (i,j) para (j,l), de modo que a sequência emitida segue exatamente as
+ * conversões escolhidas e reproduz o custo delas.
+ * <p>Entre as saídas possíveis, o tempo restante de cada passagem (Z_k menos o tempo já
+ * percorrido na sequência) é comparado ao f residual do arco (f_ij menos o tempo restante
+ * das passagens já comprometidas): vence o arco cuja última passagem é agora, senão o de
+ * maior f residual, o que reproduz a ordem imposta pelo fluxo de tempo.
+ * <p>Os serviços de nó (z) são emitidos na primeira chegada ao nó.
+ */
+public class RouteBuilder {
+    /**
+     * Uma travessia do arco (i,j): serviço (x) ou deadheading (uma unidade de y).
+     */
+    private static final class Copy {
+        final int from;
+        final int to;
+        final boolean service;
+
+        Copy(int from, int to, boolean service) {
+            this.from = from;
+            this.to = to;
+            this.service = service;
+        }
+
+        String arcKey() {
+            return from + "-" + to;
+        }
+    }
+
+    private final CplexData data;
+    private final Map<String, Integer> serviceId;
+
+    public RouteBuilder(CplexData data, Map<String, Integer> serviceId) {
+        this.data = data;
+        this.serviceId = serviceId;
+    }
+
+    /**
+     * Monta a sequência D/S/T do veículo, com demanda total e custo Z_k.
+     */
+    public Route build(VehiclePlan plan) {
+        int depot = data.getRealDepotNodeId();
+        List<Copy> sequence = plan.w.isEmpty() ? null : turnCircuit(plan, depot);
+        if (sequence == null) {
+            if (!plan.w.isEmpty()) {
+                System.err.println("Aviso: as conversões não formam um circuito a partir do depósito; rota montada sem elas.");
+            }
+            sequence = nodeCircuit(plan, depot);
+        }
+        return toRoute(plan, sequence, depot);
+    }
+
+    // --- Circuito no multigrafo das travessias (NEARP) ---
+
+    private List<Copy> nodeCircuit(VehiclePlan plan, int depot) {
+        boolean withTurns = !plan.w.isEmpty();
+        Map<Integer, List<Copy>> outgoing = buildCopies(plan);
+        Map<String, Double> residual = new HashMap<>(plan.f);
+        LinkedList<Copy> circuit = new LinkedList<>();
+
+        // Cursor que só avança: as posições anteriores já não têm saídas, e o tempo
+        // restante e os serviços pendentes são os da posição do cursor
+        ListIterator<Copy> cursor = circuit.listIterator();
+        Set<Integer> pendingNodes = pendingAtStart(plan);
+        double remaining = remainingAtStart(plan);
+        Copy prev = null;
+        int node = depot;
+        while (true) {
+            if (!outgoing.getOrDefault(node, List.of()).isEmpty()) {
+                splice(cursor, nodeTrail(outgoing, residual, node, prev, remaining, pendingNodes, withTurns));
+                continue;
+            }
+            if (!cursor.hasNext()) break;
+            Copy copy = cursor.next();
+            remaining -= stepTime(prev, copy, pendingNodes, withTurns);
+            prev = copy;
+            node = copy.to;
+        }
+
+        int unused = 0;
+        for (List<Copy> copies : outgoing.values()) {
+            unused += copies.size();
+        }
+        if (unused > 0) {
+            System.err.println("Aviso: " + unused + " travessia(s) fora do circuito do depósito (rota desconexa).");
+        }
+        return circuit;
+    }
+
+    private Map<Integer, List<Copy>> buildCopies(VehiclePlan plan) {
+        Map<Integer, List<Copy>> outgoing = new HashMap<>();
+        Set<String> arcKeys = new HashSet<>(plan.x.keySet());
+        arcKeys.addAll(plan.y.keySet());
+
+        for (String arcKey : arcKeys) {
+            String[] ij = arcKey.split("-");
+            int i = Integer.parseInt(ij[0]);
+            int j = Integer.parseInt(ij[1]);
+            int deadheads = (int) Math.round(plan.y.getOrDefault(arcKey, 0.0));
+
+            List<Copy> copies = outgoing.computeIfAbsent(i, key -> new ArrayList<>());
+            if (plan.x.containsKey(arcKey)) {
+                copies.add(new Copy(i, j, true));
+            }
+            for (int t = 0; t < deadheads; t++) {
+                copies.add(new Copy(i, j, false));
+            }
+        }
+        return outgoing;
+    }
+
+    /**
+     * Percurso guloso a partir do nó, consumindo as travessias até não haver saída. O
+     * tempo e os serviços pendentes do cursor são só consultados (restaurados ao final).
+     */
+    private List<Copy> nodeTrail(Map<Integer, List<Copy>> outgoing, Map<String, Double> residual, int node,
+                                 Copy prev, double remaining, Set<Integer> pendingNodes, boolean withTurns) {
+        List<Copy> trail = new ArrayList<>();
+        List<Integer> served = new ArrayList<>();
+        Copy next;
+        while ((next = pickCopy(outgoing.get(node), residual, remaining)) != null) {
+            outgoing.get(node).remove(next);
+            residual.merge(next.arcKey(), -remaining, Double::sum);
+            if (pendingNodes.contains(next.to)) served.add(next.to);
+            remaining -= stepTime(prev, next, pendingNodes, withTurns);
+            trail.add(next);
+            node = next.to;
+            prev = next;
+        }
+        pendingNodes.addAll(served);
+        return trail;
+    }
+
+    /**
+     * Próxima travessia que sai do nó (ver preferred).
+     */
+    private static Copy pickCopy(List<Copy> copies, Map<String, Double> residual, double remaining) {
+        if (copies == null) return null;
+        Copy best = null;
+        double bestF = 0;
+        for (Copy copy : copies) {
+            double f = residual.getOrDefault(copy.arcKey(), 0.0);
+            if (best == null || preferred(copy, f, best, bestF, remaining)) {
+                best = copy;
+                bestF = f;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Emenda o percurso na posição do cursor, que continua antes dele.
+     */
+    private static void splice(ListIterator<Copy> cursor, List<Copy> trail) {
+        for (Copy copy : trail) {
+            cursor.add(copy);
+        }
+        for (int t = 0; t < trail.size(); t++) {
+            cursor.previous();
+        }
+    }
+
+    // --- Circuito no grafo de linhas (NEARP-TP) ---
+
+    /**
+     * Circuito em que passagens consecutivas estão ligadas por uma unidade de w. Null se
+     * as conversões não formam um circuito a partir da saída do depósito; a rota é então
+     * montada sem elas.
+     */
+    private List<Copy> turnCircuit(VehiclePlan plan, int depot) {
+        // Conversões restantes por arco de chegada: "i-j" -> (l -> quantidade)
+        Map<String, Map<Integer, Integer>> turns = new HashMap<>();
+        for (Map.Entry<String, Double> entry : plan.w.entrySet()) {
+            String[] ijl = entry.getKey().split("-");
+            turns.computeIfAbsent(ijl[0] + "-" + ijl[1], key -> new HashMap<>())
+                 .put(Integer.parseInt(ijl[2]), (int) Math.round(entry.getValue()));
+        }
+
+        String departure = null;
+        for (String arcKey : travelledArcs(plan)) {
+            if (Integer.parseInt(arcKey.split("-")[0]) == depot) {
+                departure = arcKey;
+                break;
+            }
+        }
+        if (departure == null) {
+            return null;
+        }
+
+        Map<String, Double> residual = new HashMap<>(plan.f);
+        Set<String> servedArcs = new HashSet<>();
+        Set<Integer> pendingNodes = pendingAtStart(plan);
+        double remaining = remainingAtStart(plan);
+        Copy from = visit(plan, departure, servedArcs);
+        residual.merge(departure, -remaining, Double::sum);
+        remaining -= stepTime(null, from, pendingNodes, true);
+
+        LinkedList<Copy> circuit = new LinkedList<>();
+        circuit.add(from);
+        ListIterator<Copy> cursor = circuit.listIterator();
+        cursor.next();
+
+        // O primeiro percurso volta à saída do depósito pela conversão que fecha a rota;
+        // a partir daí o cursor só avança, sem passar para a volta final
+        boolean expand = true;
+        while (true) {
+            if (expand) {
+                List<Copy> trail = turnTrail(plan, from, turns, residual, servedArcs, remaining, pendingNodes);
+                if (trail.isEmpty() || !trail.get(trail.size() - 1).arcKey().equals(from.arcKey())) {
+                    return null;
+                }
+                splice(cursor, trail);
+            }
+            if (!cursor.hasNext()) break;
+            Copy next = cursor.next();
+            if (!cursor.hasNext()) break;
+            remaining -= stepTime(from, next, pendingNodes, true);
+            from = next;
+            expand = hasTurns(turns, from.arcKey());
+        }
+        circuit.removeLast();                          // a volta à saída do depósito não é uma travessia
+
+        for (Map<Integer, Integer> counts : turns.values()) {
+            for (int count : counts.values()) {
+                if (count > 0) {
+                    System.err.println("Aviso: conversões fora do circuito do depósito (rota desconexa).");
+                    return circuit;
+                }
+            }
+        }
+        return circuit;
+    }
+
+    /**
+     * Percurso guloso no grafo de linhas a partir da passagem 'from', consumindo as
+     * conversões; os serviços pendentes do cursor são restaurados ao final.
+     */
+    private List<Copy> turnTrail(VehiclePlan plan, Copy from, Map<String, Map<Integer, Integer>> turns,
+                                 Map<String, Double> residual, Set<String> servedArcs, double remaining,
+                                 Set<Integer> pendingNodes) {
+        List<Copy> trail = new ArrayList<>();
+        List<Integer> served = new ArrayList<>();
+        Copy prev = from;
+        Copy next;
+        while ((next = pickTurn(plan, prev, turns, residual, servedArcs, remaining)) != null) {
+            residual.merge(next.arcKey(), -remaining, Double::sum);
+            if (pendingNodes.contains(next.to)) served.add(next.to);
+            remaining -= stepTime(prev, next, pendingNodes, true);
+            trail.add(next);
+            prev = next;
+        }
+        pendingNodes.addAll(served);
+        return trail;
+    }
+
+    /**
+     * Consome uma conversão a partir da passagem 'prev' e retorna a passagem seguinte.
+     */
+    private Copy pickTurn(VehiclePlan plan, Copy prev, Map<String, Map<Integer, Integer>> turns,
+                          Map<String, Double> residual, Set<String> servedArcs, double remaining) {
+        Map<Integer, Integer> counts = turns.get(prev.arcKey());
+        if (counts == null) return null;
+        int bestL = -1;
+        double bestF = 0;
+        Copy best = null;
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() <= 0) continue;
+            String arcKey = prev.to + "-" + entry.getKey();
+            Copy candidate = new Copy(prev.to, entry.getKey(), plan.x.containsKey(arcKey) && !servedArcs.contains(arcKey));
+            double f = residual.getOrDefault(arcKey, 0.0);
+            if (best == null || preferred(candidate, f, best, bestF, remaining)) {
+                best = candidate;
+                bestF = f;
+                bestL = entry.getKey();
+            }
+        }
+        if (best == null) return null;
+        counts.merge(bestL, -1, Integer::sum);
+        if (best.service) {
+            servedArcs.add(best.arcKey());
+        }
+        return best;
+    }
+
+    private static Copy visit(VehiclePlan plan, String arcKey, Set<String> servedArcs) {
+        String[] ij = arcKey.split("-");
+        boolean service = plan.x.containsKey(arcKey) && servedArcs.add(arcKey);
+        return new Copy(Integer.parseInt(ij[0]), Integer.parseInt(ij[1]), service);
+    }
+
+    private static boolean hasTurns(Map<String, Map<Integer, Integer>> turns, String arcKey) {
+        Map<Integer, Integer> counts = turns.get(arcKey);
+        if (counts == null) return false;
+        for (int count : counts.values()) {
+            if (count > 0) return true;
+        }
+        return false;
+    }
+
+    private static Set<String> travelledArcs(VehiclePlan plan) {
+        Set<String> arcKeys = new HashSet<>(plan.x.keySet());
+        arcKeys.addAll(plan.y.keySet());
+        return arcKeys;
+    }
+
+    // --- Tempo ao longo da sequência ---
+
+    /**
+     * a é preferível a b: o arco cuja última passagem é agora (f residual igual ao tempo
+     * restante), senão o de maior f residual; em empate, o serviço antes do deadheading.
+     */
+    private static boolean preferred(Copy a, double fa, Copy b, double fb, double remaining) {
+        boolean aNow = Math.abs(fa - remaining) < 0.5;
+        boolean bNow = Math.abs(fb - remaining) < 0.5;
+        if (aNow != bNow) return aNow;
+        if (Math.abs(fa - fb) >= 1e-6) return fa > fb;
+        return a.service && !b.service;
+    }
+
+    /**
+     * Tempo restante na saída do depósito: Z_k menos o serviço do próprio depósito, se houver.
+     */
+    private double remainingAtStart(VehiclePlan plan) {
+        int depot = data.getRealDepotNodeId();
+        return plan.z.containsKey(depot) ? plan.cost - data.getReqNodes().get(depot).serviceCost() : plan.cost;
+    }
+
+    /**
+     * Serviços de nó ainda não feitos na saída do depósito.
+     */
+    private Set<Integer> pendingAtStart(VehiclePlan plan) {
+        Set<Integer> pendingNodes = new HashSet<>(plan.z.keySet());
+        pendingNodes.remove(data.getRealDepotNodeId());
+        return pendingNodes;
+    }
+
+    /**
+     * Tempo de uma passagem: a conversão a partir da anterior, o arco (serviço ou
+     * travessia) e o serviço do nó de chegada, se ainda pendente.
+     */
+    private double stepTime(Copy prev, Copy copy, Set<Integer> pendingNodes, boolean withTurns) {
+        double time = 0;
+        if (withTurns && prev != null) {
+            Turn turn = data.getTurns().get(prev.from + "-" + prev.to + "-" + copy.to);
+            if (turn != null) {
+                time += turn.cost();
+            }
+        }
+        Arc arc = data.getArcs().get(copy.arcKey());
+        if (arc != null) {
+            time += copy.service ? arc.serviceCost() : arc.traversalCost();
+        }
+        if (pendingNodes.remove(copy.to)) {
+            time += data.getReqNodes().get(copy.to).serviceCost();
+        }
+        return time;
+    }
+
+    // --- Saída ---
+
+    private Route toRoute(VehiclePlan plan, List<Copy> circuit, int depot) {
+        Route route = new Route();
+        Set<Integer> pendingNodes = new HashSet<>(plan.z.keySet());
+        int demand = 0;
+
+        route.addSegment(new RouteSegment("D", 0, depot, depot));
+        demand += serveNode(route, pendingNodes, depot);
+
+        for (Copy copy : circuit) {
+            String arcKey = copy.arcKey();
+            if (copy.service) {
+                route.addSegment(new RouteSegment("S", serviceId.get(arcKey), copy.from, copy.to));
+                demand += data.getReqArcs().get(arcKey).demand();
+            } else {
+                route.addSegment(new RouteSegment("T", copy.from, copy.to));
+            }
+            demand += serveNode(route, pendingNodes, copy.to);
+        }
+
+        route.addSegment(new RouteSegment("D", 0, depot, depot));
+        route.setTotalDemand(demand);
+        route.setRouteCost(plan.cost);
+        return route;
+    }
+
+    private int serveNode(Route route, Set<Integer> pendingNodes, int nodeId) {
+        if (!pendingNodes.remove(nodeId)) {
+            return 0;
+        }
+        route.addSegment(new RouteSegment("S", serviceId.get(nodeId + "-" + nodeId), nodeId, nodeId));
+        return data.getReqNodes().get(nodeId).demand();
+    }
+}
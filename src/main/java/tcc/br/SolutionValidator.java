@@ -0,0 +1,396 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validador independente de soluções no formato de Tcc.writeOutput.
+ * <p>Verifica, sem usar o CPLEX: cada serviço requerido (nó, aresta ou arco) atendido
+ * exatamente uma vez; rotas como caminhadas conexas que saem e voltam ao depósito;
+ * duração da rota até T_max; custos, demandas e contagens declarados iguais aos
+ * recalculados. No NEARP-TP, cada travessia é seguida de uma conversão, inclusive
+ * da última para a primeira travessia da rota, como nas restrições (14) e (15).
+ * <p>A instância é indexada uma vez em vetores primitivos (adjacência e conversões
+ * em formato CSR), e cada rota é avaliada em tempo linear no seu comprimento
+ * (vezes o grau dos nós), o que permite validar milhares de soluções por execução.
+ */
+public class SolutionValidator {
+    private static final int MAX_ERRORS = 20;
+
+    private final boolean turnPenalties;
+    private final int depot;
+    private final int tMax;
+
+    // Adjacência em CSR: arcos de saída do nó i em [outStart[i], outStart[i+1])
+    private final int[] outStart;
+    private final int[] arcTo;
+    private final int[] arcTraversalCost;
+    private final int[] arcServiceCost;
+    private final int[] arcDemand;
+    private final int[] arcService;         // serviço atendido pelo arco, -1 se nenhum
+
+    // Conversões em CSR: a partir do arco a, em [turnStart[a], turnStart[a+1])
+    private final int[] turnStart;
+    private final int[] turnToArc;
+    private final int[] turnCost;
+
+    private final int[] nodeService;        // serviço do nó, -1 se nenhum
+    private final int[] nodeServiceCost;
+    private final int[] nodeDemand;
+    private final int numServices;
+
+    private int[] walk = new int[64];       // arcos percorridos pela rota corrente, reutilizado
+
+    public SolutionValidator(CplexData data, boolean turnPenalties) {
+        this.turnPenalties = turnPenalties;
+        this.depot = data.getRealDepotNodeId();
+        this.tMax = data.getCapacity();
+
+        int maxNode = 0;
+        for (Integer nodeId : data.getNodes().keySet()) {
+            maxNode = Math.max(maxNode, nodeId);
+        }
+        for (Arc arc : data.getArcs().values()) {
+            maxNode = Math.max(maxNode, Math.max(arc.fromNode(), arc.toNode()));
+        }
+        int n = maxNode + 1;
+
+        // Serviços: nós de R_V, arcos de A'_R e arestas de E_R (as duas orientações)
+        int services = 0;
+        this.nodeService = new int[n];
+        this.nodeServiceCost = new int[n];
+        this.nodeDemand = new int[n];
+        Arrays.fill(nodeService, -1);
+        for (Map.Entry<Integer, Node> entry : data.getReqNodes().entrySet()) {
+            nodeService[entry.getKey()] = services++;
+            nodeServiceCost[entry.getKey()] = entry.getValue().serviceCost();
+            nodeDemand[entry.getKey()] = entry.getValue().demand();
+        }
+
+        int m = data.getArcs().size();
+        this.outStart = new int[n + 1];
+        for (Arc arc : data.getArcs().values()) {
+            outStart[arc.fromNode() + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+        }
+        this.arcTo = new int[m];
+        this.arcTraversalCost = new int[m];
+        this.arcServiceCost = new int[m];
+        this.arcDemand = new int[m];
+        this.arcService = new int[m];
+        int[] fill = Arrays.copyOf(outStart, n);
+        for (Arc arc : data.getArcs().values()) {
+            int a = fill[arc.fromNode()]++;
+            arcTo[a] = arc.toNode();
+            arcTraversalCost[a] = arc.traversalCost();
+            arcServiceCost[a] = arc.serviceCost();
+            arcDemand[a] = arc.demand();
+            arcService[a] = -1;
+        }
+        for (Arc arc : data.getReqArcsOg().values()) {
+            arcService[arcIndex(arc.fromNode(), arc.toNode())] = services++;
+        }
+        for (Edge edge : data.getReqEdges().values()) {
+            int service = services++;
+            arcService[arcIndex(edge.fromNode(), edge.toNode())] = service;
+            arcService[arcIndex(edge.toNode(), edge.fromNode())] = service;
+        }
+        this.numServices = services;
+
+        this.turnStart = new int[m + 1];
+        List<Turn> turns = turnPenalties ? new ArrayList<>(data.getTurns().values()) : new ArrayList<>();
+        int[] turnFromArc = new int[turns.size()];
+        int[] turnNext = new int[turns.size()];
+        for (int t = 0; t < turns.size(); t++) {
+            Turn turn = turns.get(t);
+            turnFromArc[t] = arcIndex(turn.i(), turn.j());
+            turnNext[t] = arcIndex(turn.j(), turn.l());
+            turnStart[turnFromArc[t] + 1]++;
+        }
+        for (int a = 0; a < m; a++) {
+            turnStart[a + 1] += turnStart[a];
+        }
+        this.turnToArc = new int[turns.size()];
+        this.turnCost = new int[turns.size()];
+        int[] turnFill = Arrays.copyOf(turnStart, m);
+        for (int t = 0; t < turns.size(); t++) {
+            int slot = turnFill[turnFromArc[t]]++;
+            turnToArc[slot] = turnNext[t];
+            turnCost[slot] = turns.get(t).cost();
+        }
+    }
+
+    /**
+     * Índice do arco (i,j) ou -1 (busca linear na lista de saída de i).
+     */
+    private int arcIndex(int i, int j) {
+        if (i < 0 || i + 1 >= outStart.length) return -1;
+        for (int a = outStart[i]; a < outStart[i + 1]; a++) {
+            if (arcTo[a] == j) return a;
+        }
+        return -1;
+    }
+
+    private int turnPenalty(int fromArc, int toArc) {
+        for (int t = turnStart[fromArc]; t < turnStart[fromArc + 1]; t++) {
+            if (turnToArc[t] == toArc) return turnCost[t];
+        }
+        return -1;
+    }
+
+    /**
+     * Valida um arquivo de solução e retorna os erros encontrados (vazio se válida).
+     */
+    public List<String> validate(String solutionFile) throws IOException {
+        List<String> errors = new ArrayList<>();
+        int[] served = new int[numServices];
+        long totalCost = 0;
+        int routes = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(solutionFile))) {
+            String objectiveLine = reader.readLine();
+            String routesLine = reader.readLine();
+            String totalTimeLine = reader.readLine();
+            String bestTimeLine = reader.readLine();
+            if (objectiveLine == null || routesLine == null || totalTimeLine == null || bestTimeLine == null) {
+                error(errors, "arquivo truncado: cabeçalho com menos de 4 linhas");
+            } else {
+                long objective = Long.parseLong(objectiveLine.trim());
+                int declaredRoutes = Integer.parseInt(routesLine.trim());
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+                    routes++;
+                    totalCost += validateRoute(line, routes, served, errors);
+                }
+
+                if (routes != declaredRoutes) {
+                    error(errors, "número de rotas declarado " + declaredRoutes + ", encontradas " + routes);
+                }
+                if (objective != totalCost) {
+                    error(errors, "função objetivo declarada " + objective + ", recalculada " + totalCost);
+                }
+            }
+        } catch (NumberFormatException e) {
+            error(errors, "formato inválido: " + e.getMessage());
+        }
+
+        for (int s = 0; s < numServices; s++) {
+            if (served[s] != 1) {
+                error(errors, "serviço " + describeService(s) + " atendido " + served[s] + " vez(es)");
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Valida uma linha de rota e retorna o custo recalculado.
+     */
+    private int validateRoute(String line, int routeIndex, int[] served, List<String> errors) {
+        String prefix = "rota " + routeIndex + ": ";
+
+        // Cabeçalho: depósito, dia, índice, demanda, custo, visitas; depois os segmentos
+        int firstSegment = line.indexOf('(');
+        String[] header = (firstSegment < 0 ? line : line.substring(0, firstSegment)).trim().split("\\s+");
+        if (header.length < 6) {
+            error(errors, prefix + "cabeçalho incompleto");
+            return 0;
+        }
+        int declaredDemand = Integer.parseInt(header[3]);
+        int declaredCost = Integer.parseInt(header[4]);
+        int declaredVisits = Integer.parseInt(header[5]);
+
+        int position = -1;
+        int cost = 0, demand = 0, visits = 0, walkLength = 0;
+        boolean closed = false;
+
+        int pos = firstSegment;
+        while (pos >= 0 && pos < line.length()) {
+            int end = line.indexOf(')', pos);
+            if (end < 0) {
+                error(errors, prefix + "segmento sem ')'");
+                break;
+            }
+            char type = line.charAt(pos + 1);
+            String[] fields = line.substring(pos + 3, end).split(",");
+            pos = line.indexOf('(', end);
+
+            if (closed) {
+                error(errors, prefix + "segmentos após o retorno ao depósito");
+                break;
+            }
+
+            if (type == 'D') {
+                visits++;
+                if (position < 0) {
+                    position = depot;
+                } else if (position != depot) {
+                    error(errors, prefix + "termina no nó " + position + ", não no depósito");
+                    closed = true;
+                } else {
+                    closed = true;
+                }
+                continue;
+            }
+            if (position < 0) {
+                error(errors, prefix + "não começa no depósito");
+                position = depot;
+            }
+
+            int from = Integer.parseInt(fields[type == 'S' ? 1 : 0].trim());
+            int to = Integer.parseInt(fields[type == 'S' ? 2 : 1].trim());
+            if (from != position) {
+                error(errors, prefix + "caminhada desconexa: está em " + position + ", segmento sai de " + from);
+            }
+
+            // (S id,i,i) é serviço de nó, salvo se existir o laço (i,i) em A
+            if (type == 'S' && from == to && arcIndex(from, to) < 0) {
+                if (from < 0 || from >= nodeService.length || nodeService[from] < 0) {
+                    error(errors, prefix + "nó " + from + " não é requerido");
+                    continue;
+                }
+                visits++;
+                served[nodeService[from]]++;
+                cost += nodeServiceCost[from];
+                demand += nodeDemand[from];
+                continue;
+            }
+
+            int a = arcIndex(from, to);
+            if (a < 0) {
+                error(errors, prefix + "arco (" + from + "," + to + ") inexistente");
+                position = to;
+                continue;
+            }
+            if (type == 'S') {
+                visits++;
+                if (arcService[a] < 0) {
+                    error(errors, prefix + "arco (" + from + "," + to + ") não é requerido");
+                } else {
+                    served[arcService[a]]++;
+                }
+                cost += arcServiceCost[a];
+                demand += arcDemand[a];
+            } else {
+                cost += arcTraversalCost[a];
+            }
+
+            if (walkLength == walk.length) {
+                walk = Arrays.copyOf(walk, walk.length * 2);
+            }
+            walk[walkLength++] = a;
+            position = to;
+        }
+
+        if (!closed) {
+            error(errors, prefix + "não retorna ao depósito");
+        }
+
+        // Conversões entre travessias consecutivas, de forma cíclica
+        if (turnPenalties && walkLength > 0) {
+            for (int t = 0; t < walkLength; t++) {
+                int a = walk[t];
+                int b = walk[(t + 1) % walkLength];
+                int penalty = turnPenalty(a, b);
+                if (penalty < 0) {
+                    error(errors, prefix + "conversão inexistente entre os arcos " + describeArc(a) + " e " + describeArc(b));
+                } else {
+                    cost += penalty;
+                }
+            }
+        }
+
+        if (cost != declaredCost) {
+            error(errors, prefix + "custo declarado " + declaredCost + ", recalculado " + cost);
+        }
+        if (demand != declaredDemand) {
+            error(errors, prefix + "demanda declarada " + declaredDemand + ", recalculada " + demand);
+        }
+        if (visits != declaredVisits) {
+            error(errors, prefix + "visitas declaradas " + declaredVisits + ", recalculadas " + visits);
+        }
+        if (cost > tMax) {
+            error(errors, prefix + "duração " + cost + " excede T_max " + tMax);
+        }
+
+        return cost;
+    }
+
+    private String describeArc(int a) {
+        for (int i = 0; i + 1 < outStart.length; i++) {
+            if (a >= outStart[i] && a < outStart[i + 1]) {
+                return "(" + i + "," + arcTo[a] + ")";
+            }
+        }
+        return "#" + a;
+    }
+
+    private String describeService(int s) {
+        for (int i = 0; i < nodeService.length; i++) {
+            if (nodeService[i] == s) return "nó " + i;
+        }
+        for (int a = 0; a < arcService.length; a++) {
+            if (arcService[a] == s) return "arco/aresta " + describeArc(a);
+        }
+        return "#" + s;
+    }
+
+    private static void error(List<String> errors, String message) {
+        errors.add(message);
+    }
+
+    /**
+     * validate <inputType> <instância> <solução|pasta>...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java -jar target/tcc-1.0.jar validate <inputType> <instância> <solução|pasta>...");
+            return;
+        }
+
+        String inputType = args[0];
+        SolutionValidator validator = new SolutionValidator(Tcc.loadInstance(args[1], inputType),
+                                                            "NEARPTP".equalsIgnoreCase(inputType));
+
+        List<String> files = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            File file = new File(args[i]);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles((dir, name) -> name.endsWith(".txt"));
+                Arrays.sort(children);
+                for (File child : children) {
+                    files.add(child.getPath());
+                }
+            } else {
+                files.add(file.getPath());
+            }
+        }
+
+        int invalid = 0;
+        for (String file : files) {
+            List<String> errors = validator.validate(file);
+            if (errors.isEmpty()) {
+                System.out.println("OK    " + file);
+                continue;
+            }
+            invalid++;
+            System.out.println("ERRO  " + file + " (" + errors.size() + " problema(s))");
+            for (int i = 0; i < Math.min(errors.size(), MAX_ERRORS); i++) {
+                System.out.println("      - " + errors.get(i));
+            }
+        }
+        System.out.println("\n" + (files.size() - invalid) + "/" + files.size() + " soluções válidas.");
+        if (invalid > 0) {
+            System.exit(1);
+        }
+    }
+}
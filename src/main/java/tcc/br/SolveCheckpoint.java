@@ -0,0 +1,283 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checkpoint periódico da resolução principal, para retomar depois de uma queda
+ * (falta de memória, preempção, reinício da máquina).
+ * <p>Dois arquivos com a mesma base: "&lt;base&gt;.mst" guarda a incumbente no formato
+ * de MIP start do CPLEX (apenas valores não nulos, por nome de variável) e
+ * "&lt;base&gt;.properties" guarda objetivo, limitante, tempo decorrido (somado ao das
+ * execuções anteriores) e o orçamento total.
+ * <p>O callback só copia os valores quando a incumbente melhora e entrega o estado a
+ * uma thread de escrita; cada arquivo é escrito em um temporário e renomeado, de modo
+ * que uma queda no meio da escrita preserva o checkpoint anterior.
+ */
+public class SolveCheckpoint implements AutoCloseable {
+    private static final Pattern VARIABLE = Pattern.compile("<variable\\s+name=\"([^\"]+)\"[^>]*\\svalue=\"([^\"]+)\"");
+
+    /**
+     * Estado a gravar; 'values' é nulo quando só o limitante e o tempo mudaram.
+     */
+    private static final class Snapshot {
+        final long elapsedMillis;
+        final double incumbent;
+        final double bound;
+        final double[] values;
+
+        Snapshot(long elapsedMillis, double incumbent, double bound, double[] values) {
+            this.elapsedMillis = elapsedMillis;
+            this.incumbent = incumbent;
+            this.bound = bound;
+            this.values = values;
+        }
+    }
+
+    private final Path mstPath;
+    private final Path propertiesPath;
+    private final String instanceName;
+    private final long previousElapsedMillis;
+    private final long timeLimitMillis;
+
+    private String[] names;
+    private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+    private final RateLimiter periodic;
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    // Última incumbente e limitante gravados (apenas a thread de escrita)
+    private double writtenIncumbent = Double.NaN;
+    private double writtenBound = Double.NaN;
+    private long checkpoints;
+
+    /**
+     * @param base Caminho sem extensão dos arquivos de checkpoint.
+     * @param previousElapsedMillis Tempo já gasto em execuções anteriores (retomada).
+     * @param timeLimitMillis Orçamento total de tempo, somando todas as execuções.
+     */
+    public SolveCheckpoint(String base, String instanceName, long intervalMillis,
+                           long previousElapsedMillis, long timeLimitMillis) {
+        this.mstPath = Paths.get(base + ".mst");
+        this.propertiesPath = Paths.get(base + ".properties");
+        this.instanceName = instanceName;
+        this.periodic = new RateLimiter(intervalMillis);
+        this.previousElapsedMillis = previousElapsedMillis;
+        this.timeLimitMillis = timeLimitMillis;
+
+        this.writerThread = new Thread(this::writeLoop, "checkpoint-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Parte do estado de um checkpoint anterior: o limitante gravado só sobe e a
+     * incumbente anterior continua referenciada até ser superada.
+     */
+    void resumeFrom(Properties previous) {
+        String bound = previous.getProperty("bound");
+        if (bound != null) {
+            writtenBound = Double.parseDouble(bound);
+        }
+        String objective = previous.getProperty("objective");
+        if (objective != null) {
+            writtenIncumbent = Double.parseDouble(objective);
+        }
+    }
+
+    /**
+     * Nomes das variáveis na ordem dos valores entregues a offer().
+     */
+    void setVariableNames(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Chamado pelo callback: há checkpoint a fazer se a incumbente melhorou ou se o
+     * intervalo desde o último passou.
+     */
+    boolean isDue(long timeMillis, boolean improvement) {
+        if (closed) return false;
+        if (improvement) return true;
+        return periodic.tryAcquire(timeMillis);
+    }
+
+    /**
+     * Publica o estado atual; o último estado publicado vence.
+     * @param values Valores da incumbente na ordem de setVariableNames, ou nulo.
+     */
+    void offer(long timeMillis, double incumbent, double bound, double[] values) {
+        if (closed) return;
+        if (values != null) {
+            periodic.reset(timeMillis);
+        }
+        Snapshot next = new Snapshot(previousElapsedMillis + timeMillis, incumbent, bound, values);
+        Snapshot previous = pending.getAndSet(next);
+        if (values == null && previous != null && previous.values != null) {
+            // Não perde uma incumbente ainda não gravada por causa de uma amostra só de limitante
+            pending.compareAndSet(next, new Snapshot(next.elapsedMillis, previous.incumbent, next.bound, previous.values));
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(200);
+                flush(null, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                System.err.println("Checkpoint: falha ao gravar " + propertiesPath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void flush(String status, long finalTimeMillis) throws IOException {
+        Snapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null && status == null) return;
+
+        if (snapshot != null && snapshot.values != null && names != null
+                && (Double.isNaN(writtenIncumbent) || snapshot.incumbent < writtenIncumbent - 1e-6)) {
+            writeMst(snapshot);
+            writtenIncumbent = snapshot.incumbent;
+        }
+        if (snapshot != null && !Double.isNaN(snapshot.bound)) {
+            writtenBound = Double.isNaN(writtenBound) ? snapshot.bound : Math.max(writtenBound, snapshot.bound);
+        }
+        long elapsed = finalTimeMillis >= 0 ? previousElapsedMillis + finalTimeMillis
+                     : snapshot != null ? snapshot.elapsedMillis : -1;
+        writeProperties(elapsed, status);
+        checkpoints++;
+    }
+
+    private void writeMst(Snapshot snapshot) throws IOException {
+        Path temp = Paths.get(mstPath + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp.toFile()), 1 << 16)) {
+            writer.write("<?xml version = \"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+            writer.write("<CPLEXSolutions version=\"1.2\">\n");
+            writer.write(" <CPLEXSolution version=\"1.2\">\n");
+            writer.write(String.format(Locale.ROOT, "  <header problemName=\"%s\" solutionName=\"checkpoint\" objectiveValue=\"%.6f\"/>%n",
+                                       instanceName, snapshot.incumbent));
+            writer.write("  <variables>\n");
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                double value = snapshot.values[i];
+                if (Math.abs(value) < 1e-9) continue;
+                line.setLength(0);
+                line.append("   <variable name=\"").append(names[i]).append("\" value=\"");
+                line.append(value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value));
+                line.append("\"/>\n");
+                writer.write(line.toString());
+            }
+            writer.write("  </variables>\n");
+            writer.write(" </CPLEXSolution>\n");
+            writer.write("</CPLEXSolutions>\n");
+        }
+        Files.move(temp, mstPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeProperties(long elapsedMillis, String status) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(propertiesPath)) {
+            properties = read(propertiesPath.toString());
+        }
+        properties.setProperty("instance", instanceName);
+        properties.setProperty("timeLimitMillis", String.valueOf(timeLimitMillis));
+        if (elapsedMillis >= 0) {
+            properties.setProperty("elapsedMillis", String.valueOf(elapsedMillis));
+        }
+        if (!Double.isNaN(writtenIncumbent)) {
+            properties.setProperty("objective", String.format(Locale.ROOT, "%.6f", writtenIncumbent));
+            properties.setProperty("mipStart", mstPath.getFileName().toString());
+        }
+        if (!Double.isNaN(writtenBound)) {
+            properties.setProperty("bound", String.format(Locale.ROOT, "%.6f", writtenBound));
+        }
+        properties.setProperty("status", status != null ? status : "running");
+        properties.setProperty("writtenAt", String.valueOf(System.currentTimeMillis()));
+
+        Path temp = Paths.get(propertiesPath + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp.toFile()))) {
+            properties.store(writer, "Checkpoint da resolução");
+        }
+        Files.move(temp, propertiesPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Grava o estado pendente com o estado final da resolução e encerra a escrita.
+     * @param timeMillis Tempo da execução atual no cronômetro (-1 mantém o último gravado).
+     */
+    public void finish(String status, long timeMillis) throws IOException {
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(status, timeMillis);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            finish("interrupted", -1);
+        }
+    }
+
+    public long getCheckpointCount() {
+        return checkpoints;
+    }
+
+    // ------------------------------------------------------------------ leitura
+
+    public static Properties read(String path) throws IOException {
+        Properties properties = new Properties();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * Valores não nulos de um arquivo .mst, por nome de variável.
+     */
+    public static Map<String, Double> readMipStart(String path) throws IOException {
+        Map<String, Double> values = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = VARIABLE.matcher(line);
+                if (matcher.find()) {
+                    values.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Caminho do .mst referenciado por um arquivo de checkpoint, ou nulo se não houver incumbente.
+     */
+    public static String mipStartPath(String propertiesPath, Properties properties) {
+        String mst = properties.getProperty("mipStart");
+        if (mst == null) return null;
+        Path parent = Paths.get(propertiesPath).toAbsolutePath().getParent();
+        return parent.resolve(mst).toString();
+    }
+}
@@ -0,0 +1,189 @@
+package tcc.br;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Série temporal do progresso da resolução: incumbente, limitante, gap, nós, nós em
+ * aberto e memória do processo.
+ * <p>O callback do CPLEX registra uma amostra a cada intervalo fixo e a cada melhoria
+ * da incumbente, em um buffer circular sem travas (várias threads podem produzir).
+ * Uma thread de escrita esvazia o buffer para um arquivo CSV ou JSON-lines; se ela
+ * ficar uma volta inteira atrás, as amostras sobrescritas são contadas e descartadas.
+ */
+public class SolveTelemetry implements AutoCloseable {
+    /**
+     * Uma amostra imutável; 'seq' identifica a posição lógica no buffer.
+     */
+    static final class Sample {
+        final long seq;
+        final long timeMillis;
+        final double incumbent;         // NaN sem incumbente
+        final double bound;
+        final double gap;               // NaN sem incumbente
+        final long nodes;
+        final long openNodes;
+        final long memoryMb;
+        final boolean improvement;
+
+        Sample(long seq, long timeMillis, double incumbent, double bound, double gap,
+               long nodes, long openNodes, long memoryMb, boolean improvement) {
+            this.seq = seq;
+            this.timeMillis = timeMillis;
+            this.incumbent = incumbent;
+            this.bound = bound;
+            this.gap = gap;
+            this.nodes = nodes;
+            this.openNodes = openNodes;
+            this.memoryMb = memoryMb;
+            this.improvement = improvement;
+        }
+    }
+
+    private static final int CAPACITY = 4096;       // potência de 2
+    private static final long MB = 1024L * 1024L;
+
+    private final AtomicReferenceArray<Sample> ring = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong nextSeq = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final long intervalMillis;
+    private final RateLimiter periodic;
+    private final boolean jsonLines;
+    private final BufferedWriter writer;
+    private final Thread drainer;
+    private volatile boolean closed;
+    private long readSeq;                           // apenas a thread de escrita
+
+    /**
+     * @param path Arquivo de saída; ".jsonl" grava JSON-lines, qualquer outra extensão grava CSV.
+     * @param intervalMillis Intervalo mínimo entre amostras periódicas.
+     */
+    public SolveTelemetry(String path, long intervalMillis) throws IOException {
+        this.intervalMillis = intervalMillis;
+        this.periodic = new RateLimiter(intervalMillis);
+        this.jsonLines = path.endsWith(".jsonl");
+        this.writer = new BufferedWriter(new FileWriter(path));
+        if (!jsonLines) {
+            writer.write("time_ms,incumbent,bound,gap,nodes,open_nodes,mem_mb,event");
+            writer.newLine();
+        }
+
+        this.drainer = new Thread(this::drainLoop, "telemetry-writer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Chamado pelo callback a cada invocação; registra apenas se for melhoria ou se o
+     * intervalo desde a última amostra tiver passado.
+     */
+    public void offer(long timeMillis, double incumbent, double bound, double gap,
+                      long nodes, long openNodes, boolean improvement) {
+        if (closed) return;
+        if (improvement) {
+            periodic.reset(timeMillis);
+        } else if (!periodic.tryAcquire(timeMillis)) {
+            return;
+        }
+
+        long seq = nextSeq.getAndIncrement();
+        ring.set((int) (seq & (CAPACITY - 1)),
+                 new Sample(seq, timeMillis, incumbent, bound, gap, nodes, openNodes, processMemoryMb(), improvement));
+    }
+
+    private void drainLoop() {
+        try {
+            while (!closed) {
+                drain();
+                Thread.sleep(Math.max(50, Math.min(intervalMillis, 500)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Telemetria: falha ao escrever amostras: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escreve as amostras publicadas desde a última leitura, na ordem de seq.
+     */
+    private void drain() throws IOException {
+        long end = nextSeq.get();
+        if (end - readSeq > CAPACITY) {
+            dropped.addAndGet(end - readSeq - CAPACITY);
+            readSeq = end - CAPACITY;
+        }
+        while (readSeq < end) {
+            Sample sample = ring.get((int) (readSeq & (CAPACITY - 1)));
+            if (sample == null || sample.seq < readSeq) {
+                break;                                  // posição reservada, ainda não publicada
+            }
+            if (sample.seq == readSeq) {
+                write(sample);
+            } else {
+                dropped.incrementAndGet();              // sobrescrita por uma volta seguinte
+            }
+            readSeq++;
+        }
+        writer.flush();
+    }
+
+    private void write(Sample s) throws IOException {
+        String event = s.improvement ? "incumbent" : "interval";
+        if (jsonLines) {
+            writer.write(String.format(Locale.ROOT,
+                "{\"time_ms\":%d,\"incumbent\":%s,\"bound\":%s,\"gap\":%s,\"nodes\":%d,\"open_nodes\":%d,\"mem_mb\":%d,\"event\":\"%s\"}",
+                s.timeMillis, json(s.incumbent), json(s.bound), json(s.gap), s.nodes, s.openNodes, s.memoryMb, event));
+        } else {
+            writer.write(String.format(Locale.ROOT, "%d,%s,%s,%s,%d,%d,%d,%s",
+                s.timeMillis, csv(s.incumbent), csv(s.bound), csv(s.gap), s.nodes, s.openNodes, s.memoryMb, event));
+        }
+        writer.newLine();
+    }
+
+    private static String json(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String csv(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "" : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    /**
+     * Memória virtual comprometida do processo (inclui a memória nativa do CPLEX);
+     * sem o MXBean da JVM HotSpot, usa o heap em uso.
+     */
+    private static long processMemoryMb() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getCommittedVirtualMemorySize() / MB;
+        }
+        Runtime rt = Runtime.getRuntime();
+        return (rt.totalMemory() - rt.freeMemory()) / MB;
+    }
+
+    /**
+     * Interrompe a coleta, grava as amostras pendentes e fecha o arquivo.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            drainer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        writer.close();
+        if (dropped.get() > 0) {
+            System.err.println("Telemetria: " + dropped.get() + " amostras descartadas (buffer cheio).");
+        }
+    }
+}
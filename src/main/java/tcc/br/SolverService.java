@@ -0,0 +1,181 @@
+package tcc.br;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.time.StopWatch;
+
+import ilog.concert.IloException;
+
+/**
+ * Modo serviço: a instância, o CplexData e o modelo CPLEX ficam residentes e recebem
+ * alterações incrementais (serviços, arcos fechados, T_max) entre resoluções, que
+ * partem da última solução como MIP start.
+ * <p>Protocolo de linhas de texto, pela entrada padrão ou por um socket local (--port):
+ * <pre>
+ *   remove-node i | add-node i t_s
+ *   remove-arc i j | add-arc i j t_s
+ *   remove-edge i j | add-edge i j t_s
+ *   close i j | open i j
+ *   tmax T
+ *   solve [s]
+ *   write arquivo
+ *   status
+ *   quit (encerra a conexão) | shutdown (encerra o serviço)
+ * </pre>
+ * Cada comando recebe uma linha de resposta iniciada por "OK" ou "ERRO". O log do
+ * CPLEX vai para a saída de erro, para não se misturar às respostas.
+ */
+public class SolverService {
+    private final Tcc tcc;
+    private final CplexModel model;
+    private final String outputFilePath;
+
+    private List<VehiclePlan> lastPlans;
+    private Solution lastSolution;
+    private boolean running = true;
+
+    public SolverService(Tcc tcc, CplexModel model, String outputFilePath) {
+        this.tcc = tcc;
+        this.model = model;
+        this.outputFilePath = outputFilePath;
+    }
+
+    /**
+     * Constrói o modelo uma única vez e atende comandos até "shutdown" (ou fim da entrada).
+     * @param port Porta local; 0 usa a entrada e a saída padrão.
+     */
+    public void run(int port, StopWatch stopWatch) throws IOException, IloException {
+        model.setTrackRows(true);
+        model.setQuiet(true);
+        model.build();
+        model.configure(stopWatch);
+        model.setSolverOutput(System.err);
+
+        if (port <= 0) {
+            serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                  new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true));
+        } else {
+            try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+                System.err.println("Serviço aguardando conexões em " + server.getLocalSocketAddress());
+                while (running) {
+                    try (Socket client = server.accept()) {
+                        serve(new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8)),
+                              new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8), true));
+                    }
+                }
+            }
+        }
+        model.end();
+    }
+
+    private void serve(BufferedReader in, PrintWriter out) throws IOException {
+        out.println("OK pronto");
+        String line;
+        while (running && (line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            if (line.equals("quit")) {
+                out.println("OK");
+                return;
+            }
+            out.println(handle(line));
+        }
+    }
+
+    /**
+     * Executa um comando e devolve a linha de resposta.
+     */
+    String handle(String line) {
+        String[] tokens = line.split("\\s+");
+        try {
+            switch (tokens[0]) {
+                case "remove-node":
+                    model.removeNodeService(intArg(tokens, 1));
+                    return "OK";
+                case "add-node":
+                    model.addNodeService(intArg(tokens, 1), intArg(tokens, 2));
+                    return "OK";
+                case "remove-arc":
+                    model.removeArcService(intArg(tokens, 1), intArg(tokens, 2), false);
+                    return "OK";
+                case "add-arc":
+                    model.addArcService(intArg(tokens, 1), intArg(tokens, 2), false, intArg(tokens, 3));
+                    return "OK";
+                case "remove-edge":
+                    model.removeArcService(intArg(tokens, 1), intArg(tokens, 2), true);
+                    return "OK";
+                case "add-edge":
+                    model.addArcService(intArg(tokens, 1), intArg(tokens, 2), true, intArg(tokens, 3));
+                    return "OK";
+                case "close":
+                    model.setArcOpen(intArg(tokens, 1), intArg(tokens, 2), false);
+                    return "OK";
+                case "open":
+                    model.setArcOpen(intArg(tokens, 1), intArg(tokens, 2), true);
+                    return "OK";
+                case "tmax":
+                    model.setTmax(intArg(tokens, 1));
+                    return "OK";
+                case "solve":
+                    return solve(tokens.length > 1 ? Double.parseDouble(tokens[1])
+                                                   : model.getResourceProfile().getTimeLimitMillis() / 1000.0);
+                case "write":
+                    if (lastSolution == null) {
+                        return "ERRO nenhuma solução disponível";
+                    }
+                    tcc.writeOutput(lastSolution, tokens.length > 1 ? tokens[1] : outputFilePath);
+                    return "OK";
+                case "status":
+                    return lastSolution == null ? "OK sem solução"
+                                                : "OK " + model.getStatus() + " " + lastSolution.getObjectiveValue();
+                case "shutdown":
+                    running = false;
+                    return "OK";
+                default:
+                    return "ERRO comando desconhecido: " + tokens[0];
+            }
+        } catch (IloException | RuntimeException e) {
+            return "ERRO " + e.getMessage();
+        }
+    }
+
+    /**
+     * Resolve a partir da última solução (reparada pelo CPLEX se as alterações a
+     * tornaram inviável) e escreve a saída, se configurada.
+     */
+    private String solve(double timeLimit) throws IloException {
+        StopWatch watch = StopWatch.createStarted();
+        model.attachMIPInfoCallback(watch);
+        if (lastPlans != null) {
+            model.addWarmStart(lastPlans);
+        }
+
+        if (!model.resolve(timeLimit)) {
+            return "ERRO " + model.getStatus() + " " + watch.getTime(TimeUnit.MILLISECONDS);
+        }
+
+        lastPlans = model.extractVehiclePlans();
+        lastSolution = model.buildSolution(watch.getTime(TimeUnit.MILLISECONDS));
+        if (outputFilePath != null) {
+            tcc.writeOutput(lastSolution, outputFilePath);
+        }
+        return "OK " + model.getStatus() + " " + Math.round(model.getObjValue()) + " " + watch.getTime(TimeUnit.MILLISECONDS);
+    }
+
+    private static int intArg(String[] tokens, int index) {
+        if (index >= tokens.length) {
+            throw new IllegalArgumentException("argumentos insuficientes para " + tokens[0]);
+        }
+        return Integer.parseInt(tokens[index]);
+    }
+}
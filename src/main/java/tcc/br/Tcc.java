@@ -5,12 +5,20 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.LineNumberReader;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.time.StopWatch;
 
+import ilog.concert.IloException;
+
 public class Tcc {
 
     private String instanceName;
@@ -25,54 +33,20 @@ public class Tcc {
     private int numRequiredEdges;
     private int numRequiredArcs;
     private int numTurns;
+    private int optimalValue = -1;  // "Optimal value" do cabeçalho (-1 quando ausente)
+    private int trailingLines;      // linhas não vazias após o fim esperado do corpo
 
-    private Map<Integer, Node> reqNodes;
-	private Map<Integer, Node> nonReqNodes;
-    private Map<Integer, Edge> reqEdges;
-	private Map<Integer, Edge> nonReqEdges;
-    private Map<Integer, Arc> reqArcs;
-	private Map<Integer, Arc> nonReqArcs;
-    private Map<String, Turn> turns;
-
-    public Tcc() {
-        this.reqNodes = new HashMap<>();
-		this.nonReqNodes = new HashMap<>();
-        this.reqEdges = new HashMap<>();
-		this.nonReqEdges = new HashMap<>();
-        this.reqArcs = new HashMap<>();
-		this.nonReqArcs = new HashMap<>();
-        this.turns = new HashMap<>();
-    }
-
-    private void addNode(int id, Node node) {
-        if (node.isRequired) {
-            this.reqNodes.put(id, node);
-        } else {
-            this.nonReqNodes.put(id, node);
-        }
-    }
-
-    private void addEdge(int id, Edge edge) {
-        if (edge.isRequired) {
-            this.reqEdges.put(id, edge);
-        } else {
-            this.nonReqEdges.put(id, edge);
-        }
-    }
-
-    private void addArc(int id, Arc arc) {
-        if (arc.isRequired) {
-            this.reqArcs.put(id, arc);
-        } else {
-            this.nonReqArcs.put(id, arc);
-        }
-    }
+    private InstanceStore store;    // criado após o cabeçalho, com as contagens dele
 
     /**
      * Lê o arquivo de entrada baseado no tipo (NEARP ou NEARP-TP).
      */
+    @SuppressWarnings("try")
     public void readInput(String inputFilePath, String inputType) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(inputFilePath))) {
+        LineNumberReader reader = null;
+        try (Instrumentation.Phase phase = Instrumentation.phase("parse");
+             LineNumberReader br = new LineNumberReader(new FileReader(inputFilePath))) {
+            reader = br;
             // Cabeçalho
             parseHeader(br);
 
@@ -85,13 +59,78 @@ public class Tcc {
                 throw new IllegalArgumentException("Tipo de entrada desconhecido: " + inputType);
             }
 
+            // Contagens do cabeçalho menores que o corpo deixam linhas sem ler
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.trim().isEmpty()) trailingLines++;
+            }
+
         } catch (IOException e) {
             throw new IOException("Erro ao ler o arquivo de entrada", e);
         } catch (Exception e) {
-            throw new IOException("Erro ao processar os dados do arquivo de entrada", e);
+            // Contagens do cabeçalho maiores que o corpo levam a ler separadores como dados
+            throw new IOException("Erro ao processar os dados do arquivo de entrada na linha " + reader.getLineNumber()
+                                  + "; confira as contagens do cabeçalho (" + headerSummary() + ")", e);
         }
     }
 
+    private String headerSummary() {
+        return "#Nodes " + numNodes + ", #Edges " + numEdges + ", #Arcs " + numArcs + ", #Required N " + numRequiredNodes
+               + ", #Required E " + numRequiredEdges + ", #Required A " + numRequiredArcs + ", #Nb-Turns " + numTurns;
+    }
+
+    /**
+     * Divergências entre as contagens do cabeçalho e o que foi lido do corpo.
+     */
+    public List<String> headerMismatches() {
+        List<String> mismatches = new ArrayList<>();
+        compare(mismatches, "#Nodes", numNodes, store.definedNodeCount());
+        compare(mismatches, "#Edges", numEdges, store.edgeCount());
+        compare(mismatches, "#Arcs", numArcs, store.originalArcCount());
+        compare(mismatches, "#Required N", numRequiredNodes, store.nodeRequired.cardinality());
+        compare(mismatches, "#Required E", numRequiredEdges, store.edgeRequired.cardinality());
+        int requiredArcs = 0;
+        for (int a = 0; a < store.arcCount(); a++) {
+            if (store.arcEdge[a] == InstanceStore.NONE && store.arcRequired.get(a)) requiredArcs++;
+        }
+        compare(mismatches, "#Required A", numRequiredArcs, requiredArcs);
+        compare(mismatches, "#Nb-Turns", numTurns, store.turnCount());
+        if (store.nodeDefined.length() - 1 > numNodes) {
+            mismatches.add("nó " + (store.nodeDefined.length() - 1) + " além de #Nodes = " + numNodes);
+        }
+        if (trailingLines > 0) {
+            mismatches.add(trailingLines + " linha(s) após o fim esperado do arquivo (contagens menores que o corpo?)");
+        }
+        return mismatches;
+    }
+
+    private static void compare(List<String> mismatches, String key, int header, int body) {
+        if (header != body) {
+            mismatches.add(key + " = " + header + ", mas o corpo tem " + body);
+        }
+    }
+
+    /**
+     * Analisa a instância pré-processada e imprime o diagnóstico.
+     * @return false se a instância é comprovadamente inviável.
+     */
+    public boolean analyze(CplexData data, String inputType) {
+        return analyze(data, inputType, true);
+    }
+
+    /**
+     * @param wholeService false quando os serviços são divididos entre execuções (ex.: dias),
+     *                     sem a verificação do serviço total contra a frota.
+     */
+    public boolean analyze(CplexData data, String inputType, boolean wholeService) {
+        InstanceAnalyzer analyzer = new InstanceAnalyzer(data, "NEARPTP".equalsIgnoreCase(inputType));
+        analyzer.setCheckTotalService(wholeService);
+        analyzer.addHeaderIssues(headerMismatches(), numVehicles);
+        boolean feasible = analyzer.analyze();
+        analyzer.print();
+        return feasible;
+    }
+
     /**
      * Lê o cabeçalho (metadados) do arquivo de entrada.
      */
@@ -147,6 +186,9 @@ public class Tcc {
                 case "#Nb-Turns":
                     this.numTurns = Integer.parseInt(value);
                     break;
+                case "Optimal value":
+                    this.optimalValue = Integer.parseInt(value);
+                    break;
             }
         }
     }
@@ -155,6 +197,8 @@ public class Tcc {
      * Parsing para o formato NEARP.
      */
     private void parseNearp(BufferedReader br) throws IOException {
+        this.store = new InstanceStore(this.numNodes, this.numEdges, this.numArcs, 0);
+
         // --- NODES ---
         br.readLine();      // "ReN.    DEMAND  S. COST"
 
@@ -162,18 +206,16 @@ public class Tcc {
         for (int i = 0; i < this.numRequiredNodes; i++) {
             String[] parts = br.readLine().trim().split("\t");
             int id = Integer.parseInt(parts[0].replaceAll("\\D+", ""));
-			Node n = new Node(
-				Integer.parseInt(parts[1]), 
-				Integer.parseInt(parts[2]), 
+			store.setNode(id,
+				Integer.parseInt(parts[2]), 	// service
 				true
 			);
-			addNode(id, n);
         }
 
 		// Nós não requeridos
 		for (int i = 1; i <= this.numNodes; i++) {
-			if (!reqNodes.containsKey(i)) {
-				addNode(i, new Node());
+			if (!store.nodeRequired.get(i)) {
+				store.setNode(i, 0, false);
 			}
         }
 
@@ -181,19 +223,17 @@ public class Tcc {
 		br.readLine();		// linha em branco
         br.readLine();      // "ReE. From N. To N.   T. COST DEMAND  S. COST"
         
-		// Arestas requeridas
+		// Arestas requeridas (a demanda é forçada a ser unitária)
         for (int i = 0; i < this.numRequiredEdges; i++) {
             String[] parts = br.readLine().trim().split("\t");
             int id = Integer.parseInt(parts[0].replaceAll("\\D+", ""));
-            Edge e = new Edge(
+            store.addEdge(id,
                 Integer.parseInt(parts[1]),     // from
                 Integer.parseInt(parts[2]),     // to
                 Integer.parseInt(parts[3]),     // traversal
-                Integer.parseInt(parts[4]),     // demand
                 Integer.parseInt(parts[5]),     // service
                 true
             );
-            addEdge(id, e);
         }
         
 		br.readLine();		// linha em branco
@@ -203,15 +243,13 @@ public class Tcc {
         for (int i = 0; i < (this.numEdges - this.numRequiredEdges); i++) {
             String[] parts = br.readLine().trim().split("\t");
             int id = Integer.parseInt(parts[0].replaceAll("\\D+", ""));
-            Edge e = new Edge(
+            store.addEdge(id,
                 Integer.parseInt(parts[1]),		// from
                 Integer.parseInt(parts[2]),		// to
                 Integer.parseInt(parts[3]),		// traversal
-                0,						// demand
                 0,					// service
                 false
             );
-            addEdge(id, e);
         }
 
         // --- ARCS ---
@@ -222,15 +260,13 @@ public class Tcc {
         for (int i = 0; i < this.numRequiredArcs; i++) {
             String[] parts = br.readLine().trim().split("\t");
             int id = Integer.parseInt(parts[0].replaceAll("\\D+", ""));
-            Arc a = new Arc(
+            store.addArc(id,
 				Integer.parseInt(parts[1]),		// from
 				Integer.parseInt(parts[2]),		// to
 				Integer.parseInt(parts[3]),		// traversal
-				Integer.parseInt(parts[4]),		// demand
 				Integer.parseInt(parts[5]),		// service
 				true
             );
-            addArc(id, a);
         }
 
 		br.readLine();		// linha em branco
@@ -240,15 +276,13 @@ public class Tcc {
         for (int i = 0; i < (this.numArcs - this.numRequiredArcs); i++) {
             String[] parts = br.readLine().trim().split("\t");
             int id = Integer.parseInt(parts[0].replaceAll("\\D+", ""));
-            Arc a = new Arc(
+            store.addArc(id,
 				Integer.parseInt(parts[1]),		// from
 				Integer.parseInt(parts[2]),		// to
 				Integer.parseInt(parts[3]),		// traversal
-				0,						// demand
 				0,					// service
 				false
             );
-            addArc(id, a);
         }
     }
 
@@ -256,18 +290,18 @@ public class Tcc {
      * Parsing para o formato NEARP-TP.
      */
 	private void parseNearpTp(BufferedReader br) throws IOException {
+        this.store = new InstanceStore(this.numNodes, this.numEdges, this.numArcs, this.numTurns);
+
 		br.readLine();		// "----------NODES----------"
 		br.readLine();		// "INDEX	QTY	IS-REQUIRED	X	Y"
 
 		for (int i = 0; i < this.numNodes; i++) {
             String[] parts = br.readLine().trim().split("\t");
 			int id = Integer.parseInt(parts[0]);
-            Node n = new Node(
-				0,
+            store.setNode(id,
 				Integer.parseInt(parts[1]),				// qty (serviceCost)
 				Integer.parseInt(parts[2]) == 1			// isRequired
             );
-			addNode(id, n);
         }
 
 		br.readLine();		// linha em branco
@@ -276,15 +310,13 @@ public class Tcc {
 
         for (int i = 1; i <= this.numEdges; i++) {
             String[] parts = br.readLine().trim().split("\t");
-            Edge e = new Edge(
+            store.addEdge(i,
 				Integer.parseInt(parts[0]),			// from (I)
 				Integer.parseInt(parts[1]),			// to (J)
 				Integer.parseInt(parts[4]),			// tr-cost
-				0,
 				Integer.parseInt(parts[2]),			// qty (service cost)
 				Integer.parseInt(parts[3]) == 1		// isRequired
             );
-			addEdge(i, e);
         }
 
 		br.readLine();		// linha em branco
@@ -293,15 +325,13 @@ public class Tcc {
 
         for (int i = 1; i <= this.numArcs; i++) {
             String[] parts = br.readLine().trim().split("\t");
-            Arc a = new Arc(
+            store.addArc(i,
 				Integer.parseInt(parts[0]), 		// from (I)
 				Integer.parseInt(parts[1]), 		// to (J)
 				Integer.parseInt(parts[4]), 		// tr-cost
-				0,
 				Integer.parseInt(parts[2]), 		// qty (service cost)
 				Integer.parseInt(parts[3]) == 1 	// isRequired
             );
-            addArc(i, a);
         }
 
 		br.readLine();		// linha em branco
@@ -310,18 +340,49 @@ public class Tcc {
 
 		for (int i = 0; i < this.numTurns; i++) {
 			String[] parts = br.readLine().trim().split("\t");
-            String key = parts[0] + "-" + parts[1] + "-" + parts[2];
-			Turn t = new Turn(
+			store.addTurn(
 				Integer.parseInt(parts[0]), 		// I
 				Integer.parseInt(parts[1]), 		// J
 				Integer.parseInt(parts[2]), 		// K
 				Integer.parseInt(parts[3]), 		// cost
 				parts[4]  							// type
 			);
-			this.turns.put(key, t);
 		}
     }
 
+    /**
+     * Executa o pré-processamento sobre os dados lidos.
+     */
+    @SuppressWarnings("try")
+    public CplexData preProcess() {
+        try (Instrumentation.Phase phase = Instrumentation.phase("preprocess")) {
+            TccPreProcessing preProcessor = new TccPreProcessing(
+                this.numVehicles, this.capacity, this.depotNode, this.store
+            );
+            return preProcessor.getCplexData();
+        }
+    }
+
+    /**
+     * Lê e pré-processa uma instância.
+     */
+    public static CplexData loadInstance(String inputFilePath, String inputType) throws IOException {
+        Tcc tcc = new Tcc();
+        tcc.readInput(inputFilePath, inputType);
+        return tcc.preProcess();
+    }
+
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    /**
+     * Valor ótimo conhecido, informado no cabeçalho, ou -1.
+     */
+    public int getOptimalValue() {
+        return optimalValue;
+    }
+
     /**
      * Escreve o objeto Solution em um arquivo de saída, no formato especificado.
      * @param sol O objeto Solution preenchido.
@@ -345,9 +406,14 @@ public class Tcc {
             writer.write(String.valueOf(sol.getTimeToBestSolutionMillis()));
             writer.newLine();
 
-            // Linhas 5+: Detalhes da Rota
+            // Linhas 5+: Detalhes da Rota (índice reinicia a cada dia)
             int routeIndex = 1;
+            int currentDay = -1;
             for (Route route : sol.getRoutes()) {
+                if (route.getDay() != currentDay) {
+                    currentDay = route.getDay();
+                    routeIndex = 1;
+                }
                 StringBuilder lineBuilder = new StringBuilder();
 
                 // Espaço no início da linha
@@ -358,7 +424,7 @@ public class Tcc {
                 lineBuilder.append(" ");
 
                 // 2. Dia
-                lineBuilder.append(1);
+                lineBuilder.append(route.getDay());
                 lineBuilder.append(" ");
 
                 // 3. Índice da Rota
@@ -402,15 +468,136 @@ public class Tcc {
         // Start the stopwatch to track the running time
         StopWatch stopWatch = StopWatch.createStarted();
 
-        if (args.length != 3) {
-            System.out.println("Usage: java -jar target/tcc-1.0.jar <inputType> <inputFilePath> <outputFilePath>");
+        if (args.length > 0 && args[0].equalsIgnoreCase("tune")) {
+            try {
+                ParameterTuner.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.err.println("Falha no ajuste de parâmetros.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("validate")) {
+            try {
+                SolutionValidator.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Falha ao ler a instância ou a solução.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("bound")) {
+            try {
+                LowerBoundSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.err.println("Falha no cálculo do limitante inferior.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("suite")) {
+            try {
+                BenchmarkSuite.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.err.println("Falha na execução da suíte de benchmarks.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("generate")) {
+            try {
+                InstanceGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Falha ao escrever a instância gerada.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("batch")) {
+            try {
+                BatchQueue.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Falha na fila de trabalhos em lote.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("periodic")) {
+            try {
+                PeriodicPlanner.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Falha no planejamento periódico.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("model")) {
+            try {
+                RecordingBackend.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Falha ao construir ou exportar o modelo.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length >= 3 && args[0].equalsIgnoreCase("service")) {
+            runService(args, stopWatch);
+            return;
+        }
+
+        if (args.length < 3) {
+            System.out.println("Usage: java -jar target/tcc-1.0.jar <inputType> <inputFilePath> <outputFilePath> [opções]");
+            System.out.println("       java -jar target/tcc-1.0.jar tune <inputType> <outputParamFile.prm> <instância|pasta>... [opções]");
+            System.out.println("       java -jar target/tcc-1.0.jar service <inputType> <inputFilePath> [--port=<n>] [--output=<arquivo>] [opções]");
+            System.out.println("       java -jar target/tcc-1.0.jar bound <inputType> <instância> [--bound=combinatorial|lp|lagrangian] [--upper=<valor|solução>]");
+            System.out.println("       java -jar target/tcc-1.0.jar validate <inputType> <instância> <solução|pasta>...");
+            System.out.println("       java -jar target/tcc-1.0.jar suite <inputType> <saida.csv> <instância|pasta>... [--baseline=<csv>] [--time-limit=<s>]");
+            System.out.println("       java -jar target/tcc-1.0.jar generate <inputType> <saida.dat> [--nodes=<n>] [--layout=grid|irregular] [--seed=<n>]");
+            System.out.println("       java -jar target/tcc-1.0.jar batch submit|worker|status <fila> ...");
+            System.out.println("       java -jar target/tcc-1.0.jar periodic <inputType> <entrada> <saida> [--days=<D>] [--frequencies=<arquivo>] [--day-parallel=<n>] [opções]");
+            System.out.println("       java -jar target/tcc-1.0.jar model <inputType> <instância> [--export=<arquivo.mps|.lp>] [--formulation=node|linegraph] [--symmetry=...]");
             System.out.println("\tinputType: NEARP ou NEARPTP");
+            System.out.println("\t--lns: LNS sobre subconjuntos de veículos após a incumbente inicial");
+            System.out.println("\t--lns-subtime=<s>: limite de tempo de cada sub-MIP do LNS (padrão 30)");
+            System.out.println("\t--lns-parallel=<n>: sub-MIPs do LNS resolvidos simultaneamente");
+            System.out.println("\t--seed=<n>: semente dos sorteios");
+            System.out.println("\t--race[=<n>]: corrida entre n perfis de parâmetros em paralelo");
+            System.out.println("\t--race-profiles=<p1,p2,...>: perfis embutidos ou arquivos .prm da corrida");
+            System.out.println("\t--params=<arquivo.prm>: parâmetros do CPLEX (ex.: gerados por 'tune')");
+            System.out.println("\t--pool=<k>: escreve os k melhores planos distintos do pool de soluções (saida_pool<i>.txt)");
+            System.out.println("\t  --pool-gap=<rel> (padrão 0.05) --pool-intensity=<0..4> (padrão 3) --pool-time=<s> (padrão 60)");
+            System.out.println("\t--telemetry[=csv|jsonl]: série de incumbente, limitante, gap, nós e memória (saida_telemetry.csv)");
+            System.out.println("\t  --telemetry-interval=<ms> (padrão 1000)");
+            System.out.println("\t--metrics[=<arquivo.csv|.json>]: tempos, linhas, não nulos e heap por fase (saida_metrics.csv); eventos JFR com -XX:StartFlightRecording");
+            System.out.println("\t--checkpoint[=<s>]: grava a incumbente (saida_checkpoint.mst), o limitante e o tempo gasto a cada melhoria e a cada s segundos (padrão 60)");
+            System.out.println("\t--resume[=<checkpoint.properties>]: retoma a partir do checkpoint, com o que resta do orçamento de tempo");
+            System.out.println("\t--analysis=off: não verifica alcance, T_max, frota e cabeçalho antes de construir o modelo (inviável: código de saída 2)");
+            System.out.println("\t--turn-pruning=off: mantém as conversões inalcançáveis em T_max e as dominadas por desvios (NEARP-TP)");
+            System.out.println("\t--formulation=node|linegraph: NEARP-TP com w ligado a x e y (padrão) ou com os fluxos sobre as conversões");
+            System.out.println("\t--symmetry=cost|assignment|orbital|none: simetria entre veículos por custo (padrão), ordem dos serviços ou fixação orbital");
+            System.out.println("\t--cache[=<pasta>]: reaproveita resultados de instância e opções idênticas (padrão ./cache); instâncias parecidas viram partida parcial");
+            System.out.println("\t  --cache-similarity=<0..1> (padrão 0.5): similaridade mínima dos conjuntos de serviços");
+            System.out.println("\t--resources=<arquivo>: perfil de recursos (.properties); cada chave também aceita como opção:");
+            System.out.println("\t  --time-limit=<s> --threads=<n> --workmem=<MB> --nodefile=<0..3> --nodefile-dir=<dir>");
+            System.out.println("\t  --parallel=<deterministic|opportunistic|auto> --memory-emphasis[=true|false] --tree-memory=<MB>");
             return;
         }
 
         String inputType = args[0];
         String inputFilePath = args[1];
         String outputFilePath = args[2];
+        Map<String, String> options = parseOptions(args, 3);
+        if (options.containsKey("metrics")) {
+            Instrumentation.enable();
+        }
 
         Tcc tcc = new Tcc();
         try {
@@ -418,32 +605,34 @@ public class Tcc {
             System.out.println("\nInstância lida com sucesso: " + tcc.instanceName);
 
 			// Log de verificação
-            System.out.println("\nTotal de Nós: " + (tcc.reqNodes.size() + tcc.nonReqNodes.size()));
-            System.out.println("Total de Arestas: " + (tcc.reqEdges.size() + tcc.nonReqEdges.size()));
-            System.out.println("Total de Arcos: " + (tcc.reqArcs.size() + tcc.nonReqArcs.size()));
-            System.out.println("Total de Conversões: " + tcc.turns.size());
-
-            Map<String, Integer> contagemTipos = new HashMap<>();
-            for (Turn t : tcc.turns.values()) {
-                contagemTipos.put(t.type, contagemTipos.getOrDefault(t.type, 0) + 1);
-            }
+            System.out.println("\nTotal de Nós: " + tcc.store.definedNodeCount());
+            System.out.println("Total de Arestas: " + tcc.store.edgeCount());
+            System.out.println("Total de Arcos: " + tcc.store.originalArcCount());
+            System.out.println("Total de Conversões: " + tcc.store.turnCount());
+            System.out.printf("Armazenamento colunar: %.1f KB%n", tcc.store.approximateBytes() / 1024.0);
 
             System.out.println("  Quantidade por tipo:");
-            for (Map.Entry<String, Integer> entry : contagemTipos.entrySet()) {
+            for (Map.Entry<String, Integer> entry : tcc.store.turnTypeCounts().entrySet()) {
                 System.out.println("  - " + entry.getKey() + ": " + entry.getValue());
             }
 
 			System.out.println("\nIniciando pré-processamento...");
             
-            TccPreProcessing preProcessor = new TccPreProcessing(
-                tcc.numVehicles, tcc.capacity, tcc.depotNode,
-				tcc.reqNodes, tcc.nonReqNodes,
-                tcc.reqEdges, tcc.nonReqEdges,
-                tcc.reqArcs, tcc.nonReqArcs,
-                tcc.turns
-            );
+            CplexData cplexData = tcc.preProcess();
+
+            if (!"off".equals(options.get("analysis")) && !tcc.analyze(cplexData, inputType)) {
+                System.out.println("Instância inviável; o modelo não será construído.");
+                System.exit(InstanceAnalyzer.EXIT_INFEASIBLE);
+            }
 
-            CplexData cplexData = preProcessor.getCplexData();
+            if ("NEARPTP".equalsIgnoreCase(inputType) && !"off".equals(options.get("turn-pruning"))) {
+                int before = cplexData.getTurns().size();
+                TurnPruning pruning = new TurnPruning(cplexData);
+                int removed = pruning.prune();
+                System.out.printf("Conversões removidas: %d de %d (%d inalcançáveis em T_max, %d dominadas por desvios); %d variáveis w a menos%n",
+                                  removed, before, pruning.getUnreachable(), pruning.getDominated(),
+                                  (long) removed * cplexData.getNumVehicles());
+            }
 
             System.out.println("Pré-processamento concluído.");
             System.out.println("  Número de veículos: " + cplexData.getNumVehicles());
@@ -455,25 +644,270 @@ public class Tcc {
 			System.out.println("  Total de arestas requeridas (E_R): " + cplexData.getReqEdges().size());
             System.out.println("  Total de arcos requeridos (R_A): " + cplexData.getReqArcs().size());
 
-            System.out.println("\n  Quantidade de variáveis contínuas: " + (cplexData.getNumVehicles() * cplexData.getArcs().size()));
-            System.out.println("  Quantidade de variáveis inteiras: " + (cplexData.getNumVehicles() * (cplexData.getArcs().size() + cplexData.getTurns().size())));
+            // No grafo de linhas (NEARP-TP) y e f dão lugar a w e g por conversão
+            boolean lineGraph = "NEARPTP".equalsIgnoreCase(inputType) && "linegraph".equalsIgnoreCase(options.get("formulation"));
+            int flowColumns = lineGraph ? cplexData.getTurns().size() : cplexData.getArcs().size();
+            System.out.println("\n  Quantidade de variáveis contínuas: " + (cplexData.getNumVehicles() * flowColumns));
+            System.out.println("  Quantidade de variáveis inteiras: " + (cplexData.getNumVehicles() * (flowColumns + (lineGraph ? 0 : cplexData.getTurns().size()))));
             System.out.println("  Quantidade de variáveis binárias: " + (cplexData.getNumVehicles() * (cplexData.getReqArcs().size() + cplexData.getReqNodes().size())));
             
+            CombinatorialBound combinatorialBound = new CombinatorialBound(cplexData);
+            combinatorialBound.compute();
+            System.out.println();
+            combinatorialBound.print();
+
+            ResultCache cache = null;
+            ResultCache.Hit cached = null;
+            if (options.containsKey("cache")) {
+                cache = new ResultCache(options.get("cache").isEmpty() ? "cache" : options.get("cache"), cplexData, inputType, options);
+                cached = cache.lookup(Double.parseDouble(options.getOrDefault("cache-similarity", "0.5")));
+                if (cached != null && cached.isExact()) {
+                    cached.copyOutput(outputFilePath);
+                    System.out.printf("%nCache: resultado idêntico encontrado (%s, custo %d, estado %s). Saída em %s%n",
+                                      cached.getInstanceName(), cached.getObjective(), cached.getStatus(), outputFilePath);
+                    return;
+                }
+            }
+
             System.out.println("\nInicializando o modelo CPLEX...");
             
+            ResourceProfile resources = ResourceProfile.automatic(cplexData, "NEARPTP".equalsIgnoreCase(inputType));
+            if (options.containsKey("resources")) {
+                resources.loadFile(options.get("resources"));
+            }
+            resources.loadOptions(options);
+
+            // Retomada: o orçamento total é o da execução original (ou --time-limit), descontado o tempo já gasto
+            Properties resumeState = null;
+            String checkpointBase = outputSibling(outputFilePath, "_checkpoint", "");
+            long previousElapsed = 0;
+            long totalBudget = resources.getTimeLimitMillis();
+            if (options.containsKey("resume")) {
+                String resumePath = options.get("resume").isEmpty() ? checkpointBase + ".properties" : options.get("resume");
+                resumeState = SolveCheckpoint.read(resumePath);
+                if (!tcc.instanceName.equals(resumeState.getProperty("instance"))) {
+                    throw new IOException("O checkpoint " + resumePath + " é da instância " + resumeState.getProperty("instance")
+                                          + ", não de " + tcc.instanceName + ".");
+                }
+                checkpointBase = resumePath.replaceFirst("\\.properties$", "");
+                previousElapsed = Long.parseLong(resumeState.getProperty("elapsedMillis", "0"));
+                if (!options.containsKey("time-limit") && resumeState.containsKey("timeLimitMillis")) {
+                    totalBudget = Long.parseLong(resumeState.getProperty("timeLimitMillis"));
+                }
+                resources.setTimeLimitMillis(totalBudget - previousElapsed);
+                System.out.printf("%nRetomando %s: incumbente %s, limitante %s, %d s já gastos de %d s.%n", resumePath,
+                                  resumeState.getProperty("objective", "-"), resumeState.getProperty("bound", "-"),
+                                  previousElapsed / 1000, totalBudget / 1000);
+            }
+            resources.print();
+
             CplexModel model = new CplexModel(cplexData, inputType);
-            Solution solution = model.solve(stopWatch);
+            model.setResourceProfile(resources);
+            if (options.containsKey("formulation")) {
+                model.setFormulation(options.get("formulation"));
+            }
+            if (options.containsKey("symmetry")) {
+                model.setSymmetry(options.get("symmetry"));
+            }
+
+            if (cache != null) {
+                model.setRetainPlans(true);
+                if (cached != null) {
+                    model.setWarmStartPlans(cached.readPlans());
+                    System.out.printf("Cache: partida parcial a partir de %s (similaridade %.2f, custo %d)%n",
+                                      cached.getInstanceName(), cached.getSimilarity(), cached.getObjective());
+                }
+            }
+
+            SolveCheckpoint checkpoint = null;
+            if (options.containsKey("checkpoint") || resumeState != null) {
+                String interval = options.getOrDefault("checkpoint", "");
+                checkpoint = new SolveCheckpoint(checkpointBase, tcc.instanceName,
+                                                 (long) (Double.parseDouble(interval.isEmpty() ? "60" : interval) * 1000),
+                                                 previousElapsed, totalBudget);
+                model.setCheckpoint(checkpoint);
+                System.out.println("Checkpoints em " + checkpointBase + ".properties");
+            }
+            if (resumeState != null) {
+                checkpoint.resumeFrom(resumeState);
+                String mipStart = SolveCheckpoint.mipStartPath(checkpointBase + ".properties", resumeState);
+                if (mipStart != null) {
+                    model.setResumeStart(SolveCheckpoint.readMipStart(mipStart));
+                }
+            }
+            if (options.containsKey("params")) {
+                model.setParameterProfile(ParameterProfile.fromFile(options.get("params")));
+            }
+            if (options.containsKey("pool")) {
+                model.setSolutionPool(Integer.parseInt(options.get("pool")),
+                                      Double.parseDouble(options.getOrDefault("pool-gap", "0.05")),
+                                      Integer.parseInt(options.getOrDefault("pool-intensity", "3")),
+                                      Double.parseDouble(options.getOrDefault("pool-time", "60")));
+            }
+            SolveTelemetry telemetry = null;
+            if (options.containsKey("telemetry")) {
+                String format = options.get("telemetry").equals("jsonl") ? ".jsonl" : ".csv";
+                String telemetryPath = outputSibling(outputFilePath, "_telemetry", format);
+                telemetry = new SolveTelemetry(telemetryPath, Long.parseLong(options.getOrDefault("telemetry-interval", "1000")));
+                model.setTelemetry(telemetry);
+                System.out.println("Telemetria em " + telemetryPath);
+            }
+            Solution solution;
+
+            if (options.containsKey("lns")) {
+                LnsDriver lns = new LnsDriver(cplexData, inputType, model, Long.parseLong(options.getOrDefault("seed", "0")));
+                if (options.containsKey("lns-subtime")) {
+                    lns.setSubTimeLimit(Double.parseDouble(options.get("lns-subtime")));
+                }
+                if (options.containsKey("lns-parallel")) {
+                    lns.setParallelism(Integer.parseInt(options.get("lns-parallel")));
+                }
+                solution = lns.run(stopWatch);
+            } else if (options.containsKey("race") || options.containsKey("race-profiles")) {
+                solution = new PortfolioRacer(model, selectRaceProfiles(options)).run(stopWatch);
+            } else {
+                solution = model.solve(stopWatch);
+            }
+
+            if (telemetry != null) {
+                telemetry.close();
+            }
+            if (checkpoint != null) {
+                checkpoint.finish(solution != null ? "finished" : "no-solution", stopWatch.getTime(TimeUnit.MILLISECONDS));
+            }
 
             if (solution != null) {
                 System.out.println("Solução encontrada! Escrevendo saída...");
+                System.out.printf("  Custo %d, limitante combinatório %d, gap %.2f%%%n", solution.getObjectiveValue(),
+                                  combinatorialBound.getBound(), combinatorialBound.gap(solution.getObjectiveValue()));
                 tcc.writeOutput(solution, outputFilePath);
+                if (cache != null) {
+                    String status = model.getFinalStatus() != null ? model.getFinalStatus() : "Unknown";
+                    cache.store(tcc.instanceName, outputFilePath, solution, model.getFinalPlans(), status);
+                    System.out.println("  Resultado guardado no cache (" + cache.getKey().substring(0, 12) + ")");
+                }
+
+                List<Solution> alternatives = model.getPoolSolutions();
+                for (int i = 0; i < alternatives.size(); i++) {
+                    String poolPath = outputSibling(outputFilePath, "_pool" + (i + 1), null);
+                    tcc.writeOutput(alternatives.get(i), poolPath);
+                    System.out.println("  Plano " + (i + 1) + " (custo " + alternatives.get(i).getObjectiveValue() + "): " + poolPath);
+                }
             } else {
                 System.out.println("Nenhuma solução foi retornada.");
             }
 
+            if (Instrumentation.isEnabled()) {
+                String metricsPath = options.getOrDefault("metrics", "");
+                if (metricsPath.isEmpty()) {
+                    metricsPath = outputSibling(outputFilePath, "_metrics", ".csv");
+                }
+                MetricsRegistry metrics = Instrumentation.registry();
+                metrics.gauge("run.total_ms", stopWatch.getTime(TimeUnit.MILLISECONDS));
+                if (solution != null) {
+                    metrics.gauge("run.objective", solution.getObjectiveValue());
+                    metrics.gauge("run.time_to_best_ms", solution.getTimeToBestSolutionMillis());
+                }
+                System.out.println();
+                metrics.print();
+                metrics.export(metricsPath);
+                System.out.println("Métricas em " + metricsPath);
+            }
+
         } catch (IOException e) {
             System.err.println("Falha ao ler ou processar a instância.");
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Arquivo ao lado da saída: ("saida.txt", "_pool1", null) -> "saida_pool1.txt";
+     * uma extensão não nula substitui a da saída.
+     */
+    private static String outputSibling(String outputFilePath, String suffix, String extension) {
+        int dot = outputFilePath.lastIndexOf('.');
+        int sep = Math.max(outputFilePath.lastIndexOf('/'), outputFilePath.lastIndexOf('\\'));
+        String base = dot > sep ? outputFilePath.substring(0, dot) : outputFilePath;
+        String ext = extension != null ? extension : (dot > sep ? outputFilePath.substring(dot) : "");
+        return base + suffix + ext;
+    }
+
+    /**
+     * Modo serviço: modelo residente, alterado e resolvido sob comando (ver SolverService).
+     */
+    private static void runService(String[] args, StopWatch stopWatch) {
+        String inputType = args[1];
+        Map<String, String> options = parseOptions(args, 3);
+
+        Tcc tcc = new Tcc();
+        try {
+            tcc.readInput(args[2], inputType);
+            CplexData cplexData = tcc.preProcess();
+            if (!"off".equals(options.get("analysis")) && !tcc.analyze(cplexData, inputType)) {
+                System.out.println("Instância inviável; o serviço não será iniciado.");
+                System.exit(InstanceAnalyzer.EXIT_INFEASIBLE);
+            }
+
+            ResourceProfile resources = ResourceProfile.automatic(cplexData, "NEARPTP".equalsIgnoreCase(inputType));
+            if (options.containsKey("resources")) {
+                resources.loadFile(options.get("resources"));
+            }
+            resources.loadOptions(options);
+
+            CplexModel model = new CplexModel(cplexData, inputType);
+            model.setResourceProfile(resources);
+            if (options.containsKey("formulation")) {
+                model.setFormulation(options.get("formulation"));
+            }
+            if (options.containsKey("symmetry")) {
+                model.setSymmetry(options.get("symmetry"));
+            }
+            if (options.containsKey("params")) {
+                model.setParameterProfile(ParameterProfile.fromFile(options.get("params")));
+            }
+
+            new SolverService(tcc, model, options.get("output"))
+                .run(Integer.parseInt(options.getOrDefault("port", "0")), stopWatch);
+
+        } catch (IOException e) {
+            System.err.println("Falha ao ler a instância ou na comunicação do serviço.");
+            e.printStackTrace();
+        } catch (IloException e) {
+            System.err.println("Um erro de CPLEX ocorreu no serviço:");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Perfis da corrida: lista explícita ou os n primeiros perfis embutidos.
+     */
+    private static List<ParameterProfile> selectRaceProfiles(Map<String, String> options) {
+        if (options.containsKey("race-profiles")) {
+            return ParameterProfile.parseList(options.get("race-profiles"));
+        }
+        List<ParameterProfile> builtIn = new ArrayList<>(ParameterProfile.builtIn().values());
+        String count = options.get("race");
+        int n = count.isEmpty() ? Math.min(4, Runtime.getRuntime().availableProcessors()) : Integer.parseInt(count);
+        return builtIn.subList(0, Math.max(1, Math.min(n, builtIn.size())));
+    }
+
+    /**
+     * Lê opções no formato "--chave=valor" ou "--chave" (valor vazio) a partir de 'first'.
+     */
+    static Map<String, String> parseOptions(String[] args, int first) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = first; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Opção inválida: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
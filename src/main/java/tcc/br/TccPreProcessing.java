@@ -18,48 +18,67 @@ public class TccPreProcessing {
     private final Map<Integer, List<Arc>> incomingArcsTo = new HashMap<>();
 
     /**
-     * Construtor que recebe os dados brutos e inicia o pré-processamento.
+     * Construtor que recebe os dados lidos (InstanceStore) e inicia o pré-processamento.
+     * Os mapas produzidos guardam visões sobre o mesmo armazenamento, sem cópias.
      */
-    public TccPreProcessing(int numVehicles, int capacity, int realDepotNodeId,
-                            Map<Integer, Node> reqNodesIn, Map<Integer, Node> nonReqNodesIn,
-                            Map<Integer, Edge> reqEdgesIn, Map<Integer, Edge> nonReqEdgesIn,
-                            Map<Integer, Arc> reqArcsIn, Map<Integer, Arc> nonReqArcsIn,
-                            Map<String, Turn> turnsIn) {
-        
-        processData(numVehicles, capacity, realDepotNodeId, 
-                    reqNodesIn, nonReqNodesIn, reqEdgesIn, nonReqEdgesIn, 
-                    reqArcsIn, nonReqArcsIn, turnsIn);
+    public TccPreProcessing(int numVehicles, int capacity, int realDepotNodeId, InstanceStore store) {
+        processData(numVehicles, capacity, realDepotNodeId, store);
     }
 
     /**
      * Executa a lógica de transformação de dados.
      */
-    private void processData(int numVehicles, int capacity, int realDepotNodeId,
-                             Map<Integer, Node> reqNodesIn, Map<Integer, Node> nonReqNodesIn,
-                             Map<Integer, Edge> reqEdgesIn, Map<Integer, Edge> nonReqEdgesIn,
-                             Map<Integer, Arc> reqArcsIn, Map<Integer, Arc> nonReqArcsIn,
-                             Map<String, Turn> turnsIn) {
-
-        Map<Integer, Arc> reqArcsOg = new HashMap<>(reqArcsIn);
-
-        Map<Integer, Edge> reqEdges = new HashMap<>(reqEdgesIn);
-
-        Map<Integer, Node> reqNodes = new HashMap<>(reqNodesIn);
-        
-        Map<String, Turn> turns = new HashMap<>(turnsIn);
+    private void processData(int numVehicles, int capacity, int realDepotNodeId, InstanceStore store) {
+        Map<Integer, Arc> reqArcsOg = new HashMap<>();
+        Map<Integer, Edge> reqEdges = new HashMap<>();
+        Map<Integer, Node> reqNodes = new HashMap<>();
+        Map<Integer, Node> nodes = new HashMap<>();
+        Map<String, Turn> turns = new HashMap<>();
+
+        for (int id = store.nodeDefined.nextSetBit(0); id >= 0; id = store.nodeDefined.nextSetBit(id + 1)) {
+            Node node = store.node(id);
+            nodes.put(id, node);
+            if (node.isRequired()) {
+                reqNodes.put(id, node);
+            }
+        }
 
-        Map<Integer, Node> nodes = new HashMap<>(reqNodesIn);
-        nodes.putAll(nonReqNodesIn);
+        // Arcos originais (requeridos e depois os demais), então as arestas, como na leitura por mapas
+        for (int pass = 0; pass < 2; pass++) {
+            boolean required = pass == 0;
+            for (int a = 0; a < store.arcCount(); a++) {
+                if (store.arcEdge[a] == InstanceStore.NONE && store.arcRequired.get(a) == required) {
+                    Arc arc = store.arc(a);
+                    addArcToStructures(arc);
+                    if (required) {
+                        reqArcsOg.put(arc.id(), arc);
+                    }
+                }
+            }
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            boolean required = pass == 0;
+            for (int e = 0; e < store.edgeCount(); e++) {
+                if (store.edgeRequired.get(e) == required) {
+                    Edge edge = store.edge(e);
+                    addArcToStructures(edge.forward());
+                    addArcToStructures(edge.backward());
+                    if (required) {
+                        reqEdges.put(edge.id(), edge);
+                    }
+                }
+            }
+        }
 
-        processArcMap(reqArcsIn);
-        processArcMap(nonReqArcsIn);
-        
-        processEdgeMap(reqEdgesIn);
-        processEdgeMap(nonReqEdgesIn);
+        for (int t = 0; t < store.turnCount(); t++) {
+            Turn turn = store.turn(t);
+            turns.put(turn.i() + "-" + turn.j() + "-" + turn.l(), turn);
+        }
 
         numVehicles = calculateTopNumVehicles(numVehicles, capacity, reqNodes);
 
         this.cplexData = new CplexData(numVehicles, capacity, realDepotNodeId, reqArcsOg, reqEdges, reqNodes, nodes, this.arcs, this.reqArcs, this.outgoingArcsFrom, this.incomingArcsTo, turns);
+        this.cplexData.setStore(store);
     }
 
     /**
@@ -67,42 +86,17 @@ public class TccPreProcessing {
      * arcs, reqArcs (se aplicável), outgoingArcsFrom, incomingArcsTo.
      */
     private void addArcToStructures(Arc arc) {
-        String key = arc.fromNode + "-" + arc.toNode;
+        String key = arc.fromNode() + "-" + arc.toNode();
         
         this.arcs.put(key, arc);
         
-        if (arc.isRequired) {
+        if (arc.isRequired()) {
             this.reqArcs.put(key, arc);
         }
 
-        this.outgoingArcsFrom.computeIfAbsent(arc.fromNode, k -> new ArrayList<>()).add(arc);
+        this.outgoingArcsFrom.computeIfAbsent(arc.fromNode(), k -> new ArrayList<>()).add(arc);
         
-        this.incomingArcsTo.computeIfAbsent(arc.toNode, k -> new ArrayList<>()).add(arc);
-    }
-
-    /**
-     * Adiciona arcos do mapa de arcos original (A') aos novos mapas 'arcs' (A) e 'reqArcs' (R_A).
-     */
-    private void processArcMap(Map<Integer, Arc> arcMap) {
-        for (Arc a : arcMap.values()) {
-            addArcToStructures(a);
-        }
-    }
-
-    /**
-     * Transforma arestas (E) em pares de arcos opostos e os adiciona
-     * aos novos mapas 'arcs' (A) e 'reqArcs' (R_A).
-     */
-    private void processEdgeMap(Map<Integer, Edge> edgeMap) {
-        for (Edge e : edgeMap.values()) {
-            // Cria arco (i, j)
-            Arc arc1 = new Arc(e.fromNode, e.toNode, e.traversalCost, e.demand, e.serviceCost, e.isRequired);
-            addArcToStructures(arc1);
-
-            // Cria arco (j, i)
-            Arc arc2 = new Arc(e.toNode, e.fromNode, e.traversalCost, e.demand, e.serviceCost, e.isRequired);
-            addArcToStructures(arc2);
-        }
+        this.incomingArcsTo.computeIfAbsent(arc.toNode(), k -> new ArrayList<>()).add(arc);
     }
 
     /**
@@ -112,11 +106,11 @@ public class TccPreProcessing {
         int serviceCost = 0;
 
         for (Node n : reqNodes.values()) {
-            serviceCost += n.serviceCost;
+            serviceCost += n.serviceCost();
         }
 
         for (Arc a : reqArcs.values()) {
-            serviceCost += a.serviceCost;
+            serviceCost += a.serviceCost();
         }
 
         System.out.println("Valor total de serviço: " + serviceCost);
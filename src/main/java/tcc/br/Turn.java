@@ -1,17 +1,50 @@
 package tcc.br;
 
+/**
+ * Conversão (i,j,l): chegar em j por (i,j) e sair por (j,l) (visão sobre o InstanceStore).
+ */
 public class Turn {
-    int i;          // fromNode
-    int j;          // midNode
-    int l;          // toNode
-    int cost;       // c_ijl: penalidade de tempo
-    String type;
-
-    public Turn(int i, int j, int l, int cost, String type) {
-        this.i = i;
-        this.j = j;
-        this.l = l;
-        this.cost = cost;
-        this.type = type;
+    private final InstanceStore store;
+    private final int index;
+
+    Turn(InstanceStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    /**
+     * fromNode
+     */
+    public int i() {
+        return store.turnI[index];
+    }
+
+    /**
+     * midNode
+     */
+    public int j() {
+        return store.turnJ[index];
+    }
+
+    /**
+     * toNode
+     */
+    public int l() {
+        return store.turnL[index];
+    }
+
+    /**
+     * c_ijl: penalidade de tempo.
+     */
+    public int cost() {
+        return store.turnCost[index];
+    }
+
+    public String type() {
+        return store.typeNames.get(store.turnType[index]);
     }
 }
@@ -0,0 +1,171 @@
+package tcc.br;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Remoção de conversões que nenhuma solução ótima usa (NEARP-TP), antes da criação
+ * das variáveis w.
+ * <p>Inalcançáveis: uma conversão (i,j,l) só cabe em uma rota se a ida do depósito até
+ * i, os arcos (i,j) e (j,l), a conversão e a volta de l ao depósito cabem em T_max. As
+ * distâncias são caminhos mínimos sem conversões (com o menor entre tempo de travessia
+ * e de serviço), um limitante inferior do tempo real. Em conversões no depósito cada
+ * arco é testado isoladamente, pois ali uma viagem termina e outra começa.
+ * <p>Dominadas: se existe um desvio a partir de (i,j) que volta a j e entra em (j,l)
+ * (conversões e travessias, sem passar pelo depósito) estritamente mais barato que a
+ * conversão, qualquer rota que a usa melhora trocando-a pelo desvio, que também gasta
+ * menos tempo. Todo desvio usa apenas conversões mais baratas que a dominada, então
+ * remover todas as dominadas ao mesmo tempo é seguro. A busca é um Dijkstra sobre os
+ * arcos limitado pelo custo da conversão, e conversões no depósito não são testadas.
+ */
+public class TurnPruning {
+    private final CplexData data;
+
+    // Arcos de A indexados, com as conversões que saem de cada um
+    private final List<Arc> arcs = new ArrayList<>();
+    private final Map<String, Integer> arcIndex = new HashMap<>();
+    private final List<List<Turn>> turnsFrom = new ArrayList<>();
+
+    private int unreachable;
+    private int dominated;
+
+    public TurnPruning(CplexData data) {
+        this.data = data;
+        for (Arc arc : data.getArcs().values()) {
+            arcIndex.put(arc.fromNode() + "-" + arc.toNode(), arcs.size());
+            arcs.add(arc);
+            turnsFrom.add(new ArrayList<>());
+        }
+        for (Turn turn : data.getTurns().values()) {
+            Integer in = arcIndex.get(turn.i() + "-" + turn.j());
+            if (in != null) {
+                turnsFrom.get(in).add(turn);
+            }
+        }
+    }
+
+    /**
+     * Remove as conversões inalcançáveis e dominadas de data.getTurns().
+     * @return Número de conversões removidas.
+     */
+    @SuppressWarnings("try")
+    public int prune() {
+        try (Instrumentation.Phase phase = Instrumentation.phase("preprocess.turns")) {
+            int depot = data.getRealDepotNodeId();
+            long tMax = data.getCapacity();
+            Map<Integer, Long> fromDepot = distances(depot, true);
+            Map<Integer, Long> toDepot = distances(depot, false);
+
+            List<String> removed = new ArrayList<>();
+            for (Map.Entry<String, Turn> entry : data.getTurns().entrySet()) {
+                Turn turn = entry.getValue();
+                Arc in = data.getArcs().get(turn.i() + "-" + turn.j());
+                Arc out = data.getArcs().get(turn.j() + "-" + turn.l());
+                if (in == null || out == null) continue;
+
+                long reachIn = fromDepot.getOrDefault(turn.i(), Long.MAX_VALUE / 4) + minTime(in);
+                long leaveOut = minTime(out) + toDepot.getOrDefault(turn.l(), Long.MAX_VALUE / 4);
+                boolean usable = turn.j() == depot
+                        ? reachIn + toDepot.getOrDefault(turn.j(), 0L) <= tMax && fromDepot.getOrDefault(turn.j(), 0L) + leaveOut <= tMax
+                        : reachIn + turn.cost() + leaveOut <= tMax;
+                if (!usable) {
+                    removed.add(entry.getKey());
+                    unreachable++;
+                } else if (turn.cost() > 0 && turn.j() != depot && hasCheaperDetour(turn, depot)) {
+                    removed.add(entry.getKey());
+                    dominated++;
+                }
+            }
+
+            for (String key : removed) {
+                data.getTurns().remove(key);
+            }
+            return removed.size();
+        }
+    }
+
+    /**
+     * Menor tempo para percorrer o arco: travessia ou, se requerido, o serviço.
+     */
+    private static long minTime(Arc arc) {
+        return arc.isRequired() ? Math.min(arc.traversalCost(), arc.serviceCost()) : arc.traversalCost();
+    }
+
+    /**
+     * Dijkstra sobre os nós, a partir do depósito (forward) ou até ele (reverso), sem conversões.
+     */
+    private Map<Integer, Long> distances(int source, boolean forward) {
+        Map<Integer, Long> dist = new HashMap<>();
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        dist.put(source, 0L);
+        queue.add(new long[] { 0, source });
+        while (!queue.isEmpty()) {
+            long[] head = queue.poll();
+            int u = (int) head[1];
+            if (head[0] > dist.get(u)) continue;
+            List<Arc> next = forward ? data.getOutgoingArcsFrom().get(u) : data.getIncomingArcsTo().get(u);
+            if (next == null) continue;
+            for (Arc arc : next) {
+                int v = forward ? arc.toNode() : arc.fromNode();
+                long d = head[0] + minTime(arc);
+                if (d < dist.getOrDefault(v, Long.MAX_VALUE)) {
+                    dist.put(v, d);
+                    queue.add(new long[] { d, v });
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Procura um desvio de (i,j) até a entrada em (j,l) com custo menor que o da conversão.
+     * O rótulo de um arco é o custo até entrar nele (conversões e arcos já percorridos).
+     */
+    private boolean hasCheaperDetour(Turn turn, int depot) {
+        int source = arcIndex.get(turn.i() + "-" + turn.j());
+        int target = arcIndex.get(turn.j() + "-" + turn.l());
+        long limit = turn.cost();
+
+        Map<Integer, Long> label = new HashMap<>();
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        for (Turn first : turnsFrom.get(source)) {
+            if (first == turn) continue;
+            relax(label, queue, arcIndex.get(first.j() + "-" + first.l()), first.cost(), limit);
+        }
+
+        while (!queue.isEmpty()) {
+            long[] head = queue.poll();
+            int a = (int) head[1];
+            if (head[0] > label.get(a)) continue;
+            if (a == target) return true;
+
+            Arc arc = arcs.get(a);
+            if (arc.toNode() == depot) continue;          // não atravessa o depósito
+            long passed = head[0] + arc.traversalCost();
+            for (Turn next : turnsFrom.get(a)) {
+                if (next == turn) continue;
+                relax(label, queue, arcIndex.get(next.j() + "-" + next.l()), passed + next.cost(), limit);
+            }
+        }
+        return false;
+    }
+
+    private static void relax(Map<Integer, Long> label, PriorityQueue<long[]> queue, Integer arc, long cost, long limit) {
+        if (arc == null || cost >= limit) return;
+        if (cost < label.getOrDefault(arc, Long.MAX_VALUE)) {
+            label.put(arc, cost);
+            queue.add(new long[] { cost, arc });
+        }
+    }
+
+    public int getUnreachable() {
+        return unreachable;
+    }
+
+    public int getDominated() {
+        return dominated;
+    }
+}
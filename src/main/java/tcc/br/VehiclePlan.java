@@ -0,0 +1,58 @@
+package tcc.br;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Valores das variáveis de decisão de um único veículo, sem o índice k.
+ * Permite mover a rota de um veículo entre modelos (ex.: do modelo completo
+ * para um sub-MIP e de volta), já que os veículos são idênticos.
+ * <p>Apenas valores não nulos são armazenados.
+ */
+public class VehiclePlan {
+    final Map<String, Double> x = new HashMap<>();     // chave "i-j"
+    final Map<Integer, Double> z = new HashMap<>();    // chave nodeId
+    final Map<String, Double> y = new HashMap<>();     // chave "i-j"
+    final Map<String, Double> f = new HashMap<>();     // chave "i-j"
+    final Map<String, Double> w = new HashMap<>();     // chave "i-j-l"
+    int cost;                                          // Z_k
+
+    /**
+     * Nós tocados pela rota (extremidades de arcos servidos ou atravessados e nós servidos).
+     */
+    public Set<Integer> visitedNodes() {
+        Set<Integer> nodes = new HashSet<>(z.keySet());
+        for (String key : x.keySet()) {
+            addArcEndpoints(nodes, key);
+        }
+        for (String key : y.keySet()) {
+            addArcEndpoints(nodes, key);
+        }
+        return nodes;
+    }
+
+    private static void addArcEndpoints(Set<Integer> nodes, String arcKey) {
+        String[] ij = arcKey.split("-");
+        nodes.add(Integer.parseInt(ij[0]));
+        nodes.add(Integer.parseInt(ij[1]));
+    }
+
+    /**
+     * Representação canônica da rota (x, z, y e w, em ordem de chave), independente de k.
+     * Desconsidera f, que é determinado pela sequência da rota.
+     */
+    public String signature() {
+        return "x" + new TreeMap<>(x) + "z" + new TreeMap<>(z) + "y" + new TreeMap<>(y) + "w" + new TreeMap<>(w);
+    }
+
+    public boolean isEmpty() {
+        return x.isEmpty() && z.isEmpty() && y.isEmpty();
+    }
+
+    public int getCost() {
+        return cost;
+    }
+}